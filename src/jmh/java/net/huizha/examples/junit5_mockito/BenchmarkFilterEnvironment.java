@@ -0,0 +1,97 @@
+package net.huizha.examples.junit5_mockito;
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+
+import net.huizha.examples.filters.Context;
+import net.huizha.examples.filters.FilterConfig;
+
+/**
+ * Container environment of a {@link SessionFilter} under benchmark: its init parameters and the JNDI context holding
+ * its OIDC session management configuration.
+ *
+ * @author Zhahui
+ *
+ */
+class BenchmarkFilterEnvironment implements FilterConfig {
+    private static final String JNDI_OIDC_SESSION_MANAGEMENT_CONFIG = "java:comp/env/config/OidcSessionManagementConfig";
+
+    private final Map<String, String> initParameters = new HashMap<>();
+    private final OidcSessionManagementConfig oidcSessionManagementConfig = new OidcSessionManagementConfig();
+
+    /**
+     * Create the environment of a filter calling the given stub server.
+     *
+     * @param baseUrl the base URL of the session management service
+     */
+    BenchmarkFilterEnvironment(String baseUrl) {
+        oidcSessionManagementConfig.setBaseUrl(baseUrl);
+        oidcSessionManagementConfig.setValidateSessionContextPath(
+            StubSessionManagementServer.VALIDATE_SESSION_CONTEXT_PATH);
+        oidcSessionManagementConfig.setRefreshSessionContextPath(
+            StubSessionManagementServer.REFRESH_SESSION_CONTEXT_PATH);
+        oidcSessionManagementConfig.setOidcClientId("benchmark-client-id");
+    }
+
+    /**
+     * @return the OIDC session management configuration, to be adjusted before the filter is initialized
+     */
+    OidcSessionManagementConfig getOidcSessionManagementConfig() {
+        return oidcSessionManagementConfig;
+    }
+
+    /**
+     * Set an init parameter of the filter.
+     *
+     * @param name the parameter name
+     * @param value the parameter value
+     * @return this environment
+     */
+    BenchmarkFilterEnvironment withInitParameter(String name, String value) {
+        initParameters.put(name, value);
+        return this;
+    }
+
+    /**
+     * Create and initialize a filter in this environment.
+     *
+     * @return the initialized filter
+     * @throws NamingException if the JNDI context could not be created
+     */
+    SessionFilter createFilter() throws NamingException {
+        SessionFilter filter = new SessionFilter();
+        filter.setInitialContext(new InitialContext(true) {
+            @Override
+            public Object lookup(String name) throws NamingException {
+                return JNDI_OIDC_SESSION_MANAGEMENT_CONFIG.equals(name) ? oidcSessionManagementConfig : null;
+            }
+        });
+        filter.init(this);
+        return filter;
+    }
+
+    @Override
+    public String getFilterName() {
+        return "SessionFilter";
+    }
+
+    @Override
+    public String getInitParameter(String name) {
+        return initParameters.get(name);
+    }
+
+    @Override
+    public Enumeration<String> getInitParameterNames() {
+        return Collections.enumeration(initParameters.keySet());
+    }
+
+    @Override
+    public Context getContext() {
+        return null;
+    }
+}
@@ -0,0 +1,83 @@
+package net.huizha.examples.junit5_mockito;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Cost of reading the {@code sub}, {@code oidc-session-ref} and {@code exp} claims of an ID token: {@code map} decodes
+ * the payload into a string and a map of all claims, as {@code OidcClientHelper.getJwtClaimsFromIdTokenAsMap} does,
+ * {@code targeted} scans the payload with {@link JwtClaimExtractor}. {@code tokenSize} is the approximate length of the
+ * token in bytes. Run with {@code -prof gc} to see the bytes allocated per token.
+ *
+ * @author Zhahui
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JwtClaimExtractionBenchmark {
+    private static final JwtClaimExtractor EXTRACTOR = new JwtClaimExtractor("sub", "oidc-session-ref", "exp");
+
+    @Param({ "1024", "2048" })
+    private int tokenSize;
+
+    private String idToken;
+
+    @Setup
+    public void setUp() {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        StringBuilder claims = new StringBuilder("{\"iss\":\"https://login.example.com/oidc\",\"aud\":\"client-1\","
+            + "\"iat\":1600000000,\"auth_time\":1600000000,\"email\":\"first.last@example.com\",\"groups\":[");
+        // Base64url makes the payload 4/3 larger; the header and signature take about 400 bytes
+        for (int i = 0; claims.length() * 4 / 3 < tokenSize - 400; i++) {
+            claims.append(i == 0 ? "" : ",").append("\"group-").append(i).append('"');
+        }
+        claims.append("],\"sub\":\"user-1\",\"oidc-session-ref\":\"0f8fad5b-d9cb-469f-a165-70867728950e\","
+            + "\"exp\":1600003600}");
+        idToken = encoder.encodeToString("{\"alg\":\"RS256\",\"kid\":\"rsa-1\",\"typ\":\"JWT\"}"
+            .getBytes(StandardCharsets.UTF_8)) + "." + encoder.encodeToString(
+                claims.toString().getBytes(StandardCharsets.UTF_8)) + "." + encoder.encodeToString(new byte[256]);
+    }
+
+    @Benchmark
+    public void map(Blackhole blackhole) {
+        int payloadStart = idToken.indexOf('.') + 1;
+        String payload = new String(
+            Base64.getUrlDecoder().decode(idToken.substring(payloadStart, idToken.indexOf('.', payloadStart))),
+            StandardCharsets.UTF_8);
+        Map<String, String> claimsMap = new HashMap<>();
+        for (Map.Entry<String, Object> claim : JsonParser.parseObject(payload).entrySet()) {
+            claimsMap.put(claim.getKey(), String.valueOf(claim.getValue()));
+        }
+        blackhole.consume(claimsMap.get("sub"));
+        blackhole.consume(claimsMap.get("oidc-session-ref"));
+        blackhole.consume(claimsMap.get("exp"));
+    }
+
+    @Benchmark
+    public void targeted(Blackhole blackhole) {
+        String[] values = EXTRACTOR.extract(idToken);
+        blackhole.consume(values[0]);
+        blackhole.consume(values[1]);
+        blackhole.consume(values[2]);
+    }
+}
@@ -0,0 +1,107 @@
+package net.huizha.examples.junit5_mockito;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.Header;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to complete a burst of blocking session management calls against a slow stub service, on the bounded platform
+ * thread pool of asynchronous refreshing and on virtual threads. Every call holds its thread for the stub delay, so the
+ * platform pool completes at most {@code poolSize} calls per delay while virtual threads are only bounded by the HTTP
+ * connection pool.
+ * <p>
+ * The {@code virtual} mode needs JDK 21 or later and fails its setup on older JDKs, e.g.
+ * {@code JAVA_HOME=<jdk21> mvn -Pjmh test-compile exec:exec -Djmh.args="RefreshThreadModeBenchmark"}.
+ *
+ * @author Zhahui
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Dlog4j.configurationFile=log4j2-jmh.xml", "-Dsun.net.httpserver.nodelay=true" })
+@State(Scope.Benchmark)
+public class RefreshThreadModeBenchmark {
+    private static final int POOL_SIZE = 16;
+    private static final int BURST_SIZE = 200;
+
+    @Param({ "platform", "virtual" })
+    private String threadMode;
+
+    @Param({ "20" })
+    private long serviceDelayInMillis;
+
+    private StubSessionManagementServer server;
+    private SessionManagementClient client;
+    private ExecutorService executor;
+    private Callable<SessionStatus>[] calls;
+    private Future<?>[] futures;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() throws IOException {
+        server = new StubSessionManagementServer();
+        server.delayResponses(serviceDelayInMillis);
+        SessionManagementClientConfig clientConfig = new SessionManagementClientConfig();
+        clientConfig.setMaxConnectionsTotal(BURST_SIZE);
+        clientConfig.setMaxConnectionsPerRoute(BURST_SIZE);
+        client = new SessionManagementClient(clientConfig);
+
+        if ("virtual".equals(threadMode)) {
+            executor = RefreshExecutors.newVirtualThreadPerTaskExecutor();
+            if (executor == null) {
+                throw new IllegalStateException("Virtual threads require JDK 21 or later");
+            }
+        } else {
+            executor = RefreshExecutors.newPlatformThreadPool(POOL_SIZE, BURST_SIZE);
+        }
+
+        Header oidcClientIdHeader = SessionManagementClient.createOidcClientIdHeader("benchmark-client-id");
+        URI uri = URI.create(server.getBaseUrl() + StubSessionManagementServer.VALIDATE_SESSION_CONTEXT_PATH);
+        calls = new Callable[BURST_SIZE];
+        for (int i = 0; i < BURST_SIZE; i++) {
+            String oidcSessionRef = "benchmark-session-" + i;
+            calls[i] = () -> client.postForSessionStatus(uri, oidcClientIdHeader, oidcSessionRef);
+        }
+        futures = new Future<?>[BURST_SIZE];
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        executor.shutdownNow();
+        client.close();
+        server.close();
+    }
+
+    /**
+     * Submit one call per OIDC session of the burst and wait for all of them.
+     */
+    @Benchmark
+    public void burst() throws InterruptedException, ExecutionException {
+        for (int i = 0; i < BURST_SIZE; i++) {
+            futures[i] = executor.submit(calls[i]);
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+}
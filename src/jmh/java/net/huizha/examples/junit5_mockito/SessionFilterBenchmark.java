@@ -0,0 +1,131 @@
+package net.huizha.examples.junit5_mockito;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.naming.NamingException;
+import javax.servlet.http.HttpSession;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.huizha.examples.filters.FilterChain;
+import net.huizha.examples.requestresponse.Request;
+import net.huizha.examples.requestresponse.Response;
+
+/**
+ * Baseline of {@link SessionFilter#doFilter} on each of its paths, with an initialized filter calling an in-process stub
+ * of the session management service. Throughput and sample time (with latency percentiles) are both reported; the
+ * {@code jmh} profile adds {@code -prof gc} for the allocation rate.
+ *
+ * @author Zhahui
+ *
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+// The JDK HTTP server behind the stub uses Nagle's algorithm by default, which adds delayed-ACK stalls to every call
+@Fork(value = 1, jvmArgsAppend = { "-Dlog4j.configurationFile=log4j2-jmh.xml", "-Dsun.net.httpserver.nodelay=true" })
+@State(Scope.Benchmark)
+public class SessionFilterBenchmark {
+    private static final String OIDC_ACCESS_TOKEN_KEY = "oidc-access-token";
+    private static final String OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY = "oidc-next-refresh-epoch-millis";
+    private static final Long DUE_FOR_REFRESH = 0L;
+
+    private StubSessionManagementServer server;
+    private SessionFilter filter;
+    private HttpSession dueHttpSession;
+    private Request notDueRequest;
+    private Request dueRequest;
+    private Request nullAccessTokenRequest;
+    private Request nullHttpSessionRequest;
+    private Request invalidAccessTokenRequest;
+    private Response response;
+    private FilterChain filterChain;
+
+    @Setup
+    public void setUp() throws IOException, NamingException {
+        server = new StubSessionManagementServer();
+        filter = new BenchmarkFilterEnvironment(server.getBaseUrl()).createFilter();
+
+        HttpSession notDueHttpSession = newHttpSession("not-due", "benchmark-access-token", Long.MAX_VALUE);
+        dueHttpSession = newHttpSession("due", "benchmark-access-token", DUE_FOR_REFRESH);
+        HttpSession nullAccessTokenHttpSession = newHttpSession("null-access-token", null, Long.MAX_VALUE);
+        // A blank access token carries no ID token, so decoding its claims fails with IllegalArgumentException
+        HttpSession invalidAccessTokenHttpSession = newHttpSession("invalid-access-token", " ", DUE_FOR_REFRESH);
+
+        notDueRequest = () -> notDueHttpSession;
+        dueRequest = () -> dueHttpSession;
+        nullAccessTokenRequest = () -> nullAccessTokenHttpSession;
+        nullHttpSessionRequest = () -> null;
+        invalidAccessTokenRequest = () -> invalidAccessTokenHttpSession;
+        response = new Response() {
+        };
+        filterChain = (chainedRequest, chainedResponse) -> {
+        };
+    }
+
+    @TearDown
+    public void tearDown() {
+        filter.destroy();
+        server.close();
+    }
+
+    /**
+     * The session was refreshed recently: the path taken by almost every request.
+     */
+    @Benchmark
+    public void notDue() {
+        filter.doFilter(notDueRequest, response, filterChain);
+    }
+
+    /**
+     * The session is due: claims are decoded, then the session is validated and refreshed with two HTTP calls.
+     */
+    @Benchmark
+    public void dueAndRefresh() {
+        dueHttpSession.setAttribute(OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY, DUE_FOR_REFRESH);
+        filter.doFilter(dueRequest, response, filterChain);
+    }
+
+    /**
+     * The container session has no access token: a warning is logged.
+     */
+    @Benchmark
+    public void nullAccessToken() {
+        filter.doFilter(nullAccessTokenRequest, response, filterChain);
+    }
+
+    /**
+     * The container session has expired: the NullPointerException path logs an error with its stack trace.
+     */
+    @Benchmark
+    public void nullHttpSession() {
+        filter.doFilter(nullHttpSessionRequest, response, filterChain);
+    }
+
+    /**
+     * The access token cannot be decoded: the IllegalArgumentException path logs an error with its stack trace.
+     */
+    @Benchmark
+    public void invalidAccessToken() {
+        filter.doFilter(invalidAccessTokenRequest, response, filterChain);
+    }
+
+    private static HttpSession newHttpSession(String id, String accessToken, Long nextRefreshEpochMillis) {
+        HttpSession httpSession = new MapHttpSession(id);
+        httpSession.setAttribute(OIDC_ACCESS_TOKEN_KEY, accessToken);
+        httpSession.setAttribute(OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY, nextRefreshEpochMillis);
+        return httpSession;
+    }
+}
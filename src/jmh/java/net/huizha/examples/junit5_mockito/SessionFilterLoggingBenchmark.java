@@ -0,0 +1,59 @@
+package net.huizha.examples.junit5_mockito;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.huizha.examples.filters.FilterChain;
+import net.huizha.examples.requestresponse.Request;
+import net.huizha.examples.requestresponse.Response;
+
+/**
+ * Cost of the logging done by {@link SessionFilter#doFilter} for a session that is not due for refresh, with the
+ * logging configured as in production (INFO level). Run with {@code -prof gc} to see the bytes allocated per request.
+ *
+ * @author Zhahui
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-jmh.xml")
+@State(Scope.Thread)
+public class SessionFilterLoggingBenchmark {
+    private static final String OIDC_ACCESS_TOKEN_KEY = "oidc-access-token";
+    private static final String OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY = "oidc-next-refresh-epoch-millis";
+
+    private SessionFilter filter;
+    private Request request;
+    private Response response;
+    private FilterChain filterChain;
+
+    @Setup
+    public void setUp() {
+        filter = new SessionFilter();
+        MapHttpSession httpSession = new MapHttpSession("benchmark-session");
+        httpSession.setAttribute(OIDC_ACCESS_TOKEN_KEY, "benchmark-access-token");
+        httpSession.setAttribute(OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY, Long.MAX_VALUE);
+        request = () -> httpSession;
+        response = new Response() {
+        };
+        filterChain = (chainedRequest, chainedResponse) -> {
+        };
+    }
+
+    @Benchmark
+    public void doFilterNotDue() {
+        filter.doFilter(request, response, filterChain);
+    }
+}
@@ -0,0 +1,77 @@
+package net.huizha.examples.junit5_mockito;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.util.EntityUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of reading the status of an OIDC session from a refreshing response: {@code buffered} decodes the whole body
+ * into a string as {@code BasicResponseHandler} does and searches it, {@code streaming} reads it with
+ * {@link SessionStatusReader}. The {@code large} response carries about 4 KB of claims after the status fields. Run with
+ * {@code -prof gc} to see the bytes allocated per response.
+ *
+ * @author Zhahui
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SessionStatusParsingBenchmark {
+    private static final Pattern EXPIRES_IN_PATTERN = Pattern.compile("\"expires_in\"\\s*:\\s*(\\d{1,12})");
+    private static final String SMALL_RESPONSE = "{\"valid\": true, \"expires_in\": 600}";
+
+    @Param({ "small", "large" })
+    private String size;
+
+    private byte[] body;
+
+    @Setup
+    public void setUp() {
+        StringBuilder json = new StringBuilder(SMALL_RESPONSE);
+        if ("large".equals(size)) {
+            json.setLength(json.length() - 1);
+            json.append(", \"claims\": {");
+            for (int i = 0; i < 100; i++) {
+                json.append(i == 0 ? "" : ", ").append("\"claim-").append(i).append("\": \"value-of-claim-").append(i)
+                    .append('"');
+            }
+            json.append("}}");
+        }
+        body = json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public long buffered() throws IOException {
+        String response = EntityUtils.toString(new ByteArrayEntity(body, ContentType.APPLICATION_JSON));
+        Matcher matcher = EXPIRES_IN_PATTERN.matcher(response);
+        long expiresInMillis = matcher.find() ? TimeUnit.SECONDS.toMillis(Long.parseLong(matcher.group(1))) : -1;
+        return response.contains("\"valid\": false") ? -expiresInMillis : expiresInMillis;
+    }
+
+    @Benchmark
+    public long streaming() throws IOException {
+        SessionStatus status = SessionStatusReader.read(new ByteArrayInputStream(body));
+        return status.isInvalid() ? -status.getExpiresInMillis() : status.getExpiresInMillis();
+    }
+}
@@ -0,0 +1,41 @@
+package net.huizha.examples.filters;
+
+import java.util.concurrent.CompletionStage;
+
+import net.huizha.examples.requestresponse.Request;
+import net.huizha.examples.requestresponse.Response;
+
+/**
+ * The asynchronous counterpart of {@link Filter}. An asynchronous filter does not block the calling thread while it
+ * waits for I/O: it returns a {@link CompletionStage} and passes the request on along the {@link AsyncFilterChain} when
+ * its own work is done. Synchronous filters run in an asynchronous chain through {@link SynchronousFilterAdapter}.
+ *
+ * @author Zhahui
+ *
+ */
+public interface AsyncFilter {
+    /**
+     * Initialize the filter. Called by the container exactly once after instantiating the filter, before the filter is
+     * asked to do any filtering work.
+     *
+     * @param filterConfig a FilterConfig object containing the filter's configuration and initialization parameters
+     * @throws FilterException if an exception has occurred that interferes with the filter's normal operation
+     */
+    public void init(FilterConfig filterConfig);
+
+    /**
+     * Start the filter function. Failures are reported through the returned stage rather than thrown.
+     *
+     * @param request the Request object contains the client's request
+     * @param response the Response object contains the filter's response
+     * @param chain the AsyncFilterChain for invoking the next filter or the resource
+     * @return a stage completed when the filter and the rest of the chain have completed
+     */
+    public CompletionStage<Void> doFilterAsync(Request request, Response response, AsyncFilterChain chain);
+
+    /**
+     * Clean up the filter. Called by the container once all filtering work has completed or after a timeout period has
+     * passed, to indicate to a filter that it is being taken out of service.
+     */
+    public void destroy();
+}
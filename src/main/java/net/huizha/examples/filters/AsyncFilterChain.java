@@ -0,0 +1,27 @@
+package net.huizha.examples.filters;
+
+import java.util.concurrent.CompletionStage;
+
+import net.huizha.examples.requestresponse.Request;
+import net.huizha.examples.requestresponse.Response;
+
+/**
+ * The asynchronous counterpart of {@link FilterChain}: invoking the next filter, or the resource at the end of the
+ * chain, returns as soon as the work is started and reports its completion through a {@link CompletionStage}.
+ *
+ * @author Zhahui
+ *
+ */
+public interface AsyncFilterChain {
+    /**
+     * Causes the next filter in the chain to be invoked, or if the calling filter is the last filter in the chain,
+     * causes the resource at the end of the chain to be invoked.
+     *
+     * @param request the request to pass along the chain
+     * @param response the response to pass along the chain
+     * @return a stage completed when the rest of the chain has completed, or completed exceptionally with the failure
+     * of the rest of the chain
+     */
+    public CompletionStage<Void> doFilter(Request request, Response response);
+
+}
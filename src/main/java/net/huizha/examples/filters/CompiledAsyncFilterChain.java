@@ -0,0 +1,79 @@
+package net.huizha.examples.filters;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import net.huizha.examples.requestresponse.Request;
+import net.huizha.examples.requestresponse.Response;
+
+/**
+ * The asynchronous counterpart of {@link CompiledFilterChain}: an asynchronous filter chain compiled once from a list
+ * of asynchronous filters, so that passing a request along the chain allocates no per-request chain object.
+ *
+ * @author Zhahui
+ *
+ */
+public final class CompiledAsyncFilterChain implements AsyncFilterChain {
+    private final AsyncFilterChain[] links;
+
+    /**
+     * Compile an asynchronous filter chain.
+     *
+     * @param filters the filters, in invocation order
+     * @param resource the chain invoked after the last filter, i.e. the resource at the end of the chain
+     * @throws IllegalArgumentException if the filters, one of them, or the resource is null
+     */
+    public CompiledAsyncFilterChain(List<? extends AsyncFilter> filters, AsyncFilterChain resource) {
+        if (filters == null || resource == null) {
+            throw new IllegalArgumentException("filters and resource must not be null");
+        }
+        AsyncFilter[] filterArray = filters.toArray(new AsyncFilter[0]);
+        links = new AsyncFilterChain[filterArray.length + 1];
+        links[filterArray.length] = resource;
+        for (int index = filterArray.length - 1; index >= 0; index--) {
+            if (filterArray[index] == null) {
+                throw new IllegalArgumentException("Filter at index " + index + " is null");
+            }
+            links[index] = new Link(filterArray[index], links[index + 1]);
+        }
+    }
+
+    /**
+     * Pass the request and response to the first filter of the chain, or to the resource if the chain has no filter.
+     */
+    @Override
+    public CompletionStage<Void> doFilter(Request request, Response response) {
+        return links[0].doFilter(request, response);
+    }
+
+    /**
+     * @return the number of filters in the chain
+     */
+    public int size() {
+        return links.length - 1;
+    }
+
+    /**
+     * The position of one filter in the chain. A filter throwing instead of returning a failed stage is reported as a
+     * failed stage too.
+     */
+    private static final class Link implements AsyncFilterChain {
+        private final AsyncFilter filter;
+        private final AsyncFilterChain next;
+
+        private Link(AsyncFilter filter, AsyncFilterChain next) {
+            this.filter = filter;
+            this.next = next;
+        }
+
+        @Override
+        public CompletionStage<Void> doFilter(Request request, Response response) {
+            try {
+                return filter.doFilterAsync(request, response, next);
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+    }
+}
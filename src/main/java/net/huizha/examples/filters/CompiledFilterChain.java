@@ -0,0 +1,77 @@
+package net.huizha.examples.filters;
+
+import java.util.List;
+
+import net.huizha.examples.requestresponse.Request;
+import net.huizha.examples.requestresponse.Response;
+
+/**
+ * A filter chain compiled once from a list of filters. The filters are copied into a flat array and each position of
+ * the array gets its own link, a {@link FilterChain} that invokes the filter at its index with the link of the next
+ * index. Passing a request along the chain therefore allocates neither an iterator nor a per-request chain object, and
+ * the same compiled chain can be shared by all threads.
+ * <p>
+ * Changes to the list after compilation are not seen by the chain.
+ *
+ * @author Zhahui
+ *
+ */
+public final class CompiledFilterChain implements FilterChain {
+    private final Filter[] filters;
+    private final FilterChain[] links;
+
+    /**
+     * Compile a filter chain.
+     *
+     * @param filters the filters, in invocation order
+     * @param resource the chain invoked after the last filter, i.e. the resource at the end of the chain
+     * @throws IllegalArgumentException if the filters, one of them, or the resource is null
+     */
+    public CompiledFilterChain(List<? extends Filter> filters, FilterChain resource) {
+        if (filters == null || resource == null) {
+            throw new IllegalArgumentException("filters and resource must not be null");
+        }
+        this.filters = filters.toArray(new Filter[0]);
+        links = new FilterChain[this.filters.length + 1];
+        links[this.filters.length] = resource;
+        for (int index = this.filters.length - 1; index >= 0; index--) {
+            if (this.filters[index] == null) {
+                throw new IllegalArgumentException("Filter at index " + index + " is null");
+            }
+            links[index] = new Link(this.filters[index], links[index + 1]);
+        }
+    }
+
+    /**
+     * Pass the request and response to the first filter of the chain, or to the resource if the chain has no filter.
+     */
+    @Override
+    public void doFilter(Request request, Response response) {
+        links[0].doFilter(request, response);
+    }
+
+    /**
+     * @return the number of filters in the chain
+     */
+    public int size() {
+        return filters.length;
+    }
+
+    /**
+     * The position of one filter in the chain.
+     */
+    private static final class Link implements FilterChain {
+        private final Filter filter;
+        private final FilterChain next;
+
+        private Link(Filter filter, FilterChain next) {
+            this.filter = filter;
+            this.next = next;
+        }
+
+        @Override
+        public void doFilter(Request request, Response response) {
+            filter.doFilter(request, response, next);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package net.huizha.examples.filters;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import net.huizha.examples.requestresponse.Request;
+import net.huizha.examples.requestresponse.Response;
+
+/**
+ * Run a synchronous {@link Filter} in an {@link AsyncFilterChain}. The filter runs on the calling thread; when it
+ * passes the request on, the rest of the asynchronous chain is started and its stage becomes the stage of the filter.
+ * <p>
+ * Work the synchronous filter does after its call to {@link FilterChain#doFilter} returns may run before the rest of
+ * the asynchronous chain has completed.
+ *
+ * @author Zhahui
+ *
+ */
+public final class SynchronousFilterAdapter implements AsyncFilter {
+    private final Filter filter;
+
+    /**
+     * Adapt a synchronous filter.
+     *
+     * @param filter the synchronous filter
+     * @throws IllegalArgumentException if the filter is null
+     */
+    public SynchronousFilterAdapter(Filter filter) {
+        if (filter == null) {
+            throw new IllegalArgumentException("filter must not be null");
+        }
+        this.filter = filter;
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) {
+        filter.init(filterConfig);
+    }
+
+    /**
+     * Run the synchronous filter.
+     *
+     * @return the stage of the rest of the chain, a completed stage if the filter did not pass the request on, or a
+     * stage completed exceptionally with the exception thrown by the filter
+     */
+    @Override
+    public CompletionStage<Void> doFilterAsync(Request request, Response response, AsyncFilterChain chain) {
+        ChainStageRecorder chainStageRecorder = new ChainStageRecorder(chain);
+        try {
+            filter.doFilter(request, response, chainStageRecorder);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return chainStageRecorder.stage == null ? CompletableFuture.completedFuture(null) : chainStageRecorder.stage;
+    }
+
+    @Override
+    public void destroy() {
+        filter.destroy();
+    }
+
+    /**
+     * The synchronous view of the asynchronous chain given to the filter, recording the stage of the rest of the
+     * chain.
+     */
+    private static final class ChainStageRecorder implements FilterChain {
+        private final AsyncFilterChain chain;
+        private CompletionStage<Void> stage;
+
+        private ChainStageRecorder(AsyncFilterChain chain) {
+            this.chain = chain;
+        }
+
+        @Override
+        public void doFilter(Request request, Response response) {
+            stage = chain.doFilter(request, response);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package net.huizha.examples.filters;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Access to virtual threads on JDKs that support them (JDK 21 and later), for filters and containers compiled for an
+ * older release. The JDK API is looked up reflectively once; on JDKs without virtual threads the factory methods
+ * return null so that callers can fall back to platform threads.
+ * <p>
+ * Code running on virtual threads should block with {@link java.util.concurrent.locks.Lock}s rather than inside
+ * {@code synchronized} blocks, which pin the virtual thread to its carrier thread while it waits for I/O.
+ *
+ * @author Zhahui
+ *
+ */
+public final class VirtualThreads {
+    private static final Method OF_VIRTUAL = getMethod(Thread.class, "ofVirtual");
+    private static final Method BUILDER_NAME = getMethod(getClass("java.lang.Thread$Builder"), "name", String.class,
+        long.class);
+    private static final Method BUILDER_FACTORY = getMethod(getClass("java.lang.Thread$Builder"), "factory");
+    private static final Method NEW_THREAD_PER_TASK_EXECUTOR = getMethod(Executors.class, "newThreadPerTaskExecutor",
+        ThreadFactory.class);
+    private static final Method IS_VIRTUAL = getMethod(Thread.class, "isVirtual");
+
+    /**
+     * Private constructor.
+     */
+    private VirtualThreads() {
+
+    }
+
+    /**
+     * @return true if this JVM supports virtual threads
+     */
+    public static boolean isSupported() {
+        return OF_VIRTUAL != null && BUILDER_NAME != null && BUILDER_FACTORY != null
+            && NEW_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * Create a factory of virtual threads named with the given prefix and a counter, e.g. {@code prefix-1}.
+     *
+     * @param namePrefix the thread name prefix
+     * @return the thread factory, or null if this JVM does not support virtual threads
+     */
+    public static ThreadFactory newThreadFactory(String namePrefix) {
+        if (!isSupported()) {
+            return null;
+        }
+        try {
+            Object builder = BUILDER_NAME.invoke(OF_VIRTUAL.invoke(null), namePrefix, 1L);
+            return (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Create an executor starting a new virtual thread for each task.
+     *
+     * @param namePrefix the thread name prefix
+     * @return the executor, or null if this JVM does not support virtual threads
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String namePrefix) {
+        ThreadFactory threadFactory = newThreadFactory(namePrefix);
+        if (threadFactory == null) {
+            return null;
+        }
+        try {
+            return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, threadFactory);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param thread the thread
+     * @return true if the thread is a virtual thread; always false on JVMs without virtual threads
+     */
+    public static boolean isVirtual(Thread thread) {
+        if (IS_VIRTUAL == null) {
+            return false;
+        }
+        try {
+            return (Boolean) IS_VIRTUAL.invoke(thread);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            return false;
+        }
+    }
+
+    private static Class<?> getClass(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+
+    private static Method getMethod(Class<?> type, String name, Class<?>... parameterTypes) {
+        if (type == null) {
+            return null;
+        }
+        try {
+            return type.getMethod(name, parameterTypes);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
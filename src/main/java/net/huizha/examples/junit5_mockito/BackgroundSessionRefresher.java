@@ -0,0 +1,192 @@
+package net.huizha.examples.junit5_mockito;
+
+import java.io.Closeable;
+import java.time.Clock;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpSession;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Refresh the OIDC sessions of active HTTP sessions in the background, at their deadline, instead of on the request
+ * path.
+ * <p>
+ * Requests register their OIDC session, which costs one map lookup and one volatile write once the session is known.
+ * Each known session is scheduled on a {@link HashedTimingWheel} turned by a single scheduler thread. When a session
+ * comes due, its refresh is started and the session is rescheduled at the new deadline once the refresh completes, or
+ * one retry delay later if no refresh could be started or the deadline did not move. Sessions that have not been seen by
+ * any request for the idle timeout are dropped when they come due, and so are sessions whose HTTP session has been
+ * invalidated.
+ *
+ * @author Zhahui
+ *
+ */
+class BackgroundSessionRefresher implements Closeable {
+    private static final Logger LOGGER = LogManager.getLogger(BackgroundSessionRefresher.class);
+    private static final int WHEEL_SIZE = 512;
+
+    /**
+     * Start the refresh of one OIDC session.
+     */
+    @FunctionalInterface
+    interface RefreshFunction {
+        /**
+         * @param sub the JWT subject
+         * @param oidcSessionRef the OIDC session reference
+         * @param httpSession the HTTP session object
+         * @return the refresh started, or null if none was started
+         */
+        CompletableFuture<Boolean> refresh(String sub, String oidcSessionRef, HttpSession httpSession);
+    }
+
+    private final ConcurrentMap<String, TrackedSession> trackedSessions = new ConcurrentHashMap<>();
+    private final Clock clock;
+    private final SessionRefreshTimestamps refreshTimestamps;
+    private final RefreshFunction refreshFunction;
+    private final long idleTimeoutInMillis;
+    private final long retryDelayInMillis;
+    private final HashedTimingWheel<TrackedSession> wheel;
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Create a background refresher. The wheel is only turned by {@link #advance()} until {@link #start()} is called.
+     *
+     * @param clock the clock
+     * @param refreshTimestamps the refresh deadlines of HTTP sessions
+     * @param refreshFunction the function starting the refresh of an OIDC session
+     * @param idleTimeoutInMillis the time after which a session not seen by any request is dropped
+     * @param retryDelayInMillis the time after which a refresh that could not be started or did not succeed is retried
+     * @param tickInMillis the resolution of the timing wheel
+     */
+    BackgroundSessionRefresher(Clock clock, SessionRefreshTimestamps refreshTimestamps,
+            RefreshFunction refreshFunction, long idleTimeoutInMillis, long retryDelayInMillis, long tickInMillis) {
+        this.clock = clock;
+        this.refreshTimestamps = refreshTimestamps;
+        this.refreshFunction = refreshFunction;
+        this.idleTimeoutInMillis = idleTimeoutInMillis;
+        this.retryDelayInMillis = retryDelayInMillis;
+        wheel = new HashedTimingWheel<>(clock, tickInMillis, WHEEL_SIZE, this::onDue);
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "oidc-session-refresh-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Start turning the wheel every tick on the scheduler thread.
+     */
+    void start() {
+        long tickInMillis = wheel.getTickInMillis();
+        scheduler.scheduleWithFixedDelay(this::advance, tickInMillis, tickInMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Record that a request of the session has been seen, and start tracking the session if it is new.
+     *
+     * @param sub the JWT subject
+     * @param oidcSessionRef the OIDC session reference
+     * @param httpSession the HTTP session object
+     */
+    void register(String sub, String oidcSessionRef, HttpSession httpSession) {
+        long nowMillis = clock.millis();
+        TrackedSession trackedSession = trackedSessions.get(oidcSessionRef);
+        if (trackedSession != null) {
+            trackedSession.lastSeenMillis = nowMillis;
+            return;
+        }
+        trackedSession = new TrackedSession(sub, oidcSessionRef, httpSession, nowMillis);
+        if (trackedSessions.putIfAbsent(oidcSessionRef, trackedSession) == null) {
+            wheel.schedule(trackedSession, refreshTimestamps.getNextRefreshEpochMillis(httpSession));
+            LOGGER.debug("Tracking OIDC session for background refreshing. sub={}, OidcSessionRef={}", sub,
+                oidcSessionRef);
+        }
+    }
+
+    /**
+     * @return the number of tracked sessions
+     */
+    int size() {
+        return trackedSessions.size();
+    }
+
+    /**
+     * Turn the wheel up to the current time, starting the refresh of due sessions.
+     */
+    void advance() {
+        wheel.advance(clock.millis());
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        trackedSessions.clear();
+    }
+
+    private void onDue(TrackedSession trackedSession) {
+        if (trackedSessions.get(trackedSession.oidcSessionRef) != trackedSession) {
+            // Dropped, or the refresher is closed
+            return;
+        }
+        long nowMillis = clock.millis();
+        if (nowMillis - trackedSession.lastSeenMillis >= idleTimeoutInMillis) {
+            trackedSessions.remove(trackedSession.oidcSessionRef, trackedSession);
+            LOGGER.debug("Dropped idle OIDC session from background refreshing. sub={}, OidcSessionRef={}",
+                trackedSession.sub, trackedSession.oidcSessionRef);
+            return;
+        }
+        CompletableFuture<Boolean> refresh;
+        try {
+            refresh = refreshFunction.refresh(trackedSession.sub, trackedSession.oidcSessionRef,
+                trackedSession.httpSession);
+        } catch (RuntimeException e) {
+            LOGGER.error("Error occurs when starting background refresh of OIDC session: OidcSessionRef={}",
+                trackedSession.oidcSessionRef, e);
+            refresh = null;
+        }
+        if (refresh == null) {
+            wheel.schedule(trackedSession, nowMillis + retryDelayInMillis);
+        } else {
+            refresh.whenComplete((isSessionRefreshed, throwable) -> reschedule(trackedSession));
+        }
+    }
+
+    private void reschedule(TrackedSession trackedSession) {
+        long nowMillis = clock.millis();
+        long nextRefreshEpochMillis;
+        try {
+            nextRefreshEpochMillis = refreshTimestamps.getNextRefreshEpochMillis(trackedSession.httpSession);
+        } catch (IllegalStateException e) {
+            trackedSessions.remove(trackedSession.oidcSessionRef, trackedSession);
+            LOGGER.debug("Dropped invalidated HTTP session from background refreshing. sub={}, OidcSessionRef={}",
+                trackedSession.sub, trackedSession.oidcSessionRef);
+            return;
+        }
+        wheel.schedule(trackedSession,
+            nextRefreshEpochMillis > nowMillis ? nextRefreshEpochMillis : nowMillis + retryDelayInMillis);
+    }
+
+    /**
+     * An OIDC session known to the refresher.
+     */
+    private static final class TrackedSession {
+        private final String sub;
+        private final String oidcSessionRef;
+        private final HttpSession httpSession;
+        private volatile long lastSeenMillis;
+
+        private TrackedSession(String sub, String oidcSessionRef, HttpSession httpSession, long lastSeenMillis) {
+            this.sub = sub;
+            this.oidcSessionRef = oidcSessionRef;
+            this.httpSession = httpSession;
+            this.lastSeenMillis = lastSeenMillis;
+        }
+    }
+}
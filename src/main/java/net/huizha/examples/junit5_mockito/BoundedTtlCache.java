@@ -0,0 +1,152 @@
+package net.huizha.examples.junit5_mockito;
+
+import java.time.Clock;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A size-bounded cache whose entries expire at a per-entry deadline. Reads do not lock. When a put makes the cache grow
+ * beyond its maximum size, expired entries are evicted first, then arbitrary entries until the cache is back to 90% of
+ * its maximum size, so that the cost of eviction is spread over many puts. Hits, misses and evictions are counted.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ *
+ * @author Zhahui
+ *
+ */
+class BoundedTtlCache<K, V> {
+    private final ConcurrentMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final int maxSize;
+    private final int sizeAfterEviction;
+    private final Clock clock;
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    /**
+     * Create a cache.
+     *
+     * @param maxSize the maximum number of entries
+     * @param clock the clock deciding when entries expire
+     */
+    BoundedTtlCache(int maxSize, Clock clock) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.sizeAfterEviction = Math.max(1, maxSize - maxSize / 10);
+        this.clock = clock;
+    }
+
+    /**
+     * Get the value cached for the given key.
+     *
+     * @param key the key
+     * @return the cached value, or null if there is none or it has expired
+     */
+    V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            missCount.increment();
+            return null;
+        }
+        if (entry.expiresAtMillis <= clock.millis()) {
+            if (entries.remove(key, entry)) {
+                evictionCount.increment();
+            }
+            missCount.increment();
+            return null;
+        }
+        hitCount.increment();
+        return entry.value;
+    }
+
+    /**
+     * Cache the value for the given key until the given deadline. Values that have already expired are not cached.
+     *
+     * @param key the key
+     * @param value the value
+     * @param expiresAtMillis the epoch milliseconds at which the entry expires
+     */
+    void put(K key, V value, long expiresAtMillis) {
+        long now = clock.millis();
+        if (expiresAtMillis <= now) {
+            return;
+        }
+        entries.put(key, new Entry<>(value, expiresAtMillis));
+        if (entries.size() > maxSize) {
+            evict(now);
+        }
+    }
+
+    /**
+     * Remove the value cached for the given key.
+     *
+     * @param key the key
+     */
+    void remove(K key) {
+        entries.remove(key);
+    }
+
+    /**
+     * @return the number of cached entries, including expired entries not evicted yet
+     */
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the number of reads that found a live entry
+     */
+    long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * @return the number of reads that found no entry or an expired one
+     */
+    long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * @return the number of entries evicted because they had expired or the cache was full
+     */
+    long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    private void evict(long now) {
+        long evicted = 0;
+        Iterator<Entry<V>> values = entries.values().iterator();
+        while (values.hasNext()) {
+            if (values.next().expiresAtMillis <= now) {
+                values.remove();
+                evicted++;
+            }
+        }
+        Iterator<K> iterator = entries.keySet().iterator();
+        while (entries.size() > sizeAfterEviction && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evicted++;
+        }
+        evictionCount.add(evicted);
+    }
+
+    /**
+     * A cached value and its deadline.
+     */
+    private static final class Entry<V> {
+        private final V value;
+        private final long expiresAtMillis;
+
+        private Entry(V value, long expiresAtMillis) {
+            this.value = value;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package net.huizha.examples.junit5_mockito;
+
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A circuit breaker with a bulkhead, guarding calls to a remote service.
+ * <p>
+ * The outcomes of the most recent calls are kept in a count-based sliding window. Once the window holds the minimum
+ * number of calls, the circuit opens when the percentage of failed calls or of slow calls reaches its threshold. An open
+ * circuit rejects all calls until its wait duration has elapsed, then turns half-open and lets a few probe calls
+ * through: the circuit closes again if the probes stay under both thresholds, and opens again otherwise. Independently of
+ * the state, the bulkhead rejects calls beyond the maximum number of concurrent calls.
+ * <p>
+ * Rejections never block. Every permission acquired with {@link #tryAcquirePermission()} must be returned with
+ * {@link #onResult(long, boolean)}.
+ *
+ * @author Zhahui
+ *
+ */
+class CircuitBreaker {
+    /**
+     * The state of the circuit.
+     */
+    enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * Thrown when a call is not made because the circuit breaker did not permit it.
+     */
+    static class CallNotPermittedException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        CallNotPermittedException(State state) {
+            super("Call not permitted by circuit breaker: state=" + state);
+        }
+    }
+
+    private static final byte FAILED = 1;
+    private static final byte SLOW = 2;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Semaphore bulkhead;
+    private final Clock clock;
+    private final int failureRateThreshold;
+    private final int slowCallRateThreshold;
+    private final long slowCallDurationThresholdInMillis;
+    private final int minimumNumberOfCalls;
+    private final long waitDurationInOpenStateInMillis;
+    private final int permittedCallsInHalfOpenState;
+    private final byte[] outcomes;
+    private int nextOutcomeIndex;
+    private int recordedCalls;
+    private int failedCalls;
+    private int slowCalls;
+    private volatile State state = State.CLOSED;
+    // Written under the lock, but read without it by isCallPermitted()
+    private volatile long openUntilMillis;
+    private volatile int remainingHalfOpenCalls;
+
+    /**
+     * Create a closed circuit breaker.
+     *
+     * @param config the circuit breaker configuration
+     * @param clock the clock deciding when an open circuit turns half-open
+     * @throws IllegalArgumentException if a configuration value is out of range
+     */
+    CircuitBreaker(CircuitBreakerConfig config, Clock clock) {
+        checkPercentage("failureRateThreshold", config.getFailureRateThreshold());
+        checkPercentage("slowCallRateThreshold", config.getSlowCallRateThreshold());
+        if (config.getSlidingWindowSize() <= 0 || config.getMaxConcurrentCalls() <= 0) {
+            throw new IllegalArgumentException("slidingWindowSize and maxConcurrentCalls must be positive");
+        }
+        if (config.getMinimumNumberOfCalls() <= 0
+            || config.getMinimumNumberOfCalls() > config.getSlidingWindowSize()) {
+            throw new IllegalArgumentException(
+                "minimumNumberOfCalls must be between 1 and slidingWindowSize: " + config.getMinimumNumberOfCalls());
+        }
+        if (config.getPermittedCallsInHalfOpenState() <= 0
+            || config.getPermittedCallsInHalfOpenState() > config.getSlidingWindowSize()) {
+            throw new IllegalArgumentException("permittedCallsInHalfOpenState must be between 1 and slidingWindowSize: "
+                + config.getPermittedCallsInHalfOpenState());
+        }
+        this.clock = clock;
+        bulkhead = new Semaphore(config.getMaxConcurrentCalls());
+        failureRateThreshold = config.getFailureRateThreshold();
+        slowCallRateThreshold = config.getSlowCallRateThreshold();
+        slowCallDurationThresholdInMillis = config.getSlowCallDurationThresholdInMilliseconds();
+        minimumNumberOfCalls = config.getMinimumNumberOfCalls();
+        waitDurationInOpenStateInMillis = config.getWaitDurationInOpenStateInMilliseconds();
+        permittedCallsInHalfOpenState = config.getPermittedCallsInHalfOpenState();
+        outcomes = new byte[config.getSlidingWindowSize()];
+    }
+
+    /**
+     * @return the state of the circuit
+     */
+    State getState() {
+        return state;
+    }
+
+    /**
+     * Tell whether a call would currently be permitted, without acquiring a permission. Used to skip work leading to a
+     * call that would be rejected anyway. Never takes the lock, as it runs on every request due for refresh and the
+     * circuit is not closed precisely when the service is in trouble; the answer is a hint that
+     * {@link #tryAcquirePermission()} confirms.
+     *
+     * @return true if the circuit is closed, is open but due for probing, or is half-open with probes left, and the
+     *         bulkhead is not full
+     */
+    boolean isCallPermitted() {
+        if (bulkhead.availablePermits() == 0) {
+            return false;
+        }
+        State currentState = state;
+        if (currentState == State.CLOSED) {
+            return true;
+        }
+        if (currentState == State.OPEN) {
+            return clock.millis() >= openUntilMillis;
+        }
+        return remainingHalfOpenCalls > 0;
+    }
+
+    /**
+     * Acquire the permission to make a call.
+     *
+     * @return true if the call is permitted; false if the circuit is open, no probe call is left, or the bulkhead is
+     *         full
+     */
+    boolean tryAcquirePermission() {
+        if (!bulkhead.tryAcquire()) {
+            return false;
+        }
+        if (state == State.CLOSED || tryAcquireProbe()) {
+            return true;
+        }
+        bulkhead.release();
+        return false;
+    }
+
+    /**
+     * Record the outcome of a permitted call and return its permission.
+     *
+     * @param durationInMillis the duration of the call in milliseconds
+     * @param isSuccessful true if the call succeeded
+     */
+    void onResult(long durationInMillis, boolean isSuccessful) {
+        bulkhead.release();
+        byte outcome = 0;
+        if (!isSuccessful) {
+            outcome |= FAILED;
+        }
+        if (durationInMillis >= slowCallDurationThresholdInMillis) {
+            outcome |= SLOW;
+        }
+        lock.lock();
+        try {
+            if (state == State.OPEN) {
+                // A call permitted before the circuit opened
+                return;
+            }
+            record(outcome);
+            if (state == State.CLOSED) {
+                if (recordedCalls >= minimumNumberOfCalls && isThresholdReached()) {
+                    open();
+                }
+            } else if (recordedCalls >= permittedCallsInHalfOpenState) {
+                if (isThresholdReached()) {
+                    open();
+                } else {
+                    state = State.CLOSED;
+                    resetWindow();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean tryAcquireProbe() {
+        lock.lock();
+        try {
+            if (state == State.OPEN) {
+                if (clock.millis() < openUntilMillis) {
+                    return false;
+                }
+                remainingHalfOpenCalls = permittedCallsInHalfOpenState;
+                state = State.HALF_OPEN;
+                resetWindow();
+            }
+            if (state == State.CLOSED) {
+                return true;
+            }
+            if (remainingHalfOpenCalls > 0) {
+                remainingHalfOpenCalls--;
+                return true;
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void record(byte outcome) {
+        if (recordedCalls == outcomes.length) {
+            byte evicted = outcomes[nextOutcomeIndex];
+            failedCalls -= evicted & FAILED;
+            slowCalls -= (evicted & SLOW) >> 1;
+        } else {
+            recordedCalls++;
+        }
+        outcomes[nextOutcomeIndex] = outcome;
+        failedCalls += outcome & FAILED;
+        slowCalls += (outcome & SLOW) >> 1;
+        nextOutcomeIndex = (nextOutcomeIndex + 1) % outcomes.length;
+    }
+
+    private boolean isThresholdReached() {
+        return failedCalls * 100 >= failureRateThreshold * recordedCalls
+            || slowCalls * 100 >= slowCallRateThreshold * recordedCalls;
+    }
+
+    private void open() {
+        // Published before the state, so that a reader seeing the open state never sees an outdated deadline
+        openUntilMillis = clock.millis() + waitDurationInOpenStateInMillis;
+        state = State.OPEN;
+        resetWindow();
+    }
+
+    private void resetWindow() {
+        Arrays.fill(outcomes, (byte) 0);
+        nextOutcomeIndex = 0;
+        recordedCalls = 0;
+        failedCalls = 0;
+        slowCalls = 0;
+    }
+
+    private static void checkPercentage(String name, int value) {
+        if (value <= 0 || value > 100) {
+            throw new IllegalArgumentException(name + " must be between 1 and 100: " + value);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package net.huizha.examples.junit5_mockito;
+
+/**
+ * Define circuit breaker configuration object for calls to the OIDC session management service.
+ *
+ * @author Zhahui
+ *
+ */
+public class CircuitBreakerConfig {
+    private int failureRateThreshold = 50;
+    private int slowCallRateThreshold = 50;
+    private long slowCallDurationThresholdInMilliseconds = 1000;
+    private int slidingWindowSize = 20;
+    private int minimumNumberOfCalls = 10;
+    private long waitDurationInOpenStateInMilliseconds = 30000;
+    private int permittedCallsInHalfOpenState = 3;
+    private int maxConcurrentCalls = 20;
+
+    /**
+     * Get the percentage of failed calls in the sliding window at which the circuit opens.
+     *
+     * @return the failure rate threshold in percent
+     */
+    public int getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    /**
+     * Set the percentage of failed calls in the sliding window at which the circuit opens.
+     *
+     * @param failureRateThreshold the failure rate threshold in percent to set
+     */
+    public void setFailureRateThreshold(int failureRateThreshold) {
+        this.failureRateThreshold = failureRateThreshold;
+    }
+
+    /**
+     * Get the percentage of slow calls in the sliding window at which the circuit opens.
+     *
+     * @return the slow call rate threshold in percent
+     */
+    public int getSlowCallRateThreshold() {
+        return slowCallRateThreshold;
+    }
+
+    /**
+     * Set the percentage of slow calls in the sliding window at which the circuit opens.
+     *
+     * @param slowCallRateThreshold the slow call rate threshold in percent to set
+     */
+    public void setSlowCallRateThreshold(int slowCallRateThreshold) {
+        this.slowCallRateThreshold = slowCallRateThreshold;
+    }
+
+    /**
+     * Get the duration from which a call is counted as slow.
+     *
+     * @return the slow call duration threshold in milliseconds
+     */
+    public long getSlowCallDurationThresholdInMilliseconds() {
+        return slowCallDurationThresholdInMilliseconds;
+    }
+
+    /**
+     * Set the duration from which a call is counted as slow.
+     *
+     * @param slowCallDurationThresholdInMilliseconds the slow call duration threshold in milliseconds to set
+     */
+    public void setSlowCallDurationThresholdInMilliseconds(long slowCallDurationThresholdInMilliseconds) {
+        this.slowCallDurationThresholdInMilliseconds = slowCallDurationThresholdInMilliseconds;
+    }
+
+    /**
+     * Get the number of most recent calls the failure and slow call rates are computed over.
+     *
+     * @return the sliding window size
+     */
+    public int getSlidingWindowSize() {
+        return slidingWindowSize;
+    }
+
+    /**
+     * Set the number of most recent calls the failure and slow call rates are computed over.
+     *
+     * @param slidingWindowSize the sliding window size to set
+     */
+    public void setSlidingWindowSize(int slidingWindowSize) {
+        this.slidingWindowSize = slidingWindowSize;
+    }
+
+    /**
+     * Get the number of calls to record before the failure and slow call rates are evaluated.
+     *
+     * @return the minimum number of calls
+     */
+    public int getMinimumNumberOfCalls() {
+        return minimumNumberOfCalls;
+    }
+
+    /**
+     * Set the number of calls to record before the failure and slow call rates are evaluated.
+     *
+     * @param minimumNumberOfCalls the minimum number of calls to set
+     */
+    public void setMinimumNumberOfCalls(int minimumNumberOfCalls) {
+        this.minimumNumberOfCalls = minimumNumberOfCalls;
+    }
+
+    /**
+     * Get the time the circuit stays open before probe calls are let through.
+     *
+     * @return the wait duration in open state in milliseconds
+     */
+    public long getWaitDurationInOpenStateInMilliseconds() {
+        return waitDurationInOpenStateInMilliseconds;
+    }
+
+    /**
+     * Set the time the circuit stays open before probe calls are let through.
+     *
+     * @param waitDurationInOpenStateInMilliseconds the wait duration in open state in milliseconds to set
+     */
+    public void setWaitDurationInOpenStateInMilliseconds(long waitDurationInOpenStateInMilliseconds) {
+        this.waitDurationInOpenStateInMilliseconds = waitDurationInOpenStateInMilliseconds;
+    }
+
+    /**
+     * Get the number of probe calls let through in half-open state.
+     *
+     * @return the number of permitted calls in half-open state
+     */
+    public int getPermittedCallsInHalfOpenState() {
+        return permittedCallsInHalfOpenState;
+    }
+
+    /**
+     * Set the number of probe calls let through in half-open state.
+     *
+     * @param permittedCallsInHalfOpenState the number of permitted calls in half-open state to set
+     */
+    public void setPermittedCallsInHalfOpenState(int permittedCallsInHalfOpenState) {
+        this.permittedCallsInHalfOpenState = permittedCallsInHalfOpenState;
+    }
+
+    /**
+     * Get the maximum number of calls in flight at the same time (the bulkhead).
+     *
+     * @return the maximum number of concurrent calls
+     */
+    public int getMaxConcurrentCalls() {
+        return maxConcurrentCalls;
+    }
+
+    /**
+     * Set the maximum number of calls in flight at the same time (the bulkhead).
+     *
+     * @param maxConcurrentCalls the maximum number of concurrent calls to set
+     */
+    public void setMaxConcurrentCalls(int maxConcurrentCalls) {
+        this.maxConcurrentCalls = maxConcurrentCalls;
+    }
+}
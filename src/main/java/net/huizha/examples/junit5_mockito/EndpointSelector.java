@@ -0,0 +1,248 @@
+package net.huizha.examples.junit5_mockito;
+
+import java.time.Clock;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Spread calls over the endpoints of the session management service, and eject unhealthy endpoints from the selection.
+ * <p>
+ * Endpoints are selected with the power of two choices: two distinct endpoints are picked at random and the one with
+ * fewer outstanding calls wins. This keeps load close to least outstanding requests without scanning or sorting all
+ * endpoints on every call. With a single endpoint, that endpoint is always selected. A second attempt of a call can be
+ * sent to another endpoint than the first attempt.
+ * <p>
+ * Health is tracked passively from the outcomes of real calls. An endpoint whose calls fail or are slow the configured
+ * number of times in a row is ejected for the ejection time multiplied by the number of times it has been ejected, up to
+ * the maximum ejection time. It is re-admitted as soon as that time has elapsed, and its ejection count is forgotten once
+ * it stayed healthy for the ejection time after re-admission. The last admitted endpoint is never ejected; should all
+ * endpoints be ejected anyway, selection falls back to all of them.
+ * <p>
+ * Every endpoint returned by {@link #select(List, SessionManagementEndpoint)} must be returned with
+ * {@link #onResult(SessionManagementEndpoint, long, boolean)}.
+ *
+ * @author Zhahui
+ *
+ */
+class EndpointSelector {
+    private final Clock clock;
+    private final int consecutiveFailuresToEject;
+    private final long slowCallDurationThresholdInMillis;
+    private final long ejectionTimeInMillis;
+    private final long maxEjectionTimeInMillis;
+    private final ConcurrentMap<String, EndpointState> states = new ConcurrentHashMap<>();
+
+    /**
+     * Create a selector.
+     *
+     * @param clock the clock deciding when ejected endpoints are re-admitted
+     * @param consecutiveFailuresToEject the number of failed or slow calls in a row ejecting an endpoint
+     * @param slowCallDurationThresholdInMillis the duration from which a successful call counts as slow
+     * @param ejectionTimeInMillis the time an endpoint is ejected for the first time
+     * @param maxEjectionTimeInMillis the maximum time an endpoint is ejected for
+     * @throws IllegalArgumentException if a value is not positive or the maximum ejection time is below the ejection time
+     */
+    EndpointSelector(Clock clock, int consecutiveFailuresToEject, long slowCallDurationThresholdInMillis,
+            long ejectionTimeInMillis, long maxEjectionTimeInMillis) {
+        if (consecutiveFailuresToEject <= 0 || slowCallDurationThresholdInMillis <= 0 || ejectionTimeInMillis <= 0) {
+            throw new IllegalArgumentException(
+                "consecutiveFailuresToEject, slowCallDurationThreshold and ejectionTime must be positive");
+        }
+        if (maxEjectionTimeInMillis < ejectionTimeInMillis) {
+            throw new IllegalArgumentException(
+                "maxEjectionTime must not be below ejectionTime: " + maxEjectionTimeInMillis);
+        }
+        this.clock = clock;
+        this.consecutiveFailuresToEject = consecutiveFailuresToEject;
+        this.slowCallDurationThresholdInMillis = slowCallDurationThresholdInMillis;
+        this.ejectionTimeInMillis = ejectionTimeInMillis;
+        this.maxEjectionTimeInMillis = maxEjectionTimeInMillis;
+    }
+
+    /**
+     * Select the endpoint of a call and count the call as outstanding on it.
+     *
+     * @param endpoints the endpoints of the current session management settings, not empty
+     * @return the selected endpoint
+     */
+    SessionManagementEndpoint select(List<SessionManagementEndpoint> endpoints) {
+        return select(endpoints, null);
+    }
+
+    /**
+     * Select the endpoint of a call among the endpoints other than the given one, if there are any, and count the call
+     * as outstanding on it. Used to send a second attempt of a call to another endpoint.
+     *
+     * @param endpoints the endpoints of the current session management settings, not empty
+     * @param excluded the endpoint not to select unless it is the only one, or null
+     * @return the selected endpoint
+     */
+    SessionManagementEndpoint select(List<SessionManagementEndpoint> endpoints, SessionManagementEndpoint excluded) {
+        int excludedIndex = excluded == null || endpoints.size() == 1 ? -1 : endpoints.indexOf(excluded);
+        int count = excludedIndex < 0 ? endpoints.size() : endpoints.size() - 1;
+        if (count == 1) {
+            SessionManagementEndpoint endpoint = get(endpoints, 0, excludedIndex);
+            return acquire(endpoint, stateOf(endpoint));
+        }
+        long nowMillis = clock.millis();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int firstIndex = random.nextInt(count);
+        int secondIndex = random.nextInt(count - 1);
+        if (secondIndex >= firstIndex) {
+            secondIndex++;
+        }
+        SessionManagementEndpoint first = get(endpoints, firstIndex, excludedIndex);
+        SessionManagementEndpoint second = get(endpoints, secondIndex, excludedIndex);
+        EndpointState firstState = stateOf(first);
+        EndpointState secondState = stateOf(second);
+        boolean isFirstAdmitted = firstState.isAdmitted(nowMillis);
+        boolean isSecondAdmitted = secondState.isAdmitted(nowMillis);
+        if (isFirstAdmitted == isSecondAdmitted && (isFirstAdmitted || count == 2)) {
+            // Both admitted, or both ejected with no other endpoint to fall back to
+            return firstState.outstandingCalls.get() <= secondState.outstandingCalls.get()
+                ? acquire(first, firstState) : acquire(second, secondState);
+        }
+        if (isFirstAdmitted) {
+            return acquire(first, firstState);
+        }
+        if (isSecondAdmitted) {
+            return acquire(second, secondState);
+        }
+        for (int i = 1; i < count; i++) {
+            SessionManagementEndpoint endpoint = get(endpoints, (firstIndex + i) % count, excludedIndex);
+            EndpointState state = stateOf(endpoint);
+            if (state.isAdmitted(nowMillis)) {
+                return acquire(endpoint, state);
+            }
+        }
+        return acquire(first, firstState);
+    }
+
+    /**
+     * Record the outcome of a call and stop counting it as outstanding.
+     *
+     * @param endpoint the endpoint of the call, as returned by {@link #select(List)}
+     * @param durationInMillis the duration of the call
+     * @param isSuccessful false if the call failed
+     * @return true if the endpoint has been ejected because of this outcome
+     */
+    boolean onResult(SessionManagementEndpoint endpoint, long durationInMillis, boolean isSuccessful) {
+        EndpointState state = states.get(endpoint.getBaseUrl());
+        if (state == null) {
+            // The endpoint has been removed from the configuration while the call was outstanding
+            return false;
+        }
+        state.outstandingCalls.decrementAndGet();
+        long nowMillis = clock.millis();
+        synchronized (state) {
+            if (isSuccessful && durationInMillis < slowCallDurationThresholdInMillis) {
+                state.consecutiveFailures = 0;
+                if (state.ejectionCount > 0 && nowMillis - state.ejectedUntilMillis >= ejectionTimeInMillis) {
+                    state.ejectionCount = 0;
+                }
+                return false;
+            }
+            state.consecutiveFailures++;
+            if (state.consecutiveFailures < consecutiveFailuresToEject || !state.isAdmitted(nowMillis)
+                || !isAnotherEndpointAdmitted(state, nowMillis)) {
+                return false;
+            }
+            state.consecutiveFailures = 0;
+            state.ejectionCount++;
+            state.ejectedUntilMillis = nowMillis
+                + Math.min(ejectionTimeInMillis * state.ejectionCount, maxEjectionTimeInMillis);
+            return true;
+        }
+    }
+
+    /**
+     * Track the endpoints of new session management settings: endpoints that are still configured keep their load and
+     * health, endpoints that are no longer configured are forgotten.
+     *
+     * @param endpoints the endpoints of the current session management settings
+     */
+    void setEndpoints(Collection<SessionManagementEndpoint> endpoints) {
+        Set<String> baseUrls = new HashSet<>();
+        for (SessionManagementEndpoint endpoint : endpoints) {
+            baseUrls.add(endpoint.getBaseUrl());
+            stateOf(endpoint);
+        }
+        states.keySet().retainAll(baseUrls);
+    }
+
+    /**
+     * @return the number of endpoints currently ejected
+     */
+    int getEjectedCount() {
+        long nowMillis = clock.millis();
+        int ejectedCount = 0;
+        for (EndpointState state : states.values()) {
+            if (!state.isAdmitted(nowMillis)) {
+                ejectedCount++;
+            }
+        }
+        return ejectedCount;
+    }
+
+    /**
+     * @param endpoint an endpoint
+     * @return true if the endpoint is currently ejected
+     */
+    boolean isEjected(SessionManagementEndpoint endpoint) {
+        EndpointState state = states.get(endpoint.getBaseUrl());
+        return state != null && !state.isAdmitted(clock.millis());
+    }
+
+    /**
+     * @param endpoint an endpoint
+     * @return the number of calls outstanding on the endpoint
+     */
+    int getOutstandingCalls(SessionManagementEndpoint endpoint) {
+        EndpointState state = states.get(endpoint.getBaseUrl());
+        return state == null ? 0 : state.outstandingCalls.get();
+    }
+
+    private boolean isAnotherEndpointAdmitted(EndpointState ejectedState, long nowMillis) {
+        for (EndpointState state : states.values()) {
+            if (state != ejectedState && state.isAdmitted(nowMillis)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private EndpointState stateOf(SessionManagementEndpoint endpoint) {
+        EndpointState state = states.get(endpoint.getBaseUrl());
+        return state != null ? state : states.computeIfAbsent(endpoint.getBaseUrl(), baseUrl -> new EndpointState());
+    }
+
+    private static SessionManagementEndpoint get(List<SessionManagementEndpoint> endpoints, int index,
+            int excludedIndex) {
+        return endpoints.get(excludedIndex >= 0 && index >= excludedIndex ? index + 1 : index);
+    }
+
+    private static SessionManagementEndpoint acquire(SessionManagementEndpoint endpoint, EndpointState state) {
+        state.outstandingCalls.incrementAndGet();
+        return endpoint;
+    }
+
+    /**
+     * The load and health of one endpoint. The failure and ejection counts are guarded by the state itself.
+     */
+    private static final class EndpointState {
+        private final AtomicInteger outstandingCalls = new AtomicInteger();
+        private volatile long ejectedUntilMillis;
+        private int consecutiveFailures;
+        private int ejectionCount;
+
+        private boolean isAdmitted(long nowMillis) {
+            return nowMillis >= ejectedUntilMillis;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package net.huizha.examples.junit5_mockito;
+
+import java.time.Clock;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A hashed timing wheel firing items at their deadline, with a resolution of one tick.
+ * <p>
+ * The wheel is an array of buckets, one per tick, wrapping around every {@code wheelSize} ticks. An item is hashed to
+ * the bucket of its deadline tick together with the number of full rounds the wheel has to turn before the item is
+ * due. Scheduling is an O(1) enqueue that any thread may call; the buckets themselves are only touched by the thread
+ * calling {@link #advance(long)}, which moves the pending items into their bucket and, for each elapsed tick, fires the
+ * due items of one bucket and counts down the rounds of the others. Each item is therefore visited once per round until
+ * it fires, independently of the number of scheduled items.
+ *
+ * @param <T> the item type
+ *
+ * @author Zhahui
+ *
+ */
+class HashedTimingWheel<T> {
+    private static final Logger LOGGER = LogManager.getLogger(HashedTimingWheel.class);
+
+    private final long startMillis;
+    private final long tickInMillis;
+    private final int mask;
+    private final Timeout<T>[] buckets;
+    private final Queue<Timeout<T>> pendingTimeouts = new ConcurrentLinkedQueue<>();
+    private final Consumer<T> handler;
+    private long currentTick;
+
+    /**
+     * Create a timing wheel starting at the current time of the clock.
+     *
+     * @param clock the clock of the start time
+     * @param tickInMillis the duration of a tick in milliseconds
+     * @param wheelSize the number of buckets, rounded up to a power of 2
+     * @param handler the handler of due items, called by the thread advancing the wheel
+     */
+    @SuppressWarnings("unchecked")
+    HashedTimingWheel(Clock clock, long tickInMillis, int wheelSize, Consumer<T> handler) {
+        if (tickInMillis <= 0 || wheelSize <= 0 || wheelSize > 1 << 30) {
+            throw new IllegalArgumentException(
+                String.format("tick and wheel size must be positive: %d, %d", tickInMillis, wheelSize));
+        }
+        int size = Integer.highestOneBit(wheelSize);
+        if (size < wheelSize) {
+            size <<= 1;
+        }
+        this.startMillis = clock.millis();
+        this.tickInMillis = tickInMillis;
+        this.mask = size - 1;
+        this.buckets = new Timeout[size];
+        this.handler = handler;
+    }
+
+    /**
+     * @return the duration of a tick in milliseconds
+     */
+    long getTickInMillis() {
+        return tickInMillis;
+    }
+
+    /**
+     * Schedule an item. It fires at the end of the tick of its deadline, or at the next tick if the deadline has
+     * passed.
+     *
+     * @param item the item
+     * @param deadlineMillis the epoch milliseconds at which the item is due
+     */
+    void schedule(T item, long deadlineMillis) {
+        pendingTimeouts.add(new Timeout<>(item, deadlineMillis));
+    }
+
+    /**
+     * Turn the wheel up to the given time, firing all items due by then. Must be called by one thread at a time.
+     *
+     * @param nowMillis the current epoch milliseconds
+     */
+    void advance(long nowMillis) {
+        transferPendingTimeouts();
+        while (startMillis + (currentTick + 1) * tickInMillis <= nowMillis) {
+            expireBucket((int) (currentTick & mask));
+            currentTick++;
+        }
+    }
+
+    private void transferPendingTimeouts() {
+        Timeout<T> timeout;
+        while ((timeout = pendingTimeouts.poll()) != null) {
+            long deadlineTick = Math.max(currentTick, (timeout.deadlineMillis - startMillis) / tickInMillis);
+            timeout.remainingRounds = (deadlineTick - currentTick) / buckets.length;
+            int index = (int) (deadlineTick & mask);
+            timeout.next = buckets[index];
+            buckets[index] = timeout;
+        }
+    }
+
+    private void expireBucket(int index) {
+        Timeout<T> previous = null;
+        Timeout<T> timeout = buckets[index];
+        while (timeout != null) {
+            Timeout<T> next = timeout.next;
+            if (timeout.remainingRounds > 0) {
+                timeout.remainingRounds--;
+                previous = timeout;
+            } else {
+                if (previous == null) {
+                    buckets[index] = next;
+                } else {
+                    previous.next = next;
+                }
+                timeout.next = null;
+                fire(timeout.item);
+            }
+            timeout = next;
+        }
+    }
+
+    private void fire(T item) {
+        try {
+            handler.accept(item);
+        } catch (RuntimeException e) {
+            LOGGER.error("Error occurs when firing a timing wheel item", e);
+        }
+    }
+
+    /**
+     * A scheduled item, linked to the next item of its bucket.
+     *
+     * @param <T> the item type
+     */
+    private static final class Timeout<T> {
+        private final T item;
+        private final long deadlineMillis;
+        private long remainingRounds;
+        private Timeout<T> next;
+
+        private Timeout(T item, long deadlineMillis) {
+            this.item = item;
+            this.deadlineMillis = deadlineMillis;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package net.huizha.examples.junit5_mockito;
+
+/**
+ * The claims of an OIDC ID token used by the session filter.
+ *
+ * @author Zhahui
+ *
+ */
+final class IdTokenClaims {
+    private final String sub;
+    private final String oidcSessionRef;
+    private final String exp;
+
+    /**
+     * Create the claims.
+     *
+     * @param sub the {@code sub} claim, or null
+     * @param oidcSessionRef the {@code oidc-session-ref} claim, or null
+     * @param exp the {@code exp} claim, or null
+     */
+    IdTokenClaims(String sub, String oidcSessionRef, String exp) {
+        this.sub = sub;
+        this.oidcSessionRef = oidcSessionRef;
+        this.exp = exp;
+    }
+
+    /**
+     * @return the JWT subject, or null if the token has none
+     */
+    String getSub() {
+        return sub;
+    }
+
+    /**
+     * @return the OIDC session reference, or null if the token has none
+     */
+    String getOidcSessionRef() {
+        return oidcSessionRef;
+    }
+
+    /**
+     * @return the expiry of the token in epoch seconds, as written in the token, or null if the token has none
+     */
+    String getExp() {
+        return exp;
+    }
+}
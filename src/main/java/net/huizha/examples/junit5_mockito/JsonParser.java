@@ -0,0 +1,141 @@
+package net.huizha.examples.junit5_mockito;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A minimal JSON parser for the small documents read outside of the request path, such as JWKS key sets and JWT
+ * headers. Objects are parsed into {@link Map}s, arrays into {@link List}s, integral numbers into {@link Long}s and
+ * other numbers into {@link Double}s. The document is read by the {@link JsonTokenizer} the streaming readers use, so
+ * that every reader accepts and unescapes the same JSON.
+ *
+ * @author Zhahui
+ *
+ */
+final class JsonParser {
+    private final JsonTokenizer tokenizer;
+
+    private JsonParser(byte[] json) {
+        tokenizer = new JsonTokenizer(json, json.length, "JSON");
+    }
+
+    /**
+     * Parse a JSON document.
+     *
+     * @param json the JSON document
+     * @return the parsed value: a map, list, string, number, boolean or null
+     * @throws IllegalArgumentException if the document is not valid JSON
+     */
+    static Object parse(String json) {
+        JsonParser parser = new JsonParser(json.getBytes(StandardCharsets.UTF_8));
+        try {
+            Object value = parser.readValue(parser.tokenizer.nextNonWhitespace());
+            if (parser.tokenizer.nextNonWhitespace() != -1) {
+                throw parser.tokenizer.malformed("unexpected content after value");
+            }
+            return value;
+        } catch (IOException e) {
+            // Only thrown for malformed documents, as the document is in memory
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Parse a JSON object.
+     *
+     * @param json the JSON document
+     * @return the parsed object
+     * @throws IllegalArgumentException if the document is not a valid JSON object
+     */
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> parseObject(String json) {
+        Object value = parse(json);
+        if (!(value instanceof Map)) {
+            throw new IllegalArgumentException("JSON document is not an object");
+        }
+        return (Map<String, Object>) value;
+    }
+
+    private Object readValue(int first) throws IOException {
+        switch (first) {
+        case -1:
+            throw tokenizer.malformed("unexpected end of document");
+        case '{':
+            return readObject();
+        case '[':
+            return readArray();
+        case '"':
+            return tokenizer.readString();
+        case 't':
+        case 'f':
+            tokenizer.skipLiteral(first);
+            return first == 't' ? Boolean.TRUE : Boolean.FALSE;
+        case 'n':
+            tokenizer.skipLiteral(first);
+            return null;
+        default:
+            return readNumber(first);
+        }
+    }
+
+    private Map<String, Object> readObject() throws IOException {
+        Map<String, Object> object = new LinkedHashMap<>();
+        int c = tokenizer.nextNonWhitespace();
+        if (c == '}') {
+            return object;
+        }
+        while (true) {
+            if (c != '"') {
+                throw tokenizer.malformed("expected a key");
+            }
+            String key = tokenizer.readString();
+            if (tokenizer.nextNonWhitespace() != ':') {
+                throw tokenizer.malformed("expected ':'");
+            }
+            object.put(key, readValue(tokenizer.nextNonWhitespace()));
+            c = tokenizer.nextNonWhitespace();
+            if (c == '}') {
+                return object;
+            }
+            if (c != ',') {
+                throw tokenizer.malformed("expected ',' or '}'");
+            }
+            c = tokenizer.nextNonWhitespace();
+        }
+    }
+
+    private List<Object> readArray() throws IOException {
+        List<Object> array = new ArrayList<>();
+        int c = tokenizer.nextNonWhitespace();
+        if (c == ']') {
+            return array;
+        }
+        while (true) {
+            array.add(readValue(c));
+            c = tokenizer.nextNonWhitespace();
+            if (c == ']') {
+                return array;
+            }
+            if (c != ',') {
+                throw tokenizer.malformed("expected ',' or ']'");
+            }
+            c = tokenizer.nextNonWhitespace();
+        }
+    }
+
+    private Number readNumber(int first) throws IOException {
+        String number = tokenizer.readNumber(first);
+        try {
+            if (number.indexOf('.') < 0 && number.indexOf('e') < 0 && number.indexOf('E') < 0) {
+                return Long.valueOf(number);
+            }
+            return Double.valueOf(number);
+        } catch (NumberFormatException e) {
+            throw tokenizer.malformed("invalid number");
+        }
+    }
+}
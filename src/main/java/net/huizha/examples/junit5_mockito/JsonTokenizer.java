@@ -0,0 +1,328 @@
+package net.huizha.examples.junit5_mockito;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A streaming tokenizer of JSON documents encoded in UTF-8, shared by the readers of the JSON the filter receives.
+ * <p>
+ * The document is read from an input stream through a small buffer, or scanned in place in a byte array. The tokenizer
+ * leaves the structure of the document to its callers, which read it one token at a time: keys can be compared byte by
+ * byte against the names a caller looks for without building strings, and values can be skipped without being decoded.
+ * Keys and strings with escape sequences are unescaped before being compared or returned, so that a caller sees the
+ * same document whichever way it is escaped.
+ *
+ * @author Zhahui
+ *
+ */
+final class JsonTokenizer {
+    private static final byte[] TRUE_LITERAL = "true".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FALSE_LITERAL = "false".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NULL_LITERAL = "null".getBytes(StandardCharsets.US_ASCII);
+    private static final int BUFFER_SIZE = 512;
+    private static final int INITIAL_SCRATCH_SIZE = 64;
+
+    private final InputStream in;
+    private final String documentName;
+    private final byte[] buffer;
+    private byte[] scratch = new byte[INITIAL_SCRATCH_SIZE];
+    private int scratchLength;
+    private int position;
+    private int limit;
+    private long bufferOffset;
+
+    /**
+     * Create a tokenizer reading a stream. The stream is not closed.
+     *
+     * @param in the stream
+     * @param documentName the name of the document in error messages
+     */
+    JsonTokenizer(InputStream in, String documentName) {
+        this.in = in;
+        this.documentName = documentName;
+        buffer = new byte[BUFFER_SIZE];
+    }
+
+    /**
+     * Create a tokenizer scanning bytes in place.
+     *
+     * @param bytes the bytes of the document
+     * @param length the number of bytes of the document
+     * @param documentName the name of the document in error messages
+     */
+    JsonTokenizer(byte[] bytes, int length, String documentName) {
+        in = null;
+        this.documentName = documentName;
+        buffer = bytes;
+        limit = length;
+    }
+
+    /**
+     * @return the next byte that is not whitespace, or -1 at the end of the document
+     * @throws IOException if the stream could not be read
+     */
+    int nextNonWhitespace() throws IOException {
+        int c;
+        do {
+            c = next();
+        } while (c == ' ' || c == '\t' || c == '\n' || c == '\r');
+        return c;
+    }
+
+    /**
+     * @return the next byte, or -1 at the end of the document
+     * @throws IOException if the stream could not be read
+     */
+    int next() throws IOException {
+        int c = peek();
+        if (c != -1) {
+            position++;
+        }
+        return c;
+    }
+
+    /**
+     * @return the next byte without consuming it, or -1 at the end of the document
+     * @throws IOException if the stream could not be read
+     */
+    int peek() throws IOException {
+        if (position == limit) {
+            int count = in == null ? -1 : in.read(buffer, 0, buffer.length);
+            if (count <= 0) {
+                return -1;
+            }
+            bufferOffset += limit;
+            position = 0;
+            limit = count;
+        }
+        return buffer[position] & 0xff;
+    }
+
+    /**
+     * Read a key whose opening quote has been read, and look it up among names.
+     *
+     * @param names the UTF-8 encoded names
+     * @return the index of the key among the names, or -1 if it is none of them
+     * @throws IOException if the stream could not be read or the key is not terminated
+     */
+    int readKey(byte[][] names) throws IOException {
+        scratchLength = 0;
+        byte[] key = scratch;
+        int length;
+        if (readUnescaped() == '"') {
+            length = scratchLength;
+        } else {
+            key = readEscapedRest().getBytes(StandardCharsets.UTF_8);
+            length = key.length;
+        }
+        for (int i = 0; i < names.length; i++) {
+            if (Arrays.equals(key, 0, length, names[i], 0, names[i].length)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Read a string whose opening quote has been read.
+     *
+     * @return the unescaped string
+     * @throws IOException if the stream could not be read or the string is malformed
+     */
+    String readString() throws IOException {
+        scratchLength = 0;
+        if (readUnescaped() == '"') {
+            return new String(scratch, 0, scratchLength, StandardCharsets.UTF_8);
+        }
+        return readEscapedRest();
+    }
+
+    /**
+     * Read a number whose first byte has been read.
+     *
+     * @param first the first byte of the number
+     * @return the number as written
+     * @throws IOException if the stream could not be read or the value is not a number
+     */
+    String readNumber(int first) throws IOException {
+        if (first != '-' && !isDigit(first)) {
+            throw malformed("unexpected value");
+        }
+        scratchLength = 0;
+        appendToScratch(first);
+        while (isNumberPart(peek())) {
+            appendToScratch(next());
+        }
+        return new String(scratch, 0, scratchLength, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Skip a value whose first byte has been read, without decoding it.
+     *
+     * @param first the first byte of the value
+     * @throws IOException if the stream could not be read or the value is malformed
+     */
+    void skipValue(int first) throws IOException {
+        if (first == '"') {
+            skipString();
+        } else if (first == '{' || first == '[') {
+            skipContainer();
+        } else if (first == 't' || first == 'f' || first == 'n') {
+            skipLiteral(first);
+        } else if (first == '-' || isDigit(first)) {
+            skipNumber();
+        } else {
+            throw malformed("unexpected value");
+        }
+    }
+
+    /**
+     * Skip the rest of a number, e.g. its fraction and exponent after its integral digits have been read.
+     *
+     * @throws IOException if the stream could not be read
+     */
+    void skipNumber() throws IOException {
+        while (isNumberPart(peek())) {
+            next();
+        }
+    }
+
+    /**
+     * Skip the literal {@code true}, {@code false} or {@code null} whose first byte has been read.
+     *
+     * @param first the first byte of the literal
+     * @throws IOException if the stream could not be read or the value is not the literal
+     */
+    void skipLiteral(int first) throws IOException {
+        byte[] literal = first == 't' ? TRUE_LITERAL : first == 'f' ? FALSE_LITERAL : NULL_LITERAL;
+        if (first != literal[0]) {
+            throw malformed("unexpected literal");
+        }
+        for (int i = 1; i < literal.length; i++) {
+            if (next() != literal[i]) {
+                throw malformed("unexpected literal");
+            }
+        }
+    }
+
+    /**
+     * Create the exception reporting a malformed document at the current position.
+     *
+     * @param reason the reason
+     * @return the exception
+     */
+    IOException malformed(String reason) {
+        return new IOException(
+            String.format("Malformed %s at byte %d: %s", documentName, bufferOffset + position, reason));
+    }
+
+    static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+
+    static boolean isNumberPart(int c) {
+        return isDigit(c) || c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-';
+    }
+
+    private void skipString() throws IOException {
+        int c;
+        while ((c = next()) != '"') {
+            if (c == -1) {
+                throw malformed("unterminated string");
+            }
+            if (c == '\\') {
+                next();
+            }
+        }
+    }
+
+    private void skipContainer() throws IOException {
+        int depth = 1;
+        while (depth > 0) {
+            int c = next();
+            if (c == -1) {
+                throw malformed("unterminated object or array");
+            }
+            if (c == '"') {
+                skipString();
+            } else if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * Copy the bytes of a string to the scratch buffer up to its closing quote or its next escape sequence.
+     *
+     * @return {@code '"'} or {@code '\\'}
+     */
+    private int readUnescaped() throws IOException {
+        int c;
+        while ((c = next()) != '"' && c != '\\') {
+            if (c == -1) {
+                throw malformed("unterminated string");
+            }
+            appendToScratch(c);
+        }
+        return c;
+    }
+
+    /**
+     * Read the rest of a string whose bytes up to an escape sequence are in the scratch buffer. A backslash cannot be
+     * part of a multi-byte character, so every run of bytes between escape sequences is decoded on its own.
+     */
+    private String readEscapedRest() throws IOException {
+        StringBuilder value = new StringBuilder(scratchLength + 16);
+        int c;
+        do {
+            value.append(new String(scratch, 0, scratchLength, StandardCharsets.UTF_8));
+            value.append(readEscaped());
+            scratchLength = 0;
+            c = readUnescaped();
+        } while (c == '\\');
+        return value.append(new String(scratch, 0, scratchLength, StandardCharsets.UTF_8)).toString();
+    }
+
+    private char readEscaped() throws IOException {
+        int escaped = next();
+        switch (escaped) {
+        case 'b':
+            return '\b';
+        case 'f':
+            return '\f';
+        case 'n':
+            return '\n';
+        case 'r':
+            return '\r';
+        case 't':
+            return '\t';
+        case 'u':
+            int code = 0;
+            for (int i = 0; i < 4; i++) {
+                int digit = Character.digit(next(), 16);
+                if (digit < 0) {
+                    throw malformed("invalid unicode escape");
+                }
+                code = code << 4 | digit;
+            }
+            return (char) code;
+        case '"':
+        case '\\':
+        case '/':
+            return (char) escaped;
+        default:
+            throw malformed(escaped == -1 ? "unterminated string" : "invalid escape");
+        }
+    }
+
+    private void appendToScratch(int c) {
+        if (scratchLength == scratch.length) {
+            scratch = Arrays.copyOf(scratch, scratch.length * 2);
+        }
+        scratch[scratchLength++] = (byte) c;
+    }
+}
@@ -0,0 +1,136 @@
+package net.huizha.examples.junit5_mockito;
+
+import java.math.BigInteger;
+import java.security.AlgorithmParameters;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPublicKeySpec;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * An immutable set of public signature keys parsed from a JWKS document (RFC 7517). RSA keys and EC keys on the P-256,
+ * P-384 and P-521 curves are supported; other keys, and keys meant for encryption only, are skipped.
+ *
+ * @author Zhahui
+ *
+ */
+final class JsonWebKeySet {
+    private static final Logger LOGGER = LogManager.getLogger(JsonWebKeySet.class);
+    private static final Map<String, String> EC_CURVES = Map.of("P-256", "secp256r1", "P-384", "secp384r1", "P-521",
+        "secp521r1");
+
+    /**
+     * The key set without any key.
+     */
+    static final JsonWebKeySet EMPTY = new JsonWebKeySet(Collections.emptyMap());
+
+    private final Map<String, PublicKey> keysById;
+
+    private JsonWebKeySet(Map<String, PublicKey> keysById) {
+        this.keysById = keysById;
+    }
+
+    /**
+     * Parse a JWKS document. Keys without {@code kid} are indexed under an empty key ID.
+     *
+     * @param json the JWKS document
+     * @return the key set
+     * @throws IllegalArgumentException if the document is not a JWKS document
+     */
+    static JsonWebKeySet parse(String json) {
+        Object keys = JsonParser.parseObject(json).get("keys");
+        if (!(keys instanceof List)) {
+            throw new IllegalArgumentException("JWKS document has no keys array");
+        }
+        Map<String, PublicKey> keysById = new LinkedHashMap<>();
+        for (Object key : (List<?>) keys) {
+            if (!(key instanceof Map)) {
+                throw new IllegalArgumentException("JWKS key is not an object");
+            }
+            Map<?, ?> jwk = (Map<?, ?>) key;
+            String keyId = jwk.get("kid") instanceof String ? (String) jwk.get("kid") : "";
+            if ("enc".equals(jwk.get("use"))) {
+                continue;
+            }
+            try {
+                PublicKey publicKey = toPublicKey(jwk);
+                if (publicKey != null) {
+                    keysById.put(keyId, publicKey);
+                }
+            } catch (GeneralSecurityException | IllegalArgumentException e) {
+                LOGGER.warn("Skipped invalid JWKS key: kid={}, reason={}", keyId, e.getMessage());
+            }
+        }
+        return new JsonWebKeySet(Collections.unmodifiableMap(keysById));
+    }
+
+    /**
+     * Find the key a JWT was signed with.
+     *
+     * @param keyId the {@code kid} of the JWT header, or null if it has none
+     * @return the key, or null if the set has no such key; without key ID, the only key of the set, if any
+     */
+    PublicKey getKey(String keyId) {
+        if (keyId == null) {
+            return keysById.size() == 1 ? keysById.values().iterator().next() : null;
+        }
+        return keysById.get(keyId);
+    }
+
+    /**
+     * @return the number of keys
+     */
+    int size() {
+        return keysById.size();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof JsonWebKeySet && keysById.equals(((JsonWebKeySet) obj).keysById);
+    }
+
+    @Override
+    public int hashCode() {
+        return keysById.hashCode();
+    }
+
+    private static PublicKey toPublicKey(Map<?, ?> jwk) throws GeneralSecurityException {
+        Object keyType = jwk.get("kty");
+        if ("RSA".equals(keyType)) {
+            return KeyFactory.getInstance("RSA")
+                .generatePublic(new RSAPublicKeySpec(getUnsignedInteger(jwk, "n"), getUnsignedInteger(jwk, "e")));
+        }
+        if ("EC".equals(keyType)) {
+            String curve = EC_CURVES.get(jwk.get("crv"));
+            if (curve == null) {
+                throw new IllegalArgumentException("unsupported curve " + jwk.get("crv"));
+            }
+            AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+            parameters.init(new ECGenParameterSpec(curve));
+            ECPoint point = new ECPoint(getUnsignedInteger(jwk, "x"), getUnsignedInteger(jwk, "y"));
+            return KeyFactory.getInstance("EC")
+                .generatePublic(new ECPublicKeySpec(point, parameters.getParameterSpec(ECParameterSpec.class)));
+        }
+        return null;
+    }
+
+    private static BigInteger getUnsignedInteger(Map<?, ?> jwk, String name) {
+        Object value = jwk.get(name);
+        if (!(value instanceof String)) {
+            throw new IllegalArgumentException("missing " + name);
+        }
+        return new BigInteger(1, Base64.getUrlDecoder().decode((String) value));
+    }
+}
@@ -0,0 +1,163 @@
+package net.huizha.examples.junit5_mockito;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Extract a fixed set of top-level claims from the payload of a JWT, without decoding the payload into a string, a JSON
+ * tree or a map.
+ * <p>
+ * The base64url payload segment is decoded straight from the token string into a buffer reused by the calling thread,
+ * and the JSON bytes are scanned in place by a {@link JsonTokenizer}: keys are compared byte by byte against the claim
+ * names, the values of other claims are skipped without being decoded, and scanning stops as soon as all claims have
+ * been found. String values are returned unescaped; numbers and booleans are returned as written, as a map of claims
+ * would hold them.
+ *
+ * @author Zhahui
+ *
+ */
+final class JwtClaimExtractor {
+    private static final int INITIAL_BUFFER_SIZE = 2048;
+    private static final byte[] BASE64URL_VALUES = new byte[128];
+    private static final ThreadLocal<byte[]> BUFFERS = ThreadLocal.withInitial(() -> new byte[INITIAL_BUFFER_SIZE]);
+
+    static {
+        Arrays.fill(BASE64URL_VALUES, (byte) -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+        for (int i = 0; i < alphabet.length(); i++) {
+            BASE64URL_VALUES[alphabet.charAt(i)] = (byte) i;
+        }
+    }
+
+    private final byte[][] claimNames;
+
+    /**
+     * Create an extractor.
+     *
+     * @param claimNames the names of the claims to extract
+     */
+    JwtClaimExtractor(String... claimNames) {
+        this.claimNames = new byte[claimNames.length][];
+        for (int i = 0; i < claimNames.length; i++) {
+            this.claimNames[i] = claimNames[i].getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Extract the claims from a JWT.
+     *
+     * @param jwt the compact serialization of the JWT
+     * @return the claim values, in the order of the claim names, with null for claims the payload does not have or whose
+     *         value is an object, an array or null; or null if the token is not a JWT with a JSON object payload
+     */
+    String[] extract(String jwt) {
+        if (jwt == null) {
+            return null;
+        }
+        int payloadStart = jwt.indexOf('.') + 1;
+        int payloadEnd = payloadStart == 0 ? -1 : jwt.indexOf('.', payloadStart);
+        if (payloadEnd < 0) {
+            return null;
+        }
+        byte[] buffer = BUFFERS.get();
+        int maxLength = (payloadEnd - payloadStart) * 3 / 4 + 3;
+        if (buffer.length < maxLength) {
+            buffer = new byte[Math.max(maxLength, buffer.length * 2)];
+            BUFFERS.set(buffer);
+        }
+        int length = decodeBase64Url(jwt, payloadStart, payloadEnd, buffer);
+        if (length < 0) {
+            return null;
+        }
+        try {
+            return scanObject(new JsonTokenizer(buffer, length, "JWT payload"));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the number of bytes decoded into the buffer, or -1 if the segment is not base64url
+     */
+    private static int decodeBase64Url(String jwt, int start, int end, byte[] buffer) {
+        int length = 0;
+        int bits = 0;
+        int bitCount = 0;
+        for (int i = start; i < end; i++) {
+            char c = jwt.charAt(i);
+            int value = c < 128 ? BASE64URL_VALUES[c] : -1;
+            if (value < 0) {
+                return -1;
+            }
+            bits = bits << 6 | value;
+            bitCount += 6;
+            if (bitCount >= 8) {
+                bitCount -= 8;
+                buffer[length++] = (byte) (bits >> bitCount);
+            }
+        }
+        // A single character left over cannot encode a byte
+        return bitCount >= 6 ? -1 : length;
+    }
+
+    /**
+     * @return the claim values, or null if the payload is not a JSON object
+     */
+    private String[] scanObject(JsonTokenizer tokenizer) throws IOException {
+        String[] values = new String[claimNames.length];
+        if (tokenizer.nextNonWhitespace() != '{') {
+            return null;
+        }
+        int remaining = claimNames.length;
+        int c = tokenizer.nextNonWhitespace();
+        if (c == '}') {
+            return values;
+        }
+        while (remaining > 0) {
+            if (c != '"') {
+                return null;
+            }
+            int index = tokenizer.readKey(claimNames);
+            if (tokenizer.nextNonWhitespace() != ':') {
+                return null;
+            }
+            c = tokenizer.nextNonWhitespace();
+            if (index >= 0 && values[index] == null) {
+                values[index] = readClaimValue(tokenizer, c);
+                if (values[index] != null) {
+                    remaining--;
+                }
+            } else {
+                tokenizer.skipValue(c);
+            }
+            c = tokenizer.nextNonWhitespace();
+            if (c == '}') {
+                break;
+            }
+            if (c != ',') {
+                return null;
+            }
+            c = tokenizer.nextNonWhitespace();
+        }
+        return values;
+    }
+
+    /**
+     * @return the value as a map of claims would hold it, or null for objects, arrays and null
+     */
+    private static String readClaimValue(JsonTokenizer tokenizer, int first) throws IOException {
+        if (first == '"') {
+            return tokenizer.readString();
+        }
+        if (first == 't' || first == 'f') {
+            tokenizer.skipLiteral(first);
+            return first == 't' ? "true" : "false";
+        }
+        if (first == '{' || first == '[' || first == 'n') {
+            tokenizer.skipValue(first);
+            return null;
+        }
+        return tokenizer.readNumber(first);
+    }
+}
@@ -0,0 +1,402 @@
+package net.huizha.examples.junit5_mockito;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.net.URI;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Verify signed JWTs, such as OIDC ID tokens, locally against a JWKS key set, so that tokens that are expired, not yet
+ * valid or forged can be rejected without calling the session management service.
+ * <p>
+ * The key set is read from a {@code file:}, {@code http:} or {@code https:} URI when the verifier starts, then reloaded
+ * periodically on a daemon thread, and also, at most once per minimum reload interval, when a token is signed with an
+ * unknown key. The current key set is published through a volatile field and only replaced when its keys changed; when a
+ * load fails the previous keys are kept. RS256, RS384, RS512, ES256, ES384 and ES512 signatures are supported.
+ * <p>
+ * Successful signature checks are memoized per token until the token expires, so that verifying a known token costs one
+ * cache lookup and a comparison of its {@code exp} and {@code nbf} claims with the clock. A memoized check is only used
+ * while the key set it was made with is current.
+ *
+ * @author Zhahui
+ *
+ */
+class JwtVerifier implements Closeable {
+    private static final Logger LOGGER = LogManager.getLogger(JwtVerifier.class);
+    private static final int TIMEOUT_IN_MILLISECONDS = 5000;
+    private static final long MIN_RELOAD_INTERVAL_IN_MILLISECONDS = 30000;
+    private static final long MAX_MEMOIZATION_IN_MILLISECONDS = TimeUnit.HOURS.toMillis(1);
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    /**
+     * The outcome of verifying a token.
+     */
+    enum Result {
+        /**
+         * The signature is valid and the token is within its validity period.
+         */
+        VALID(false),
+        /**
+         * The {@code exp} claim of the token has passed.
+         */
+        EXPIRED(true),
+        /**
+         * The {@code nbf} claim of the token has not been reached yet.
+         */
+        NOT_YET_VALID(true),
+        /**
+         * The signature does not match the token, or the token is not signed.
+         */
+        INVALID_SIGNATURE(true),
+        /**
+         * The token is not a JWT.
+         */
+        MALFORMED(true),
+        /**
+         * The token could not be verified, because its key is not in the key set or its algorithm is not supported. It
+         * is neither accepted nor rejected locally.
+         */
+        UNVERIFIABLE(false);
+
+        private final boolean isRejected;
+
+        Result(boolean isRejected) {
+            this.isRejected = isRejected;
+        }
+
+        /**
+         * @return true if the token is known to be unusable
+         */
+        boolean isRejected() {
+            return isRejected;
+        }
+    }
+
+    private final URI jwksUri;
+    private final Clock clock;
+    private final long reloadIntervalInMillis;
+    private final long clockSkewInMillis;
+    private final BoundedTtlCache<String, VerifiedToken> verifiedTokens;
+    private final AtomicLong lastReloadMillis = new AtomicLong(Long.MIN_VALUE);
+    private final ScheduledExecutorService scheduler;
+    private volatile JsonWebKeySet keySet = JsonWebKeySet.EMPTY;
+
+    /**
+     * Create a verifier. The key set is empty until {@link #start()} or {@link #reload()} is called.
+     *
+     * @param jwksUri the {@code file:}, {@code http:} or {@code https:} URI of the JWKS document
+     * @param clock the clock
+     * @param reloadIntervalInMillis the interval at which the key set is reloaded
+     * @param clockSkewInMillis the tolerance applied to the {@code exp} and {@code nbf} claims
+     * @param cacheMaxSize the maximum number of memoized signature checks
+     */
+    JwtVerifier(URI jwksUri, Clock clock, long reloadIntervalInMillis, long clockSkewInMillis, int cacheMaxSize) {
+        String scheme = jwksUri.getScheme();
+        if (!"file".equalsIgnoreCase(scheme) && !"http".equalsIgnoreCase(scheme)
+            && !"https".equalsIgnoreCase(scheme)) {
+            throw new IllegalArgumentException("jwksUri must be a file, http or https URI: " + jwksUri);
+        }
+        if (reloadIntervalInMillis <= 0) {
+            throw new IllegalArgumentException("reloadIntervalInMillis must be positive: " + reloadIntervalInMillis);
+        }
+        if (clockSkewInMillis < 0) {
+            throw new IllegalArgumentException("clockSkewInMillis must not be negative: " + clockSkewInMillis);
+        }
+        this.jwksUri = jwksUri;
+        this.clock = clock;
+        this.reloadIntervalInMillis = reloadIntervalInMillis;
+        this.clockSkewInMillis = clockSkewInMillis;
+        verifiedTokens = new BoundedTtlCache<>(cacheMaxSize, clock);
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "oidc-jwks-reloader");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Load the key set, then reload it every reload interval on the reloader thread.
+     */
+    void start() {
+        reload();
+        scheduler.scheduleWithFixedDelay(this::reload, reloadIntervalInMillis, reloadIntervalInMillis,
+            TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Load the key set now. When the load fails, the current key set is kept.
+     *
+     * @return true if the key set has been loaded; false otherwise
+     */
+    boolean reload() {
+        lastReloadMillis.set(clock.millis());
+        JsonWebKeySet loadedKeySet;
+        try {
+            loadedKeySet = JsonWebKeySet.parse(readJwksDocument());
+        } catch (IOException | IllegalArgumentException e) {
+            LOGGER.warn("Could not load JWKS key set, keeping {} current keys: jwksUri={}", keySet.size(), jwksUri, e);
+            return false;
+        }
+        if (!loadedKeySet.equals(keySet)) {
+            keySet = loadedKeySet;
+            LOGGER.info("JWKS key set loaded: keys={}, jwksUri={}", loadedKeySet.size(), jwksUri);
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of keys in the current key set
+     */
+    int getKeyCount() {
+        return keySet.size();
+    }
+
+    /**
+     * Verify the signature and validity period of a token.
+     *
+     * @param token the compact serialization of the JWT
+     * @return the outcome
+     */
+    Result verify(String token) {
+        if (token == null) {
+            return Result.MALFORMED;
+        }
+        JsonWebKeySet currentKeySet = keySet;
+        VerifiedToken verifiedToken = verifiedTokens.get(token);
+        if (verifiedToken != null && verifiedToken.keySet == currentKeySet) {
+            return checkValidityPeriod(verifiedToken.expMillis, verifiedToken.nbfMillis);
+        }
+        int headerEnd = token.indexOf('.');
+        int payloadEnd = token.indexOf('.', headerEnd + 1);
+        if (headerEnd <= 0 || payloadEnd < 0 || token.indexOf('.', payloadEnd + 1) >= 0) {
+            return Result.MALFORMED;
+        }
+        Map<String, Object> header;
+        long expMillis;
+        long nbfMillis;
+        byte[] signature;
+        try {
+            Base64.Decoder decoder = Base64.getUrlDecoder();
+            header = JsonParser.parseObject(decode(decoder, token.substring(0, headerEnd)));
+            Map<String, Object> claims = JsonParser
+                .parseObject(decode(decoder, token.substring(headerEnd + 1, payloadEnd)));
+            expMillis = getTimeClaimMillis(claims, "exp");
+            nbfMillis = getTimeClaimMillis(claims, "nbf");
+            signature = decoder.decode(token.substring(payloadEnd + 1));
+        } catch (IllegalArgumentException e) {
+            return Result.MALFORMED;
+        }
+        // Expired tokens are rejected whoever signed them, without the cost of checking their signature
+        Result result = checkValidityPeriod(expMillis, nbfMillis);
+        if (result != Result.VALID) {
+            return result;
+        }
+        result = checkSignature(currentKeySet, header, token.substring(0, payloadEnd), signature);
+        if (result == Result.VALID) {
+            long nowMillis = clock.millis();
+            long memoizedUntilMillis = nowMillis + MAX_MEMOIZATION_IN_MILLISECONDS;
+            if (expMillis != NO_TIME) {
+                memoizedUntilMillis = Math.min(memoizedUntilMillis, expMillis + clockSkewInMillis);
+            }
+            verifiedTokens.put(token, new VerifiedToken(currentKeySet, expMillis, nbfMillis), memoizedUntilMillis);
+        }
+        return result;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private Result checkValidityPeriod(long expMillis, long nbfMillis) {
+        long nowMillis = clock.millis();
+        if (expMillis != NO_TIME && nowMillis >= expMillis + clockSkewInMillis) {
+            return Result.EXPIRED;
+        }
+        if (nbfMillis != NO_TIME && nowMillis + clockSkewInMillis < nbfMillis) {
+            return Result.NOT_YET_VALID;
+        }
+        return Result.VALID;
+    }
+
+    private Result checkSignature(JsonWebKeySet currentKeySet, Map<String, Object> header, String signingInput,
+            byte[] signature) {
+        Object alg = header.get("alg");
+        if (!(alg instanceof String) || "none".equalsIgnoreCase((String) alg)) {
+            return Result.INVALID_SIGNATURE;
+        }
+        Algorithm algorithm = Algorithm.of((String) alg);
+        if (algorithm == null) {
+            LOGGER.debug("Unsupported JWT signature algorithm: {}", alg);
+            return Result.UNVERIFIABLE;
+        }
+        Object kid = header.get("kid");
+        PublicKey key = currentKeySet.getKey(kid instanceof String ? (String) kid : null);
+        if (key == null) {
+            LOGGER.debug("JWT signing key not in JWKS key set: kid={}", kid);
+            reloadForUnknownKey();
+            return Result.UNVERIFIABLE;
+        }
+        if (!algorithm.keyType.isInstance(key)) {
+            return Result.INVALID_SIGNATURE;
+        }
+        try {
+            Signature verifier = Signature.getInstance(algorithm.jcaName);
+            verifier.initVerify(key);
+            verifier.update(signingInput.getBytes(StandardCharsets.US_ASCII));
+            byte[] jcaSignature = algorithm.ecComponentLength == 0 ? signature
+                : toDerSignature(signature, algorithm.ecComponentLength);
+            return jcaSignature != null && verifier.verify(jcaSignature) ? Result.VALID : Result.INVALID_SIGNATURE;
+        } catch (GeneralSecurityException e) {
+            LOGGER.debug("Could not verify JWT signature: alg={}, kid={}", alg, kid, e);
+            return Result.INVALID_SIGNATURE;
+        }
+    }
+
+    /**
+     * Reload the key set in the background, as the key may have been rotated, unless it was loaded recently.
+     */
+    private void reloadForUnknownKey() {
+        long nowMillis = clock.millis();
+        long lastMillis = lastReloadMillis.get();
+        if (lastMillis != Long.MIN_VALUE && nowMillis - lastMillis < MIN_RELOAD_INTERVAL_IN_MILLISECONDS) {
+            return;
+        }
+        if (lastReloadMillis.compareAndSet(lastMillis, nowMillis)) {
+            try {
+                scheduler.execute(this::reload);
+            } catch (RejectedExecutionException e) {
+                LOGGER.debug("JWKS reloader is closed");
+            }
+        }
+    }
+
+    private String readJwksDocument() throws IOException {
+        URLConnection connection = jwksUri.toURL().openConnection();
+        connection.setConnectTimeout(TIMEOUT_IN_MILLISECONDS);
+        connection.setReadTimeout(TIMEOUT_IN_MILLISECONDS);
+        try (InputStream in = connection.getInputStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String decode(Base64.Decoder decoder, String part) {
+        return new String(decoder.decode(part), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the claim in epoch milliseconds, or {@link #NO_TIME} if the claim is absent
+     * @throws IllegalArgumentException if the claim is not a number
+     */
+    private static long getTimeClaimMillis(Map<String, Object> claims, String name) {
+        Object value = claims.get(name);
+        if (value == null) {
+            return NO_TIME;
+        }
+        if (!(value instanceof Number)) {
+            throw new IllegalArgumentException(name + " is not a number");
+        }
+        // Clamped so that adding the clock skew cannot overflow
+        double millis = ((Number) value).doubleValue() * 1000;
+        return (long) Math.max(-Long.MAX_VALUE / 2, Math.min(Long.MAX_VALUE / 2, millis));
+    }
+
+    /**
+     * Convert an ECDSA signature from the JOSE format, the concatenation of {@code r} and {@code s}, to the DER format
+     * of the JCA.
+     *
+     * @return the DER signature, or null if the signature does not have the length of the curve
+     */
+    private static byte[] toDerSignature(byte[] signature, int componentLength) {
+        if (signature.length != 2 * componentLength) {
+            return null;
+        }
+        byte[] r = new BigInteger(1, Arrays.copyOfRange(signature, 0, componentLength)).toByteArray();
+        byte[] s = new BigInteger(1, Arrays.copyOfRange(signature, componentLength, signature.length))
+            .toByteArray();
+        ByteArrayOutputStream der = new ByteArrayOutputStream(r.length + s.length + 8);
+        der.write(0x30);
+        writeDerLength(der, r.length + s.length + 4);
+        der.write(0x02);
+        der.write(r.length);
+        der.writeBytes(r);
+        der.write(0x02);
+        der.write(s.length);
+        der.writeBytes(s);
+        return der.toByteArray();
+    }
+
+    private static void writeDerLength(ByteArrayOutputStream der, int length) {
+        if (length >= 0x80) {
+            der.write(0x81);
+        }
+        der.write(length);
+    }
+
+    /**
+     * A supported JWS signature algorithm.
+     */
+    private enum Algorithm {
+        RS256("SHA256withRSA", RSAPublicKey.class, 0),
+        RS384("SHA384withRSA", RSAPublicKey.class, 0),
+        RS512("SHA512withRSA", RSAPublicKey.class, 0),
+        ES256("SHA256withECDSA", ECPublicKey.class, 32),
+        ES384("SHA384withECDSA", ECPublicKey.class, 48),
+        ES512("SHA512withECDSA", ECPublicKey.class, 66);
+
+        private final String jcaName;
+        private final Class<? extends PublicKey> keyType;
+        private final int ecComponentLength;
+
+        Algorithm(String jcaName, Class<? extends PublicKey> keyType, int ecComponentLength) {
+            this.jcaName = jcaName;
+            this.keyType = keyType;
+            this.ecComponentLength = ecComponentLength;
+        }
+
+        private static Algorithm of(String name) {
+            for (Algorithm algorithm : values()) {
+                if (algorithm.name().equals(name)) {
+                    return algorithm;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * A token whose signature has been verified.
+     */
+    private static final class VerifiedToken {
+        private final JsonWebKeySet keySet;
+        private final long expMillis;
+        private final long nbfMillis;
+
+        private VerifiedToken(JsonWebKeySet keySet, long expMillis, long nbfMillis) {
+            this.keySet = keySet;
+            this.expMillis = expMillis;
+            this.nbfMillis = nbfMillis;
+        }
+    }
+}
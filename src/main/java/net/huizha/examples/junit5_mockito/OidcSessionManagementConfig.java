@@ -10,10 +10,16 @@ public class OidcSessionManagementConfig {
     private String baseUrl;
     private String validateSessionContextPath;
     private String refreshSessionContextPath;
+    private String validateAndRefreshSessionContextPath;
+    private String batchRefreshSessionContextPath;
     private String oidcClientId;
+    private long refreshIntervalInSeconds = 30;
+    private long maxRefreshIntervalInSeconds;
+    private int refreshJitterPercent;
 
     /**
-     * Get session management base URL.
+     * Get session management base URL. Several endpoints of the session management service can be listed separated by
+     * commas, e.g. {@code https://session-1.example.com,https://session-2.example.com}; calls are then spread over them.
      *
      * @return the base URL to set
      */
@@ -22,7 +28,7 @@ public class OidcSessionManagementConfig {
     }
 
     /**
-     * Set session management base URL.
+     * Set session management base URL, or the comma-separated base URLs of several endpoints.
      *
      * @param baseUrl the base URL
      */
@@ -66,6 +72,44 @@ public class OidcSessionManagementConfig {
         this.refreshSessionContextPath = refreshSessionContextPath;
     }
 
+    /**
+     * Get the context path of the combined session validation and refreshing call. Optional; when it is not set the
+     * session is validated and refreshed with two separate calls.
+     *
+     * @return the combined session validation and refreshing context path
+     */
+    public String getValidateAndRefreshSessionContextPath() {
+        return validateAndRefreshSessionContextPath;
+    }
+
+    /**
+     * Set the context path of the combined session validation and refreshing call.
+     *
+     * @param validateAndRefreshSessionContextPath the combined session validation and refreshing context path to set
+     */
+    public void setValidateAndRefreshSessionContextPath(String validateAndRefreshSessionContextPath) {
+        this.validateAndRefreshSessionContextPath = validateAndRefreshSessionContextPath;
+    }
+
+    /**
+     * Get the context path of the batch session refreshing call. Optional; when it is set, due sessions are validated
+     * and refreshed in the background by bulk calls covering many sessions.
+     *
+     * @return the batch session refreshing context path
+     */
+    public String getBatchRefreshSessionContextPath() {
+        return batchRefreshSessionContextPath;
+    }
+
+    /**
+     * Set the context path of the batch session refreshing call.
+     *
+     * @param batchRefreshSessionContextPath the batch session refreshing context path to set
+     */
+    public void setBatchRefreshSessionContextPath(String batchRefreshSessionContextPath) {
+        this.batchRefreshSessionContextPath = batchRefreshSessionContextPath;
+    }
+
     /**
      * Get OIDC client ID.
      *
@@ -83,4 +127,60 @@ public class OidcSessionManagementConfig {
     public void setOidcClientId(String oidcClientId) {
         this.oidcClientId = oidcClientId;
     }
+
+    /**
+     * Get the time between two refreshes of an OIDC session.
+     *
+     * @return the refresh interval in seconds
+     */
+    public long getRefreshIntervalInSeconds() {
+        return refreshIntervalInSeconds;
+    }
+
+    /**
+     * Set the time between two refreshes of an OIDC session.
+     *
+     * @param refreshIntervalInSeconds the refresh interval in seconds to set
+     */
+    public void setRefreshIntervalInSeconds(long refreshIntervalInSeconds) {
+        this.refreshIntervalInSeconds = refreshIntervalInSeconds;
+    }
+
+    /**
+     * Get the maximum time between two refreshes of an OIDC session when the interval is adapted to the session
+     * lifetime reported by the session management service. Zero when the interval is not adapted.
+     *
+     * @return the maximum refresh interval in seconds
+     */
+    public long getMaxRefreshIntervalInSeconds() {
+        return maxRefreshIntervalInSeconds;
+    }
+
+    /**
+     * Set the maximum time between two refreshes of an OIDC session when the interval is adapted to the session
+     * lifetime reported by the session management service. Zero disables the adaptation.
+     *
+     * @param maxRefreshIntervalInSeconds the maximum refresh interval in seconds to set
+     */
+    public void setMaxRefreshIntervalInSeconds(long maxRefreshIntervalInSeconds) {
+        this.maxRefreshIntervalInSeconds = maxRefreshIntervalInSeconds;
+    }
+
+    /**
+     * Get the maximum random spread of refresh deadlines, in percent of the refresh interval.
+     *
+     * @return the refresh jitter in percent
+     */
+    public int getRefreshJitterPercent() {
+        return refreshJitterPercent;
+    }
+
+    /**
+     * Set the maximum random spread of refresh deadlines, in percent of the refresh interval.
+     *
+     * @param refreshJitterPercent the refresh jitter in percent to set
+     */
+    public void setRefreshJitterPercent(int refreshJitterPercent) {
+        this.refreshJitterPercent = refreshJitterPercent;
+    }
 }
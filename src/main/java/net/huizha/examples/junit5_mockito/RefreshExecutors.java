@@ -0,0 +1,86 @@
+package net.huizha.examples.junit5_mockito;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.huizha.examples.filters.VirtualThreads;
+
+/**
+ * Factory of the executors validating and refreshing OIDC sessions in the background, and of the executor passing
+ * requests that waited for a refresh along the rest of the filter chain.
+ *
+ * @author Zhahui
+ *
+ */
+final class RefreshExecutors {
+    static final String THREAD_NAME_PREFIX = "oidc-session-refresh-";
+    static final String CONTINUATION_THREAD_NAME_PREFIX = "oidc-request-continuation-";
+
+    /**
+     * Private constructor.
+     */
+    private RefreshExecutors() {
+
+    }
+
+    /**
+     * Create a bounded pool of platform threads. Refreshes submitted while all threads are busy and the queue is full
+     * are rejected.
+     *
+     * @param poolSize the maximum number of refresh threads
+     * @param queueCapacity the maximum number of pending refreshes
+     * @return the executor
+     */
+    static ExecutorService newPlatformThreadPool(int poolSize, int queueCapacity) {
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, THREAD_NAME_PREFIX + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Create an executor starting a virtual thread per refresh. A refresh blocked on the session management service
+     * then holds no platform thread, and the number of concurrent calls is bounded by the HTTP connection pool instead
+     * of a thread pool.
+     *
+     * @return the executor, or null if this JVM does not support virtual threads
+     */
+    static ExecutorService newVirtualThreadPerTaskExecutor() {
+        return VirtualThreads.newThreadPerTaskExecutor(THREAD_NAME_PREFIX);
+    }
+
+    /**
+     * Create the executor running the rest of the filter chain of requests that waited for a refresh, so that
+     * application work never occupies a refresh or batching thread. It starts a virtual thread per request when virtual
+     * threads are enabled and supported, or grows a pool of platform threads otherwise. It never rejects a request: the
+     * number of requests in flight is bounded by the container.
+     *
+     * @param isVirtualThreadsEnabled true if virtual threads are requested
+     * @return the executor
+     */
+    static ExecutorService newContinuationExecutor(boolean isVirtualThreadsEnabled) {
+        if (isVirtualThreadsEnabled) {
+            ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor(CONTINUATION_THREAD_NAME_PREFIX);
+            if (executor != null) {
+                return executor;
+            }
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, CONTINUATION_THREAD_NAME_PREFIX + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -0,0 +1,332 @@
+package net.huizha.examples.junit5_mockito;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Clock;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import net.huizha.examples.metrics.Histogram;
+
+/**
+ * Hedge calls to cut their tail latency: when a call has not answered within the hedge delay, a second attempt is
+ * started, and the first successful attempt wins. A failed attempt only fails the call once no other attempt is left.
+ * <p>
+ * The first attempt runs on the calling thread, so that a call that is not hedged costs no other thread. Only the hedge
+ * runs on a bounded pool of daemon threads; when the pool is exhausted, the call is simply not hedged. When the hedge
+ * wins, the first attempt is aborted so that the caller can return the hedge's result. A losing hedge is not cancelled,
+ * it completes in the background.
+ * <p>
+ * The hedge delay is a percentile of the latencies of the first attempts, but never below the minimum delay. Latencies
+ * are recorded in windows of {@value #LATENCY_WINDOW_IN_MILLIS} ms, and the delay is read from the current window once
+ * it holds enough latencies for the percentile to mean anything, or from the previous window until then, so that it
+ * follows the current latency of the service. It is recomputed at most once a second, and no call is hedged before a
+ * window has filled. Hedges are paid from a budget that every call credits with the maximum hedge percentage, so that
+ * hedges never exceed that share of the calls, apart from a small burst.
+ *
+ * @author Zhahui
+ *
+ */
+class RequestHedger implements Closeable {
+    private static final long MIN_RECORDED_LATENCIES = 100;
+    private static final long LATENCY_WINDOW_IN_MILLIS = 30000;
+    private static final long DELAY_RECOMPUTE_INTERVAL_IN_MILLIS = 1000;
+    private static final long BUDGET_UNITS_PER_HEDGE = 100;
+    private static final long MAX_BUDGET_UNITS = 10 * BUDGET_UNITS_PER_HEDGE;
+    private static final Runnable ABORTED = () -> {
+    };
+
+    private final Clock clock;
+    private final double delayPercentile;
+    private final long minDelayInMicros;
+    private final int maxHedgePercent;
+    private final ThreadPoolExecutor executor;
+    private final ScheduledThreadPoolExecutor timer;
+    private final AtomicReference<LatencyWindow> latencyWindow;
+    private final AtomicLong budgetUnits = new AtomicLong();
+    private final AtomicLong hedgeCount = new AtomicLong();
+    private final AtomicLong hedgeWinCount = new AtomicLong();
+    private volatile long delayInMicros = -1;
+    private volatile long delayComputedAtMillis;
+
+    /**
+     * An attempt of a call that can be aborted from another thread.
+     *
+     * @param <T> the type of the call result
+     */
+    interface Attempt<T> {
+        /**
+         * Make the attempt.
+         *
+         * @param onAbort the consumer the attempt hands the action aborting it to before it blocks; the action makes the
+         *        attempt fail promptly
+         * @return the result of the attempt
+         * @throws Exception if the attempt failed or was aborted
+         */
+        T call(Consumer<Runnable> onAbort) throws Exception;
+    }
+
+    /**
+     * Create a hedger.
+     *
+     * @param clock the clock deciding when latency windows roll over
+     * @param delayPercentile the percentile of the latencies after which a call is hedged
+     * @param minDelayInMillis the minimum hedge delay
+     * @param maxHedgePercent the maximum percentage of calls that are hedged
+     * @param maxThreads the maximum number of hedges running at the same time
+     * @throws IllegalArgumentException if the percentile is not between 1 and 99, the maximum hedge percentage not
+     *         between 1 and 99, or a value is not positive
+     */
+    RequestHedger(Clock clock, int delayPercentile, long minDelayInMillis, int maxHedgePercent, int maxThreads) {
+        if (delayPercentile < 1 || delayPercentile > 99) {
+            throw new IllegalArgumentException("delayPercentile must be between 1 and 99: " + delayPercentile);
+        }
+        if (maxHedgePercent < 1 || maxHedgePercent > 99) {
+            throw new IllegalArgumentException("maxHedgePercent must be between 1 and 99: " + maxHedgePercent);
+        }
+        if (minDelayInMillis <= 0 || maxThreads <= 0) {
+            throw new IllegalArgumentException("minDelay and maxThreads must be positive");
+        }
+        this.clock = clock;
+        this.delayPercentile = delayPercentile;
+        this.minDelayInMicros = TimeUnit.MILLISECONDS.toMicros(minDelayInMillis);
+        this.maxHedgePercent = maxHedgePercent;
+        latencyWindow = new AtomicReference<>(new LatencyWindow(clock.millis(), null));
+        executor = new ThreadPoolExecutor(0, maxThreads, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "oidc-hedged-call");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "oidc-hedge-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Most calls answer before their hedge is due and cancel it
+        timer.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Make a call, hedged if it is slow and the budget allows it.
+     *
+     * @param <T> the type of the call result
+     * @param primary the first attempt, run on the calling thread
+     * @param hedge the second attempt, started only when the call is hedged
+     * @return the result of the first successful attempt
+     * @throws IOException if all started attempts failed with an I/O error, the last one being reported, or if the
+     *         calling thread was interrupted
+     */
+    <T> T call(Attempt<T> primary, Callable<T> hedge) throws IOException {
+        creditBudget();
+        long delay = getDelayInMicros();
+        HedgedCall<T> hedgedCall = new HedgedCall<>();
+        ScheduledFuture<?> hedgeTrigger = delay < 0 ? null
+            : timer.schedule(() -> startHedge(hedge, hedgedCall), delay, TimeUnit.MICROSECONDS);
+        long startNanos = System.nanoTime();
+        try {
+            T value = primary.call(hedgedCall::onPrimaryAbort);
+            recordLatency(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+            if (hedgedCall.isAnswered.compareAndSet(false, true)) {
+                hedgedCall.result.complete(value);
+            }
+        } catch (Exception e) {
+            if (hedgedCall.primaryAbort.get() == ABORTED) {
+                // Aborted by the winning hedge: the first attempt took at least this long
+                recordLatency(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+            }
+            if (hedgedCall.pendingAttempts.decrementAndGet() == 0) {
+                hedgedCall.result.completeExceptionally(e);
+            }
+        } finally {
+            if (hedgeTrigger != null) {
+                hedgeTrigger.cancel(false);
+            }
+        }
+        try {
+            return hedgedCall.result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a hedged call");
+        } catch (ExecutionException e) {
+            throw rethrow(e.getCause());
+        }
+    }
+
+    /**
+     * @return the number of hedges sent
+     */
+    long getHedgeCount() {
+        return hedgeCount.get();
+    }
+
+    /**
+     * @return the number of hedges that answered before the first attempt
+     */
+    long getHedgeWinCount() {
+        return hedgeWinCount.get();
+    }
+
+    /**
+     * @return the current hedge delay in microseconds, or -1 while too few latencies have been recorded
+     */
+    long getDelayInMicros() {
+        long nowMillis = clock.millis();
+        long delay = delayInMicros;
+        if (delay >= 0 && nowMillis - delayComputedAtMillis < DELAY_RECOMPUTE_INTERVAL_IN_MILLIS) {
+            return delay;
+        }
+        LatencyWindow window = currentWindow(nowMillis);
+        Histogram latencies = window.latencies.getCount() >= MIN_RECORDED_LATENCIES ? window.latencies
+            : window.previousLatencies;
+        if (latencies == null || latencies.getCount() < MIN_RECORDED_LATENCIES) {
+            return -1;
+        }
+        delay = Math.max(minDelayInMicros, latencies.getValueAtPercentile(delayPercentile));
+        delayComputedAtMillis = nowMillis;
+        delayInMicros = delay;
+        return delay;
+    }
+
+    /**
+     * Record the latency of a first attempt.
+     *
+     * @param latencyInMicros the latency in microseconds
+     */
+    void recordLatency(long latencyInMicros) {
+        currentWindow(clock.millis()).latencies.record(latencyInMicros);
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    private LatencyWindow currentWindow(long nowMillis) {
+        LatencyWindow window = latencyWindow.get();
+        while (nowMillis - window.startMillis >= LATENCY_WINDOW_IN_MILLIS) {
+            // A window that saw no call for a whole window length has nothing to say about the current latency
+            Histogram previousLatencies = nowMillis - window.startMillis < 2 * LATENCY_WINDOW_IN_MILLIS
+                ? window.latencies : null;
+            LatencyWindow nextWindow = new LatencyWindow(nowMillis, previousLatencies);
+            if (latencyWindow.compareAndSet(window, nextWindow)) {
+                return nextWindow;
+            }
+            window = latencyWindow.get();
+        }
+        return window;
+    }
+
+    private <T> void startHedge(Callable<T> hedge, HedgedCall<T> hedgedCall) {
+        if (hedgedCall.result.isDone() || !tryDebitBudget()) {
+            return;
+        }
+        hedgedCall.pendingAttempts.incrementAndGet();
+        try {
+            executor.execute(() -> {
+                try {
+                    T value = hedge.call();
+                    // The winner is counted before the caller is woken up
+                    if (hedgedCall.isAnswered.compareAndSet(false, true)) {
+                        hedgeWinCount.incrementAndGet();
+                        hedgedCall.result.complete(value);
+                        hedgedCall.abortPrimary();
+                    }
+                } catch (Exception e) {
+                    if (hedgedCall.pendingAttempts.decrementAndGet() == 0) {
+                        hedgedCall.result.completeExceptionally(e);
+                    }
+                }
+            });
+            hedgeCount.incrementAndGet();
+        } catch (RejectedExecutionException e) {
+            hedgedCall.pendingAttempts.decrementAndGet();
+            budgetUnits.addAndGet(BUDGET_UNITS_PER_HEDGE);
+        }
+    }
+
+    private void creditBudget() {
+        long units;
+        do {
+            units = budgetUnits.get();
+            if (units >= MAX_BUDGET_UNITS) {
+                return;
+            }
+        } while (!budgetUnits.compareAndSet(units, Math.min(MAX_BUDGET_UNITS, units + maxHedgePercent)));
+    }
+
+    private boolean tryDebitBudget() {
+        long units;
+        do {
+            units = budgetUnits.get();
+            if (units < BUDGET_UNITS_PER_HEDGE) {
+                return false;
+            }
+        } while (!budgetUnits.compareAndSet(units, units - BUDGET_UNITS_PER_HEDGE));
+        return true;
+    }
+
+    private static IOException rethrow(Throwable cause) throws IOException {
+        if (cause instanceof IOException) {
+            throw (IOException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        throw new IOException(cause);
+    }
+
+    /**
+     * The attempts of one call. The first attempt is pending from the start.
+     */
+    private static final class HedgedCall<T> {
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final AtomicInteger pendingAttempts = new AtomicInteger(1);
+        private final AtomicBoolean isAnswered = new AtomicBoolean();
+        private final AtomicReference<Runnable> primaryAbort = new AtomicReference<>();
+
+        private void onPrimaryAbort(Runnable abortAction) {
+            if (!primaryAbort.compareAndSet(null, abortAction)) {
+                // The hedge won before the first attempt started blocking
+                abortAction.run();
+            }
+        }
+
+        private void abortPrimary() {
+            Runnable abortAction = primaryAbort.getAndSet(ABORTED);
+            if (abortAction != null && abortAction != ABORTED) {
+                abortAction.run();
+            }
+        }
+    }
+
+    /**
+     * The latencies of the current window, and those of the previous window.
+     */
+    private static final class LatencyWindow {
+        private final long startMillis;
+        private final Histogram latencies = new Histogram();
+        private final Histogram previousLatencies;
+
+        private LatencyWindow(long startMillis, Histogram previousLatencies) {
+            this.startMillis = startMillis;
+            this.previousLatencies = previousLatencies;
+        }
+    }
+}
@@ -1,9 +1,24 @@
 package net.huizha.examples.junit5_mockito;
 
 import java.io.IOException;
-import java.time.LocalDateTime;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.time.Clock;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
 import javax.naming.InitialContext;
 import javax.naming.NamingException;
 import javax.servlet.http.HttpSession;
@@ -12,10 +27,18 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import net.huizha.examples.filters.AsyncFilter;
+import net.huizha.examples.filters.AsyncFilterChain;
 import net.huizha.examples.filters.Filter;
 import net.huizha.examples.filters.FilterChain;
 import net.huizha.examples.filters.FilterConfig;
 import net.huizha.examples.filters.FilterException;
+import net.huizha.examples.metrics.Counter;
+import net.huizha.examples.metrics.JmxMetricsExporter;
+import net.huizha.examples.metrics.MetricRegistry;
+import net.huizha.examples.metrics.MetricsReporter;
+import net.huizha.examples.metrics.ScheduledMetricsReporting;
+import net.huizha.examples.metrics.Timer;
 import net.huizha.examples.requestresponse.Request;
 import net.huizha.examples.requestresponse.Response;
 
@@ -25,55 +48,279 @@ import net.huizha.examples.requestresponse.Response;
  * @author Zhahui
  *
  */
-public class SessionFilter implements Filter {
+public class SessionFilter implements Filter, AsyncFilter {
     private static final String OIDC_ACCESS_TOKEN_KEY = "oidc-access-token";
     private static final String JNDI_OIDC_SESSION_MANAGEMENT_CONFIG = "java:comp/env/config/OidcSessionManagementConfig";
     private static final String NOT_AVAILABLE = "N/A";
-    private static final String OIDC_LAST_REFRESHED_DATETIME_KEY = "oidc-last-refreshed-datetime";
     private static final long ODIC_REFRESH_SESSION_WAITING_TIME_IN_SECONDS = 30;
     private static final String OIDC_CLAIM_SUB_KEY = "sub";
     private static final String OIDC_SESSION_REF_KEY = "oidc-session-ref";
-    private static final String OIDC_CLIENT_ID_KEY = "client-id";
-    private static final int REST_API_CALL_TIMEOUT_IN_MILLISECONDS = 3000;
-    private static final String ERROR_MSG_VALIDATE_REFRESH_SESSION = "Error occurred when validating and refreshing OIDC session: %s";
+    private static final String OIDC_CLAIM_EXP_KEY = "exp";
+    private static final String ERROR_MSG_VALIDATE_REFRESH_SESSION = "Error occurred when validating and refreshing OIDC session: {}";
+    private static final String ERROR_MSG_VALIDATE_REFRESH_OIDC_SESSION = "Error occurred when validating and refreshing OIDC session: sub={}, OidcSessionRef={}";
+    private static final String ASYNC_REFRESH_ENABLED_PARAM = "oidc-async-refresh-enabled";
+    private static final String ASYNC_REFRESH_POOL_SIZE_PARAM = "oidc-async-refresh-pool-size";
+    private static final String ASYNC_REFRESH_QUEUE_CAPACITY_PARAM = "oidc-async-refresh-queue-capacity";
+    private static final String ASYNC_REFRESH_VIRTUAL_THREADS_ENABLED_PARAM = "oidc-async-refresh-virtual-threads-enabled";
+    private static final int DEFAULT_ASYNC_REFRESH_POOL_SIZE = 4;
+    private static final int DEFAULT_ASYNC_REFRESH_QUEUE_CAPACITY = 1000;
+    private static final long ASYNC_REFRESH_SHUTDOWN_TIMEOUT_IN_MILLISECONDS = 5000;
+    private static final String HTTP_MAX_CONNECTIONS_TOTAL_PARAM = "oidc-http-max-connections-total";
+    private static final String HTTP_MAX_CONNECTIONS_PER_ROUTE_PARAM = "oidc-http-max-connections-per-route";
+    private static final String HTTP_CONNECT_TIMEOUT_PARAM = "oidc-http-connect-timeout-in-milliseconds";
+    private static final String HTTP_SOCKET_TIMEOUT_PARAM = "oidc-http-socket-timeout-in-milliseconds";
+    private static final String HTTP_CONNECTION_REQUEST_TIMEOUT_PARAM = "oidc-http-connection-request-timeout-in-milliseconds";
+    private static final String HTTP_IDLE_CONNECTION_TIMEOUT_PARAM = "oidc-http-idle-connection-timeout-in-milliseconds";
+    private static final String HTTP_KEEP_ALIVE_PARAM = "oidc-http-keep-alive-in-milliseconds";
+    private static final String BATCH_REFRESH_MAX_SIZE_PARAM = "oidc-batch-refresh-max-size";
+    private static final String BATCH_REFRESH_INTERVAL_PARAM = "oidc-batch-refresh-interval-in-milliseconds";
+    private static final int DEFAULT_BATCH_REFRESH_MAX_SIZE = 100;
+    private static final long DEFAULT_BATCH_REFRESH_INTERVAL_IN_MILLISECONDS = 50;
+    private static final String CLAIMS_CACHE_MAX_SIZE_PARAM = "oidc-claims-cache-max-size";
+    private static final String CLAIMS_CACHE_TTL_PARAM = "oidc-claims-cache-ttl-in-seconds";
+    private static final int DEFAULT_CLAIMS_CACHE_MAX_SIZE = 10000;
+    private static final long DEFAULT_CLAIMS_CACHE_TTL_IN_SECONDS = 300;
+    private static final String INVALID_SESSION_CACHE_MAX_SIZE_PARAM = "oidc-invalid-session-cache-max-size";
+    private static final String INVALID_SESSION_CACHE_TTL_PARAM = "oidc-invalid-session-cache-ttl-in-seconds";
+    private static final int DEFAULT_INVALID_SESSION_CACHE_MAX_SIZE = 10000;
+    private static final long DEFAULT_INVALID_SESSION_CACHE_TTL_IN_SECONDS = 60;
+    private static final String BACKGROUND_REFRESH_ENABLED_PARAM = "oidc-background-refresh-enabled";
+    private static final String BACKGROUND_REFRESH_IDLE_TIMEOUT_PARAM = "oidc-background-refresh-idle-timeout-in-seconds";
+    private static final String BACKGROUND_REFRESH_TICK_PARAM = "oidc-background-refresh-tick-in-milliseconds";
+    private static final long DEFAULT_BACKGROUND_REFRESH_IDLE_TIMEOUT_IN_SECONDS = 1800;
+    private static final long DEFAULT_BACKGROUND_REFRESH_TICK_IN_MILLISECONDS = 500;
+    private static final String CIRCUIT_BREAKER_ENABLED_PARAM = "oidc-circuit-breaker-enabled";
+    private static final String CIRCUIT_BREAKER_FAILURE_RATE_THRESHOLD_PARAM = "oidc-circuit-breaker-failure-rate-threshold";
+    private static final String CIRCUIT_BREAKER_SLOW_CALL_RATE_THRESHOLD_PARAM = "oidc-circuit-breaker-slow-call-rate-threshold";
+    private static final String CIRCUIT_BREAKER_SLOW_CALL_DURATION_THRESHOLD_PARAM = "oidc-circuit-breaker-slow-call-duration-threshold-in-milliseconds";
+    private static final String CIRCUIT_BREAKER_SLIDING_WINDOW_SIZE_PARAM = "oidc-circuit-breaker-sliding-window-size";
+    private static final String CIRCUIT_BREAKER_MINIMUM_NUMBER_OF_CALLS_PARAM = "oidc-circuit-breaker-minimum-number-of-calls";
+    private static final String CIRCUIT_BREAKER_WAIT_DURATION_IN_OPEN_STATE_PARAM = "oidc-circuit-breaker-wait-duration-in-open-state-in-milliseconds";
+    private static final String CIRCUIT_BREAKER_PERMITTED_CALLS_IN_HALF_OPEN_STATE_PARAM = "oidc-circuit-breaker-permitted-calls-in-half-open-state";
+    private static final String CIRCUIT_BREAKER_MAX_CONCURRENT_CALLS_PARAM = "oidc-circuit-breaker-max-concurrent-calls";
+    private static final String ENDPOINT_EJECTION_CONSECUTIVE_FAILURES_PARAM = "oidc-endpoint-ejection-consecutive-failures";
+    private static final String ENDPOINT_SLOW_CALL_DURATION_THRESHOLD_PARAM = "oidc-endpoint-slow-call-duration-threshold-in-milliseconds";
+    private static final String ENDPOINT_EJECTION_TIME_PARAM = "oidc-endpoint-ejection-time-in-milliseconds";
+    private static final String ENDPOINT_MAX_EJECTION_TIME_PARAM = "oidc-endpoint-max-ejection-time-in-milliseconds";
+    private static final int DEFAULT_ENDPOINT_EJECTION_CONSECUTIVE_FAILURES = 5;
+    private static final long DEFAULT_ENDPOINT_SLOW_CALL_DURATION_THRESHOLD_IN_MILLISECONDS = 2000;
+    private static final long DEFAULT_ENDPOINT_EJECTION_TIME_IN_MILLISECONDS = 30000;
+    private static final long DEFAULT_ENDPOINT_MAX_EJECTION_TIME_IN_MILLISECONDS = 300000;
+    private static final String HEDGING_ENABLED_PARAM = "oidc-hedging-enabled";
+    private static final String HEDGING_DELAY_PERCENTILE_PARAM = "oidc-hedging-delay-percentile";
+    private static final String HEDGING_MIN_DELAY_PARAM = "oidc-hedging-min-delay-in-milliseconds";
+    private static final String HEDGING_MAX_PERCENT_PARAM = "oidc-hedging-max-percent";
+    private static final int DEFAULT_HEDGING_DELAY_PERCENTILE = 95;
+    private static final long DEFAULT_HEDGING_MIN_DELAY_IN_MILLISECONDS = 10;
+    private static final int DEFAULT_HEDGING_MAX_PERCENT = 10;
+    private static final String METRICS_JMX_ENABLED_PARAM = "oidc-metrics-jmx-enabled";
+    private static final String METRICS_REPORTER_CLASS_PARAM = "oidc-metrics-reporter-class";
+    private static final String METRICS_REPORTING_INTERVAL_PARAM = "oidc-metrics-reporting-interval-in-seconds";
+    private static final long DEFAULT_METRICS_REPORTING_INTERVAL_IN_SECONDS = 60;
+    private static final String CONFIG_RELOAD_INTERVAL_PARAM = "oidc-config-reload-interval-in-seconds";
+    private static final String JWKS_URI_PARAM = "oidc-jwks-uri";
+    private static final String JWKS_RELOAD_INTERVAL_PARAM = "oidc-jwks-reload-interval-in-seconds";
+    private static final long DEFAULT_JWKS_RELOAD_INTERVAL_IN_SECONDS = 300;
+    private static final String JWT_CLOCK_SKEW_PARAM = "oidc-jwt-clock-skew-in-seconds";
+    private static final long DEFAULT_JWT_CLOCK_SKEW_IN_SECONDS = 60;
+    private static final String JWT_VERIFICATION_CACHE_MAX_SIZE_PARAM = "oidc-jwt-verification-cache-max-size";
+    private static final int DEFAULT_JWT_VERIFICATION_CACHE_MAX_SIZE = 10000;
+    private static final String METRICS_JMX_DOMAIN = "net.huizha.examples";
+    private static final JwtClaimExtractor CLAIM_EXTRACTOR = new JwtClaimExtractor(OIDC_CLAIM_SUB_KEY,
+        OIDC_SESSION_REF_KEY, OIDC_CLAIM_EXP_KEY);
+    private static final IdTokenClaims NO_CLAIMS = new IdTokenClaims(null, null, null);
+    private static final Consumer<Runnable> NO_ABORT = abortAction -> {
+    };
     private static final Logger LOGGER = LogManager.getLogger(SessionFilter.class);
 
     private InitialContext initialContext;
-    private String baseUrl;
-    private String validateSessionContextPath;
-    private String refreshSessionContextPath;
-    private String oidcClientId;
+    private volatile SessionManagementSnapshot sessionManagementSnapshot;
+    private SessionManagementConfigReloader configReloader;
+    private SessionManagementClient sessionManagementClient;
+    private EndpointSelector endpointSelector;
+    private RequestHedger requestHedger;
+    private CircuitBreaker circuitBreaker;
+    private ExecutorService refreshExecutor;
+    private SessionRefreshBatcher refreshBatcher;
+    private ExecutorService continuationExecutor;
+    private BackgroundSessionRefresher backgroundRefresher;
+    private final SingleFlight<String, Boolean> refreshSingleFlight;
+    private Clock clock;
+    private SessionRefreshTimestamps refreshTimestamps;
+    private BoundedTtlCache<String, IdTokenClaims> claimsCache;
+    private long claimsCacheTtlInMillis;
+    private BoundedTtlCache<String, Boolean> invalidSessionCache;
+    private long invalidSessionCacheTtlInMillis;
+    private JwtVerifier jwtVerifier;
+    private final MetricRegistry metricRegistry;
+    private final Counter requestCounter;
+    private final Counter validationValidCounter;
+    private final Counter validationInvalidCounter;
+    private final Counter validationFailedCounter;
+    private final Counter refreshAttemptedCounter;
+    private final Counter refreshSucceededCounter;
+    private final Counter refreshInvalidCounter;
+    private final Counter refreshFailedCounter;
+    private final Counter upstreamErrorCounter;
+    private final Counter idTokenRejectedCounter;
+    private final Timer upstreamLatencyTimer;
+    private JmxMetricsExporter jmxMetricsExporter;
+    private ScheduledMetricsReporting metricsReporting;
 
     public SessionFilter() {
         initialContext = null;
-        baseUrl = null;
-        validateSessionContextPath = null;
-        refreshSessionContextPath = null;
+        sessionManagementSnapshot = null;
+        configReloader = null;
+        sessionManagementClient = null;
+        endpointSelector = null;
+        requestHedger = null;
+        circuitBreaker = null;
+        refreshExecutor = null;
+        refreshBatcher = null;
+        continuationExecutor = null;
+        backgroundRefresher = null;
+        refreshSingleFlight = new SingleFlight<>();
+        claimsCacheTtlInMillis = DEFAULT_CLAIMS_CACHE_TTL_IN_SECONDS * 1000;
+        invalidSessionCacheTtlInMillis = DEFAULT_INVALID_SESSION_CACHE_TTL_IN_SECONDS * 1000;
+        setClock(Clock.systemUTC());
+        metricRegistry = new MetricRegistry();
+        requestCounter = metricRegistry.counter("requests");
+        validationValidCounter = metricRegistry.counter("validation.valid");
+        validationInvalidCounter = metricRegistry.counter("validation.invalid");
+        validationFailedCounter = metricRegistry.counter("validation.failed");
+        refreshAttemptedCounter = metricRegistry.counter("refresh.attempted");
+        refreshSucceededCounter = metricRegistry.counter("refresh.succeeded");
+        refreshInvalidCounter = metricRegistry.counter("refresh.invalid");
+        refreshFailedCounter = metricRegistry.counter("refresh.failed");
+        upstreamErrorCounter = metricRegistry.counter("upstream.errors");
+        idTokenRejectedCounter = metricRegistry.counter("id-token.rejected");
+        upstreamLatencyTimer = metricRegistry.timer("upstream.latency");
+        metricRegistry.gauge("claims-cache.hits", () -> claimsCache.getHitCount());
+        metricRegistry.gauge("claims-cache.misses", () -> claimsCache.getMissCount());
+        metricRegistry.gauge("invalid-session-cache.hits", () -> invalidSessionCache.getHitCount());
+        metricRegistry.gauge("invalid-session-cache.evictions", () -> invalidSessionCache.getEvictionCount());
+        metricRegistry.gauge("endpoints.ejected", () -> {
+            // The gauge can be read before init() has created the selector
+            EndpointSelector selector = endpointSelector;
+            return selector == null ? 0 : selector.getEjectedCount();
+        });
     }
 
     protected void setInitialContext(InitialContext initialContext) {
         this.initialContext = initialContext;
     }
 
+    /**
+     * Set the clock deciding when OIDC sessions are due for refresh and when cached JWT claims and invalid OIDC sessions
+     * expire. Must be called before {@link #init(FilterConfig)}.
+     *
+     * @param clock the clock
+     */
+    protected void setClock(Clock clock) {
+        this.clock = clock;
+        refreshTimestamps = new SessionRefreshTimestamps(clock,
+            TimeUnit.SECONDS.toMillis(ODIC_REFRESH_SESSION_WAITING_TIME_IN_SECONDS));
+        claimsCache = new BoundedTtlCache<>(DEFAULT_CLAIMS_CACHE_MAX_SIZE, clock);
+        invalidSessionCache = new BoundedTtlCache<>(DEFAULT_INVALID_SESSION_CACHE_MAX_SIZE, clock);
+    }
+
     /**
      * @return the baseUrl
      */
     protected String getBaseUrl() {
-        return baseUrl;
+        SessionManagementSnapshot snapshot = sessionManagementSnapshot;
+        return snapshot == null ? null : snapshot.getBaseUrl();
     }
 
     /**
      * @return the validateSessionContextPath
      */
     protected String getValidateSessionContextPath() {
-        return validateSessionContextPath;
+        SessionManagementSnapshot snapshot = sessionManagementSnapshot;
+        return snapshot == null ? null : snapshot.getValidateSessionContextPath();
     }
 
     /**
      * @return the refreshSessionContextPath
      */
     protected String getRefreshSessionContextPath() {
-        return refreshSessionContextPath;
+        SessionManagementSnapshot snapshot = sessionManagementSnapshot;
+        return snapshot == null ? null : snapshot.getRefreshSessionContextPath();
+    }
+
+    /**
+     * @return the validateAndRefreshSessionContextPath, or null if sessions are validated and refreshed separately
+     */
+    protected String getValidateAndRefreshSessionContextPath() {
+        SessionManagementSnapshot snapshot = sessionManagementSnapshot;
+        return snapshot == null ? null : snapshot.getValidateAndRefreshSessionContextPath();
+    }
+
+    /**
+     * @return the batchRefreshSessionContextPath, or null if sessions are not refreshed in batches
+     */
+    protected String getBatchRefreshSessionContextPath() {
+        SessionManagementSnapshot snapshot = sessionManagementSnapshot;
+        return snapshot == null ? null : snapshot.getBatchRefreshSessionContextPath();
+    }
+
+    /**
+     * @return the circuit breaker guarding calls to the session management service, or null if none is configured
+     */
+    protected CircuitBreaker.State getCircuitBreakerState() {
+        return circuitBreaker == null ? null : circuitBreaker.getState();
+    }
+
+    /**
+     * @return the metrics of the filter
+     */
+    protected MetricRegistry getMetricRegistry() {
+        return metricRegistry;
+    }
+
+    /**
+     * Reload the OIDC session management configuration now, when {@code oidc-config-reload-interval-in-seconds} is set.
+     *
+     * @return true if new session management settings have been published; false otherwise
+     */
+    protected boolean reloadSessionManagementConfig() {
+        return configReloader != null && configReloader.reload();
+    }
+
+    /**
+     * @return the number of refreshes skipped because the OIDC session was known to be invalid
+     */
+    protected long getInvalidSessionCacheHitCount() {
+        return invalidSessionCache.getHitCount();
+    }
+
+    /**
+     * @return the number of invalid OIDC sessions evicted from the cache, because their TTL expired or the cache was full
+     */
+    protected long getInvalidSessionCacheEvictionCount() {
+        return invalidSessionCache.getEvictionCount();
+    }
+
+    /**
+     * @return true if ID tokens are verified locally against a JWKS key set before calling the session management
+     *         service
+     */
+    protected boolean isLocalIdTokenVerificationEnabled() {
+        return jwtVerifier != null;
+    }
+
+    /**
+     * @return true if OIDC sessions are refreshed by the background scheduler instead of on the request path
+     */
+    protected boolean isBackgroundRefreshEnabled() {
+        return backgroundRefresher != null;
+    }
+
+    /**
+     * @return true if OIDC sessions are validated and refreshed on a background executor
+     */
+    protected boolean isAsyncRefreshEnabled() {
+        return refreshExecutor != null;
     }
 
     @Override
@@ -105,26 +352,126 @@ public class SessionFilter implements Filter {
                 throw new FilterException(erroMsg);
             }
 
-            baseUrl = oidcSessionManagementConfig.getBaseUrl();
-            if (StringUtils.isBlank(baseUrl)) {
-                throw new FilterException("baseUrl is null or empty");
+            SessionManagementSnapshot snapshot;
+            try {
+                snapshot = SessionManagementSnapshot.of(oidcSessionManagementConfig);
+            } catch (IllegalArgumentException e) {
+                throw new FilterException(e.getMessage(), e);
             }
-            validateSessionContextPath = oidcSessionManagementConfig.getValidateSessionContextPath();
-            if (StringUtils.isBlank(validateSessionContextPath)) {
-                throw new FilterException("validateSessionContextPath is null or empty");
+            sessionManagementSnapshot = snapshot;
+
+            refreshTimestamps = createRefreshTimestamps(oidcSessionManagementConfig);
+
+            LOGGER.info(
+                "OIDC session management configuration parameters: baserUrl={}, validateSessionContextPath={}, refreshSessionContextPath={}",
+                snapshot.getBaseUrl(), snapshot.getValidateSessionContextPath(),
+                snapshot.getRefreshSessionContextPath());
+            if (snapshot.getValidateAndRefreshSessionContextPath() != null) {
+                LOGGER.info(
+                    "OIDC sessions are validated and refreshed in one call: validateAndRefreshSessionContextPath={}",
+                    snapshot.getValidateAndRefreshSessionContextPath());
             }
-            refreshSessionContextPath = oidcSessionManagementConfig.getRefreshSessionContextPath();
-            if (StringUtils.isBlank(refreshSessionContextPath)) {
-                throw new FilterException("refreshSessionContextPath is null or empty");
+
+            SessionManagementClientConfig clientConfig = getSessionManagementClientConfig(filterConfig);
+            boolean isAsyncRefreshEnabled = getBooleanInitParameter(filterConfig, ASYNC_REFRESH_ENABLED_PARAM);
+            boolean isVirtualThreadsEnabled = getBooleanInitParameter(filterConfig,
+                ASYNC_REFRESH_VIRTUAL_THREADS_ENABLED_PARAM);
+            int poolSize = getIntInitParameter(filterConfig, ASYNC_REFRESH_POOL_SIZE_PARAM,
+                DEFAULT_ASYNC_REFRESH_POOL_SIZE);
+            int queueCapacity = getIntInitParameter(filterConfig, ASYNC_REFRESH_QUEUE_CAPACITY_PARAM,
+                DEFAULT_ASYNC_REFRESH_QUEUE_CAPACITY);
+            int maxBatchSize = getIntInitParameter(filterConfig, BATCH_REFRESH_MAX_SIZE_PARAM,
+                DEFAULT_BATCH_REFRESH_MAX_SIZE);
+            long batchInterval = getLongInitParameter(filterConfig, BATCH_REFRESH_INTERVAL_PARAM,
+                DEFAULT_BATCH_REFRESH_INTERVAL_IN_MILLISECONDS);
+            int claimsCacheMaxSize = getIntInitParameter(filterConfig, CLAIMS_CACHE_MAX_SIZE_PARAM,
+                DEFAULT_CLAIMS_CACHE_MAX_SIZE);
+            long claimsCacheTtlInSeconds = getLongInitParameter(filterConfig, CLAIMS_CACHE_TTL_PARAM,
+                DEFAULT_CLAIMS_CACHE_TTL_IN_SECONDS);
+
+            claimsCache = new BoundedTtlCache<>(claimsCacheMaxSize, clock);
+            claimsCacheTtlInMillis = TimeUnit.SECONDS.toMillis(claimsCacheTtlInSeconds);
+            invalidSessionCache = new BoundedTtlCache<>(getIntInitParameter(filterConfig,
+                INVALID_SESSION_CACHE_MAX_SIZE_PARAM, DEFAULT_INVALID_SESSION_CACHE_MAX_SIZE), clock);
+            invalidSessionCacheTtlInMillis = TimeUnit.SECONDS.toMillis(getLongInitParameter(filterConfig,
+                INVALID_SESSION_CACHE_TTL_PARAM, DEFAULT_INVALID_SESSION_CACHE_TTL_IN_SECONDS));
+
+            sessionManagementClient = new SessionManagementClient(clientConfig);
+            try {
+                endpointSelector = createEndpointSelector(filterConfig);
+            } catch (IllegalArgumentException e) {
+                throw new FilterException("Invalid endpoint ejection configuration: " + e.getMessage(), e);
             }
-            oidcClientId = oidcSessionManagementConfig.getOidcClientId();
-            if (StringUtils.isBlank(oidcClientId)) {
-                throw new FilterException("oidcClientId is null or empty");
+            endpointSelector.setEndpoints(snapshot.getEndpoints());
+            if (snapshot.getEndpoints().size() > 1) {
+                LOGGER.info("OIDC session management calls are spread over {} endpoints: {}",
+                    snapshot.getEndpoints().size(), snapshot.getEndpoints());
             }
-
             LOGGER.info(
-                "OIDC session management configuration parameters: baserUrl={}, validateSessionContextPath={}, refreshSessionContextPath={}",
-                baseUrl, validateSessionContextPath, refreshSessionContextPath);
+                "OIDC session management HTTP client: maxConnectionsTotal={}, maxConnectionsPerRoute={}, connectTimeout={}ms, socketTimeout={}ms",
+                clientConfig.getMaxConnectionsTotal(), clientConfig.getMaxConnectionsPerRoute(),
+                clientConfig.getConnectTimeoutInMilliseconds(), clientConfig.getSocketTimeoutInMilliseconds());
+            if (getBooleanInitParameter(filterConfig, CIRCUIT_BREAKER_ENABLED_PARAM)) {
+                CircuitBreakerConfig circuitBreakerConfig = getCircuitBreakerConfig(filterConfig);
+                try {
+                    circuitBreaker = new CircuitBreaker(circuitBreakerConfig, clock);
+                } catch (IllegalArgumentException e) {
+                    throw new FilterException("Invalid circuit breaker configuration: " + e.getMessage(), e);
+                }
+                LOGGER.info(
+                    "OIDC session management circuit breaker enabled: failureRateThreshold={}%, slowCallRateThreshold={}%, slowCallDurationThreshold={}ms, maxConcurrentCalls={}",
+                    circuitBreakerConfig.getFailureRateThreshold(), circuitBreakerConfig.getSlowCallRateThreshold(),
+                    circuitBreakerConfig.getSlowCallDurationThresholdInMilliseconds(),
+                    circuitBreakerConfig.getMaxConcurrentCalls());
+                metricRegistry.gauge("circuit-breaker.state", () -> {
+                    // The registry outlives destroy(), which closes the circuit breaker
+                    CircuitBreaker breaker = circuitBreaker;
+                    return breaker == null ? 0 : breaker.getState().ordinal();
+                });
+            }
+            if (getBooleanInitParameter(filterConfig, HEDGING_ENABLED_PARAM)) {
+                startHedging(filterConfig, clientConfig.getMaxConnectionsTotal());
+            }
+            boolean isBackgroundRefreshEnabled = getBooleanInitParameter(filterConfig,
+                BACKGROUND_REFRESH_ENABLED_PARAM);
+            long idleTimeoutInSeconds = getLongInitParameter(filterConfig, BACKGROUND_REFRESH_IDLE_TIMEOUT_PARAM,
+                DEFAULT_BACKGROUND_REFRESH_IDLE_TIMEOUT_IN_SECONDS);
+            long tickInMillis = getLongInitParameter(filterConfig, BACKGROUND_REFRESH_TICK_PARAM,
+                DEFAULT_BACKGROUND_REFRESH_TICK_IN_MILLISECONDS);
+            // The background scheduler only starts refreshes, which then need an executor of their own
+            if (isAsyncRefreshEnabled || isBackgroundRefreshEnabled) {
+                refreshExecutor = createRefreshExecutor(isVirtualThreadsEnabled, poolSize, queueCapacity);
+            } else if (isVirtualThreadsEnabled) {
+                LOGGER.warn("{} is ignored because {} is not enabled", ASYNC_REFRESH_VIRTUAL_THREADS_ENABLED_PARAM,
+                    ASYNC_REFRESH_ENABLED_PARAM);
+            }
+            if (snapshot.getBatchRefreshSessionContextPath() != null) {
+                refreshBatcher = new SessionRefreshBatcher(sessionManagementClient,
+                    () -> sessionManagementSnapshot, endpointSelector, circuitBreaker, upstreamLatencyTimer,
+                    upstreamErrorCounter, maxBatchSize, batchInterval);
+                LOGGER.info(
+                    "Batched OIDC session refreshing enabled: batchRefreshSessionContextPath={}, maxBatchSize={}, interval={}ms",
+                    snapshot.getBatchRefreshSessionContextPath(), maxBatchSize, batchInterval);
+            }
+            if (refreshExecutor != null || refreshBatcher != null) {
+                continuationExecutor = RefreshExecutors.newContinuationExecutor(isVirtualThreadsEnabled);
+            }
+            if (isBackgroundRefreshEnabled) {
+                backgroundRefresher = new BackgroundSessionRefresher(clock, refreshTimestamps,
+                    this::refreshOidcSession, TimeUnit.SECONDS.toMillis(idleTimeoutInSeconds),
+                    TimeUnit.SECONDS.toMillis(oidcSessionManagementConfig.getRefreshIntervalInSeconds()),
+                    tickInMillis);
+                backgroundRefresher.start();
+                metricRegistry.gauge("background-refresh.sessions", () -> {
+                    BackgroundSessionRefresher refresher = backgroundRefresher;
+                    return refresher == null ? 0 : refresher.size();
+                });
+                LOGGER.info("Background OIDC session refreshing enabled: idleTimeout={}s, tick={}ms",
+                    idleTimeoutInSeconds, tickInMillis);
+            }
+            startConfigReloading(filterConfig, snapshot);
+            startLocalIdTokenVerification(filterConfig);
+            startMetricsReporting(filterConfig);
             LOGGER.info("Successfully initialized filter");
         } finally {
             LOGGER.traceExit();
@@ -138,6 +485,108 @@ public class SessionFilter implements Filter {
         if (request == null) {
             throw new FilterException(new NullPointerException("Request is null"));
         }
+        requestCounter.increment();
+        try {
+            refreshOidcSessionIfDue(request);
+        } finally {
+            filterChain.doFilter(request, response);
+            LOGGER.traceExit();
+        }
+    }
+
+    /**
+     * Start the filter function without blocking the calling thread on the session management service: the request is
+     * passed along the chain once the refresh of its OIDC session, if one is due, has completed. The refresh runs on the
+     * background executor when asynchronous refreshing is enabled and on the batching thread when batched refreshing is
+     * enabled; otherwise it runs inline as in {@link #doFilter}. A request that waited for a refresh continues along the
+     * chain on a thread of its own, never on the thread that completed the refresh, so that the refresh and batching
+     * threads stay free for refreshes. That thread is a virtual thread when
+     * {@code oidc-async-refresh-virtual-threads-enabled} is set on a JVM supporting them.
+     */
+    @Override
+    public CompletionStage<Void> doFilterAsync(Request request, Response response, AsyncFilterChain chain) {
+        LOGGER.traceEntry();
+        try {
+            if (request == null) {
+                return CompletableFuture.failedFuture(new FilterException(new NullPointerException("Request is null")));
+            }
+            requestCounter.increment();
+            CompletableFuture<Boolean> refresh = refreshOidcSessionIfDue(request);
+            if (refresh == null || refresh.isDone()) {
+                return chain.doFilter(request, response);
+            }
+            // Refresh failures are logged where they occur and never fail the request
+            return refresh.handle((isSessionRefreshed, throwable) -> null)
+                .thenComposeAsync(ignored -> chain.doFilter(request, response), continuationExecutor);
+        } finally {
+            LOGGER.traceExit();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        LOGGER.traceEntry();
+        stopMetricsReporting();
+        if (configReloader != null) {
+            configReloader.close();
+            configReloader = null;
+        }
+        if (jwtVerifier != null) {
+            jwtVerifier.close();
+            jwtVerifier = null;
+        }
+        if (backgroundRefresher != null) {
+            backgroundRefresher.close();
+            backgroundRefresher = null;
+        }
+        if (refreshBatcher != null) {
+            refreshBatcher.close();
+            refreshBatcher = null;
+        }
+        if (refreshExecutor != null) {
+            refreshExecutor.shutdown();
+            try {
+                if (!refreshExecutor.awaitTermination(ASYNC_REFRESH_SHUTDOWN_TIMEOUT_IN_MILLISECONDS,
+                    TimeUnit.MILLISECONDS)) {
+                    refreshExecutor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                refreshExecutor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+            refreshExecutor = null;
+        }
+        if (continuationExecutor != null) {
+            // Requests already handed over still complete; no request is expected after destroy()
+            continuationExecutor.shutdown();
+            continuationExecutor = null;
+        }
+        if (requestHedger != null) {
+            requestHedger.close();
+            requestHedger = null;
+        }
+        if (sessionManagementClient != null) {
+            try {
+                sessionManagementClient.close();
+            } catch (IOException e) {
+                LOGGER.warn("Error occurred when closing OIDC session management HTTP client", e);
+            }
+            sessionManagementClient = null;
+        }
+        endpointSelector = null;
+        circuitBreaker = null;
+        LOGGER.info("Successfully destroyed filter");
+        LOGGER.traceExit();
+    }
+
+    /**
+     * Start refreshing the OIDC session of the request if it is due, or only register the session when the background
+     * scheduler owns the refresh deadlines. Errors are logged, not thrown.
+     *
+     * @param request the request
+     * @return the refresh started for the request, or null if none was started
+     */
+    private CompletableFuture<Boolean> refreshOidcSessionIfDue(Request request) {
         String sub = NOT_AVAILABLE;
         String oidcSessionRef = NOT_AVAILABLE;
         try {
@@ -146,54 +595,152 @@ public class SessionFilter implements Filter {
             if (accessToken == null) {
                 LOGGER.warn(
                     "Could not retrieve access token. Container HTTP session may be expired. No OIDC session refreshing");
-                return;
+                return null;
             }
-            String idToken = OidcClientHelper.getIdTokenFromAccessToken(accessToken);
-            Map<String, String> claimsMap = OidcClientHelper.getJwtClaimsFromIdTokenAsMap(idToken);
-            sub = claimsMap.getOrDefault(OIDC_CLAIM_SUB_KEY, NOT_AVAILABLE);
-            oidcSessionRef = claimsMap.getOrDefault(OIDC_SESSION_REF_KEY, NOT_AVAILABLE);
-            if (isTimeToRefreshOidcSession(httpSession)) {
-                LOGGER.info("It's time to try refreshing OIDC session (Last refreshed: {}). sub={}, OidcSessionRef={}",
-                    httpSession.getAttribute(OIDC_LAST_REFRESHED_DATETIME_KEY), sub, oidcSessionRef);
-                boolean isOidcSessionValid = validateOidcSession(sub, oidcSessionRef);
-                LOGGER.info("isOidcSessionValid: {}. sub={}, OidcSessionRef={}", isOidcSessionValid, sub,
-                    oidcSessionRef);
-                if (isOidcSessionValid) {
-                    tryRefreshOidcSession(sub, oidcSessionRef, httpSession);
-                } else {
-                    LOGGER.warn(
-                        "OIDC session is not valid anymore. No OIDC session refreshing. sub={}, OidcSessionRef={}", sub,
-                        oidcSessionRef);
+            CompletableFuture<Boolean> refresh = null;
+            if (backgroundRefresher != null) {
+                registerForBackgroundRefresh(accessToken, httpSession);
+            } else if (isTimeToRefreshOidcSession(httpSession)) {
+                // Claims are only decoded when the session has to be refreshed, or for debug logging
+                IdTokenClaims claims = getJwtClaims(accessToken);
+                sub = Objects.requireNonNullElse(claims.getSub(), NOT_AVAILABLE);
+                oidcSessionRef = Objects.requireNonNullElse(claims.getOidcSessionRef(), NOT_AVAILABLE);
+                if (LOGGER.isInfoEnabled()) {
+                    LOGGER.info(
+                        "It's time to try refreshing OIDC session (Last refreshed: {}). sub={}, OidcSessionRef={}",
+                        refreshTimestamps.getLastRefreshed(httpSession), sub, oidcSessionRef);
                 }
-            } else {
-                LOGGER.info(
+                if (!isIdTokenRejectedLocally(accessToken, sub, oidcSessionRef)) {
+                    refresh = refreshOidcSession(sub, oidcSessionRef, httpSession);
+                }
+            } else if (LOGGER.isDebugEnabled()) {
+                // Written for every request of a session between two refreshes, so only at debug level
+                IdTokenClaims claims = getJwtClaimsOrNotAvailable(accessToken);
+                LOGGER.debug(
                     "OIDC session has been refreshed recently (Last refreshed: {}). No need to refresh at this time. sub={}, OidcSessionRef={}",
-                    httpSession.getAttribute(OIDC_LAST_REFRESHED_DATETIME_KEY), sub, oidcSessionRef);
+                    refreshTimestamps.getLastRefreshed(httpSession),
+                    Objects.requireNonNullElse(claims.getSub(), NOT_AVAILABLE),
+                    Objects.requireNonNullElse(claims.getOidcSessionRef(), NOT_AVAILABLE));
             }
-            LOGGER.info("Successfully performed filter function");
+            LOGGER.debug("Successfully performed filter function");
+            return refresh;
         } catch (NullPointerException npe) {
-            LOGGER.error(String.format(ERROR_MSG_VALIDATE_REFRESH_SESSION,
-                "Container HTTP session is null. Session may be expired"), npe);
+            LOGGER.error(ERROR_MSG_VALIDATE_REFRESH_SESSION, "Container HTTP session is null. Session may be expired",
+                npe);
         } catch (IllegalArgumentException iae) {
-            LOGGER.error(String.format(ERROR_MSG_VALIDATE_REFRESH_SESSION, iae.getMessage()), iae);
+            LOGGER.error(ERROR_MSG_VALIDATE_REFRESH_SESSION, iae.getMessage(), iae);
         } catch (Exception e) {
-            LOGGER.error(
-                String.format(ERROR_MSG_VALIDATE_REFRESH_SESSION, "sub={}, OidcSessionRef={}", sub, oidcSessionRef), e);
-        } finally {
-            filterChain.doFilter(request, response);
-            LOGGER.traceExit();
+            LOGGER.error(ERROR_MSG_VALIDATE_REFRESH_OIDC_SESSION, sub, oidcSessionRef, e);
         }
+        return null;
     }
 
-    @Override
-    public void destroy() {
-        LOGGER.traceEntry();
-        LOGGER.info("Successfully destroyed filter");
-        LOGGER.traceExit();
+    /**
+     * Register the OIDC session of the request with the background scheduler, which owns its refresh deadline.
+     *
+     * @param accessToken the access token string
+     * @param httpSession the HTTP session object
+     */
+    private void registerForBackgroundRefresh(String accessToken, HttpSession httpSession) {
+        IdTokenClaims claims = getJwtClaims(accessToken);
+        String oidcSessionRef = claims.getOidcSessionRef();
+        if (oidcSessionRef == null) {
+            LOGGER.warn("Access token has no OIDC session reference. No OIDC session refreshing");
+            return;
+        }
+        String sub = Objects.requireNonNullElse(claims.getSub(), NOT_AVAILABLE);
+        if (!isIdTokenRejectedLocally(accessToken, sub, oidcSessionRef)) {
+            backgroundRefresher.register(sub, oidcSessionRef, httpSession);
+        }
+    }
+
+    /**
+     * Verify the signature and validity period of the ID token carried by the access token against the JWKS key set, when
+     * local verification is enabled. Tokens that pass, or that could not be verified, are still validated by the session
+     * management service.
+     *
+     * @param accessToken the access token string
+     * @param sub the JWT subject
+     * @param oidcSessionRef the OIDC session reference
+     * @return true if the ID token is expired, not yet valid, malformed or forged; false otherwise
+     */
+    private boolean isIdTokenRejectedLocally(String accessToken, String sub, String oidcSessionRef) {
+        if (jwtVerifier == null) {
+            return false;
+        }
+        JwtVerifier.Result result = jwtVerifier.verify(OidcClientHelper.getIdTokenFromAccessToken(accessToken));
+        if (!result.isRejected()) {
+            return false;
+        }
+        idTokenRejectedCounter.increment();
+        LOGGER.warn("ID token rejected by local verification ({}). No OIDC session refreshing. sub={}, OidcSessionRef={}",
+            result, sub, oidcSessionRef);
+        return true;
+    }
+
+    /**
+     * Get the JWT claims of the ID token carried by the access token. Claims are cached per access token until the ID
+     * token expires, or at most for the claims cache TTL.
+     * <p>
+     * Only the claims used by the filter are extracted from the payload of the ID token. Tokens whose payload cannot be
+     * scanned as a JSON object are decoded by {@link OidcClientHelper#getJwtClaimsFromIdTokenAsMap(String)} instead.
+     *
+     * @param accessToken the access token string
+     * @return the JWT claims
+     */
+    private IdTokenClaims getJwtClaims(String accessToken) {
+        IdTokenClaims claims = claimsCache.get(accessToken);
+        if (claims == null) {
+            String idToken = OidcClientHelper.getIdTokenFromAccessToken(accessToken);
+            String[] values = CLAIM_EXTRACTOR.extract(idToken);
+            if (values != null) {
+                claims = new IdTokenClaims(values[0], values[1], values[2]);
+            } else {
+                Map<String, String> claimsMap = OidcClientHelper.getJwtClaimsFromIdTokenAsMap(idToken);
+                claims = new IdTokenClaims(claimsMap.get(OIDC_CLAIM_SUB_KEY), claimsMap.get(OIDC_SESSION_REF_KEY),
+                    claimsMap.get(OIDC_CLAIM_EXP_KEY));
+            }
+            claimsCache.put(accessToken, claims, getClaimsExpiresAtMillis(claims));
+        }
+        return claims;
+    }
+
+    /**
+     * Get the JWT claims for logging purposes only.
+     *
+     * @param accessToken the access token string
+     * @return the JWT claims, or claims without any value if the claims could not be decoded
+     */
+    private IdTokenClaims getJwtClaimsOrNotAvailable(String accessToken) {
+        try {
+            return getJwtClaims(accessToken);
+        } catch (RuntimeException e) {
+            return NO_CLAIMS;
+        }
+    }
+
+    /**
+     * Determine until when the JWT claims can be cached: the {@code exp} claim, capped by the claims cache TTL.
+     *
+     * @param claims the JWT claims
+     * @return the epoch milliseconds at which the cached claims expire
+     */
+    private long getClaimsExpiresAtMillis(IdTokenClaims claims) {
+        long maxExpiresAtMillis = clock.millis() + claimsCacheTtlInMillis;
+        String exp = claims.getExp();
+        if (exp == null) {
+            return maxExpiresAtMillis;
+        }
+        try {
+            return Math.min(maxExpiresAtMillis, TimeUnit.SECONDS.toMillis(Long.parseLong(exp.trim())));
+        } catch (NumberFormatException e) {
+            return maxExpiresAtMillis;
+        }
     }
 
     /**
-     * Determine if it is time to refresh OIDC session.
+     * Determine if it is time to refresh OIDC session. Only the first call for a session allocates; later calls compare
+     * the stored deadline with the current time.
      *
      * @param httpSession the HTTP session object
      * @return true if it is time to refresh OIDC session; false otherwise
@@ -202,49 +749,305 @@ public class SessionFilter implements Filter {
         if (httpSession == null) {
             return false;
         }
+        return refreshTimestamps.isDue(httpSession);
+    }
+
+    /**
+     * Validate and refresh OIDC session unless it is already being refreshed by another request of the same session, or
+     * it was recently found invalid. The refresh is queued for the next batch call when batched refreshing is enabled.
+     * Otherwise it runs on the background executor when asynchronous refreshing is enabled, or inline. When the
+     * executor queue is full the refresh is dropped and retried by a later request.
+     *
+     * @param sub the JWT subject
+     * @param oidcSessionRef the OIDC session reference
+     * @param httpSession the HTTP session object
+     * @return the refresh started, or null if the session is already being refreshed, is known to be invalid, or the
+     *         refresh was dropped
+     */
+    private CompletableFuture<Boolean> refreshOidcSession(String sub, String oidcSessionRef,
+            HttpSession httpSession) {
+        if (circuitBreaker != null && !circuitBreaker.isCallPermitted()) {
+            LOGGER.debug(
+                "OIDC session management calls are not permitted ({}). No OIDC session refreshing. sub={}, OidcSessionRef={}",
+                circuitBreaker.getState(), sub, oidcSessionRef);
+            return null;
+        }
+        if (invalidSessionCache.get(oidcSessionRef) != null) {
+            LOGGER.debug("OIDC session is known to be invalid. No OIDC session refreshing. sub={}, OidcSessionRef={}",
+                sub, oidcSessionRef);
+            return null;
+        }
+        try {
+            // Sessions without a reference cannot be told apart, so their refreshes are never merged
+            boolean isSingleFlight = !NOT_AVAILABLE.equals(oidcSessionRef);
+            CompletableFuture<Boolean> refresh;
+            if (refreshBatcher != null) {
+                Supplier<CompletableFuture<Boolean>> batchRefresh = () -> refreshBatcher.refresh(oidcSessionRef)
+                    .handle((isSessionRefreshed, throwable) -> onOidcSessionBatchRefreshed(sub, oidcSessionRef,
+                        httpSession, isSessionRefreshed, throwable));
+                refresh = isSingleFlight ? refreshSingleFlight.executeAsyncIfAbsent(oidcSessionRef, batchRefresh)
+                    : batchRefresh.get();
+            } else {
+                Executor executor = refreshExecutor != null ? refreshExecutor : Runnable::run;
+                Supplier<Boolean> directRefresh = () -> validateAndRefreshOidcSession(sub, oidcSessionRef, httpSession);
+                refresh = isSingleFlight
+                    ? refreshSingleFlight.executeIfAbsent(oidcSessionRef, directRefresh::get, executor)
+                    : CompletableFuture.supplyAsync(directRefresh, executor);
+            }
+            if (refresh == null) {
+                LOGGER.debug("OIDC session is being refreshed by another request. sub={}, OidcSessionRef={}", sub,
+                    oidcSessionRef);
+            }
+            return refresh;
+        } catch (RejectedExecutionException e) {
+            LOGGER.warn("OIDC session refresh queue is full. No OIDC session refreshing. sub={}, OidcSessionRef={}",
+                sub, oidcSessionRef);
+            return null;
+        }
+    }
 
-        LocalDateTime lastRefreshedDateTime = (LocalDateTime) httpSession
-            .getAttribute(OIDC_LAST_REFRESHED_DATETIME_KEY);
+    /**
+     * Validate OIDC session and refresh it if it is still valid. Uses the combined validation and refreshing call when it
+     * is configured, or a validation call followed by a refreshing call otherwise.
+     *
+     * @param sub the JWT subject
+     * @param oidcSessionRef the OIDC session reference
+     * @param httpSession the HTTP session object
+     * @return true if the OIDC session has been refreshed; false otherwise
+     */
+    private boolean validateAndRefreshOidcSession(String sub, String oidcSessionRef, HttpSession httpSession) {
+        // Both calls use the settings current when the refresh started, even if the configuration is reloaded meanwhile
+        SessionManagementSnapshot snapshot = sessionManagementSnapshot;
+        try {
+            if (snapshot.getValidateAndRefreshSessionContextPath() != null) {
+                return tryRefreshOidcSession(sub, oidcSessionRef, httpSession, snapshot,
+                    SessionManagementEndpoint::getValidateAndRefreshSessionUri);
+            }
+            boolean isOidcSessionValid = validateOidcSession(sub, oidcSessionRef, snapshot);
+            LOGGER.info("isOidcSessionValid: {}. sub={}, OidcSessionRef={}", isOidcSessionValid, sub,
+                oidcSessionRef);
+            if (isOidcSessionValid) {
+                return tryRefreshOidcSession(sub, oidcSessionRef, httpSession, snapshot,
+                    SessionManagementEndpoint::getRefreshSessionUri);
+            }
+            LOGGER.warn("OIDC session is not valid anymore. No OIDC session refreshing. sub={}, OidcSessionRef={}",
+                sub, oidcSessionRef);
+        } catch (CircuitBreaker.CallNotPermittedException e) {
+            LOGGER.debug("{}. No OIDC session refreshing. sub={}, OidcSessionRef={}", e.getMessage(), sub,
+                oidcSessionRef);
+        } catch (Exception e) {
+            LOGGER.error(ERROR_MSG_VALIDATE_REFRESH_OIDC_SESSION, sub, oidcSessionRef, e);
+        }
+        return false;
+    }
 
-        // lastRefreshedDateTime==null means this is the first time the session was created, so no need to refresh
-        // session
-        if (lastRefreshedDateTime == null) {
-            httpSession.setAttribute(OIDC_LAST_REFRESHED_DATETIME_KEY, LocalDateTime.now());
+    /**
+     * Write the outcome of a batch call back to the HTTP session of one OIDC session in the batch.
+     *
+     * @param sub the JWT subject
+     * @param oidcSessionRef the OIDC session reference
+     * @param httpSession the HTTP session object
+     * @param isSessionRefreshed the outcome of the batch call for the OIDC session, or null if the call failed
+     * @param throwable the failure of the batch call, or null if it succeeded
+     * @return true if the OIDC session has been refreshed; false otherwise
+     */
+    private boolean onOidcSessionBatchRefreshed(String sub, String oidcSessionRef, HttpSession httpSession,
+            Boolean isSessionRefreshed, Throwable throwable) {
+        refreshAttemptedCounter.increment();
+        if (throwable instanceof CircuitBreaker.CallNotPermittedException) {
+            LOGGER.debug("{}. No OIDC session refreshing. sub={}, OidcSessionRef={}", throwable.getMessage(), sub,
+                oidcSessionRef);
             return false;
+        }
+        if (throwable != null) {
+            LOGGER.error("Error occurs when refreshing CIAM session in batch: ciamSessionRef={}", oidcSessionRef);
+            LOGGER.error(throwable);
+            refreshFailedCounter.increment();
+            return false;
+        }
+        try {
+            refreshTimestamps.markRefreshed(httpSession);
+        } catch (IllegalStateException e) {
+            LOGGER.warn("Container HTTP session has been invalidated. sub={}, oidcSessionRef={}", sub, oidcSessionRef);
+            refreshFailedCounter.increment();
+            return false;
+        }
+        if (isSessionRefreshed) {
+            refreshSucceededCounter.increment();
+            LOGGER.info("OIDC session has been successfully refreshed. sub={}, oidcSessionRef={}", sub, oidcSessionRef);
         } else {
-            return lastRefreshedDateTime.plusSeconds(ODIC_REFRESH_SESSION_WAITING_TIME_IN_SECONDS)
-                .isBefore(LocalDateTime.now());
+            LOGGER.warn("OIDC session is not valid anymore. OIDC session was NOT refreshed. sub={}, oidcSessionRef={}",
+                sub, oidcSessionRef);
+            refreshInvalidCounter.increment();
+            rememberInvalidOidcSession(oidcSessionRef);
         }
+        return isSessionRefreshed;
     }
 
-    private boolean validateOidcSession(String sub, String oidcSessionRef) {
+    private boolean validateOidcSession(String sub, String oidcSessionRef, SessionManagementSnapshot snapshot) {
         try {
-            String response = org.apache.http.client.fluent.Request.Post(baseUrl + validateSessionContextPath)
-                .addHeader(OIDC_SESSION_REF_KEY, oidcSessionRef).addHeader(OIDC_CLIENT_ID_KEY, oidcClientId)
-                .connectTimeout(REST_API_CALL_TIMEOUT_IN_MILLISECONDS).execute().returnContent().asString();
-            LOGGER.debug("session validation response={}, oidcSessionRef={}", response, oidcSessionRef);
-            return response.contains("true");
+            SessionStatus status = requestHedger == null
+                ? callSessionManagementService(snapshot, SessionManagementEndpoint::getValidateSessionUri,
+                    oidcSessionRef)
+                : callSessionManagementServiceHedged(snapshot, SessionManagementEndpoint::getValidateSessionUri,
+                    oidcSessionRef);
+            LOGGER.debug("session validation status={}, oidcSessionRef={}", status, oidcSessionRef);
+            if (status.isValid()) {
+                validationValidCounter.increment();
+            } else if (status.isInvalid()) {
+                validationInvalidCounter.increment();
+                rememberInvalidOidcSession(oidcSessionRef);
+            } else {
+                validationFailedCounter.increment();
+            }
+            return status.isValid();
         } catch (IOException e) {
             LOGGER.error("Error occurs when validating CIAM session: oidcSessionRef={}", oidcSessionRef);
             LOGGER.error(e);
+            validationFailedCounter.increment();
             return false;
         }
     }
 
-    private void tryRefreshOidcSession(String sub, String oidcSessionRef, HttpSession httpSession) {
+    /**
+     * Remember that the session management service reported the OIDC session as invalid, so that it is not called again
+     * for the session until the invalid session cache TTL expires.
+     *
+     * @param oidcSessionRef the OIDC session reference
+     */
+    private void rememberInvalidOidcSession(String oidcSessionRef) {
+        if (!NOT_AVAILABLE.equals(oidcSessionRef)) {
+            invalidSessionCache.put(oidcSessionRef, Boolean.TRUE, clock.millis() + invalidSessionCacheTtlInMillis);
+        }
+    }
+
+    /**
+     * Call the session management service through the circuit breaker, if one is configured, on the endpoint chosen by
+     * the endpoint selector, and record the latency of the call.
+     *
+     * @param snapshot the session management settings of the call
+     * @param uriOfCall the URI of the call on the selected endpoint
+     * @param oidcSessionRef the OIDC session reference
+     * @return the status of the OIDC session read from the response
+     * @throws IOException if the call failed
+     * @throws CircuitBreaker.CallNotPermittedException if the circuit breaker did not permit the call
+     */
+    private SessionStatus callSessionManagementService(SessionManagementSnapshot snapshot,
+            Function<SessionManagementEndpoint, URI> uriOfCall, String oidcSessionRef) throws IOException {
+        return callSessionManagementService(snapshot, acquireEndpoint(snapshot, null), uriOfCall, oidcSessionRef,
+            NO_ABORT);
+    }
+
+    /**
+     * Call the session management service like {@link #callSessionManagementService(SessionManagementSnapshot,
+     * Function, String)}, and hedge the call on another endpoint, if there is one, when it is slow. The call is made on
+     * the calling thread, and aborted when the hedge answers first.
+     *
+     * @param snapshot the session management settings of the call
+     * @param uriOfCall the URI of the call on the selected endpoint
+     * @param oidcSessionRef the OIDC session reference
+     * @return the status of the OIDC session read from the first successful response
+     * @throws IOException if the call and its hedge failed
+     * @throws CircuitBreaker.CallNotPermittedException if the circuit breaker did not permit the call
+     */
+    private SessionStatus callSessionManagementServiceHedged(SessionManagementSnapshot snapshot,
+            Function<SessionManagementEndpoint, URI> uriOfCall, String oidcSessionRef) throws IOException {
+        SessionManagementEndpoint endpoint = acquireEndpoint(snapshot, null);
+        return requestHedger.call(
+            onAbort -> callSessionManagementService(snapshot, endpoint, uriOfCall, oidcSessionRef, onAbort),
+            () -> callSessionManagementService(snapshot, acquireEndpoint(snapshot, endpoint), uriOfCall,
+                oidcSessionRef, NO_ABORT));
+    }
+
+    /**
+     * Acquire a permission of the circuit breaker, if one is configured, and select the endpoint of a call.
+     *
+     * @param snapshot the session management settings of the call
+     * @param excluded the endpoint not to select unless it is the only one, or null
+     * @return the endpoint of the call
+     * @throws CircuitBreaker.CallNotPermittedException if the circuit breaker did not permit the call
+     */
+    private SessionManagementEndpoint acquireEndpoint(SessionManagementSnapshot snapshot,
+            SessionManagementEndpoint excluded) {
+        if (circuitBreaker != null && !circuitBreaker.tryAcquirePermission()) {
+            throw new CircuitBreaker.CallNotPermittedException(circuitBreaker.getState());
+        }
+        return endpointSelector.select(snapshot.getEndpoints(), excluded);
+    }
+
+    /**
+     * Call an endpoint acquired with {@link #acquireEndpoint(SessionManagementSnapshot, SessionManagementEndpoint)},
+     * and record the outcome and latency of the call. A call aborted because its hedge answered first is not a failure
+     * of the endpoint, and is reported as a success lasting until it was aborted.
+     *
+     * @param snapshot the session management settings of the call
+     * @param endpoint the endpoint of the call
+     * @param uriOfCall the URI of the call on the endpoint
+     * @param oidcSessionRef the OIDC session reference
+     * @param onAbort the consumer of the action aborting the call
+     * @return the status of the OIDC session read from the response
+     * @throws IOException if the call failed or was aborted
+     */
+    private SessionStatus callSessionManagementService(SessionManagementSnapshot snapshot,
+            SessionManagementEndpoint endpoint, Function<SessionManagementEndpoint, URI> uriOfCall,
+            String oidcSessionRef, Consumer<Runnable> onAbort) throws IOException {
+        long startMillis = clock.millis();
+        long startNanos = System.nanoTime();
+        boolean isSuccessful = false;
+        AtomicBoolean isAborted = new AtomicBoolean();
+        try {
+            SessionStatus status = sessionManagementClient.postForSessionStatus(uriOfCall.apply(endpoint),
+                snapshot.getOidcClientIdHeader(), oidcSessionRef, abortAction -> onAbort.accept(() -> {
+                    isAborted.set(true);
+                    abortAction.run();
+                }));
+            isSuccessful = true;
+            return status;
+        } finally {
+            upstreamLatencyTimer.recordSince(startNanos);
+            isSuccessful |= isAborted.get();
+            if (!isSuccessful) {
+                upstreamErrorCounter.increment();
+            }
+            long durationInMillis = clock.millis() - startMillis;
+            if (endpointSelector.onResult(endpoint, durationInMillis, isSuccessful)) {
+                LOGGER.warn("OIDC session management endpoint ejected: {}", endpoint);
+            }
+            if (circuitBreaker != null) {
+                circuitBreaker.onResult(durationInMillis, isSuccessful);
+            }
+        }
+    }
+
+    /**
+     * Refresh OIDC session. The response of both the refreshing call and the combined validation and refreshing call
+     * reports {@code "valid": false} when the session could not be refreshed.
+     *
+     * @param sub the JWT subject
+     * @param oidcSessionRef the OIDC session reference
+     * @param httpSession the HTTP session object
+     * @param snapshot the session management settings of the call
+     * @param uriOfCall the URI of the refreshing call on the selected endpoint
+     * @return true if the OIDC session has been refreshed; false otherwise
+     */
+    private boolean tryRefreshOidcSession(String sub, String oidcSessionRef, HttpSession httpSession,
+            SessionManagementSnapshot snapshot, Function<SessionManagementEndpoint, URI> uriOfCall) {
         boolean isSessionRefreshed = false;
+        refreshAttemptedCounter.increment();
         try {
-            String response = org.apache.http.client.fluent.Request.Post(baseUrl + refreshSessionContextPath)
-                .addHeader(OIDC_SESSION_REF_KEY, oidcSessionRef).addHeader(OIDC_CLIENT_ID_KEY, oidcClientId)
-                .connectTimeout(REST_API_CALL_TIMEOUT_IN_MILLISECONDS).execute().returnContent().asString();
-            httpSession.setAttribute(OIDC_LAST_REFRESHED_DATETIME_KEY, LocalDateTime.now());
-            LOGGER.debug("session refreshing response={}, ciamSessionRef={}", response, oidcSessionRef);
-            if (response != null && !response.contains("\"valid\": false")) {
+            SessionStatus status = callSessionManagementService(snapshot, uriOfCall, oidcSessionRef);
+            refreshTimestamps.markRefreshed(httpSession, status.getExpiresInMillis());
+            LOGGER.debug("session refreshing status={}, ciamSessionRef={}", status, oidcSessionRef);
+            if (status.isInvalid()) {
+                refreshInvalidCounter.increment();
+            } else {
+                refreshSucceededCounter.increment();
                 isSessionRefreshed = true;
             }
         } catch (IOException e) {
             LOGGER.error("Error occurs when refreshing CIAM session: ciamSessionRef={}", oidcSessionRef);
             LOGGER.error(e);
+            refreshFailedCounter.increment();
         }
 
         if (isSessionRefreshed) {
@@ -252,5 +1055,304 @@ public class SessionFilter implements Filter {
         } else {
             LOGGER.info("OIDC session was NOT refreshed. sub={}, oidcSessionRef={}", sub, oidcSessionRef);
         }
+        return isSessionRefreshed;
+    }
+
+    /**
+     * Create the refresh timestamps of sessions from the refresh interval, maximum refresh interval and jitter of the OIDC
+     * session management configuration.
+     *
+     * @param oidcSessionManagementConfig the OIDC session management configuration
+     * @return the refresh timestamps
+     */
+    private SessionRefreshTimestamps createRefreshTimestamps(OidcSessionManagementConfig oidcSessionManagementConfig) {
+        long refreshIntervalInSeconds = oidcSessionManagementConfig.getRefreshIntervalInSeconds();
+        long maxRefreshIntervalInSeconds = Math.max(refreshIntervalInSeconds,
+            oidcSessionManagementConfig.getMaxRefreshIntervalInSeconds());
+        int jitterPercent = oidcSessionManagementConfig.getRefreshJitterPercent();
+        try {
+            SessionRefreshTimestamps timestamps = new SessionRefreshTimestamps(clock,
+                TimeUnit.SECONDS.toMillis(refreshIntervalInSeconds),
+                TimeUnit.SECONDS.toMillis(maxRefreshIntervalInSeconds), jitterPercent);
+            LOGGER.info("OIDC session refresh interval: {}s, maxRefreshInterval={}s, jitter={}%",
+                refreshIntervalInSeconds, maxRefreshIntervalInSeconds, jitterPercent);
+            return timestamps;
+        } catch (IllegalArgumentException e) {
+            throw new FilterException("Invalid OIDC session refresh interval: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Expose the metrics of the filter through JMX and start the configured metrics reporter, if any.
+     *
+     * @param filterConfig the filter configuration
+     */
+    private void startMetricsReporting(FilterConfig filterConfig) {
+        if (getBooleanInitParameter(filterConfig, METRICS_JMX_ENABLED_PARAM)) {
+            String filterName = StringUtils.defaultIfBlank(filterConfig.getFilterName(),
+                SessionFilter.class.getSimpleName());
+            try {
+                jmxMetricsExporter = new JmxMetricsExporter(metricRegistry, new ObjectName(String.format(
+                    "%s:type=%s,name=%s", METRICS_JMX_DOMAIN, SessionFilter.class.getSimpleName(),
+                    ObjectName.quote(filterName))));
+                jmxMetricsExporter.register();
+                LOGGER.info("Filter metrics exposed through JMX: filterName={}", filterName);
+            } catch (JMException e) {
+                LOGGER.warn("Could not expose filter metrics through JMX: filterName={}", filterName, e);
+                jmxMetricsExporter = null;
+            }
+        }
+        String reporterClassName = StringUtils.trimToNull(filterConfig.getInitParameter(METRICS_REPORTER_CLASS_PARAM));
+        if (reporterClassName != null) {
+            MetricsReporter reporter;
+            try {
+                reporter = Class.forName(reporterClassName).asSubclass(MetricsReporter.class).getConstructor()
+                    .newInstance();
+            } catch (ReflectiveOperationException | ClassCastException e) {
+                throw new FilterException("Invalid metrics reporter: " + reporterClassName, e);
+            }
+            long intervalInSeconds = getLongInitParameter(filterConfig, METRICS_REPORTING_INTERVAL_PARAM,
+                DEFAULT_METRICS_REPORTING_INTERVAL_IN_SECONDS);
+            metricsReporting = new ScheduledMetricsReporting(metricRegistry, reporter, intervalInSeconds,
+                TimeUnit.SECONDS);
+            LOGGER.info("Filter metrics reported by {} every {}s", reporterClassName, intervalInSeconds);
+        }
+    }
+
+    /**
+     * Start reloading the OIDC session management configuration from JNDI when a reload interval is configured. Only
+     * the session management service settings are reloaded; the refresh intervals keep the values the filter was
+     * initialized with.
+     *
+     * @param filterConfig the filter configuration
+     * @param snapshot the session management settings the filter was initialized with
+     */
+    private void startConfigReloading(FilterConfig filterConfig, SessionManagementSnapshot snapshot) {
+        long reloadIntervalInSeconds = getLongInitParameter(filterConfig, CONFIG_RELOAD_INTERVAL_PARAM, 0);
+        if (reloadIntervalInSeconds == 0) {
+            return;
+        }
+        InitialContext context = initialContext;
+        configReloader = new SessionManagementConfigReloader(
+            () -> (OidcSessionManagementConfig) context.lookup(JNDI_OIDC_SESSION_MANAGEMENT_CONFIG), snapshot,
+            reloaded -> {
+                endpointSelector.setEndpoints(reloaded.getEndpoints());
+                sessionManagementSnapshot = reloaded;
+            }, TimeUnit.SECONDS.toMillis(reloadIntervalInSeconds));
+        configReloader.start();
+        LOGGER.info("OIDC session management configuration reloading enabled: interval={}s", reloadIntervalInSeconds);
+    }
+
+    /**
+     * Start hedging validation calls that are slower than a recent percentile of the validation latency. Only validation
+     * calls are hedged, as they do not change the OIDC session.
+     *
+     * @param filterConfig the filter configuration
+     * @param maxThreads the maximum number of hedges running at the same time
+     */
+    private void startHedging(FilterConfig filterConfig, int maxThreads) {
+        int delayPercentile = getIntInitParameter(filterConfig, HEDGING_DELAY_PERCENTILE_PARAM,
+            DEFAULT_HEDGING_DELAY_PERCENTILE);
+        long minDelayInMillis = getLongInitParameter(filterConfig, HEDGING_MIN_DELAY_PARAM,
+            DEFAULT_HEDGING_MIN_DELAY_IN_MILLISECONDS);
+        int maxPercent = getIntInitParameter(filterConfig, HEDGING_MAX_PERCENT_PARAM, DEFAULT_HEDGING_MAX_PERCENT);
+        try {
+            requestHedger = new RequestHedger(clock, delayPercentile, minDelayInMillis, maxPercent, maxThreads);
+        } catch (IllegalArgumentException e) {
+            throw new FilterException("Invalid hedging configuration: " + e.getMessage(), e);
+        }
+        // The registry outlives destroy(), which closes the hedger
+        metricRegistry.gauge("hedging.hedges", () -> {
+            RequestHedger hedger = requestHedger;
+            return hedger == null ? 0 : hedger.getHedgeCount();
+        });
+        metricRegistry.gauge("hedging.wins", () -> {
+            RequestHedger hedger = requestHedger;
+            return hedger == null ? 0 : hedger.getHedgeWinCount();
+        });
+        LOGGER.info("Hedged OIDC session validation enabled: delayPercentile={}, minDelay={}ms, maxPercent={}%",
+            delayPercentile, minDelayInMillis, maxPercent);
+    }
+
+    /**
+     * Start verifying ID tokens locally when a JWKS URI is configured.
+     *
+     * @param filterConfig the filter configuration
+     */
+    private void startLocalIdTokenVerification(FilterConfig filterConfig) {
+        String jwksUri = StringUtils.trimToNull(filterConfig.getInitParameter(JWKS_URI_PARAM));
+        if (jwksUri == null) {
+            return;
+        }
+        long reloadIntervalInSeconds = getLongInitParameter(filterConfig, JWKS_RELOAD_INTERVAL_PARAM,
+            DEFAULT_JWKS_RELOAD_INTERVAL_IN_SECONDS);
+        long clockSkewInSeconds = getLongInitParameter(filterConfig, JWT_CLOCK_SKEW_PARAM,
+            DEFAULT_JWT_CLOCK_SKEW_IN_SECONDS);
+        int cacheMaxSize = getIntInitParameter(filterConfig, JWT_VERIFICATION_CACHE_MAX_SIZE_PARAM,
+            DEFAULT_JWT_VERIFICATION_CACHE_MAX_SIZE);
+        try {
+            jwtVerifier = new JwtVerifier(new URI(jwksUri), clock, TimeUnit.SECONDS.toMillis(reloadIntervalInSeconds),
+                TimeUnit.SECONDS.toMillis(clockSkewInSeconds), cacheMaxSize);
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            throw new FilterException("Invalid JWKS URI: " + e.getMessage(), e);
+        }
+        jwtVerifier.start();
+        metricRegistry.gauge("jwks.keys", () -> {
+            // The registry outlives destroy(), which closes the verifier
+            JwtVerifier verifier = jwtVerifier;
+            return verifier == null ? 0 : verifier.getKeyCount();
+        });
+        LOGGER.info("Local ID token verification enabled: jwksUri={}, reloadInterval={}s, clockSkew={}s", jwksUri,
+            reloadIntervalInSeconds, clockSkewInSeconds);
+    }
+
+    private void stopMetricsReporting() {
+        if (metricsReporting != null) {
+            metricsReporting.close();
+            metricsReporting = null;
+        }
+        if (jmxMetricsExporter != null) {
+            try {
+                jmxMetricsExporter.unregister();
+            } catch (JMException e) {
+                LOGGER.warn("Error occurred when removing filter metrics from JMX", e);
+            }
+            jmxMetricsExporter = null;
+        }
+    }
+
+    /**
+     * Create the executor used to validate and refresh OIDC sessions in the background: a virtual thread per refresh
+     * when virtual threads are enabled and supported by the JVM, or a bounded pool of platform threads otherwise.
+     *
+     * @param isVirtualThreadsEnabled true if virtual threads are requested
+     * @param poolSize the maximum number of refresh threads of the platform thread pool
+     * @param queueCapacity the maximum number of pending refreshes of the platform thread pool
+     * @return the executor
+     */
+    private ExecutorService createRefreshExecutor(boolean isVirtualThreadsEnabled, int poolSize,
+            int queueCapacity) {
+        if (isVirtualThreadsEnabled) {
+            ExecutorService executor = RefreshExecutors.newVirtualThreadPerTaskExecutor();
+            if (executor != null) {
+                LOGGER.info("Asynchronous OIDC session refreshing enabled on virtual threads");
+                return executor;
+            }
+            LOGGER.warn("Virtual threads are not supported by this JVM (Java {}). Falling back to platform threads",
+                Runtime.version().feature());
+        }
+        LOGGER.info("Asynchronous OIDC session refreshing enabled: poolSize={}, queueCapacity={}", poolSize,
+            queueCapacity);
+        return RefreshExecutors.newPlatformThreadPool(poolSize, queueCapacity);
+    }
+
+    /**
+     * Read the session management HTTP client configuration from the filter init parameters.
+     *
+     * @param filterConfig the filter configuration
+     * @return the HTTP client configuration
+     */
+    private static SessionManagementClientConfig getSessionManagementClientConfig(FilterConfig filterConfig) {
+        SessionManagementClientConfig clientConfig = new SessionManagementClientConfig();
+        clientConfig.setMaxConnectionsTotal(getIntInitParameter(filterConfig, HTTP_MAX_CONNECTIONS_TOTAL_PARAM,
+            clientConfig.getMaxConnectionsTotal()));
+        clientConfig.setMaxConnectionsPerRoute(getIntInitParameter(filterConfig,
+            HTTP_MAX_CONNECTIONS_PER_ROUTE_PARAM, clientConfig.getMaxConnectionsPerRoute()));
+        clientConfig.setConnectTimeoutInMilliseconds(getIntInitParameter(filterConfig, HTTP_CONNECT_TIMEOUT_PARAM,
+            clientConfig.getConnectTimeoutInMilliseconds()));
+        clientConfig.setSocketTimeoutInMilliseconds(getIntInitParameter(filterConfig, HTTP_SOCKET_TIMEOUT_PARAM,
+            clientConfig.getSocketTimeoutInMilliseconds()));
+        clientConfig.setConnectionRequestTimeoutInMilliseconds(getIntInitParameter(filterConfig,
+            HTTP_CONNECTION_REQUEST_TIMEOUT_PARAM, clientConfig.getConnectionRequestTimeoutInMilliseconds()));
+        clientConfig.setIdleConnectionTimeoutInMilliseconds(getLongInitParameter(filterConfig,
+            HTTP_IDLE_CONNECTION_TIMEOUT_PARAM, clientConfig.getIdleConnectionTimeoutInMilliseconds()));
+        clientConfig.setKeepAliveInMilliseconds(getLongInitParameter(filterConfig, HTTP_KEEP_ALIVE_PARAM,
+            clientConfig.getKeepAliveInMilliseconds()));
+        return clientConfig;
+    }
+
+    /**
+     * Create the selector spreading calls over the endpoints of the session management service, with the ejection
+     * parameters of the filter configuration.
+     *
+     * @param filterConfig the filter configuration
+     * @return the endpoint selector
+     */
+    private EndpointSelector createEndpointSelector(FilterConfig filterConfig) {
+        return new EndpointSelector(clock,
+            getIntInitParameter(filterConfig, ENDPOINT_EJECTION_CONSECUTIVE_FAILURES_PARAM,
+                DEFAULT_ENDPOINT_EJECTION_CONSECUTIVE_FAILURES),
+            getLongInitParameter(filterConfig, ENDPOINT_SLOW_CALL_DURATION_THRESHOLD_PARAM,
+                DEFAULT_ENDPOINT_SLOW_CALL_DURATION_THRESHOLD_IN_MILLISECONDS),
+            getLongInitParameter(filterConfig, ENDPOINT_EJECTION_TIME_PARAM,
+                DEFAULT_ENDPOINT_EJECTION_TIME_IN_MILLISECONDS),
+            getLongInitParameter(filterConfig, ENDPOINT_MAX_EJECTION_TIME_PARAM,
+                DEFAULT_ENDPOINT_MAX_EJECTION_TIME_IN_MILLISECONDS));
+    }
+
+    /**
+     * Read the circuit breaker configuration from the filter init parameters.
+     *
+     * @param filterConfig the filter configuration
+     * @return the circuit breaker configuration
+     */
+    private static CircuitBreakerConfig getCircuitBreakerConfig(FilterConfig filterConfig) {
+        CircuitBreakerConfig circuitBreakerConfig = new CircuitBreakerConfig();
+        circuitBreakerConfig.setFailureRateThreshold(getIntInitParameter(filterConfig,
+            CIRCUIT_BREAKER_FAILURE_RATE_THRESHOLD_PARAM, circuitBreakerConfig.getFailureRateThreshold()));
+        circuitBreakerConfig.setSlowCallRateThreshold(getIntInitParameter(filterConfig,
+            CIRCUIT_BREAKER_SLOW_CALL_RATE_THRESHOLD_PARAM, circuitBreakerConfig.getSlowCallRateThreshold()));
+        circuitBreakerConfig.setSlowCallDurationThresholdInMilliseconds(getLongInitParameter(filterConfig,
+            CIRCUIT_BREAKER_SLOW_CALL_DURATION_THRESHOLD_PARAM,
+            circuitBreakerConfig.getSlowCallDurationThresholdInMilliseconds()));
+        circuitBreakerConfig.setSlidingWindowSize(getIntInitParameter(filterConfig,
+            CIRCUIT_BREAKER_SLIDING_WINDOW_SIZE_PARAM, circuitBreakerConfig.getSlidingWindowSize()));
+        circuitBreakerConfig.setMinimumNumberOfCalls(getIntInitParameter(filterConfig,
+            CIRCUIT_BREAKER_MINIMUM_NUMBER_OF_CALLS_PARAM, circuitBreakerConfig.getMinimumNumberOfCalls()));
+        circuitBreakerConfig.setWaitDurationInOpenStateInMilliseconds(getLongInitParameter(filterConfig,
+            CIRCUIT_BREAKER_WAIT_DURATION_IN_OPEN_STATE_PARAM,
+            circuitBreakerConfig.getWaitDurationInOpenStateInMilliseconds()));
+        circuitBreakerConfig.setPermittedCallsInHalfOpenState(getIntInitParameter(filterConfig,
+            CIRCUIT_BREAKER_PERMITTED_CALLS_IN_HALF_OPEN_STATE_PARAM,
+            circuitBreakerConfig.getPermittedCallsInHalfOpenState()));
+        circuitBreakerConfig.setMaxConcurrentCalls(getIntInitParameter(filterConfig,
+            CIRCUIT_BREAKER_MAX_CONCURRENT_CALLS_PARAM, circuitBreakerConfig.getMaxConcurrentCalls()));
+        return circuitBreakerConfig;
+    }
+
+    private static boolean getBooleanInitParameter(FilterConfig filterConfig, String name) {
+        return Boolean.parseBoolean(StringUtils.trim(filterConfig.getInitParameter(name)));
+    }
+
+    private static int getIntInitParameter(FilterConfig filterConfig, String name, int defaultValue) {
+        String value = StringUtils.trim(filterConfig.getInitParameter(name));
+        if (StringUtils.isEmpty(value)) {
+            return defaultValue;
+        }
+        try {
+            int intValue = Integer.parseInt(value);
+            if (intValue <= 0) {
+                throw new FilterException(String.format("%s must be a positive integer: %s", name, value));
+            }
+            return intValue;
+        } catch (NumberFormatException e) {
+            throw new FilterException(String.format("%s must be a positive integer: %s", name, value), e);
+        }
+    }
+
+    private static long getLongInitParameter(FilterConfig filterConfig, String name, long defaultValue) {
+        String value = StringUtils.trim(filterConfig.getInitParameter(name));
+        if (StringUtils.isEmpty(value)) {
+            return defaultValue;
+        }
+        try {
+            long longValue = Long.parseLong(value);
+            if (longValue <= 0) {
+                throw new FilterException(String.format("%s must be a positive integer: %s", name, value));
+            }
+            return longValue;
+        } catch (NumberFormatException e) {
+            throw new FilterException(String.format("%s must be a positive integer: %s", name, value), e);
+        }
     }
 }
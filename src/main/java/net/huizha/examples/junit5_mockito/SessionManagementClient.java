@@ -0,0 +1,149 @@
+package net.huizha.examples.junit5_mockito;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.StatusLine;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.BasicResponseHandler;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.util.EntityUtils;
+
+/**
+ * HTTP client of the OIDC session management service. Connections are pooled and kept alive between calls, idle
+ * connections are evicted in the background. Calls take URIs and the client ID header resolved once by the caller, so
+ * that only the OIDC session reference header is built per call.
+ *
+ * @author Zhahui
+ *
+ */
+class SessionManagementClient implements Closeable {
+    private static final String OIDC_SESSION_REF_KEY = "oidc-session-ref";
+    private static final String OIDC_CLIENT_ID_KEY = "client-id";
+    private static final ResponseHandler<SessionStatus> SESSION_STATUS_RESPONSE_HANDLER = response -> {
+        StatusLine statusLine = response.getStatusLine();
+        HttpEntity entity = response.getEntity();
+        if (statusLine.getStatusCode() >= 300) {
+            EntityUtils.consume(entity);
+            throw new HttpResponseException(statusLine.getStatusCode(), statusLine.getReasonPhrase());
+        }
+        if (entity == null) {
+            return SessionStatus.UNKNOWN;
+        }
+        try (InputStream content = entity.getContent()) {
+            return SessionStatusReader.read(content);
+        }
+    };
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+
+    /**
+     * Create a client with its own connection pool.
+     *
+     * @param clientConfig the HTTP client configuration
+     */
+    SessionManagementClient(SessionManagementClientConfig clientConfig) {
+        connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(clientConfig.getMaxConnectionsTotal());
+        connectionManager.setDefaultMaxPerRoute(clientConfig.getMaxConnectionsPerRoute());
+        RequestConfig requestConfig = RequestConfig.custom()
+            .setConnectTimeout(clientConfig.getConnectTimeoutInMilliseconds())
+            .setSocketTimeout(clientConfig.getSocketTimeoutInMilliseconds())
+            .setConnectionRequestTimeout(clientConfig.getConnectionRequestTimeoutInMilliseconds()).build();
+        long keepAliveInMilliseconds = clientConfig.getKeepAliveInMilliseconds();
+        ConnectionKeepAliveStrategy keepAliveStrategy = (response, context) -> {
+            long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return duration > 0 ? duration : keepAliveInMilliseconds;
+        };
+        httpClient = HttpClients.custom().setConnectionManager(connectionManager)
+            .setDefaultRequestConfig(requestConfig).setKeepAliveStrategy(keepAliveStrategy).evictExpiredConnections()
+            .evictIdleConnections(clientConfig.getIdleConnectionTimeoutInMilliseconds(), TimeUnit.MILLISECONDS)
+            .build();
+    }
+
+    /**
+     * Create the header carrying the OIDC client ID, to be shared by all calls of the client.
+     *
+     * @param oidcClientId the OIDC client ID
+     * @return the header
+     */
+    static Header createOidcClientIdHeader(String oidcClientId) {
+        return new BasicHeader(OIDC_CLIENT_ID_KEY, oidcClientId);
+    }
+
+    /**
+     * Post a session management call for the given OIDC session and read the status of the session from the response
+     * body as it streams in, without buffering the body. The rest of the body is discarded once the status is read, so
+     * that the connection can be reused.
+     *
+     * @param uri the URI to post to
+     * @param oidcClientIdHeader the OIDC client ID header
+     * @param oidcSessionRef the OIDC session reference
+     * @return the status of the OIDC session
+     * @throws IOException if the call failed, the service responded with an error status or the response is malformed
+     */
+    SessionStatus postForSessionStatus(URI uri, Header oidcClientIdHeader, String oidcSessionRef) throws IOException {
+        return postForSessionStatus(uri, oidcClientIdHeader, oidcSessionRef, abortAction -> {
+        });
+    }
+
+    /**
+     * Post a session management call for the given OIDC session like
+     * {@link #postForSessionStatus(URI, Header, String)}, handing out the action aborting the call first. An aborted
+     * call fails promptly with an {@link IOException}, releasing its connection.
+     *
+     * @param uri the URI to post to
+     * @param oidcClientIdHeader the OIDC client ID header
+     * @param oidcSessionRef the OIDC session reference
+     * @param onAbort the consumer of the action aborting the call
+     * @return the status of the OIDC session
+     * @throws IOException if the call failed or was aborted, the service responded with an error status or the
+     *         response is malformed
+     */
+    SessionStatus postForSessionStatus(URI uri, Header oidcClientIdHeader, String oidcSessionRef,
+        Consumer<Runnable> onAbort) throws IOException {
+        HttpPost httpPost = new HttpPost(uri);
+        httpPost.addHeader(OIDC_SESSION_REF_KEY, oidcSessionRef);
+        httpPost.addHeader(oidcClientIdHeader);
+        onAbort.accept(httpPost::abort);
+        return httpClient.execute(httpPost, SESSION_STATUS_RESPONSE_HANDLER);
+    }
+
+    /**
+     * Post a session management call with a JSON body, e.g. a call covering several OIDC sessions.
+     *
+     * @param uri the URI to post to
+     * @param oidcClientIdHeader the OIDC client ID header
+     * @param json the JSON request body
+     * @return the response body
+     * @throws IOException if the call failed or the service responded with an error status
+     */
+    String postJson(URI uri, Header oidcClientIdHeader, String json) throws IOException {
+        HttpPost httpPost = new HttpPost(uri);
+        httpPost.addHeader(oidcClientIdHeader);
+        httpPost.setEntity(new StringEntity(json, ContentType.APPLICATION_JSON));
+        return httpClient.execute(httpPost, new BasicResponseHandler());
+    }
+
+    @Override
+    public void close() throws IOException {
+        httpClient.close();
+    }
+}
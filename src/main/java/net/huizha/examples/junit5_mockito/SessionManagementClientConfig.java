@@ -0,0 +1,143 @@
+package net.huizha.examples.junit5_mockito;
+
+/**
+ * Define HTTP client configuration object for calls to the OIDC session management service.
+ *
+ * @author Zhahui
+ *
+ */
+public class SessionManagementClientConfig {
+    private int maxConnectionsTotal = 50;
+    private int maxConnectionsPerRoute = 20;
+    private int connectTimeoutInMilliseconds = 3000;
+    private int socketTimeoutInMilliseconds = 3000;
+    private int connectionRequestTimeoutInMilliseconds = 1000;
+    private long idleConnectionTimeoutInMilliseconds = 30000;
+    private long keepAliveInMilliseconds = 30000;
+
+    /**
+     * Get the maximum number of pooled connections.
+     *
+     * @return the maximum number of pooled connections
+     */
+    public int getMaxConnectionsTotal() {
+        return maxConnectionsTotal;
+    }
+
+    /**
+     * Set the maximum number of pooled connections.
+     *
+     * @param maxConnectionsTotal the maximum number of pooled connections to set
+     */
+    public void setMaxConnectionsTotal(int maxConnectionsTotal) {
+        this.maxConnectionsTotal = maxConnectionsTotal;
+    }
+
+    /**
+     * Get the maximum number of pooled connections per route.
+     *
+     * @return the maximum number of pooled connections per route
+     */
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    /**
+     * Set the maximum number of pooled connections per route.
+     *
+     * @param maxConnectionsPerRoute the maximum number of pooled connections per route to set
+     */
+    public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
+
+    /**
+     * Get the timeout for establishing a connection.
+     *
+     * @return the connect timeout in milliseconds
+     */
+    public int getConnectTimeoutInMilliseconds() {
+        return connectTimeoutInMilliseconds;
+    }
+
+    /**
+     * Set the timeout for establishing a connection.
+     *
+     * @param connectTimeoutInMilliseconds the connect timeout in milliseconds to set
+     */
+    public void setConnectTimeoutInMilliseconds(int connectTimeoutInMilliseconds) {
+        this.connectTimeoutInMilliseconds = connectTimeoutInMilliseconds;
+    }
+
+    /**
+     * Get the maximum period of inactivity while waiting for response data.
+     *
+     * @return the socket timeout in milliseconds
+     */
+    public int getSocketTimeoutInMilliseconds() {
+        return socketTimeoutInMilliseconds;
+    }
+
+    /**
+     * Set the maximum period of inactivity while waiting for response data.
+     *
+     * @param socketTimeoutInMilliseconds the socket timeout in milliseconds to set
+     */
+    public void setSocketTimeoutInMilliseconds(int socketTimeoutInMilliseconds) {
+        this.socketTimeoutInMilliseconds = socketTimeoutInMilliseconds;
+    }
+
+    /**
+     * Get the timeout for leasing a connection from the pool.
+     *
+     * @return the connection request timeout in milliseconds
+     */
+    public int getConnectionRequestTimeoutInMilliseconds() {
+        return connectionRequestTimeoutInMilliseconds;
+    }
+
+    /**
+     * Set the timeout for leasing a connection from the pool.
+     *
+     * @param connectionRequestTimeoutInMilliseconds the connection request timeout in milliseconds to set
+     */
+    public void setConnectionRequestTimeoutInMilliseconds(int connectionRequestTimeoutInMilliseconds) {
+        this.connectionRequestTimeoutInMilliseconds = connectionRequestTimeoutInMilliseconds;
+    }
+
+    /**
+     * Get the time after which idle pooled connections are evicted.
+     *
+     * @return the idle connection timeout in milliseconds
+     */
+    public long getIdleConnectionTimeoutInMilliseconds() {
+        return idleConnectionTimeoutInMilliseconds;
+    }
+
+    /**
+     * Set the time after which idle pooled connections are evicted.
+     *
+     * @param idleConnectionTimeoutInMilliseconds the idle connection timeout in milliseconds to set
+     */
+    public void setIdleConnectionTimeoutInMilliseconds(long idleConnectionTimeoutInMilliseconds) {
+        this.idleConnectionTimeoutInMilliseconds = idleConnectionTimeoutInMilliseconds;
+    }
+
+    /**
+     * Get how long a connection is kept alive when the server does not send a Keep-Alive header.
+     *
+     * @return the keep-alive duration in milliseconds
+     */
+    public long getKeepAliveInMilliseconds() {
+        return keepAliveInMilliseconds;
+    }
+
+    /**
+     * Set how long a connection is kept alive when the server does not send a Keep-Alive header.
+     *
+     * @param keepAliveInMilliseconds the keep-alive duration in milliseconds to set
+     */
+    public void setKeepAliveInMilliseconds(long keepAliveInMilliseconds) {
+        this.keepAliveInMilliseconds = keepAliveInMilliseconds;
+    }
+}
@@ -0,0 +1,100 @@
+package net.huizha.examples.junit5_mockito;
+
+import java.io.Closeable;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Reload the OIDC session management configuration periodically on a daemon thread, and publish a new
+ * {@link SessionManagementSnapshot} whenever the session management service settings changed, so that the service URL,
+ * context paths and client ID can be changed without re-initializing the filter.
+ * <p>
+ * A configuration that cannot be looked up or is invalid is ignored and the current snapshot is kept. So is a
+ * configuration that adds or removes the batch refreshing context path, as batched refreshing is only set up when the
+ * filter is initialized.
+ *
+ * @author Zhahui
+ *
+ */
+class SessionManagementConfigReloader implements Closeable {
+    private static final Logger LOGGER = LogManager.getLogger(SessionManagementConfigReloader.class);
+
+    private final Callable<OidcSessionManagementConfig> lookup;
+    private final Consumer<SessionManagementSnapshot> publisher;
+    private final long reloadIntervalInMillis;
+    private final ScheduledExecutorService scheduler;
+    private volatile SessionManagementSnapshot current;
+
+    /**
+     * Create a reloader. The configuration is only reloaded by {@link #reload()} until {@link #start()} is called.
+     *
+     * @param lookup the lookup of the current configuration
+     * @param initial the snapshot of the configuration the filter was initialized with
+     * @param publisher the consumer publishing new snapshots to the filter
+     * @param reloadIntervalInMillis the interval at which the configuration is reloaded
+     */
+    SessionManagementConfigReloader(Callable<OidcSessionManagementConfig> lookup, SessionManagementSnapshot initial,
+            Consumer<SessionManagementSnapshot> publisher, long reloadIntervalInMillis) {
+        this.lookup = lookup;
+        this.current = initial;
+        this.publisher = publisher;
+        this.reloadIntervalInMillis = reloadIntervalInMillis;
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "oidc-config-reloader");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Start reloading the configuration every reload interval on the reloader thread.
+     */
+    void start() {
+        scheduler.scheduleWithFixedDelay(this::reload, reloadIntervalInMillis, reloadIntervalInMillis,
+            TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Reload the configuration now.
+     *
+     * @return true if a new snapshot has been published; false if the settings did not change or could not be reloaded
+     */
+    boolean reload() {
+        SessionManagementSnapshot reloaded;
+        try {
+            OidcSessionManagementConfig config = lookup.call();
+            if (config == null) {
+                LOGGER.warn("OIDC session management configuration not found. Keeping current configuration");
+                return false;
+            }
+            reloaded = SessionManagementSnapshot.of(config);
+        } catch (Exception e) {
+            LOGGER.warn("Could not reload OIDC session management configuration. Keeping current configuration", e);
+            return false;
+        }
+        SessionManagementSnapshot previous = current;
+        if (reloaded.equals(previous)) {
+            return false;
+        }
+        if ((reloaded.getBatchRefreshSessionContextPath() == null) != (previous.getBatchRefreshSessionContextPath() == null)) {
+            LOGGER.warn(
+                "batchRefreshSessionContextPath can only be added or removed by re-initializing the filter. Keeping current configuration");
+            return false;
+        }
+        current = reloaded;
+        publisher.accept(reloaded);
+        LOGGER.info("OIDC session management configuration reloaded: {}", reloaded);
+        return true;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,75 @@
+package net.huizha.examples.junit5_mockito;
+
+import java.net.URI;
+
+/**
+ * One endpoint of the session management service: a base URL and the URIs of the calls resolved against it.
+ *
+ * @author Zhahui
+ *
+ */
+final class SessionManagementEndpoint {
+    private final String baseUrl;
+    private final URI validateSessionUri;
+    private final URI refreshSessionUri;
+    private final URI validateAndRefreshSessionUri;
+    private final URI batchRefreshSessionUri;
+
+    /**
+     * Create an endpoint.
+     *
+     * @param baseUrl the validated base URL, without trailing slash
+     * @param validateSessionUri the URI of the validation call
+     * @param refreshSessionUri the URI of the refreshing call
+     * @param validateAndRefreshSessionUri the URI of the combined validation and refreshing call, or null
+     * @param batchRefreshSessionUri the URI of the batch refreshing call, or null
+     */
+    SessionManagementEndpoint(String baseUrl, URI validateSessionUri, URI refreshSessionUri,
+            URI validateAndRefreshSessionUri, URI batchRefreshSessionUri) {
+        this.baseUrl = baseUrl;
+        this.validateSessionUri = validateSessionUri;
+        this.refreshSessionUri = refreshSessionUri;
+        this.validateAndRefreshSessionUri = validateAndRefreshSessionUri;
+        this.batchRefreshSessionUri = batchRefreshSessionUri;
+    }
+
+    /**
+     * @return the base URL, without trailing slash; it identifies the endpoint across configuration reloads
+     */
+    String getBaseUrl() {
+        return baseUrl;
+    }
+
+    /**
+     * @return the URI of the validation call
+     */
+    URI getValidateSessionUri() {
+        return validateSessionUri;
+    }
+
+    /**
+     * @return the URI of the refreshing call
+     */
+    URI getRefreshSessionUri() {
+        return refreshSessionUri;
+    }
+
+    /**
+     * @return the URI of the combined validation and refreshing call, or null if none is configured
+     */
+    URI getValidateAndRefreshSessionUri() {
+        return validateAndRefreshSessionUri;
+    }
+
+    /**
+     * @return the URI of the batch refreshing call, or null if none is configured
+     */
+    URI getBatchRefreshSessionUri() {
+        return batchRefreshSessionUri;
+    }
+
+    @Override
+    public String toString() {
+        return baseUrl;
+    }
+}
@@ -0,0 +1,208 @@
+package net.huizha.examples.junit5_mockito;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.Header;
+
+/**
+ * An immutable, validated snapshot of the session management service settings of an
+ * {@link OidcSessionManagementConfig}: the endpoints listed in the base URL, with the context paths resolved into call
+ * URIs, and the OIDC client ID header. The filter publishes the current snapshot through a volatile field, so that a
+ * call reads all of its settings from the same configuration even when the configuration is reloaded concurrently.
+ *
+ * @author Zhahui
+ *
+ */
+final class SessionManagementSnapshot {
+    private final String baseUrl;
+    private final String validateSessionContextPath;
+    private final String refreshSessionContextPath;
+    private final String validateAndRefreshSessionContextPath;
+    private final String batchRefreshSessionContextPath;
+    private final String oidcClientId;
+    private final List<SessionManagementEndpoint> endpoints;
+    private final Header oidcClientIdHeader;
+
+    private SessionManagementSnapshot(OidcSessionManagementConfig config) {
+        baseUrl = config.getBaseUrl();
+        if (StringUtils.isBlank(baseUrl)) {
+            throw new IllegalArgumentException("baseUrl is null or empty");
+        }
+        validateSessionContextPath = config.getValidateSessionContextPath();
+        if (StringUtils.isBlank(validateSessionContextPath)) {
+            throw new IllegalArgumentException("validateSessionContextPath is null or empty");
+        }
+        refreshSessionContextPath = config.getRefreshSessionContextPath();
+        if (StringUtils.isBlank(refreshSessionContextPath)) {
+            throw new IllegalArgumentException("refreshSessionContextPath is null or empty");
+        }
+        validateAndRefreshSessionContextPath = StringUtils.trimToNull(config.getValidateAndRefreshSessionContextPath());
+        batchRefreshSessionContextPath = StringUtils.trimToNull(config.getBatchRefreshSessionContextPath());
+        List<SessionManagementEndpoint> configuredEndpoints = new ArrayList<>();
+        Set<String> validatedBaseUrls = new HashSet<>();
+        for (String endpointBaseUrl : baseUrl.split(",")) {
+            String validatedBaseUrl = validateBaseUrl(endpointBaseUrl);
+            if (!validatedBaseUrls.add(validatedBaseUrl)) {
+                throw new IllegalArgumentException("baseUrl lists the same URL more than once: " + validatedBaseUrl);
+            }
+            configuredEndpoints.add(createEndpoint(validatedBaseUrl));
+        }
+        endpoints = List.copyOf(configuredEndpoints);
+        oidcClientId = config.getOidcClientId();
+        if (StringUtils.isBlank(oidcClientId)) {
+            throw new IllegalArgumentException("oidcClientId is null or empty");
+        }
+        oidcClientIdHeader = SessionManagementClient.createOidcClientIdHeader(oidcClientId);
+    }
+
+    /**
+     * Validate the session management service settings of a configuration.
+     *
+     * @param config the OIDC session management configuration
+     * @return the snapshot of the settings
+     * @throws IllegalArgumentException if a setting is missing or invalid
+     */
+    static SessionManagementSnapshot of(OidcSessionManagementConfig config) {
+        return new SessionManagementSnapshot(config);
+    }
+
+    /**
+     * @return the base URL, or the comma-separated base URLs of all endpoints, as configured
+     */
+    String getBaseUrl() {
+        return baseUrl;
+    }
+
+    /**
+     * @return the context path of the validation call, as configured
+     */
+    String getValidateSessionContextPath() {
+        return validateSessionContextPath;
+    }
+
+    /**
+     * @return the context path of the refreshing call, as configured
+     */
+    String getRefreshSessionContextPath() {
+        return refreshSessionContextPath;
+    }
+
+    /**
+     * @return the context path of the combined validation and refreshing call, or null if none is configured
+     */
+    String getValidateAndRefreshSessionContextPath() {
+        return validateAndRefreshSessionContextPath;
+    }
+
+    /**
+     * @return the context path of the batch refreshing call, or null if none is configured
+     */
+    String getBatchRefreshSessionContextPath() {
+        return batchRefreshSessionContextPath;
+    }
+
+    /**
+     * @return the endpoints of the session management service, in the configured order
+     */
+    List<SessionManagementEndpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * @return the OIDC client ID header sent with every call
+     */
+    Header getOidcClientIdHeader() {
+        return oidcClientIdHeader;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof SessionManagementSnapshot)) {
+            return false;
+        }
+        SessionManagementSnapshot other = (SessionManagementSnapshot) obj;
+        return baseUrl.equals(other.baseUrl) && validateSessionContextPath.equals(other.validateSessionContextPath)
+            && refreshSessionContextPath.equals(other.refreshSessionContextPath)
+            && Objects.equals(validateAndRefreshSessionContextPath, other.validateAndRefreshSessionContextPath)
+            && Objects.equals(batchRefreshSessionContextPath, other.batchRefreshSessionContextPath)
+            && oidcClientId.equals(other.oidcClientId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(baseUrl, validateSessionContextPath, refreshSessionContextPath,
+            validateAndRefreshSessionContextPath, batchRefreshSessionContextPath, oidcClientId);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+            "baseUrl=%s, validateSessionContextPath=%s, refreshSessionContextPath=%s, validateAndRefreshSessionContextPath=%s, batchRefreshSessionContextPath=%s",
+            baseUrl, validateSessionContextPath, refreshSessionContextPath, validateAndRefreshSessionContextPath,
+            batchRefreshSessionContextPath);
+    }
+
+    private SessionManagementEndpoint createEndpoint(String validatedBaseUrl) {
+        return new SessionManagementEndpoint(validatedBaseUrl,
+            toSessionManagementUri(validatedBaseUrl, "validateSessionContextPath", validateSessionContextPath),
+            toSessionManagementUri(validatedBaseUrl, "refreshSessionContextPath", refreshSessionContextPath),
+            validateAndRefreshSessionContextPath == null ? null
+                : toSessionManagementUri(validatedBaseUrl, "validateAndRefreshSessionContextPath",
+                    validateAndRefreshSessionContextPath),
+            batchRefreshSessionContextPath == null ? null
+                : toSessionManagementUri(validatedBaseUrl, "batchRefreshSessionContextPath",
+                    batchRefreshSessionContextPath));
+    }
+
+    /**
+     * Check that the base URL is an absolute HTTP(S) URL that context paths can be appended to.
+     *
+     * @param baseUrl the base URL of one endpoint of the session management service
+     * @return the base URL without trailing slash
+     */
+    private static String validateBaseUrl(String baseUrl) {
+        URI baseUri;
+        try {
+            baseUri = new URI(baseUrl.trim());
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("baseUrl is not a valid URL: " + e.getMessage(), e);
+        }
+        if (!("http".equalsIgnoreCase(baseUri.getScheme()) || "https".equalsIgnoreCase(baseUri.getScheme()))
+            || baseUri.getHost() == null || baseUri.getRawQuery() != null || baseUri.getRawFragment() != null) {
+            throw new IllegalArgumentException(
+                "baseUrl must be an absolute http or https URL without query: " + baseUrl.trim());
+        }
+        return StringUtils.removeEnd(baseUri.toString(), "/");
+    }
+
+    /**
+     * Resolve the URI of a session management call once, so that calls do not parse it again.
+     *
+     * @param baseUrl the validated base URL
+     * @param name the name of the context path configuration value, for error messages
+     * @param contextPath the context path of the call
+     * @return the URI of the call
+     */
+    private static URI toSessionManagementUri(String baseUrl, String name, String contextPath) {
+        String path = contextPath.trim();
+        if (!path.startsWith("/")) {
+            throw new IllegalArgumentException(String.format("%s must start with '/': %s", name, contextPath));
+        }
+        try {
+            return new URI(baseUrl + path);
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException(String.format("%s is not a valid URL path: %s", name, e.getMessage()),
+                e);
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package net.huizha.examples.junit5_mockito;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import net.huizha.examples.metrics.Counter;
+import net.huizha.examples.metrics.Timer;
+
+/**
+ * Coalesce OIDC session refreshes into bulk calls to the batch refreshing endpoint of the session management service.
+ * Pending refreshes are flushed every flush interval, or as soon as a full batch is pending, whichever comes first.
+ * <p>
+ * A batch call posts {@code {"oidc-session-refs": ["ref-1", "ref-2"]}} and expects an object mapping each OIDC session
+ * reference to whether the session was valid and has been refreshed, e.g. {@code {"ref-1": true, "ref-2": false}}.
+ * A session whose member is missing or not a boolean fails; a response that is not a JSON object fails the whole batch.
+ * Each batch call is posted to the batch refreshing URI of the session management settings current when it is sent, on
+ * the endpoint chosen by the endpoint selector. It goes through the circuit breaker, if one is configured, like any other
+ * call: when the circuit breaker does not permit it, all refreshes of the batch fail with a
+ * {@link CircuitBreaker.CallNotPermittedException}. The latency and failures of batch calls are recorded with those of
+ * the other session management calls.
+ *
+ * @author Zhahui
+ *
+ */
+class SessionRefreshBatcher implements Closeable {
+    private static final Logger LOGGER = LogManager.getLogger(SessionRefreshBatcher.class);
+
+    private final SessionManagementClient sessionManagementClient;
+    private final Supplier<SessionManagementSnapshot> settings;
+    private final EndpointSelector endpointSelector;
+    private final CircuitBreaker circuitBreaker;
+    private final Timer upstreamLatencyTimer;
+    private final Counter upstreamErrorCounter;
+    private final int maxBatchSize;
+    private final Queue<PendingRefresh> pendingRefreshes;
+    private final AtomicInteger pendingCount;
+    private final ScheduledExecutorService scheduler;
+    private volatile boolean isClosed;
+
+    /**
+     * Create a batcher and start its flush thread.
+     *
+     * @param sessionManagementClient the client used for the batch calls
+     * @param settings the supplier of the current session management settings, which have a batch refreshing URI
+     * @param endpointSelector the selector of the endpoint of each batch call
+     * @param circuitBreaker the circuit breaker of the session management calls, or null if none is configured
+     * @param upstreamLatencyTimer the timer of the session management calls
+     * @param upstreamErrorCounter the counter of the failed session management calls
+     * @param maxBatchSize the maximum number of OIDC sessions per batch call
+     * @param flushIntervalInMilliseconds the maximum time a refresh waits before its batch is sent
+     */
+    SessionRefreshBatcher(SessionManagementClient sessionManagementClient,
+            Supplier<SessionManagementSnapshot> settings, EndpointSelector endpointSelector,
+            CircuitBreaker circuitBreaker, Timer upstreamLatencyTimer, Counter upstreamErrorCounter, int maxBatchSize,
+            long flushIntervalInMilliseconds) {
+        this.sessionManagementClient = sessionManagementClient;
+        this.settings = settings;
+        this.endpointSelector = endpointSelector;
+        this.circuitBreaker = circuitBreaker;
+        this.upstreamLatencyTimer = upstreamLatencyTimer;
+        this.upstreamErrorCounter = upstreamErrorCounter;
+        this.maxBatchSize = maxBatchSize;
+        pendingRefreshes = new ConcurrentLinkedQueue<>();
+        pendingCount = new AtomicInteger();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "oidc-session-refresh-batcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flush, flushIntervalInMilliseconds, flushIntervalInMilliseconds,
+            TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queue an OIDC session for refreshing in the next batch call.
+     *
+     * @param oidcSessionRef the OIDC session reference
+     * @return the future outcome: true if the session was valid and has been refreshed, false if it was not valid; it
+     * completes exceptionally if the batch call failed
+     */
+    CompletableFuture<Boolean> refresh(String oidcSessionRef) {
+        PendingRefresh pendingRefresh = new PendingRefresh(oidcSessionRef);
+        if (isClosed) {
+            pendingRefresh.future.completeExceptionally(new IllegalStateException("Batcher is closed"));
+            return pendingRefresh.future;
+        }
+        pendingRefreshes.add(pendingRefresh);
+        // close() may have drained the queue between the check and the add; whoever removes the refresh fails it
+        if (isClosed && pendingRefreshes.remove(pendingRefresh)) {
+            pendingRefresh.future.completeExceptionally(new IllegalStateException("Batcher is closed"));
+            return pendingRefresh.future;
+        }
+        if (pendingCount.incrementAndGet() == maxBatchSize) {
+            try {
+                scheduler.execute(this::flush);
+            } catch (RejectedExecutionException e) {
+                // closed in the meantime; close() fails the pending refreshes
+            }
+        }
+        return pendingRefresh.future;
+    }
+
+    /**
+     * @return the number of refreshes waiting for a batch call
+     */
+    int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    @Override
+    public void close() {
+        isClosed = true;
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        PendingRefresh pendingRefresh;
+        while ((pendingRefresh = pendingRefreshes.poll()) != null) {
+            pendingCount.decrementAndGet();
+            pendingRefresh.future.completeExceptionally(new IllegalStateException("Batcher is closed"));
+        }
+    }
+
+    /**
+     * Send all pending refreshes in batches of at most the maximum batch size. Only ever runs on the flush thread.
+     */
+    private void flush() {
+        List<PendingRefresh> batch = drainBatch();
+        while (!batch.isEmpty()) {
+            send(batch);
+            batch = drainBatch();
+        }
+    }
+
+    private List<PendingRefresh> drainBatch() {
+        List<PendingRefresh> batch = new ArrayList<>(Math.min(maxBatchSize, pendingCount.get()));
+        PendingRefresh pendingRefresh;
+        while (batch.size() < maxBatchSize && (pendingRefresh = pendingRefreshes.poll()) != null) {
+            pendingCount.decrementAndGet();
+            batch.add(pendingRefresh);
+        }
+        return batch;
+    }
+
+    private void send(List<PendingRefresh> batch) {
+        if (circuitBreaker != null && !circuitBreaker.tryAcquirePermission()) {
+            CircuitBreaker.CallNotPermittedException e = new CircuitBreaker.CallNotPermittedException(
+                circuitBreaker.getState());
+            LOGGER.debug("{}. No batch call for {} OIDC sessions", e.getMessage(), batch.size());
+            for (PendingRefresh pendingRefresh : batch) {
+                pendingRefresh.future.completeExceptionally(e);
+            }
+            return;
+        }
+        Map<String, Object> results = null;
+        Exception failure = null;
+        SessionManagementSnapshot currentSettings = settings.get();
+        SessionManagementEndpoint endpoint = endpointSelector.select(currentSettings.getEndpoints());
+        long startNanos = System.nanoTime();
+        try {
+            String response = sessionManagementClient.postJson(endpoint.getBatchRefreshSessionUri(),
+                currentSettings.getOidcClientIdHeader(), toRequestBody(batch));
+            LOGGER.debug("batch session refreshing response={}, batchSize={}", response, batch.size());
+            results = JsonParser.parseObject(response);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("Error occurs when refreshing a batch of {} OIDC sessions on {}", batch.size(), endpoint, e);
+            failure = e;
+        }
+        // The outcome is recorded before any refresh of the batch completes
+        boolean isSuccessful = failure == null;
+        upstreamLatencyTimer.recordSince(startNanos);
+        if (!isSuccessful) {
+            upstreamErrorCounter.increment();
+        }
+        long durationInMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        if (endpointSelector.onResult(endpoint, durationInMillis, isSuccessful)) {
+            LOGGER.warn("OIDC session management endpoint ejected: {}", endpoint);
+        }
+        if (circuitBreaker != null) {
+            circuitBreaker.onResult(durationInMillis, isSuccessful);
+        }
+        if (failure != null) {
+            for (PendingRefresh pendingRefresh : batch) {
+                pendingRefresh.future.completeExceptionally(failure);
+            }
+            return;
+        }
+        for (PendingRefresh pendingRefresh : batch) {
+            Object result = results.get(pendingRefresh.oidcSessionRef);
+            if (!(result instanceof Boolean)) {
+                pendingRefresh.future.completeExceptionally(
+                    new IOException("Batch refreshing response has no boolean result for OIDC session: "
+                        + pendingRefresh.oidcSessionRef));
+            } else {
+                pendingRefresh.future.complete((Boolean) result);
+            }
+        }
+    }
+
+    private static String toRequestBody(List<PendingRefresh> batch) {
+        StringBuilder json = new StringBuilder("{\"oidc-session-refs\":[");
+        for (int i = 0; i < batch.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            appendJsonString(json, batch.get(i).oidcSessionRef);
+        }
+        return json.append("]}").toString();
+    }
+
+    private static void appendJsonString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+
+    /**
+     * An OIDC session waiting for a batch call.
+     */
+    private static final class PendingRefresh {
+        private final String oidcSessionRef;
+        private final CompletableFuture<Boolean> future = new CompletableFuture<>();
+
+        private PendingRefresh(String oidcSessionRef) {
+            this.oidcSessionRef = oidcSessionRef;
+        }
+    }
+}
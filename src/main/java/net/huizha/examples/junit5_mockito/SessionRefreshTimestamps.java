@@ -0,0 +1,201 @@
+package net.huizha.examples.junit5_mockito;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleSupplier;
+
+import javax.servlet.http.HttpSession;
+
+/**
+ * Keep track of when the OIDC session of an HTTP session is due for refresh. The deadline is stored in the HTTP
+ * session as epoch milliseconds so that checking it costs one attribute lookup and one long comparison.
+ * <p>
+ * Sessions created before the deadline was introduced hold the {@link LocalDateTime} of their last refresh instead. It
+ * is read and migrated to a deadline on first use.
+ * <p>
+ * Each deadline is randomly spread by up to the jitter percentage of its interval, so that sessions seen or refreshed
+ * together, e.g. after a deploy or a failover, do not all come due together. When the session management service
+ * reports how long the OIDC session will live, the interval is stretched to half of that lifetime, between the refresh
+ * interval and the maximum refresh interval.
+ *
+ * @author Zhahui
+ *
+ */
+class SessionRefreshTimestamps {
+    static final String OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY = "oidc-next-refresh-epoch-millis";
+    static final String OIDC_LAST_REFRESHED_DATETIME_KEY = "oidc-last-refreshed-datetime";
+
+    private final Clock clock;
+    private final long refreshIntervalInMillis;
+    private final long maxRefreshIntervalInMillis;
+    private final int jitterPercent;
+    private final DoubleSupplier random;
+
+    /**
+     * Create the timestamps of sessions refreshed at a fixed interval, without jitter.
+     *
+     * @param clock the clock deciding when sessions are due
+     * @param refreshIntervalInMillis the time between two refreshes of a session
+     */
+    SessionRefreshTimestamps(Clock clock, long refreshIntervalInMillis) {
+        this(clock, refreshIntervalInMillis, refreshIntervalInMillis, 0);
+    }
+
+    /**
+     * Create the timestamps of sessions refreshed at an interval adapted to the OIDC session lifetime, with jitter.
+     *
+     * @param clock the clock deciding when sessions are due
+     * @param refreshIntervalInMillis the time between two refreshes of a session, and the minimum of adapted intervals
+     * @param maxRefreshIntervalInMillis the maximum of adapted intervals; equal to the refresh interval to disable
+     *            adaptation
+     * @param jitterPercent the maximum random spread of deadlines, in percent of the interval
+     */
+    SessionRefreshTimestamps(Clock clock, long refreshIntervalInMillis, long maxRefreshIntervalInMillis,
+            int jitterPercent) {
+        this(clock, refreshIntervalInMillis, maxRefreshIntervalInMillis, jitterPercent,
+            () -> ThreadLocalRandom.current().nextDouble());
+    }
+
+    /**
+     * Create the timestamps of sessions with the given source of randomness.
+     *
+     * @param clock the clock deciding when sessions are due
+     * @param refreshIntervalInMillis the time between two refreshes of a session, and the minimum of adapted intervals
+     * @param maxRefreshIntervalInMillis the maximum of adapted intervals
+     * @param jitterPercent the maximum random spread of deadlines, in percent of the interval
+     * @param random the supplier of uniformly distributed numbers between 0 (inclusive) and 1 (exclusive)
+     * @throws IllegalArgumentException if an interval is not positive, the maximum is below the refresh interval, or the
+     *             jitter is not between 0 and 99
+     */
+    SessionRefreshTimestamps(Clock clock, long refreshIntervalInMillis, long maxRefreshIntervalInMillis,
+            int jitterPercent, DoubleSupplier random) {
+        if (refreshIntervalInMillis <= 0 || maxRefreshIntervalInMillis < refreshIntervalInMillis) {
+            throw new IllegalArgumentException(String.format(
+                "refresh interval must be positive and not above the maximum refresh interval: %d, %d",
+                refreshIntervalInMillis, maxRefreshIntervalInMillis));
+        }
+        if (jitterPercent < 0 || jitterPercent >= 100) {
+            throw new IllegalArgumentException("jitter must be between 0 and 99 percent: " + jitterPercent);
+        }
+        this.clock = clock;
+        this.refreshIntervalInMillis = refreshIntervalInMillis;
+        this.maxRefreshIntervalInMillis = maxRefreshIntervalInMillis;
+        this.jitterPercent = jitterPercent;
+        this.random = random;
+    }
+
+    /**
+     * Determine if the session is due for refresh. A session seen for the first time is not due; its deadline is set one
+     * refresh interval from now.
+     *
+     * @param httpSession the HTTP session object
+     * @return true if the session is due for refresh; false otherwise
+     */
+    boolean isDue(HttpSession httpSession) {
+        Object nextRefreshEpochMillis = httpSession.getAttribute(OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY);
+        if (nextRefreshEpochMillis instanceof Long) {
+            return clock.millis() > (Long) nextRefreshEpochMillis;
+        }
+        return clock.millis() > migrateDeadline(httpSession);
+    }
+
+    /**
+     * Get the deadline of the session, setting it as {@link #isDue(HttpSession)} does if the session has none yet.
+     *
+     * @param httpSession the HTTP session object
+     * @return the epoch milliseconds after which the session is due for refresh
+     */
+    long getNextRefreshEpochMillis(HttpSession httpSession) {
+        Object nextRefreshEpochMillis = httpSession.getAttribute(OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY);
+        if (nextRefreshEpochMillis instanceof Long) {
+            return (Long) nextRefreshEpochMillis;
+        }
+        return migrateDeadline(httpSession);
+    }
+
+    /**
+     * Record that the session has just been refreshed.
+     *
+     * @param httpSession the HTTP session object
+     */
+    void markRefreshed(HttpSession httpSession) {
+        markRefreshed(httpSession, -1);
+    }
+
+    /**
+     * Record that the session has just been refreshed, with the remaining lifetime of its OIDC session.
+     *
+     * @param httpSession the HTTP session object
+     * @param sessionExpiresInMillis the remaining lifetime of the OIDC session reported by the session management
+     *            service in milliseconds, or a negative value if it is unknown
+     */
+    void markRefreshed(HttpSession httpSession, long sessionExpiresInMillis) {
+        httpSession.setAttribute(OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY,
+            clock.millis() + nextInterval(sessionExpiresInMillis));
+    }
+
+    /**
+     * Get when the session was last refreshed, for logging purposes. The time is estimated from the deadline and the
+     * refresh interval, so it is off by the jitter and the adaptation of the interval.
+     *
+     * @param httpSession the HTTP session object
+     * @return the time of the last refresh, or null if it is unknown
+     */
+    Instant getLastRefreshed(HttpSession httpSession) {
+        Object nextRefreshEpochMillis = httpSession.getAttribute(OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY);
+        if (nextRefreshEpochMillis instanceof Long) {
+            return Instant.ofEpochMilli((Long) nextRefreshEpochMillis - refreshIntervalInMillis);
+        }
+        Object lastRefreshedDateTime = httpSession.getAttribute(OIDC_LAST_REFRESHED_DATETIME_KEY);
+        if (lastRefreshedDateTime instanceof LocalDateTime) {
+            return ((LocalDateTime) lastRefreshedDateTime).atZone(ZoneId.systemDefault()).toInstant();
+        }
+        return null;
+    }
+
+    /**
+     * Set the deadline of a session that has none yet, from its legacy last refreshed date time if it has one, or one
+     * jittered refresh interval from now otherwise.
+     *
+     * @param httpSession the HTTP session object
+     * @return the deadline of the session in epoch milliseconds
+     */
+    private long migrateDeadline(HttpSession httpSession) {
+        Object lastRefreshedDateTime = httpSession.getAttribute(OIDC_LAST_REFRESHED_DATETIME_KEY);
+        long nextRefreshEpochMillis;
+        if (lastRefreshedDateTime instanceof LocalDateTime) {
+            // Legacy date times were taken from LocalDateTime.now() in the default time zone
+            nextRefreshEpochMillis = ((LocalDateTime) lastRefreshedDateTime).atZone(ZoneId.systemDefault())
+                .toInstant().toEpochMilli() + refreshIntervalInMillis;
+            httpSession.removeAttribute(OIDC_LAST_REFRESHED_DATETIME_KEY);
+        } else {
+            nextRefreshEpochMillis = clock.millis() + nextInterval(-1);
+        }
+        httpSession.setAttribute(OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY, nextRefreshEpochMillis);
+        return nextRefreshEpochMillis;
+    }
+
+    /**
+     * Compute the time until the next refresh: half of the OIDC session lifetime when it is known, bounded by the refresh
+     * interval and the maximum refresh interval, then spread by the jitter.
+     *
+     * @param sessionExpiresInMillis the remaining lifetime of the OIDC session in milliseconds, or a negative value
+     * @return the interval in milliseconds
+     */
+    private long nextInterval(long sessionExpiresInMillis) {
+        long intervalInMillis = refreshIntervalInMillis;
+        if (sessionExpiresInMillis > 0 && maxRefreshIntervalInMillis > refreshIntervalInMillis) {
+            intervalInMillis = Math.max(refreshIntervalInMillis,
+                Math.min(maxRefreshIntervalInMillis, sessionExpiresInMillis / 2));
+        }
+        if (jitterPercent == 0) {
+            return intervalInMillis;
+        }
+        // Uniformly spread over [interval - jitter, interval + jitter)
+        double spread = (2 * random.getAsDouble() - 1) * jitterPercent / 100;
+        return intervalInMillis + (long) (intervalInMillis * spread);
+    }
+}
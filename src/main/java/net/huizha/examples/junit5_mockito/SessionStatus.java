@@ -0,0 +1,69 @@
+package net.huizha.examples.junit5_mockito;
+
+/**
+ * The status of an OIDC session as reported by a session management call: the {@code valid} field and the remaining
+ * lifetime of the session from the {@code expires_in} field. Both fields are optional in a response.
+ *
+ * @author Zhahui
+ *
+ */
+final class SessionStatus {
+    /**
+     * The status of a response reporting neither field.
+     */
+    static final SessionStatus UNKNOWN = new SessionStatus(null, -1);
+
+    private static final SessionStatus VALID = new SessionStatus(Boolean.TRUE, -1);
+    private static final SessionStatus INVALID = new SessionStatus(Boolean.FALSE, -1);
+
+    private final Boolean valid;
+    private final long expiresInMillis;
+
+    private SessionStatus(Boolean valid, long expiresInMillis) {
+        this.valid = valid;
+        this.expiresInMillis = expiresInMillis;
+    }
+
+    /**
+     * Get the status of a response. Responses without a lifetime share one instance per validity.
+     *
+     * @param valid the {@code valid} field, or null if the response does not report it
+     * @param expiresInMillis the remaining lifetime in milliseconds, or -1 if the response does not report it
+     * @return the status
+     */
+    static SessionStatus of(Boolean valid, long expiresInMillis) {
+        if (expiresInMillis < 0) {
+            if (valid == null) {
+                return UNKNOWN;
+            }
+            return valid ? VALID : INVALID;
+        }
+        return new SessionStatus(valid, expiresInMillis);
+    }
+
+    /**
+     * @return true if the response reports {@code "valid": true}
+     */
+    boolean isValid() {
+        return Boolean.TRUE.equals(valid);
+    }
+
+    /**
+     * @return true if the response reports {@code "valid": false}
+     */
+    boolean isInvalid() {
+        return Boolean.FALSE.equals(valid);
+    }
+
+    /**
+     * @return the remaining lifetime of the OIDC session in milliseconds, or -1 if the response does not report it
+     */
+    long getExpiresInMillis() {
+        return expiresInMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "SessionStatus[valid=" + valid + ", expiresInMillis=" + expiresInMillis + "]";
+    }
+}
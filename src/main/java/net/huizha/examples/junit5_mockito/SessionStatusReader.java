@@ -0,0 +1,101 @@
+package net.huizha.examples.junit5_mockito;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A streaming reader of the JSON object returned by session management calls, extracting the {@code valid} and
+ * {@code expires_in} fields into a {@link SessionStatus}.
+ * <p>
+ * The response is read from its input stream by a {@link JsonTokenizer}, and only the top-level keys are looked at:
+ * they are compared byte by byte against the two field names without building strings, and the values of other keys,
+ * including nested objects and arrays, are skipped without being decoded. Reading stops as soon as both fields have been
+ * found. Only integral {@code expires_in} values are used; other values of either field are ignored.
+ *
+ * @author Zhahui
+ *
+ */
+final class SessionStatusReader {
+    private static final byte[][] KEYS = { "valid".getBytes(StandardCharsets.US_ASCII),
+        "expires_in".getBytes(StandardCharsets.US_ASCII) };
+    private static final int VALID = 0;
+    private static final int EXPIRES_IN = 1;
+    private static final long MAX_EXPIRES_IN_SECONDS = TimeUnit.MILLISECONDS.toSeconds(Long.MAX_VALUE);
+
+    private final JsonTokenizer tokenizer;
+
+    private SessionStatusReader(InputStream in) {
+        tokenizer = new JsonTokenizer(in, "session management response");
+    }
+
+    /**
+     * Read the status of an OIDC session from a session management response. The stream is not closed.
+     *
+     * @param in the response body
+     * @return the status; {@link SessionStatus#UNKNOWN} if the body is empty
+     * @throws IOException if the stream could not be read or the body is not a JSON object
+     */
+    static SessionStatus read(InputStream in) throws IOException {
+        return new SessionStatusReader(in).readStatus();
+    }
+
+    private SessionStatus readStatus() throws IOException {
+        int c = tokenizer.nextNonWhitespace();
+        if (c == -1) {
+            return SessionStatus.UNKNOWN;
+        }
+        if (c != '{') {
+            throw tokenizer.malformed("expected an object");
+        }
+        Boolean valid = null;
+        long expiresInSeconds = -1;
+        c = tokenizer.nextNonWhitespace();
+        if (c != '}') {
+            while (valid == null || expiresInSeconds < 0) {
+                if (c != '"') {
+                    throw tokenizer.malformed("expected a key");
+                }
+                int key = tokenizer.readKey(KEYS);
+                if (tokenizer.nextNonWhitespace() != ':') {
+                    throw tokenizer.malformed("expected ':'");
+                }
+                c = tokenizer.nextNonWhitespace();
+                if (key == VALID && (c == 't' || c == 'f')) {
+                    tokenizer.skipLiteral(c);
+                    valid = c == 't' ? Boolean.TRUE : Boolean.FALSE;
+                } else if (key == EXPIRES_IN && JsonTokenizer.isDigit(c)) {
+                    expiresInSeconds = readExpiresInSeconds(c);
+                } else {
+                    tokenizer.skipValue(c);
+                }
+                c = tokenizer.nextNonWhitespace();
+                if (c == '}') {
+                    break;
+                }
+                if (c != ',') {
+                    throw tokenizer.malformed("expected ',' or '}'");
+                }
+                c = tokenizer.nextNonWhitespace();
+            }
+        }
+        return SessionStatus.of(valid, expiresInSeconds < 0 ? -1 : TimeUnit.SECONDS.toMillis(expiresInSeconds));
+    }
+
+    /**
+     * @return the number of seconds, or -1 if the number is not integral or too large
+     */
+    private long readExpiresInSeconds(int first) throws IOException {
+        long seconds = first - '0';
+        while (JsonTokenizer.isDigit(tokenizer.peek())) {
+            int digit = tokenizer.next() - '0';
+            seconds = seconds > MAX_EXPIRES_IN_SECONDS / 10 ? Long.MAX_VALUE : seconds * 10 + digit;
+        }
+        if (JsonTokenizer.isNumberPart(tokenizer.peek())) {
+            tokenizer.skipNumber();
+            return -1;
+        }
+        return seconds <= MAX_EXPIRES_IN_SECONDS ? seconds : -1;
+    }
+}
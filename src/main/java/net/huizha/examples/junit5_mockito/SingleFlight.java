@@ -0,0 +1,87 @@
+package net.huizha.examples.junit5_mockito;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Make sure only one call per key is in flight at a time. Callers arriving while a call for the same key is running
+ * skip it.
+ *
+ * @param <K> the key type
+ * @param <V> the result type
+ *
+ * @author Zhahui
+ *
+ */
+class SingleFlight<K, V> {
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlightCalls = new ConcurrentHashMap<>();
+
+    /**
+     * Start the call on the given executor unless a call for the same key is already in flight.
+     *
+     * @param key the key of the call
+     * @param call the call to run
+     * @param executor the executor to run the call on
+     * @return the future result of the started call, or null if a call for the key is already in flight
+     * @throws RejectedExecutionException if the executor does not accept the call
+     */
+    CompletableFuture<V> executeIfAbsent(K key, Callable<V> call, Executor executor) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        if (inFlightCalls.putIfAbsent(key, future) != null) {
+            return null;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(call.call());
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    inFlightCalls.remove(key, future);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlightCalls.remove(key, future);
+            throw e;
+        }
+        return future;
+    }
+
+    /**
+     * Start the asynchronous call unless a call for the same key is already in flight. The key stays in flight until the
+     * stage returned by the call completes.
+     *
+     * @param key the key of the call
+     * @param call the call to start
+     * @return the future result of the started call, or null if a call for the key is already in flight
+     */
+    CompletableFuture<V> executeAsyncIfAbsent(K key, Supplier<? extends CompletionStage<V>> call) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        if (inFlightCalls.putIfAbsent(key, future) != null) {
+            return null;
+        }
+        CompletionStage<V> stage;
+        try {
+            stage = call.get();
+        } catch (RuntimeException e) {
+            inFlightCalls.remove(key, future);
+            future.completeExceptionally(e);
+            return future;
+        }
+        stage.whenComplete((result, throwable) -> {
+            inFlightCalls.remove(key, future);
+            if (throwable != null) {
+                future.completeExceptionally(throwable);
+            } else {
+                future.complete(result);
+            }
+        });
+        return future;
+    }
+}
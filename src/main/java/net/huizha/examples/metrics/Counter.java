@@ -0,0 +1,43 @@
+package net.huizha.examples.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A monotonic counter. Increments never block and do not contend between threads.
+ *
+ * @author Zhahui
+ *
+ */
+public final class Counter implements Metric {
+    private final LongAdder count = new LongAdder();
+
+    /**
+     * Add one to the counter.
+     */
+    public void increment() {
+        count.increment();
+    }
+
+    /**
+     * Add to the counter.
+     *
+     * @param delta the number to add
+     */
+    public void add(long delta) {
+        count.add(delta);
+    }
+
+    /**
+     * @return the current count
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public Map<String, Number> getValues() {
+        return Collections.singletonMap("count", getCount());
+    }
+}
@@ -0,0 +1,34 @@
+package net.huizha.examples.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * A value read on demand, e.g. the size of a cache or the state of a circuit breaker.
+ *
+ * @author Zhahui
+ *
+ */
+public final class Gauge implements Metric {
+    private final LongSupplier supplier;
+
+    /**
+     * @param supplier the supplier of the value, called when the gauge is read
+     */
+    public Gauge(LongSupplier supplier) {
+        this.supplier = supplier;
+    }
+
+    /**
+     * @return the current value
+     */
+    public long getValue() {
+        return supplier.getAsLong();
+    }
+
+    @Override
+    public Map<String, Number> getValues() {
+        return Collections.singletonMap("value", getValue());
+    }
+}
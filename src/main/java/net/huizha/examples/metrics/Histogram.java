@@ -0,0 +1,124 @@
+package net.huizha.examples.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of non-negative values with a bounded relative error, recorded without locks.
+ * <p>
+ * As in HdrHistogram, values are counted in log-linear buckets: values below 64 have a bucket each, and every power of 2
+ * range above is split into 32 equal sub-buckets, so that a value is known within about 3% of itself whatever its
+ * magnitude. The whole {@code long} range fits in 1888 buckets held in one {@link AtomicLongArray}. Recording a value
+ * is a few bit operations and an atomic increment; percentiles are computed when the histogram is read.
+ *
+ * @author Zhahui
+ *
+ */
+public class Histogram implements Metric {
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT >> 1;
+    private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (63 - SUB_BUCKET_BITS) * SUB_BUCKET_HALF_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Record a value. Negative values are recorded as 0.
+     *
+     * @param value the value
+     */
+    public void record(long value) {
+        long boundedValue = Math.max(0, value);
+        counts.incrementAndGet(getBucketIndex(boundedValue));
+        count.increment();
+        sum.add(boundedValue);
+        if (boundedValue > max.get()) {
+            max.accumulateAndGet(boundedValue, Math::max);
+        }
+    }
+
+    /**
+     * @return the number of recorded values
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return the largest recorded value, or 0 if no value has been recorded
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @return the mean of the recorded values, or 0 if no value has been recorded
+     */
+    public double getMean() {
+        long currentCount = count.sum();
+        return currentCount == 0 ? 0 : (double) sum.sum() / currentCount;
+    }
+
+    /**
+     * Get the value at a percentile: the highest value of the bucket holding the value below which the given percentage
+     * of recorded values fall, capped by the largest recorded value.
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @return the value at the percentile, or 0 if no value has been recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long totalCount = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            totalCount += counts.get(i);
+        }
+        if (totalCount == 0) {
+            return 0;
+        }
+        long targetCount = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * totalCount));
+        long cumulativeCount = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            cumulativeCount += counts.get(i);
+            if (cumulativeCount >= targetCount) {
+                return Math.min(getHighestEquivalentValue(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    @Override
+    public Map<String, Number> getValues() {
+        Map<String, Number> values = new LinkedHashMap<>();
+        values.put("count", getCount());
+        values.put("mean", getMean());
+        values.put("max", getMax());
+        values.put("p50", getValueAtPercentile(50));
+        values.put("p90", getValueAtPercentile(90));
+        values.put("p99", getValueAtPercentile(99));
+        values.put("p999", getValueAtPercentile(99.9));
+        return values;
+    }
+
+    static int getBucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF_COUNT
+            + (int) (value >>> shift) - SUB_BUCKET_HALF_COUNT;
+    }
+
+    static long getHighestEquivalentValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF_COUNT + 1;
+        long subBucket = SUB_BUCKET_HALF_COUNT + (index - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
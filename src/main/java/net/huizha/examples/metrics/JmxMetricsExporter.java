@@ -0,0 +1,112 @@
+package net.huizha.examples.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Expose the metrics of a registry as read-only attributes of one MBean. Each value of a metric is an attribute named
+ * after the metric and the value, e.g. {@code requests.count} or {@code upstream.latency.p99}, read when the attribute
+ * is read.
+ *
+ * @author Zhahui
+ *
+ */
+public class JmxMetricsExporter implements DynamicMBean {
+    private final MetricRegistry registry;
+    private final ObjectName objectName;
+
+    /**
+     * @param registry the metric registry
+     * @param objectName the object name to register the MBean under
+     */
+    public JmxMetricsExporter(MetricRegistry registry, ObjectName objectName) {
+        this.registry = registry;
+        this.objectName = objectName;
+    }
+
+    /**
+     * Register the MBean with the platform MBean server.
+     *
+     * @throws JMException if the MBean could not be registered, e.g. because the object name is taken
+     */
+    public void register() throws JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+    }
+
+    /**
+     * Unregister the MBean from the platform MBean server, if it is registered.
+     *
+     * @throws JMException if the MBean could not be unregistered
+     */
+    public void unregister() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        if (server.isRegistered(objectName)) {
+            server.unregisterMBean(objectName);
+        }
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        int separator = attribute.lastIndexOf('.');
+        Metric metric = separator > 0 ? registry.getMetric(attribute.substring(0, separator)) : null;
+        Number value = metric == null ? null : metric.getValues().get(attribute.substring(separator + 1));
+        if (value == null) {
+            throw new AttributeNotFoundException(attribute);
+        }
+        return value;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        AttributeList list = new AttributeList();
+        for (String attribute : attributes) {
+            try {
+                list.add(new Attribute(attribute, getAttribute(attribute)));
+            } catch (AttributeNotFoundException e) {
+                // Left out, as the contract of getAttributes requires
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) {
+        throw new UnsupportedOperationException("No operations: " + actionName);
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> attributes = new ArrayList<>();
+        for (Map.Entry<String, Metric> metric : registry.getMetrics().entrySet()) {
+            for (Map.Entry<String, Number> value : metric.getValue().getValues().entrySet()) {
+                attributes.add(new MBeanAttributeInfo(metric.getKey() + '.' + value.getKey(),
+                    value.getValue().getClass().getName(), value.getKey() + " of " + metric.getKey(), true, false,
+                    false));
+            }
+        }
+        return new MBeanInfo(getClass().getName(), "Metrics", attributes.toArray(new MBeanAttributeInfo[0]), null,
+            null, null);
+    }
+}
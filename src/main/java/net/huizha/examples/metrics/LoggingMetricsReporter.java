@@ -0,0 +1,31 @@
+package net.huizha.examples.metrics;
+
+import java.util.Map;
+import java.util.SortedMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Report metrics as log lines at INFO level, one line per metric, e.g. {@code requests: count=42}.
+ *
+ * @author Zhahui
+ *
+ */
+public class LoggingMetricsReporter implements MetricsReporter {
+    private static final Logger LOGGER = LogManager.getLogger(LoggingMetricsReporter.class);
+
+    @Override
+    public void report(SortedMap<String, Metric> metrics) {
+        if (!LOGGER.isInfoEnabled()) {
+            return;
+        }
+        for (Map.Entry<String, Metric> entry : metrics.entrySet()) {
+            StringBuilder line = new StringBuilder(entry.getKey()).append(':');
+            for (Map.Entry<String, Number> value : entry.getValue().getValues().entrySet()) {
+                line.append(' ').append(value.getKey()).append('=').append(value.getValue());
+            }
+            LOGGER.info(line);
+        }
+    }
+}
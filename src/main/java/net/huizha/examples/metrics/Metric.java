@@ -0,0 +1,18 @@
+package net.huizha.examples.metrics;
+
+import java.util.Map;
+
+/**
+ * A metric of a {@link MetricRegistry}.
+ *
+ * @author Zhahui
+ *
+ */
+public interface Metric {
+    /**
+     * Read the current values of the metric, e.g. {@code count} for a counter. Meant for reporting, not for the hot path.
+     *
+     * @return the values by name, in a stable order
+     */
+    Map<String, Number> getValues();
+}
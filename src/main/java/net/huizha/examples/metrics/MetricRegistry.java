@@ -0,0 +1,98 @@
+package net.huizha.examples.metrics;
+
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * A set of named metrics. Metrics are meant to be looked up once, e.g. into fields, and then updated directly: neither
+ * the registry nor its metrics take locks.
+ *
+ * @author Zhahui
+ *
+ */
+public final class MetricRegistry {
+    private final ConcurrentMap<String, Metric> metrics = new ConcurrentHashMap<>();
+
+    /**
+     * Get the counter of the given name, registering it if needed.
+     *
+     * @param name the metric name
+     * @return the counter
+     * @throws IllegalArgumentException if a metric of another type is registered under the name
+     */
+    public Counter counter(String name) {
+        return getOrRegister(name, Counter.class, Counter::new);
+    }
+
+    /**
+     * Get the histogram of the given name, registering it if needed.
+     *
+     * @param name the metric name
+     * @return the histogram
+     * @throws IllegalArgumentException if a metric of another type is registered under the name
+     */
+    public Histogram histogram(String name) {
+        return getOrRegister(name, Histogram.class, Histogram::new);
+    }
+
+    /**
+     * Get the timer of the given name, registering it if needed.
+     *
+     * @param name the metric name
+     * @return the timer
+     * @throws IllegalArgumentException if a metric of another type is registered under the name
+     */
+    public Timer timer(String name) {
+        return getOrRegister(name, Timer.class, Timer::new);
+    }
+
+    /**
+     * Register a gauge, replacing any gauge registered under the same name.
+     *
+     * @param name the metric name
+     * @param supplier the supplier of the gauge value
+     * @return the gauge
+     * @throws IllegalArgumentException if a metric of another type is registered under the name
+     */
+    public Gauge gauge(String name, LongSupplier supplier) {
+        Gauge gauge = new Gauge(supplier);
+        Metric previous = metrics.put(name, gauge);
+        if (previous != null && !(previous instanceof Gauge)) {
+            metrics.put(name, previous);
+            throw new IllegalArgumentException("Metric is not a gauge: " + name);
+        }
+        return gauge;
+    }
+
+    /**
+     * @param name the metric name
+     * @return the metric registered under the name, or null if there is none
+     */
+    public Metric getMetric(String name) {
+        return metrics.get(name);
+    }
+
+    /**
+     * @return the registered metrics sorted by name
+     */
+    public SortedMap<String, Metric> getMetrics() {
+        return Collections.unmodifiableSortedMap(new TreeMap<>(metrics));
+    }
+
+    private <T extends Metric> T getOrRegister(String name, Class<T> type, Supplier<T> factory) {
+        Metric metric = metrics.get(name);
+        if (metric == null) {
+            metric = metrics.computeIfAbsent(name, key -> factory.get());
+        }
+        if (metric.getClass() != type) {
+            throw new IllegalArgumentException(
+                String.format("Metric is not a %s: %s", type.getSimpleName().toLowerCase(), name));
+        }
+        return type.cast(metric);
+    }
+}
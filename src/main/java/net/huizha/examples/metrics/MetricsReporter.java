@@ -0,0 +1,20 @@
+package net.huizha.examples.metrics;
+
+import java.util.SortedMap;
+
+/**
+ * A destination of metrics, called periodically by {@link ScheduledMetricsReporting}. Implementations used through a
+ * filter init parameter need a public no-argument constructor.
+ *
+ * @author Zhahui
+ *
+ */
+@FunctionalInterface
+public interface MetricsReporter {
+    /**
+     * Report the current values of the metrics.
+     *
+     * @param metrics the metrics sorted by name
+     */
+    void report(SortedMap<String, Metric> metrics);
+}
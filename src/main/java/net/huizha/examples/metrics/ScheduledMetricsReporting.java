@@ -0,0 +1,61 @@
+package net.huizha.examples.metrics;
+
+import java.io.Closeable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Report the metrics of a registry at a fixed rate on a daemon thread of its own.
+ *
+ * @author Zhahui
+ *
+ */
+public class ScheduledMetricsReporting implements Closeable {
+    private static final Logger LOGGER = LogManager.getLogger(ScheduledMetricsReporting.class);
+
+    private final MetricRegistry registry;
+    private final MetricsReporter reporter;
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Start reporting.
+     *
+     * @param registry the metric registry
+     * @param reporter the reporter
+     * @param period the time between two reports
+     * @param unit the unit of the period
+     */
+    public ScheduledMetricsReporting(MetricRegistry registry, MetricsReporter reporter, long period, TimeUnit unit) {
+        this.registry = registry;
+        this.reporter = reporter;
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-reporting");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::report, period, period, unit);
+    }
+
+    /**
+     * Report the metrics now, on the calling thread.
+     */
+    public void report() {
+        try {
+            reporter.report(registry.getMetrics());
+        } catch (RuntimeException e) {
+            LOGGER.error("Error occurred when reporting metrics with {}", reporter.getClass().getName(), e);
+        }
+    }
+
+    /**
+     * Stop reporting.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
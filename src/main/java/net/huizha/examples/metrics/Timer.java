@@ -0,0 +1,31 @@
+package net.huizha.examples.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A histogram of durations, recorded in microseconds.
+ *
+ * @author Zhahui
+ *
+ */
+public final class Timer extends Histogram {
+
+    /**
+     * Record a duration.
+     *
+     * @param duration the duration
+     * @param unit the unit of the duration
+     */
+    public void record(long duration, TimeUnit unit) {
+        record(unit.toMicros(duration));
+    }
+
+    /**
+     * Record the time elapsed since a start time read from {@link System#nanoTime()}.
+     *
+     * @param startNanos the start time in nanoseconds
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+}
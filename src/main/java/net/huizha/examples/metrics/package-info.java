@@ -0,0 +1 @@
+package net.huizha.examples.metrics;
\ No newline at end of file
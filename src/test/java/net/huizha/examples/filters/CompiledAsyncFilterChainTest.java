@@ -0,0 +1,131 @@
+package net.huizha.examples.filters;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import net.huizha.examples.requestresponse.Request;
+import net.huizha.examples.requestresponse.Response;
+
+/**
+ * Tests of {@link CompiledAsyncFilterChain}.
+ *
+ * @author Zhahui
+ *
+ */
+class CompiledAsyncFilterChainTest {
+    private Request mockedRequest;
+    private Response mockedResponse;
+    private List<String> invocations;
+    private CompletableFuture<Void> resourceStage;
+    private AsyncFilterChain resource;
+
+    @BeforeEach
+    void setUpBeforeEach() {
+        mockedRequest = mock(Request.class);
+        mockedResponse = mock(Response.class);
+        invocations = new ArrayList<>();
+        resourceStage = new CompletableFuture<>();
+        resource = (request, response) -> {
+            invocations.add("resource");
+            return resourceStage;
+        };
+    }
+
+    @Test
+    void doFilter_ShouldRunAsyncAndAdaptedSynchronousFiltersInOrder() {
+        Filter synchronousFilter = new Filter() {
+            @Override
+            public void init(FilterConfig filterConfig) {
+            }
+
+            @Override
+            public void doFilter(Request request, Response response, FilterChain chain) {
+                invocations.add("synchronous");
+                chain.doFilter(request, response);
+            }
+
+            @Override
+            public void destroy() {
+            }
+        };
+        CompiledAsyncFilterChain chainToTest = new CompiledAsyncFilterChain(
+            Arrays.asList(recordingFilter("first"), new SynchronousFilterAdapter(synchronousFilter),
+                recordingFilter("third")),
+            resource);
+
+        CompletionStage<Void> stage = chainToTest.doFilter(mockedRequest, mockedResponse);
+
+        assertThat(invocations).containsExactly("first", "synchronous", "third", "resource");
+        assertThat(stage.toCompletableFuture()).isNotDone();
+        resourceStage.complete(null);
+        assertThat(stage.toCompletableFuture()).isCompleted();
+        assertThat(chainToTest.size()).isEqualTo(3);
+    }
+
+    @Test
+    void doFilter_ShouldReturnFailedStage_WhenFilterThrows() {
+        AsyncFilter throwingFilter = new RecordingFilter("throwing") {
+            @Override
+            public CompletionStage<Void> doFilterAsync(Request request, Response response, AsyncFilterChain chain) {
+                throw new FilterException("failed");
+            }
+        };
+        CompiledAsyncFilterChain chainToTest = new CompiledAsyncFilterChain(
+            Collections.singletonList(throwingFilter), resource);
+
+        CompletionStage<Void> stage = chainToTest.doFilter(mockedRequest, mockedResponse);
+
+        assertThat(stage.toCompletableFuture()).isCompletedExceptionally();
+        assertThat(invocations).isEmpty();
+    }
+
+    @Test
+    void constructor_ShouldThrowIllegalArgumentException_WhenFilterOrResourceIsNull() {
+        assertThatThrownBy(() -> new CompiledAsyncFilterChain(null, resource))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new CompiledAsyncFilterChain(Collections.emptyList(), null))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new CompiledAsyncFilterChain(Arrays.asList((AsyncFilter) null), resource))
+            .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("index 0");
+    }
+
+    private AsyncFilter recordingFilter(String name) {
+        return new RecordingFilter(name);
+    }
+
+    /**
+     * An asynchronous filter recording its invocation before passing the request on.
+     */
+    private class RecordingFilter implements AsyncFilter {
+        private final String name;
+
+        private RecordingFilter(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void init(FilterConfig filterConfig) {
+        }
+
+        @Override
+        public CompletionStage<Void> doFilterAsync(Request request, Response response, AsyncFilterChain chain) {
+            invocations.add(name);
+            return chain.doFilter(request, response);
+        }
+
+        @Override
+        public void destroy() {
+        }
+    }
+}
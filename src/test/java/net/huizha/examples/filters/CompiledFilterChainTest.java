@@ -0,0 +1,127 @@
+package net.huizha.examples.filters;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import net.huizha.examples.requestresponse.Request;
+import net.huizha.examples.requestresponse.Response;
+
+/**
+ * Tests of {@link CompiledFilterChain}.
+ *
+ * @author Zhahui
+ *
+ */
+class CompiledFilterChainTest {
+    private Request mockedRequest;
+    private Response mockedResponse;
+    private FilterChain mockedResource;
+    private List<String> invocations;
+
+    @BeforeEach
+    void setUpBeforeEach() {
+        mockedRequest = mock(Request.class);
+        mockedResponse = mock(Response.class);
+        mockedResource = mock(FilterChain.class);
+        invocations = new ArrayList<>();
+    }
+
+    @Test
+    void doFilter_ShouldInvokeFiltersInOrderThenResource() {
+        FilterChain resource = (request, response) -> invocations.add("resource");
+        CompiledFilterChain chainToTest = new CompiledFilterChain(
+            Arrays.asList(recordingFilter("first"), recordingFilter("second"), recordingFilter("third")), resource);
+
+        chainToTest.doFilter(mockedRequest, mockedResponse);
+
+        assertThat(invocations).containsExactly("first", "second", "third", "resource");
+        assertThat(chainToTest.size()).isEqualTo(3);
+    }
+
+    @Test
+    void doFilter_ShouldInvokeResource_WhenChainHasNoFilter() {
+        CompiledFilterChain chainToTest = new CompiledFilterChain(Collections.emptyList(), mockedResource);
+
+        chainToTest.doFilter(mockedRequest, mockedResponse);
+
+        then(mockedResource).should().doFilter(mockedRequest, mockedResponse);
+    }
+
+    @Test
+    void doFilter_ShouldStop_WhenFilterDoesNotInvokeChain() {
+        Filter blockingFilter = new RecordingFilter("blocking") {
+            @Override
+            public void doFilter(Request request, Response response, FilterChain chain) {
+                invocations.add("blocking");
+            }
+        };
+        CompiledFilterChain chainToTest = new CompiledFilterChain(
+            Arrays.asList(recordingFilter("first"), blockingFilter, recordingFilter("third")), mockedResource);
+
+        chainToTest.doFilter(mockedRequest, mockedResponse);
+
+        assertThat(invocations).containsExactly("first", "blocking");
+        then(mockedResource).shouldHaveNoInteractions();
+    }
+
+    @Test
+    void doFilter_ShouldNotSeeFiltersAddedAfterCompilation() {
+        List<Filter> filters = new ArrayList<>(Collections.singletonList(recordingFilter("first")));
+        CompiledFilterChain chainToTest = new CompiledFilterChain(filters, mockedResource);
+        filters.add(recordingFilter("second"));
+
+        chainToTest.doFilter(mockedRequest, mockedResponse);
+
+        assertThat(invocations).containsExactly("first");
+        then(mockedResource).should().doFilter(mockedRequest, mockedResponse);
+    }
+
+    @Test
+    void constructor_ShouldThrowIllegalArgumentException_WhenFilterOrResourceIsNull() {
+        assertThatThrownBy(() -> new CompiledFilterChain(null, mockedResource))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new CompiledFilterChain(Collections.emptyList(), null))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new CompiledFilterChain(Arrays.asList(recordingFilter("first"), null), mockedResource))
+            .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("index 1");
+    }
+
+    private Filter recordingFilter(String name) {
+        return new RecordingFilter(name);
+    }
+
+    /**
+     * A filter recording its invocation before passing the request on.
+     */
+    private class RecordingFilter implements Filter {
+        private final String name;
+
+        private RecordingFilter(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void init(FilterConfig filterConfig) {
+        }
+
+        @Override
+        public void doFilter(Request request, Response response, FilterChain chain) {
+            invocations.add(name);
+            chain.doFilter(request, response);
+        }
+
+        @Override
+        public void destroy() {
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package net.huizha.examples.filters;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.mock;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import net.huizha.examples.requestresponse.Request;
+import net.huizha.examples.requestresponse.Response;
+
+/**
+ * Tests of {@link SynchronousFilterAdapter}.
+ *
+ * @author Zhahui
+ *
+ */
+class SynchronousFilterAdapterTest {
+    private Filter mockedFilter;
+    private AsyncFilterChain mockedChain;
+    private Request mockedRequest;
+    private Response mockedResponse;
+    private SynchronousFilterAdapter adapterToTest;
+
+    @BeforeEach
+    void setUpBeforeEach() {
+        mockedFilter = mock(Filter.class);
+        mockedChain = mock(AsyncFilterChain.class);
+        mockedRequest = mock(Request.class);
+        mockedResponse = mock(Response.class);
+        adapterToTest = new SynchronousFilterAdapter(mockedFilter);
+    }
+
+    @Test
+    void doFilterAsync_ShouldReturnStageOfRestOfChain_WhenFilterPassesRequestOn() {
+        CompletableFuture<Void> restOfChain = new CompletableFuture<>();
+        given(mockedChain.doFilter(mockedRequest, mockedResponse)).willReturn(restOfChain);
+        willAnswer(invocation -> {
+            invocation.<FilterChain>getArgument(2).doFilter(mockedRequest, mockedResponse);
+            return null;
+        }).given(mockedFilter).doFilter(any(), any(), any());
+
+        CompletionStage<Void> stage = adapterToTest.doFilterAsync(mockedRequest, mockedResponse, mockedChain);
+
+        assertThat(stage).isSameAs(restOfChain);
+    }
+
+    @Test
+    void doFilterAsync_ShouldReturnCompletedStage_WhenFilterDoesNotPassRequestOn() {
+        CompletionStage<Void> stage = adapterToTest.doFilterAsync(mockedRequest, mockedResponse, mockedChain);
+
+        assertThat(stage.toCompletableFuture()).isCompleted();
+        then(mockedChain).shouldHaveNoInteractions();
+    }
+
+    @Test
+    void doFilterAsync_ShouldReturnFailedStage_WhenFilterThrows() {
+        willThrow(new FilterException("failed")).given(mockedFilter).doFilter(any(), any(), any());
+
+        CompletionStage<Void> stage = adapterToTest.doFilterAsync(mockedRequest, mockedResponse, mockedChain);
+
+        assertThat(stage.toCompletableFuture()).isCompletedExceptionally();
+    }
+
+    @Test
+    void initAndDestroy_ShouldDelegateToFilter() {
+        FilterConfig mockedFilterConfig = mock(FilterConfig.class);
+
+        adapterToTest.init(mockedFilterConfig);
+        adapterToTest.destroy();
+
+        then(mockedFilter).should().init(mockedFilterConfig);
+        then(mockedFilter).should().destroy();
+    }
+
+    @Test
+    void constructor_ShouldThrowIllegalArgumentException_WhenFilterIsNull() {
+        assertThatThrownBy(() -> new SynchronousFilterAdapter(null)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
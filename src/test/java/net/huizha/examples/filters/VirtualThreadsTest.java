@@ -0,0 +1,54 @@
+package net.huizha.examples.filters;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link VirtualThreads}. They pass on any JDK: virtual threads are expected exactly from JDK 21 on.
+ *
+ * @author Zhahui
+ *
+ */
+class VirtualThreadsTest {
+    private static final boolean IS_VIRTUAL_THREADS_JDK = Runtime.version().feature() >= 21;
+
+    @Test
+    void isSupported_ShouldReturnTrue_OnlyWhenJdkHasVirtualThreads() {
+        assertThat(VirtualThreads.isSupported()).isEqualTo(IS_VIRTUAL_THREADS_JDK);
+    }
+
+    @Test
+    void newThreadFactory_ShouldReturnNull_OnlyWhenJdkHasNoVirtualThreads() {
+        ThreadFactory threadFactory = VirtualThreads.newThreadFactory("test-");
+
+        assertThat(threadFactory == null).isEqualTo(!IS_VIRTUAL_THREADS_JDK);
+    }
+
+    @Test
+    void newThreadPerTaskExecutor_ShouldRunTasksOnNamedVirtualThreads_WhenJdkHasVirtualThreads() throws Exception {
+        ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("test-");
+        if (!IS_VIRTUAL_THREADS_JDK) {
+            assertThat(executor).isNull();
+            return;
+        }
+        try {
+            Future<Thread> thread = executor.submit(Thread::currentThread);
+
+            assertThat(VirtualThreads.isVirtual(thread.get(5, TimeUnit.SECONDS))).isTrue();
+            assertThat(thread.get().getName()).startsWith("test-");
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void isVirtual_ShouldReturnFalse_WhenThreadIsPlatformThread() {
+        assertThat(VirtualThreads.isVirtual(Thread.currentThread())).isFalse();
+    }
+}
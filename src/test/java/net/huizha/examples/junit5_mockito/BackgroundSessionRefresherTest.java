@@ -0,0 +1,118 @@
+package net.huizha.examples.junit5_mockito;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+
+import java.util.concurrent.CompletableFuture;
+
+import javax.servlet.http.HttpSession;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import net.huizha.examples.junit5_mockito.BackgroundSessionRefresher.RefreshFunction;
+import net.huizha.examples.junit5_mockito.BoundedTtlCacheTest.MutableClock;
+
+/**
+ * Tests of {@link BackgroundSessionRefresher}, turning its timing wheel from the test thread.
+ *
+ * @author Zhahui
+ *
+ */
+class BackgroundSessionRefresherTest {
+    private static final String OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY = "oidc-next-refresh-epoch-millis";
+    private static final String SUB = "faked-sub";
+    private static final String OIDC_SESSION_REF = "faked-oidc-session-ref";
+    private static final long REFRESH_INTERVAL_IN_MILLIS = 30000;
+    private static final long IDLE_TIMEOUT_IN_MILLIS = 60000;
+    private static final long TICK_IN_MILLIS = 100;
+
+    private MutableClock clock;
+    private SessionRefreshTimestamps refreshTimestamps;
+    private HttpSession httpSession;
+    private RefreshFunction mockedRefreshFunction;
+    private BackgroundSessionRefresher refresherToTest;
+
+    @BeforeEach
+    void setUpBeforeEach() {
+        clock = new MutableClock(1_000_000L);
+        refreshTimestamps = new SessionRefreshTimestamps(clock, REFRESH_INTERVAL_IN_MILLIS);
+        httpSession = new MapHttpSession("faked-http-session-id");
+        mockedRefreshFunction = mock(RefreshFunction.class);
+        willAnswer(invocation -> {
+            refreshTimestamps.markRefreshed(invocation.getArgument(2));
+            return CompletableFuture.completedFuture(true);
+        }).given(mockedRefreshFunction).refresh(anyString(), anyString(), any(HttpSession.class));
+        refresherToTest = new BackgroundSessionRefresher(clock, refreshTimestamps, mockedRefreshFunction,
+            IDLE_TIMEOUT_IN_MILLIS, REFRESH_INTERVAL_IN_MILLIS, TICK_IN_MILLIS);
+    }
+
+    @AfterEach
+    void cleanUpAfterEach() {
+        refresherToTest.close();
+    }
+
+    @Test
+    void register_ShouldTrackSessionOnce_WhenSessionIsSeenRepeatedly() {
+        refresherToTest.register(SUB, OIDC_SESSION_REF, httpSession);
+        refresherToTest.register(SUB, OIDC_SESSION_REF, httpSession);
+
+        assertThat(refresherToTest.size()).isEqualTo(1);
+        assertThat(httpSession.getAttribute(OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY))
+            .isEqualTo(clock.millis() + REFRESH_INTERVAL_IN_MILLIS);
+    }
+
+    @Test
+    void advance_ShouldRefreshSessionAtDeadlineAndReschedule() {
+        refresherToTest.register(SUB, OIDC_SESSION_REF, httpSession);
+
+        clock.advance(REFRESH_INTERVAL_IN_MILLIS - TICK_IN_MILLIS);
+        refresherToTest.advance();
+        then(mockedRefreshFunction).should(never()).refresh(anyString(), anyString(), any(HttpSession.class));
+
+        clock.advance(2 * TICK_IN_MILLIS);
+        refresherToTest.register(SUB, OIDC_SESSION_REF, httpSession);
+        refresherToTest.advance();
+        then(mockedRefreshFunction).should().refresh(SUB, OIDC_SESSION_REF, httpSession);
+
+        clock.advance(REFRESH_INTERVAL_IN_MILLIS + TICK_IN_MILLIS);
+        refresherToTest.advance();
+        then(mockedRefreshFunction).should(times(2)).refresh(SUB, OIDC_SESSION_REF, httpSession);
+    }
+
+    @Test
+    void advance_ShouldRetryAfterRetryDelay_WhenNoRefreshWasStarted() {
+        given(mockedRefreshFunction.refresh(anyString(), anyString(), any(HttpSession.class))).willReturn(null);
+        httpSession.setAttribute(OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY, clock.millis());
+        refresherToTest.register(SUB, OIDC_SESSION_REF, httpSession);
+
+        clock.advance(TICK_IN_MILLIS);
+        refresherToTest.advance();
+        clock.advance(REFRESH_INTERVAL_IN_MILLIS - TICK_IN_MILLIS);
+        refresherToTest.advance();
+        then(mockedRefreshFunction).should(times(1)).refresh(SUB, OIDC_SESSION_REF, httpSession);
+
+        clock.advance(2 * TICK_IN_MILLIS);
+        refresherToTest.advance();
+        then(mockedRefreshFunction).should(times(2)).refresh(SUB, OIDC_SESSION_REF, httpSession);
+    }
+
+    @Test
+    void advance_ShouldDropSessionWithoutRefreshing_WhenSessionIsIdle() {
+        refresherToTest.register(SUB, OIDC_SESSION_REF, httpSession);
+
+        clock.advance(IDLE_TIMEOUT_IN_MILLIS);
+        refresherToTest.advance();
+
+        then(mockedRefreshFunction).should(never()).refresh(anyString(), anyString(), any(HttpSession.class));
+        assertThat(refresherToTest.size()).isZero();
+    }
+}
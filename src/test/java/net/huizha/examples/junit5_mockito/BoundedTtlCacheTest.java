@@ -0,0 +1,146 @@
+package net.huizha.examples.junit5_mockito;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link BoundedTtlCache}.
+ *
+ * @author Zhahui
+ *
+ */
+class BoundedTtlCacheTest {
+    private MutableClock clock;
+    private BoundedTtlCache<String, String> cacheToTest;
+
+    @BeforeEach
+    void setUpBeforeEach() {
+        clock = new MutableClock(1_000_000L);
+        cacheToTest = new BoundedTtlCache<>(10, clock);
+    }
+
+    @Test
+    void get_ShouldReturnCachedValue_WhenEntryHasNotExpired() {
+        cacheToTest.put("key", "value", clock.millis() + 1000);
+
+        clock.advance(999);
+
+        assertThat(cacheToTest.get("key")).isEqualTo("value");
+    }
+
+    @Test
+    void get_ShouldReturnNullAndEvictEntry_WhenEntryHasExpired() {
+        cacheToTest.put("key", "value", clock.millis() + 1000);
+
+        clock.advance(1000);
+
+        assertThat(cacheToTest.get("key")).isNull();
+        assertThat(cacheToTest.size()).isZero();
+    }
+
+    @Test
+    void put_ShouldNotCacheValue_WhenItHasAlreadyExpired() {
+        cacheToTest.put("key", "value", clock.millis());
+
+        assertThat(cacheToTest.get("key")).isNull();
+        assertThat(cacheToTest.size()).isZero();
+    }
+
+    @Test
+    void put_ShouldEvictExpiredEntriesFirst_WhenCacheGrowsBeyondMaxSize() {
+        for (int i = 0; i < 5; i++) {
+            cacheToTest.put("short-" + i, "value", clock.millis() + 10);
+        }
+        for (int i = 0; i < 5; i++) {
+            cacheToTest.put("long-" + i, "value", clock.millis() + 10000);
+        }
+        clock.advance(10);
+
+        cacheToTest.put("new", "value", clock.millis() + 10000);
+
+        assertThat(cacheToTest.size()).isEqualTo(6);
+        assertThat(cacheToTest.get("new")).isEqualTo("value");
+        assertThat(cacheToTest.get("long-0")).isEqualTo("value");
+    }
+
+    @Test
+    void put_ShouldKeepCacheBounded_WhenNoEntryHasExpired() {
+        for (int i = 0; i < 100; i++) {
+            cacheToTest.put("key-" + i, "value", clock.millis() + 10000);
+        }
+
+        assertThat(cacheToTest.size()).isLessThanOrEqualTo(10);
+    }
+
+    @Test
+    void remove_ShouldRemoveCachedValue() {
+        cacheToTest.put("key", "value", clock.millis() + 1000);
+
+        cacheToTest.remove("key");
+
+        assertThat(cacheToTest.get("key")).isNull();
+    }
+
+    @Test
+    void get_ShouldCountHitsMissesAndEvictions() {
+        cacheToTest.put("key", "value", clock.millis() + 1000);
+
+        cacheToTest.get("key");
+        cacheToTest.get("other-key");
+        clock.advance(1000);
+        cacheToTest.get("key");
+
+        assertThat(cacheToTest.getHitCount()).isEqualTo(1);
+        assertThat(cacheToTest.getMissCount()).isEqualTo(2);
+        assertThat(cacheToTest.getEvictionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void constructor_ShouldThrowException_WhenMaxSizeIsNotPositive() {
+        assertThatThrownBy(() -> new BoundedTtlCache<String, String>(0, clock))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * A clock that only moves when told to.
+     */
+    static class MutableClock extends Clock {
+        private volatile long millis;
+
+        MutableClock(long millis) {
+            this.millis = millis;
+        }
+
+        void advance(long deltaInMillis) {
+            millis += deltaInMillis;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package net.huizha.examples.junit5_mockito;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import net.huizha.examples.junit5_mockito.BoundedTtlCacheTest.MutableClock;
+
+/**
+ * Tests of {@link CircuitBreaker}.
+ *
+ * @author Zhahui
+ *
+ */
+class CircuitBreakerTest {
+    private static final long SLOW_CALL_DURATION_THRESHOLD_IN_MILLISECONDS = 1000;
+    private static final long WAIT_DURATION_IN_OPEN_STATE_IN_MILLISECONDS = 30000;
+
+    private MutableClock clock;
+    private CircuitBreakerConfig config;
+
+    @BeforeEach
+    void setUpBeforeEach() {
+        clock = new MutableClock(1_000_000L);
+        config = new CircuitBreakerConfig();
+        config.setFailureRateThreshold(50);
+        config.setSlowCallRateThreshold(50);
+        config.setSlowCallDurationThresholdInMilliseconds(SLOW_CALL_DURATION_THRESHOLD_IN_MILLISECONDS);
+        config.setSlidingWindowSize(4);
+        config.setMinimumNumberOfCalls(4);
+        config.setWaitDurationInOpenStateInMilliseconds(WAIT_DURATION_IN_OPEN_STATE_IN_MILLISECONDS);
+        config.setPermittedCallsInHalfOpenState(2);
+        config.setMaxConcurrentCalls(10);
+    }
+
+    @Test
+    void constructor_ShouldThrowException_WhenThresholdIsAbove100Percent() {
+        config.setFailureRateThreshold(101);
+
+        assertThatThrownBy(() -> new CircuitBreaker(config, clock)).isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("failureRateThreshold");
+    }
+
+    @Test
+    void onResult_ShouldNotOpenCircuit_BeforeMinimumNumberOfCalls() {
+        CircuitBreaker breakerToTest = new CircuitBreaker(config, clock);
+
+        recordCalls(breakerToTest, 3, 0, false);
+
+        assertThat(breakerToTest.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breakerToTest.tryAcquirePermission()).isTrue();
+    }
+
+    @Test
+    void onResult_ShouldOpenCircuit_WhenFailureRateReachesThreshold() {
+        CircuitBreaker breakerToTest = new CircuitBreaker(config, clock);
+
+        recordCalls(breakerToTest, 2, 0, true);
+        recordCalls(breakerToTest, 2, 0, false);
+
+        assertThat(breakerToTest.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breakerToTest.isCallPermitted()).isFalse();
+        assertThat(breakerToTest.tryAcquirePermission()).isFalse();
+    }
+
+    @Test
+    void onResult_ShouldOpenCircuit_WhenSlowCallRateReachesThreshold() {
+        CircuitBreaker breakerToTest = new CircuitBreaker(config, clock);
+
+        recordCalls(breakerToTest, 2, 0, true);
+        recordCalls(breakerToTest, 2, SLOW_CALL_DURATION_THRESHOLD_IN_MILLISECONDS, true);
+
+        assertThat(breakerToTest.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void onResult_ShouldOnlyCountMostRecentCalls_WhenSlidingWindowIsFull() {
+        CircuitBreaker breakerToTest = new CircuitBreaker(config, clock);
+        recordCalls(breakerToTest, 4, 0, true);
+
+        recordCalls(breakerToTest, 1, 0, false);
+
+        assertThat(breakerToTest.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        recordCalls(breakerToTest, 1, 0, false);
+
+        assertThat(breakerToTest.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void tryAcquirePermission_ShouldLetProbesThroughAndCloseCircuit_WhenWaitDurationHasElapsedAndProbesSucceed() {
+        CircuitBreaker breakerToTest = new CircuitBreaker(config, clock);
+        recordCalls(breakerToTest, 4, 0, false);
+        clock.advance(WAIT_DURATION_IN_OPEN_STATE_IN_MILLISECONDS);
+
+        assertThat(breakerToTest.isCallPermitted()).isTrue();
+        assertThat(breakerToTest.tryAcquirePermission()).isTrue();
+        assertThat(breakerToTest.tryAcquirePermission()).isTrue();
+        assertThat(breakerToTest.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(breakerToTest.tryAcquirePermission()).isFalse();
+
+        breakerToTest.onResult(0, true);
+        breakerToTest.onResult(0, true);
+
+        assertThat(breakerToTest.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void onResult_ShouldReopenCircuit_WhenProbesFail() {
+        CircuitBreaker breakerToTest = new CircuitBreaker(config, clock);
+        recordCalls(breakerToTest, 4, 0, false);
+        clock.advance(WAIT_DURATION_IN_OPEN_STATE_IN_MILLISECONDS);
+
+        recordCalls(breakerToTest, 2, 0, false);
+
+        assertThat(breakerToTest.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breakerToTest.tryAcquirePermission()).isFalse();
+    }
+
+    @Test
+    void tryAcquirePermission_ShouldRejectCall_WhenBulkheadIsFull() {
+        config.setMaxConcurrentCalls(2);
+        CircuitBreaker breakerToTest = new CircuitBreaker(config, clock);
+
+        assertThat(breakerToTest.tryAcquirePermission()).isTrue();
+        assertThat(breakerToTest.tryAcquirePermission()).isTrue();
+        assertThat(breakerToTest.isCallPermitted()).isFalse();
+        assertThat(breakerToTest.tryAcquirePermission()).isFalse();
+
+        breakerToTest.onResult(0, true);
+
+        assertThat(breakerToTest.tryAcquirePermission()).isTrue();
+    }
+
+    private static void recordCalls(CircuitBreaker circuitBreaker, int count, long durationInMillis,
+            boolean isSuccessful) {
+        for (int i = 0; i < count; i++) {
+            assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+            circuitBreaker.onResult(durationInMillis, isSuccessful);
+        }
+    }
+}
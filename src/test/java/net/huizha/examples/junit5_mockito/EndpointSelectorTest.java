@@ -0,0 +1,140 @@
+package net.huizha.examples.junit5_mockito;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import net.huizha.examples.junit5_mockito.BoundedTtlCacheTest.MutableClock;
+
+/**
+ * Tests of {@link EndpointSelector}.
+ *
+ * @author Zhahui
+ *
+ */
+class EndpointSelectorTest {
+    private static final int CONSECUTIVE_FAILURES_TO_EJECT = 3;
+    private static final long SLOW_CALL_DURATION_THRESHOLD_IN_MILLISECONDS = 1000;
+    private static final long EJECTION_TIME_IN_MILLISECONDS = 30000;
+    private static final long MAX_EJECTION_TIME_IN_MILLISECONDS = 45000;
+
+    private MutableClock clock;
+    private EndpointSelector selectorToTest;
+    private SessionManagementEndpoint endpointA;
+    private SessionManagementEndpoint endpointB;
+    private List<SessionManagementEndpoint> endpoints;
+
+    @BeforeEach
+    void setUpBeforeEach() {
+        clock = new MutableClock(1_000_000L);
+        selectorToTest = new EndpointSelector(clock, CONSECUTIVE_FAILURES_TO_EJECT,
+            SLOW_CALL_DURATION_THRESHOLD_IN_MILLISECONDS, EJECTION_TIME_IN_MILLISECONDS,
+            MAX_EJECTION_TIME_IN_MILLISECONDS);
+        endpointA = createEndpoint("http://session-a");
+        endpointB = createEndpoint("http://session-b");
+        endpoints = List.of(endpointA, endpointB);
+        selectorToTest.setEndpoints(endpoints);
+    }
+
+    @Test
+    void constructor_ShouldThrowException_WhenMaxEjectionTimeIsBelowEjectionTime() {
+        assertThatThrownBy(() -> new EndpointSelector(clock, 3, 1000, 30000, 29999))
+            .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("maxEjectionTime");
+    }
+
+    @Test
+    void select_ShouldPreferEndpointWithFewerOutstandingCalls() {
+        SessionManagementEndpoint busyEndpoint = selectorToTest.select(endpoints);
+
+        for (int i = 0; i < 10; i++) {
+            SessionManagementEndpoint selected = selectorToTest.select(endpoints);
+            assertThat(selected).isNotSameAs(busyEndpoint);
+            selectorToTest.onResult(selected, 10, true);
+        }
+        assertThat(selectorToTest.getOutstandingCalls(busyEndpoint)).isEqualTo(1);
+    }
+
+    @Test
+    void onResult_ShouldEjectEndpoint_WhenCallsFailOrAreSlowInARow() {
+        selectorToTest.select(List.of(endpointA));
+        assertThat(selectorToTest.onResult(endpointA, 10, false)).isFalse();
+        selectorToTest.select(List.of(endpointA));
+        assertThat(selectorToTest.onResult(endpointA, SLOW_CALL_DURATION_THRESHOLD_IN_MILLISECONDS, true)).isFalse();
+        selectorToTest.select(List.of(endpointA));
+        assertThat(selectorToTest.onResult(endpointA, 10, false)).isTrue();
+
+        assertThat(selectorToTest.isEjected(endpointA)).isTrue();
+        assertThat(selectorToTest.getEjectedCount()).isEqualTo(1);
+        for (int i = 0; i < 10; i++) {
+            assertThat(selectorToTest.select(endpoints)).isSameAs(endpointB);
+        }
+    }
+
+    @Test
+    void onResult_ShouldNotEjectEndpoint_WhenSuccessfulCallBreaksFailureSequence() {
+        recordCalls(endpointA, 2, false);
+        recordCalls(endpointA, 1, true);
+        recordCalls(endpointA, 2, false);
+
+        assertThat(selectorToTest.isEjected(endpointA)).isFalse();
+    }
+
+    @Test
+    void onResult_ShouldNotEjectLastAdmittedEndpoint() {
+        recordCalls(endpointA, CONSECUTIVE_FAILURES_TO_EJECT, false);
+        recordCalls(endpointB, CONSECUTIVE_FAILURES_TO_EJECT * 2, false);
+
+        assertThat(selectorToTest.isEjected(endpointA)).isTrue();
+        assertThat(selectorToTest.isEjected(endpointB)).isFalse();
+    }
+
+    @Test
+    void select_ShouldReadmitEndpoint_WhenEjectionTimeHasElapsed() {
+        recordCalls(endpointA, CONSECUTIVE_FAILURES_TO_EJECT, false);
+
+        clock.advance(EJECTION_TIME_IN_MILLISECONDS);
+
+        assertThat(selectorToTest.isEjected(endpointA)).isFalse();
+        SessionManagementEndpoint busyEndpoint = selectorToTest.select(endpoints);
+        assertThat(selectorToTest.select(endpoints)).isNotSameAs(busyEndpoint);
+    }
+
+    @Test
+    void onResult_ShouldEjectLongerUpToMaxEjectionTime_WhenEndpointIsEjectedAgain() {
+        recordCalls(endpointA, CONSECUTIVE_FAILURES_TO_EJECT, false);
+        clock.advance(EJECTION_TIME_IN_MILLISECONDS);
+        recordCalls(endpointA, CONSECUTIVE_FAILURES_TO_EJECT, false);
+
+        clock.advance(MAX_EJECTION_TIME_IN_MILLISECONDS - 1);
+        assertThat(selectorToTest.isEjected(endpointA)).isTrue();
+        clock.advance(1);
+        assertThat(selectorToTest.isEjected(endpointA)).isFalse();
+    }
+
+    @Test
+    void setEndpoints_ShouldKeepHealthOfEndpointsStillConfigured() {
+        recordCalls(endpointA, CONSECUTIVE_FAILURES_TO_EJECT, false);
+        SessionManagementEndpoint endpointC = createEndpoint("http://session-c");
+
+        selectorToTest.setEndpoints(List.of(createEndpoint("http://session-a"), endpointC));
+
+        assertThat(selectorToTest.isEjected(endpointA)).isTrue();
+        assertThat(selectorToTest.getOutstandingCalls(endpointB)).isZero();
+        assertThat(selectorToTest.getEjectedCount()).isEqualTo(1);
+    }
+
+    private void recordCalls(SessionManagementEndpoint endpoint, int count, boolean isSuccessful) {
+        for (int i = 0; i < count; i++) {
+            selectorToTest.select(List.of(endpoint));
+            selectorToTest.onResult(endpoint, 10, isSuccessful);
+        }
+    }
+
+    private static SessionManagementEndpoint createEndpoint(String baseUrl) {
+        return new SessionManagementEndpoint(baseUrl, null, null, null, null);
+    }
+}
@@ -0,0 +1,91 @@
+package net.huizha.examples.junit5_mockito;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import net.huizha.examples.junit5_mockito.BoundedTtlCacheTest.MutableClock;
+
+/**
+ * Tests of {@link HashedTimingWheel}.
+ *
+ * @author Zhahui
+ *
+ */
+class HashedTimingWheelTest {
+    private static final long START_MILLIS = 1_000_000L;
+    private static final long TICK_IN_MILLIS = 100;
+    private static final int WHEEL_SIZE = 4;
+
+    private List<String> firedItems;
+    private HashedTimingWheel<String> wheelToTest;
+
+    @BeforeEach
+    void setUpBeforeEach() {
+        firedItems = new ArrayList<>();
+        wheelToTest = new HashedTimingWheel<>(new MutableClock(START_MILLIS), TICK_IN_MILLIS, WHEEL_SIZE,
+            firedItems::add);
+    }
+
+    @Test
+    void advance_ShouldFireItem_AtEndOfTickOfItsDeadline() {
+        wheelToTest.schedule("item", START_MILLIS + 250);
+
+        wheelToTest.advance(START_MILLIS + 299);
+        assertThat(firedItems).isEmpty();
+
+        wheelToTest.advance(START_MILLIS + 300);
+        assertThat(firedItems).containsExactly("item");
+    }
+
+    @Test
+    void advance_ShouldFireItem_AfterAsManyRoundsAsItsDeadlineNeeds() {
+        wheelToTest.schedule("next-round", START_MILLIS + WHEEL_SIZE * TICK_IN_MILLIS + 50);
+        wheelToTest.schedule("third-round", START_MILLIS + 2 * WHEEL_SIZE * TICK_IN_MILLIS + 50);
+
+        wheelToTest.advance(START_MILLIS + WHEEL_SIZE * TICK_IN_MILLIS);
+        assertThat(firedItems).isEmpty();
+
+        wheelToTest.advance(START_MILLIS + (WHEEL_SIZE + 1) * TICK_IN_MILLIS);
+        assertThat(firedItems).containsExactly("next-round");
+
+        wheelToTest.advance(START_MILLIS + (2 * WHEEL_SIZE + 1) * TICK_IN_MILLIS);
+        assertThat(firedItems).containsExactly("next-round", "third-round");
+    }
+
+    @Test
+    void advance_ShouldFireItemAtNextTick_WhenDeadlineHasPassed() {
+        wheelToTest.advance(START_MILLIS + 1000);
+
+        wheelToTest.schedule("late", START_MILLIS);
+        wheelToTest.advance(START_MILLIS + 1099);
+        assertThat(firedItems).isEmpty();
+
+        wheelToTest.advance(START_MILLIS + 1100);
+        assertThat(firedItems).containsExactly("late");
+    }
+
+    @Test
+    void advance_ShouldFireItemRescheduledByHandler_AtItsNewDeadline() {
+        AtomicReference<HashedTimingWheel<String>> wheel = new AtomicReference<>();
+        wheel.set(new HashedTimingWheel<>(new MutableClock(START_MILLIS), TICK_IN_MILLIS, WHEEL_SIZE, item -> {
+            firedItems.add(item);
+            wheel.get().schedule(item, START_MILLIS + firedItems.size() * 1000);
+        }));
+        wheel.get().schedule("repeated", START_MILLIS);
+
+        wheel.get().advance(START_MILLIS + 100);
+        assertThat(firedItems).hasSize(1);
+        wheel.get().advance(START_MILLIS + 1099);
+        assertThat(firedItems).hasSize(1);
+        wheel.get().advance(START_MILLIS + 1100);
+        assertThat(firedItems).hasSize(2);
+        wheel.get().advance(START_MILLIS + 2100);
+        assertThat(firedItems).hasSize(3);
+    }
+}
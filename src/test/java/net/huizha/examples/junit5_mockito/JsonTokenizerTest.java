@@ -0,0 +1,83 @@
+package net.huizha.examples.junit5_mockito;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link JsonTokenizer}.
+ *
+ * @author Zhahui
+ *
+ */
+class JsonTokenizerTest {
+    private static final byte[][] NAMES = { "sub".getBytes(StandardCharsets.UTF_8),
+        "ré".getBytes(StandardCharsets.UTF_8) };
+
+    @Test
+    void readKey_ShouldFindKey_WhetherOrNotItIsEscaped() throws IOException {
+        JsonTokenizer tokenizer = tokenizer("\"sub\" \"s\\u0075b\" \"r\\u00e9\" \"ré\" \"s\\\\ub\" \"subs\"");
+
+        int[] indexes = new int[6];
+        for (int i = 0; i < indexes.length; i++) {
+            assertThat(tokenizer.nextNonWhitespace()).isEqualTo('"');
+            indexes[i] = tokenizer.readKey(NAMES);
+        }
+
+        assertThat(indexes).containsExactly(0, 0, 1, 1, -1, -1);
+    }
+
+    @Test
+    void readString_ShouldUnescapeString_WhenItSpansBufferRefills() throws IOException {
+        StringBuilder json = new StringBuilder("\"");
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            json.append("é\\n\\ud83d\\ude00");
+            expected.append("é\n😀");
+        }
+        JsonTokenizer tokenizer = tokenizer(json.append('"').toString());
+
+        tokenizer.next();
+
+        assertThat(tokenizer.readString()).isEqualTo(expected.toString());
+        assertThat(tokenizer.next()).isEqualTo(-1);
+    }
+
+    @Test
+    void skipValue_ShouldSkipNestedValuesWithoutDecodingThem() throws IOException {
+        JsonTokenizer tokenizer = tokenizer("{\"a\": [1, \"]\", {\"b\": null}], \"c\": \"\\\"}\"} -2.5e3 true,");
+
+        tokenizer.skipValue(tokenizer.nextNonWhitespace());
+        tokenizer.skipValue(tokenizer.nextNonWhitespace());
+        tokenizer.skipValue(tokenizer.nextNonWhitespace());
+
+        assertThat(tokenizer.nextNonWhitespace()).isEqualTo(',');
+    }
+
+    @Test
+    void malformed_ShouldReportDocumentAndPosition() throws IOException {
+        JsonTokenizer tokenizer = tokenizer("  tru ");
+
+        assertThatThrownBy(() -> tokenizer.skipLiteral(tokenizer.nextNonWhitespace())).isInstanceOf(IOException.class)
+            .hasMessage("Malformed test document at byte 6: unexpected literal");
+    }
+
+    @Test
+    void readString_ShouldThrowException_WhenStringIsNotTerminated() {
+        JsonTokenizer tokenizer = tokenizer("\"ab\\u00");
+
+        assertThatThrownBy(() -> {
+            tokenizer.next();
+            tokenizer.readString();
+        }).isInstanceOf(IOException.class).hasMessageContaining("invalid unicode escape");
+    }
+
+    private static JsonTokenizer tokenizer(String json) {
+        return new JsonTokenizer(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), "test document");
+    }
+}
@@ -0,0 +1,76 @@
+package net.huizha.examples.junit5_mockito;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link JwtClaimExtractor}.
+ *
+ * @author Zhahui
+ *
+ */
+class JwtClaimExtractorTest {
+    private final JwtClaimExtractor extractor = new JwtClaimExtractor("sub", "oidc-session-ref", "exp");
+
+    @Test
+    void extract_ShouldReturnRequestedClaimsInOrder() {
+        String[] values = extractor.extract(toJwt("{\"iss\":\"https://issuer\",\"exp\":1600000000,\"sub\":\"user-1\","
+            + "\"oidc-session-ref\":\"ref-1\",\"aud\":[\"a\",\"b\"]}"));
+
+        assertThat(values).containsExactly("user-1", "ref-1", "1600000000");
+    }
+
+    @Test
+    void extract_ShouldReturnNullForMissingClaimsAndNonScalarValues() {
+        String[] values = extractor.extract(toJwt("{\"sub\": {\"name\": \"user-1\"}, \"exp\": null, \"x\": true}"));
+
+        assertThat(values).containsExactly(null, null, null);
+    }
+
+    @Test
+    void extract_ShouldSkipNestedClaimsAndUnescapeValues() {
+        String[] values = extractor.extract(toJwt("{\"claims\": {\"sub\": \"nested\", \"list\": [1, \"}\", -2.5e3]}, "
+            + "\"s\\\\ub\": \"other key\", \"sub\": \"us\\\"er\\u00e9 ü\", \"oidc-session-ref\": \"ref\"}"));
+
+        assertThat(values).containsExactly("us\"eré ü", "ref", null);
+    }
+
+    @Test
+    void extract_ShouldMatchClaimNames_WhenKeysAreEscaped() {
+        String[] values = extractor.extract(toJwt("{\"s\\u0075b\": \"user-1\", \"oidc\\u002dsession-ref\": \"ref-1\", "
+            + "\"\\u0065xp\": 1600000000}"));
+
+        assertThat(values).containsExactly("user-1", "ref-1", "1600000000");
+    }
+
+    @Test
+    void extract_ShouldDecodePayloadsLargerThanInitialBuffer() {
+        StringBuilder json = new StringBuilder("{\"groups\": [");
+        for (int i = 0; i < 500; i++) {
+            json.append(i == 0 ? "" : ",").append("\"group-").append(i).append('"');
+        }
+        json.append("], \"sub\": \"user-1\"}");
+
+        assertThat(extractor.extract(toJwt(json.toString()))).containsExactly("user-1", null, null);
+    }
+
+    @Test
+    void extract_ShouldReturnNull_WhenTokenIsNotJwtWithJsonObjectPayload() {
+        assertThat(extractor.extract(null)).isNull();
+        assertThat(extractor.extract("stub-id-token")).isNull();
+        assertThat(extractor.extract("header.not+base64.signature")).isNull();
+        assertThat(extractor.extract(toJwt("[\"sub\"]"))).isNull();
+        assertThat(extractor.extract(toJwt("{\"sub\": tru}"))).isNull();
+        assertThat(extractor.extract(toJwt("{\"sub\": \"user-1"))).isNull();
+    }
+
+    private static String toJwt(String claims) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString("{\"alg\":\"RS256\"}".getBytes(StandardCharsets.UTF_8)) + "."
+            + encoder.encodeToString(claims.getBytes(StandardCharsets.UTF_8)) + ".c2lnbmF0dXJl";
+    }
+}
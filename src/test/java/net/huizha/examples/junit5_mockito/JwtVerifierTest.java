@@ -0,0 +1,266 @@
+package net.huizha.examples.junit5_mockito;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of {@link JwtVerifier}.
+ *
+ * @author Zhahui
+ *
+ */
+class JwtVerifierTest {
+    private static final long NOW_MILLIS = 1600000000000L;
+    private static final long NOW_SECONDS = TimeUnit.MILLISECONDS.toSeconds(NOW_MILLIS);
+    private static final long CLOCK_SKEW_IN_MILLISECONDS = 60000;
+
+    private static KeyPair rsaKeyPair;
+    private static KeyPair otherRsaKeyPair;
+    private static KeyPair ecKeyPair;
+
+    @TempDir
+    Path tempDir;
+
+    private Path jwksFile;
+    private BoundedTtlCacheTest.MutableClock clock;
+    private JwtVerifier verifier;
+
+    @BeforeAll
+    static void setUpBeforeAll() throws GeneralSecurityException {
+        KeyPairGenerator rsaGenerator = KeyPairGenerator.getInstance("RSA");
+        rsaGenerator.initialize(2048);
+        rsaKeyPair = rsaGenerator.generateKeyPair();
+        otherRsaKeyPair = rsaGenerator.generateKeyPair();
+        KeyPairGenerator ecGenerator = KeyPairGenerator.getInstance("EC");
+        ecGenerator.initialize(new ECGenParameterSpec("secp256r1"));
+        ecKeyPair = ecGenerator.generateKeyPair();
+    }
+
+    @BeforeEach
+    void setUpBeforeEach() throws IOException {
+        jwksFile = tempDir.resolve("jwks.json");
+        Files.writeString(jwksFile, toJwks(toJwk("rsa-1", rsaKeyPair), toJwk("ec-1", ecKeyPair)));
+        clock = new BoundedTtlCacheTest.MutableClock(NOW_MILLIS);
+        verifier = new JwtVerifier(jwksFile.toUri(), clock, 300000, CLOCK_SKEW_IN_MILLISECONDS, 100);
+        verifier.start();
+    }
+
+    @AfterEach
+    void cleanUpAfterEach() {
+        verifier.close();
+    }
+
+    @Test
+    void verify_ShouldReturnValid_WhenRsaSignatureMatchesAndTokenIsWithinValidityPeriod() throws Exception {
+        String token = createToken("RS256", "rsa-1", rsaKeyPair.getPrivate(),
+            claims(NOW_SECONDS + 600, NOW_SECONDS - 10));
+
+        assertThat(verifier.getKeyCount()).isEqualTo(2);
+        assertThat(verifier.verify(token)).isEqualTo(JwtVerifier.Result.VALID);
+    }
+
+    @Test
+    void verify_ShouldReturnValid_WhenEcSignatureMatches() throws Exception {
+        String token = createToken("ES256", "ec-1", ecKeyPair.getPrivate(), claims(NOW_SECONDS + 600, 0));
+
+        assertThat(verifier.verify(token)).isEqualTo(JwtVerifier.Result.VALID);
+    }
+
+    @Test
+    void verify_ShouldRejectToken_WhenExpOrNbfIsOutsideClockSkew() throws Exception {
+        String expired = createToken("RS256", "rsa-1", rsaKeyPair.getPrivate(), claims(NOW_SECONDS - 61, 0));
+        String expiredWithinSkew = createToken("RS256", "rsa-1", rsaKeyPair.getPrivate(),
+            claims(NOW_SECONDS - 59, 0));
+        String notYetValid = createToken("RS256", "rsa-1", rsaKeyPair.getPrivate(),
+            claims(NOW_SECONDS + 600, NOW_SECONDS + 61));
+
+        assertThat(verifier.verify(expired)).isEqualTo(JwtVerifier.Result.EXPIRED);
+        assertThat(verifier.verify(expiredWithinSkew)).isEqualTo(JwtVerifier.Result.VALID);
+        assertThat(verifier.verify(notYetValid)).isEqualTo(JwtVerifier.Result.NOT_YET_VALID);
+        assertThat(JwtVerifier.Result.EXPIRED.isRejected()).isTrue();
+    }
+
+    @Test
+    void verify_ShouldReturnInvalidSignature_WhenTokenIsForgedOrUnsigned() throws Exception {
+        String claims = claims(NOW_SECONDS + 600, 0);
+        String signedByOtherKey = createToken("RS256", "rsa-1", otherRsaKeyPair.getPrivate(), claims);
+        String token = createToken("RS256", "rsa-1", rsaKeyPair.getPrivate(), claims);
+        String tampered = token.substring(0, token.indexOf('.') + 1)
+            + encode(claims(NOW_SECONDS + 6000, 0).getBytes(StandardCharsets.UTF_8))
+            + token.substring(token.lastIndexOf('.'));
+        String unsigned = encode("{\"alg\":\"none\"}".getBytes(StandardCharsets.UTF_8)) + "."
+            + encode(claims.getBytes(StandardCharsets.UTF_8)) + ".";
+        String algorithmMismatch = createToken("ES256", "rsa-1", ecKeyPair.getPrivate(), claims);
+
+        assertThat(verifier.verify(signedByOtherKey)).isEqualTo(JwtVerifier.Result.INVALID_SIGNATURE);
+        assertThat(verifier.verify(tampered)).isEqualTo(JwtVerifier.Result.INVALID_SIGNATURE);
+        assertThat(verifier.verify(unsigned)).isEqualTo(JwtVerifier.Result.INVALID_SIGNATURE);
+        assertThat(verifier.verify(algorithmMismatch)).isEqualTo(JwtVerifier.Result.INVALID_SIGNATURE);
+    }
+
+    @Test
+    void verify_ShouldReturnMalformed_WhenTokenIsNotJwt() {
+        assertThat(verifier.verify(null)).isEqualTo(JwtVerifier.Result.MALFORMED);
+        assertThat(verifier.verify("stub-id-token")).isEqualTo(JwtVerifier.Result.MALFORMED);
+        assertThat(verifier.verify("a.b.c.d")).isEqualTo(JwtVerifier.Result.MALFORMED);
+        assertThat(verifier.verify("e30.bm90IGpzb24.")).isEqualTo(JwtVerifier.Result.MALFORMED);
+    }
+
+    @Test
+    void verify_ShouldReturnUnverifiableUntilReload_WhenSigningKeyIsUnknown() throws Exception {
+        String token = createToken("RS256", "rsa-2", otherRsaKeyPair.getPrivate(), claims(NOW_SECONDS + 600, 0));
+        String hmacToken = createToken("HS256", "rsa-1", null, claims(NOW_SECONDS + 600, 0));
+
+        assertThat(verifier.verify(token)).isEqualTo(JwtVerifier.Result.UNVERIFIABLE);
+        assertThat(verifier.verify(hmacToken)).isEqualTo(JwtVerifier.Result.UNVERIFIABLE);
+        assertThat(JwtVerifier.Result.UNVERIFIABLE.isRejected()).isFalse();
+
+        Files.writeString(jwksFile, toJwks(toJwk("rsa-1", rsaKeyPair), toJwk("rsa-2", otherRsaKeyPair)));
+        assertThat(verifier.reload()).isTrue();
+
+        assertThat(verifier.verify(token)).isEqualTo(JwtVerifier.Result.VALID);
+    }
+
+    @Test
+    void verify_ShouldUseMemoizedSignatureCheckUntilTokenExpires() throws Exception {
+        String token = createToken("RS256", "rsa-1", rsaKeyPair.getPrivate(), claims(NOW_SECONDS + 600, 0));
+        assertThat(verifier.verify(token)).isEqualTo(JwtVerifier.Result.VALID);
+
+        // The key set cannot be read anymore, so only the memoized check can verify the token
+        Files.writeString(jwksFile, "not json");
+        assertThat(verifier.reload()).isFalse();
+        assertThat(verifier.verify(token)).isEqualTo(JwtVerifier.Result.VALID);
+
+        clock.advance(TimeUnit.SECONDS.toMillis(600) + CLOCK_SKEW_IN_MILLISECONDS);
+        assertThat(verifier.verify(token)).isEqualTo(JwtVerifier.Result.EXPIRED);
+    }
+
+    @Test
+    void verify_ShouldCheckSignatureAgain_WhenKeySetHasChanged() throws Exception {
+        String token = createToken("RS256", "rsa-1", rsaKeyPair.getPrivate(), claims(NOW_SECONDS + 600, 0));
+        assertThat(verifier.verify(token)).isEqualTo(JwtVerifier.Result.VALID);
+
+        // The key has been rotated out
+        Files.writeString(jwksFile, toJwks(toJwk("rsa-1", otherRsaKeyPair)));
+        assertThat(verifier.reload()).isTrue();
+
+        assertThat(verifier.verify(token)).isEqualTo(JwtVerifier.Result.INVALID_SIGNATURE);
+    }
+
+    @Test
+    void verify_ShouldLoadKeySetFromHttpEndpoint() throws Exception {
+        try (StubSessionManagementServer stubServer = new StubSessionManagementServer()) {
+            stubServer.respondWith("/jwks", toJwks(toJwk("rsa-1", rsaKeyPair)));
+            try (JwtVerifier httpVerifier = new JwtVerifier(URI.create(stubServer.getBaseUrl() + "/jwks"), clock,
+                300000, CLOCK_SKEW_IN_MILLISECONDS, 100)) {
+                httpVerifier.start();
+
+                assertThat(httpVerifier.getKeyCount()).isEqualTo(1);
+                assertThat(httpVerifier.verify(createToken("RS256", "rsa-1", rsaKeyPair.getPrivate(),
+                    claims(NOW_SECONDS + 600, 0)))).isEqualTo(JwtVerifier.Result.VALID);
+            }
+        }
+    }
+
+    @Test
+    void constructor_ShouldThrowException_WhenJwksUriIsNotFileOrHttp() {
+        assertThatThrownBy(() -> {
+            new JwtVerifier(URI.create("ftp://localhost/jwks"), clock, 1000, 0, 100);
+        }).isInstanceOf(IllegalArgumentException.class).hasMessageContaining("jwksUri");
+    }
+
+    /**
+     * Create a signed JWT.
+     *
+     * @param alg the JWS algorithm
+     * @param kid the key ID
+     * @param privateKey the signing key, or null to sign with garbage
+     * @param claims the JSON claims
+     * @return the compact serialization of the JWT
+     */
+    static String createToken(String alg, String kid, PrivateKey privateKey, String claims)
+            throws GeneralSecurityException {
+        String signingInput = encode(String.format("{\"alg\":\"%s\",\"kid\":\"%s\",\"typ\":\"JWT\"}", alg, kid)
+            .getBytes(StandardCharsets.UTF_8)) + "." + encode(claims.getBytes(StandardCharsets.UTF_8));
+        if (privateKey == null) {
+            return signingInput + "." + encode(new byte[32]);
+        }
+        boolean isEc = alg.startsWith("ES");
+        Signature signer = Signature.getInstance("SHA" + alg.substring(2) + (isEc ? "withECDSA" : "withRSA"));
+        signer.initSign(privateKey);
+        signer.update(signingInput.getBytes(StandardCharsets.US_ASCII));
+        byte[] signature = signer.sign();
+        return signingInput + "." + encode(isEc ? toJoseSignature(signature, 32) : signature);
+    }
+
+    /**
+     * @return the JSON claims of an ID token; {@code nbf} is left out when 0
+     */
+    static String claims(long expSeconds, long nbfSeconds) {
+        return "{\"sub\":\"sub\",\"oidc-session-ref\":\"ref\",\"exp\":" + expSeconds
+            + (nbfSeconds == 0 ? "" : ",\"nbf\":" + nbfSeconds) + "}";
+    }
+
+    static String toJwks(String... jwks) {
+        return "{\"keys\":[" + String.join(",", jwks) + "]}";
+    }
+
+    static String toJwk(String kid, KeyPair keyPair) {
+        if (keyPair.getPublic() instanceof RSAPublicKey) {
+            RSAPublicKey key = (RSAPublicKey) keyPair.getPublic();
+            return String.format("{\"kty\":\"RSA\",\"kid\":\"%s\",\"use\":\"sig\",\"n\":\"%s\",\"e\":\"%s\"}", kid,
+                encode(toUnsigned(key.getModulus().toByteArray())),
+                encode(toUnsigned(key.getPublicExponent().toByteArray())));
+        }
+        ECPublicKey key = (ECPublicKey) keyPair.getPublic();
+        return String.format("{\"kty\":\"EC\",\"kid\":\"%s\",\"crv\":\"P-256\",\"x\":\"%s\",\"y\":\"%s\"}", kid,
+            encode(toUnsigned(key.getW().getAffineX().toByteArray())),
+            encode(toUnsigned(key.getW().getAffineY().toByteArray())));
+    }
+
+    private static String encode(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static byte[] toUnsigned(byte[] bytes) {
+        return bytes.length > 1 && bytes[0] == 0 ? Arrays.copyOfRange(bytes, 1, bytes.length) : bytes;
+    }
+
+    /**
+     * Convert a DER ECDSA signature to the JOSE concatenation of {@code r} and {@code s}.
+     */
+    private static byte[] toJoseSignature(byte[] der, int componentLength) {
+        byte[] jose = new byte[2 * componentLength];
+        int offset = der[1] < 0 ? 3 : 2;
+        for (int i = 0; i < 2; i++) {
+            int length = der[offset + 1];
+            byte[] component = toUnsigned(Arrays.copyOfRange(der, offset + 2, offset + 2 + length));
+            System.arraycopy(component, 0, jose, (i + 1) * componentLength - component.length, component.length);
+            offset += 2 + length;
+        }
+        return jose;
+    }
+}
@@ -0,0 +1,176 @@
+package net.huizha.examples.junit5_mockito;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import net.huizha.examples.junit5_mockito.BoundedTtlCacheTest.MutableClock;
+
+/**
+ * Tests of {@link RequestHedger}.
+ *
+ * @author Zhahui
+ *
+ */
+class RequestHedgerTest {
+    private static final long RECORDED_LATENCY_IN_MICROSECONDS = 1000;
+    private static final long LATENCY_WINDOW_IN_MILLISECONDS = 30000;
+
+    private MutableClock clock;
+    private RequestHedger hedgerToTest;
+    private CountDownLatch primaryGate;
+
+    @BeforeEach
+    void setUpBeforeEach() {
+        clock = new MutableClock(1_000_000L);
+        primaryGate = new CountDownLatch(1);
+    }
+
+    @AfterEach
+    void cleanUpAfterEach() {
+        primaryGate.countDown();
+        if (hedgerToTest != null) {
+            hedgerToTest.close();
+        }
+    }
+
+    @Test
+    void constructor_ShouldThrowException_WhenMaxHedgePercentWouldAllowDoublingLoad() {
+        assertThatThrownBy(() -> new RequestHedger(clock, 95, 1, 100, 4))
+            .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("maxHedgePercent");
+    }
+
+    @Test
+    void call_ShouldNotHedge_WhenTooFewLatenciesAreRecorded() throws IOException {
+        hedgerToTest = new RequestHedger(clock, 95, 1, 99, 4);
+        AtomicInteger hedgeCalls = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            String result = hedgerToTest.call(onAbort -> {
+                Thread.sleep(20);
+                return "primary";
+            }, () -> {
+                hedgeCalls.incrementAndGet();
+                return "hedge";
+            });
+            assertThat(result).isEqualTo("primary");
+        }
+
+        assertThat(hedgeCalls).hasValue(0);
+        assertThat(hedgerToTest.getDelayInMicros()).isEqualTo(-1);
+    }
+
+    @Test
+    void call_ShouldRunPrimaryOnCallingThread() throws IOException {
+        hedgerToTest = new RequestHedger(clock, 95, 1, 50, 4);
+        recordLatencies(100, RECORDED_LATENCY_IN_MICROSECONDS);
+        AtomicReference<Thread> primaryThread = new AtomicReference<>();
+
+        hedgerToTest.call(onAbort -> {
+            primaryThread.set(Thread.currentThread());
+            return "primary";
+        }, () -> "hedge");
+
+        assertThat(primaryThread).hasValue(Thread.currentThread());
+    }
+
+    @Test
+    void call_ShouldReturnHedgeResultAndAbortPrimary_WhenHedgeAnswersFirst() throws IOException {
+        hedgerToTest = new RequestHedger(clock, 95, 1, 50, 4);
+        recordLatencies(100, RECORDED_LATENCY_IN_MICROSECONDS);
+        hedgerToTest.call(onAbort -> "fast", () -> "hedge");
+
+        String result = hedgerToTest.call(onAbort -> {
+            onAbort.accept(primaryGate::countDown);
+            if (primaryGate.await(10, TimeUnit.SECONDS)) {
+                throw new IOException("primary aborted");
+            }
+            return "primary";
+        }, () -> "hedge");
+
+        assertThat(result).isEqualTo("hedge");
+        assertThat(primaryGate.getCount()).isZero();
+        assertThat(hedgerToTest.getHedgeCount()).isEqualTo(1);
+        assertThat(hedgerToTest.getHedgeWinCount()).isEqualTo(1);
+    }
+
+    @Test
+    void call_ShouldReturnPrimaryResult_WhenHedgeFails() throws IOException {
+        hedgerToTest = new RequestHedger(clock, 95, 1, 50, 4);
+        recordLatencies(100, RECORDED_LATENCY_IN_MICROSECONDS);
+        hedgerToTest.call(onAbort -> "fast", () -> "hedge");
+
+        String result = hedgerToTest.call(onAbort -> {
+            Thread.sleep(50);
+            return "primary";
+        }, () -> {
+            throw new IOException("hedge failed");
+        });
+
+        assertThat(result).isEqualTo("primary");
+        assertThat(hedgerToTest.getHedgeCount()).isEqualTo(1);
+        assertThat(hedgerToTest.getHedgeWinCount()).isZero();
+    }
+
+    @Test
+    void call_ShouldThrowException_WhenPrimaryFailsBeforeHedgeDelay() {
+        hedgerToTest = new RequestHedger(clock, 95, 1000, 99, 4);
+        recordLatencies(100, RECORDED_LATENCY_IN_MICROSECONDS);
+
+        assertThatThrownBy(() -> hedgerToTest.call(onAbort -> {
+            throw new IOException("primary failed");
+        }, () -> "hedge")).isInstanceOf(IOException.class).hasMessage("primary failed");
+        assertThat(hedgerToTest.getHedgeCount()).isZero();
+    }
+
+    @Test
+    void call_ShouldCapHedges_AtMaxHedgePercentOfCalls() throws IOException {
+        hedgerToTest = new RequestHedger(clock, 95, 1, 10, 4);
+        recordLatencies(100, RECORDED_LATENCY_IN_MICROSECONDS);
+
+        for (int i = 0; i < 20; i++) {
+            hedgerToTest.call(onAbort -> {
+                Thread.sleep(20);
+                return "primary";
+            }, () -> {
+                Thread.sleep(20);
+                return "hedge";
+            });
+        }
+
+        assertThat(hedgerToTest.getHedgeCount()).isEqualTo(2);
+    }
+
+    @Test
+    void getDelayInMicros_ShouldFollowRecentLatencies_WhenLatencyWindowsRollOver() {
+        hedgerToTest = new RequestHedger(clock, 95, 1, 10, 4);
+        recordLatencies(100, RECORDED_LATENCY_IN_MICROSECONDS);
+        long fastDelay = hedgerToTest.getDelayInMicros();
+
+        clock.advance(LATENCY_WINDOW_IN_MILLISECONDS);
+        assertThat(hedgerToTest.getDelayInMicros()).isEqualTo(fastDelay);
+        recordLatencies(100, 50 * RECORDED_LATENCY_IN_MICROSECONDS);
+        clock.advance(1000);
+        long slowDelay = hedgerToTest.getDelayInMicros();
+
+        clock.advance(2 * LATENCY_WINDOW_IN_MILLISECONDS);
+        assertThat(fastDelay).isBetween(RECORDED_LATENCY_IN_MICROSECONDS, 2 * RECORDED_LATENCY_IN_MICROSECONDS);
+        assertThat(slowDelay).isGreaterThanOrEqualTo(50 * RECORDED_LATENCY_IN_MICROSECONDS);
+        assertThat(hedgerToTest.getDelayInMicros()).isEqualTo(-1);
+    }
+
+    private void recordLatencies(int count, long latencyInMicros) {
+        for (int i = 0; i < count; i++) {
+            hedgerToTest.recordLatency(latencyInMicros);
+        }
+    }
+}
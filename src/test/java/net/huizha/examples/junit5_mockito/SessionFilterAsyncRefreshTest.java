@@ -0,0 +1,302 @@
+package net.huizha.examples.junit5_mockito;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.servlet.http.HttpSession;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+
+import net.huizha.examples.filters.AsyncFilterChain;
+import net.huizha.examples.filters.FilterChain;
+import net.huizha.examples.filters.FilterConfig;
+import net.huizha.examples.filters.FilterException;
+import net.huizha.examples.filters.VirtualThreads;
+import net.huizha.examples.requestresponse.Request;
+import net.huizha.examples.requestresponse.Response;
+
+/**
+ * Tests of asynchronous OIDC session refreshing against an in-process stub session management service.
+ *
+ * @author Zhahui
+ *
+ */
+class SessionFilterAsyncRefreshTest {
+    private static final String OIDC_ACCESS_TOKEN_KEY = "oidc-access-token";
+    private static final String JNDI_OIDC_SESSION_MANAGEMENT_CONFIG = "java:comp/env/config/OidcSessionManagementConfig";
+    private static final String OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY = "oidc-next-refresh-epoch-millis";
+    private static final String ASYNC_REFRESH_ENABLED_PARAM = "oidc-async-refresh-enabled";
+    private static final String ASYNC_REFRESH_POOL_SIZE_PARAM = "oidc-async-refresh-pool-size";
+    private static final String ASYNC_REFRESH_VIRTUAL_THREADS_ENABLED_PARAM = "oidc-async-refresh-virtual-threads-enabled";
+    private static final String BACKGROUND_REFRESH_ENABLED_PARAM = "oidc-background-refresh-enabled";
+    private static final String BACKGROUND_REFRESH_TICK_PARAM = "oidc-background-refresh-tick-in-milliseconds";
+    private static final String FAKED_OIDC_CLIENT_ID = "faked-oidc-client-id";
+    private static final String FAKED_OIDC_ACCESS_TOKEN_STRING = "faked-access-token-string";
+    private static final long VERIFY_TIMEOUT_IN_MILLISECONDS = 5000;
+
+    private StubSessionManagementServer stubServer;
+    private SessionFilter filterToTest;
+    private FilterConfig mockedFilterConfig;
+    private Request mockedRequest;
+    private Response mockedResponse;
+    private FilterChain mockedFilterChain;
+    private HttpSession mockedHttpSession;
+
+    @BeforeEach
+    void setUpBeforeEach() throws Exception {
+        stubServer = new StubSessionManagementServer();
+
+        OidcSessionManagementConfig oidcSessionManagementConfig = new OidcSessionManagementConfig();
+        oidcSessionManagementConfig.setBaseUrl(stubServer.getBaseUrl());
+        oidcSessionManagementConfig
+            .setValidateSessionContextPath(StubSessionManagementServer.VALIDATE_SESSION_CONTEXT_PATH);
+        oidcSessionManagementConfig
+            .setRefreshSessionContextPath(StubSessionManagementServer.REFRESH_SESSION_CONTEXT_PATH);
+        oidcSessionManagementConfig.setOidcClientId(FAKED_OIDC_CLIENT_ID);
+        InitialContext mockedContext = mock(InitialContext.class);
+        given(mockedContext.lookup(JNDI_OIDC_SESSION_MANAGEMENT_CONFIG)).willReturn(oidcSessionManagementConfig);
+
+        mockedFilterConfig = mock(FilterConfig.class);
+        mockedRequest = mock(Request.class);
+        mockedResponse = mock(Response.class);
+        mockedFilterChain = mock(FilterChain.class);
+        mockedHttpSession = mock(HttpSession.class);
+        given(mockedRequest.getSession()).willReturn(mockedHttpSession);
+        given(mockedHttpSession.getAttribute(OIDC_ACCESS_TOKEN_KEY)).willReturn(FAKED_OIDC_ACCESS_TOKEN_STRING);
+        given(mockedHttpSession.getAttribute(OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY))
+            .willReturn(System.currentTimeMillis() - 30000);
+
+        filterToTest = new SessionFilter();
+        filterToTest.setInitialContext(mockedContext);
+    }
+
+    @AfterEach
+    void cleanUpAfterEach() {
+        filterToTest.destroy();
+        stubServer.close();
+    }
+
+    @Test
+    void init_ShouldNotEnableAsyncRefresh_ByDefault() {
+        filterToTest.init(mockedFilterConfig);
+
+        assertThat(filterToTest.isAsyncRefreshEnabled()).isFalse();
+    }
+
+    @Test
+    void init_ShouldThrowException_WhenPoolSizeIsNotPositive() {
+        given(mockedFilterConfig.getInitParameter(ASYNC_REFRESH_ENABLED_PARAM)).willReturn("true");
+        given(mockedFilterConfig.getInitParameter(ASYNC_REFRESH_POOL_SIZE_PARAM)).willReturn("0");
+
+        assertThatThrownBy(() -> {
+            filterToTest.init(mockedFilterConfig);
+        }).isInstanceOf(FilterException.class).hasMessageContaining(ASYNC_REFRESH_POOL_SIZE_PARAM);
+    }
+
+    @Test
+    void init_ShouldNotEnableAsyncRefresh_WhenOnlyVirtualThreadsAreEnabled() {
+        given(mockedFilterConfig.getInitParameter(ASYNC_REFRESH_VIRTUAL_THREADS_ENABLED_PARAM)).willReturn("true");
+
+        filterToTest.init(mockedFilterConfig);
+
+        assertThat(filterToTest.isAsyncRefreshEnabled()).isFalse();
+    }
+
+    @Test
+    void doFilterAsync_ShouldContinueChainOnVirtualThread_WhenVirtualThreadsAreEnabledAndSupported()
+            throws Exception {
+        given(mockedFilterConfig.getInitParameter(ASYNC_REFRESH_ENABLED_PARAM)).willReturn("true");
+        given(mockedFilterConfig.getInitParameter(ASYNC_REFRESH_VIRTUAL_THREADS_ENABLED_PARAM)).willReturn("true");
+        filterToTest.init(mockedFilterConfig);
+        AtomicReference<Thread> chainThread = new AtomicReference<>();
+        AsyncFilterChain asyncFilterChain = (request, response) -> {
+            chainThread.set(Thread.currentThread());
+            return CompletableFuture.completedFuture(null);
+        };
+        stubServer.holdResponses();
+
+        CompletionStage<Void> stage = filterToTest.doFilterAsync(mockedRequest, mockedResponse, asyncFilterChain);
+        stubServer.releaseResponses();
+        stage.toCompletableFuture().get(VERIFY_TIMEOUT_IN_MILLISECONDS, TimeUnit.MILLISECONDS);
+
+        assertThat(filterToTest.isAsyncRefreshEnabled()).isTrue();
+        assertThat(VirtualThreads.isVirtual(chainThread.get())).isEqualTo(VirtualThreads.isSupported());
+        assertThat(chainThread.get().getName()).startsWith(RefreshExecutors.CONTINUATION_THREAD_NAME_PREFIX);
+        then(mockedHttpSession).should().setAttribute(eq(OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY), anyLong());
+    }
+
+    @Test
+    void doFilter_ShouldOnlyRegisterSessionAndRefreshItInBackground_WhenBackgroundRefreshIsEnabled() {
+        given(mockedFilterConfig.getInitParameter(BACKGROUND_REFRESH_ENABLED_PARAM)).willReturn("true");
+        given(mockedFilterConfig.getInitParameter(BACKGROUND_REFRESH_TICK_PARAM)).willReturn("10");
+        filterToTest.init(mockedFilterConfig);
+        stubServer.holdResponses();
+
+        filterToTest.doFilter(mockedRequest, mockedResponse, mockedFilterChain);
+
+        assertThat(filterToTest.isBackgroundRefreshEnabled()).isTrue();
+        then(mockedFilterChain).should().doFilter(mockedRequest, mockedResponse);
+        then(mockedHttpSession).should(never()).setAttribute(eq(OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY), anyLong());
+
+        stubServer.releaseResponses();
+
+        then(mockedHttpSession).should(timeout(VERIFY_TIMEOUT_IN_MILLISECONDS))
+            .setAttribute(eq(OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY), anyLong());
+        assertThat(stubServer.getRequestCount(StubSessionManagementServer.REFRESH_SESSION_CONTEXT_PATH))
+            .isEqualTo(1);
+    }
+
+    @Test
+    void doFilter_ShouldRefreshSessionInline_WhenAsyncRefreshIsDisabled() {
+        filterToTest.init(mockedFilterConfig);
+
+        filterToTest.doFilter(mockedRequest, mockedResponse, mockedFilterChain);
+
+        assertThat(stubServer.getRequestCount(StubSessionManagementServer.VALIDATE_SESSION_CONTEXT_PATH))
+            .isEqualTo(1);
+        assertThat(stubServer.getRequestCount(StubSessionManagementServer.REFRESH_SESSION_CONTEXT_PATH))
+            .isEqualTo(1);
+        then(mockedHttpSession).should().setAttribute(eq(OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY),
+            anyLong());
+        then(mockedFilterChain).should().doFilter(mockedRequest, mockedResponse);
+    }
+
+    @Test
+    void doFilter_ShouldPassRequestAlongChainBeforeRefreshCompletes_WhenAsyncRefreshIsEnabled()
+            throws NamingException {
+        given(mockedFilterConfig.getInitParameter(ASYNC_REFRESH_ENABLED_PARAM)).willReturn("true");
+        filterToTest.init(mockedFilterConfig);
+        stubServer.holdResponses();
+
+        filterToTest.doFilter(mockedRequest, mockedResponse, mockedFilterChain);
+
+        then(mockedFilterChain).should().doFilter(mockedRequest, mockedResponse);
+        then(mockedHttpSession).should(never()).setAttribute(eq(OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY),
+            anyLong());
+
+        stubServer.releaseResponses();
+
+        then(mockedHttpSession).should(timeout(VERIFY_TIMEOUT_IN_MILLISECONDS))
+            .setAttribute(eq(OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY), anyLong());
+        assertThat(stubServer.getRequestCount(StubSessionManagementServer.REFRESH_SESSION_CONTEXT_PATH))
+            .isEqualTo(1);
+    }
+
+    @Test
+    void doFilter_ShouldRefreshSessionOnce_WhenConcurrentRequestsOfSameSessionAreDue() {
+        given(mockedFilterConfig.getInitParameter(ASYNC_REFRESH_ENABLED_PARAM)).willReturn("true");
+        filterToTest.init(mockedFilterConfig);
+        stubServer.holdResponses();
+
+        for (int i = 0; i < 5; i++) {
+            filterToTest.doFilter(mockedRequest, mockedResponse, mockedFilterChain);
+        }
+        stubServer.releaseResponses();
+
+        then(mockedHttpSession).should(timeout(VERIFY_TIMEOUT_IN_MILLISECONDS))
+            .setAttribute(eq(OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY), anyLong());
+        then(mockedFilterChain).should(times(5)).doFilter(mockedRequest, mockedResponse);
+        assertThat(stubServer.getRequestCount(StubSessionManagementServer.VALIDATE_SESSION_CONTEXT_PATH))
+            .isEqualTo(1);
+        assertThat(stubServer.getRequestCount(StubSessionManagementServer.REFRESH_SESSION_CONTEXT_PATH))
+            .isEqualTo(1);
+    }
+
+    @Test
+    void doFilter_ShouldRefreshEachSession_WhenConcurrentRequestsOfSessionsWithoutReferenceAreDue() {
+        given(mockedFilterConfig.getInitParameter(ASYNC_REFRESH_ENABLED_PARAM)).willReturn("true");
+        filterToTest.init(mockedFilterConfig);
+        stubServer.holdResponses();
+
+        try (MockedStatic<OidcClientHelper> mockedOidcClientHelper = mockStatic(OidcClientHelper.class)) {
+            mockedOidcClientHelper.when(() -> {
+                OidcClientHelper.getIdTokenFromAccessToken(FAKED_OIDC_ACCESS_TOKEN_STRING);
+            }).thenReturn("stub-id-token");
+            mockedOidcClientHelper.when(() -> {
+                OidcClientHelper.getJwtClaimsFromIdTokenAsMap("stub-id-token");
+            }).thenReturn(new HashMap<>(Map.of("sub", "stub-sub")));
+
+            for (int i = 0; i < 2; i++) {
+                filterToTest.doFilter(mockedRequest, mockedResponse, mockedFilterChain);
+            }
+        }
+        stubServer.releaseResponses();
+
+        then(mockedHttpSession).should(timeout(VERIFY_TIMEOUT_IN_MILLISECONDS).times(2))
+            .setAttribute(eq(OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY), anyLong());
+        assertThat(stubServer.getRequestCount(StubSessionManagementServer.VALIDATE_SESSION_CONTEXT_PATH))
+            .isEqualTo(2);
+    }
+
+    @Test
+    void doFilterAsync_ShouldPassRequestAlongChainAfterRefreshCompletes_WhenAsyncRefreshIsEnabled()
+            throws Exception {
+        given(mockedFilterConfig.getInitParameter(ASYNC_REFRESH_ENABLED_PARAM)).willReturn("true");
+        filterToTest.init(mockedFilterConfig);
+        AsyncFilterChain mockedAsyncFilterChain = mock(AsyncFilterChain.class);
+        given(mockedAsyncFilterChain.doFilter(mockedRequest, mockedResponse))
+            .willReturn(CompletableFuture.completedFuture(null));
+        stubServer.holdResponses();
+
+        CompletionStage<Void> stage = filterToTest.doFilterAsync(mockedRequest, mockedResponse,
+            mockedAsyncFilterChain);
+
+        assertThat(stage.toCompletableFuture()).isNotDone();
+        then(mockedAsyncFilterChain).should(never()).doFilter(mockedRequest, mockedResponse);
+
+        stubServer.releaseResponses();
+
+        stage.toCompletableFuture().get(VERIFY_TIMEOUT_IN_MILLISECONDS, TimeUnit.MILLISECONDS);
+        then(mockedHttpSession).should().setAttribute(eq(OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY), anyLong());
+        then(mockedAsyncFilterChain).should().doFilter(mockedRequest, mockedResponse);
+    }
+
+    @Test
+    void doFilterAsync_ShouldPassRequestAlongChainImmediately_WhenSessionIsNotDue() {
+        filterToTest.init(mockedFilterConfig);
+        AsyncFilterChain mockedAsyncFilterChain = mock(AsyncFilterChain.class);
+        given(mockedAsyncFilterChain.doFilter(mockedRequest, mockedResponse))
+            .willReturn(CompletableFuture.completedFuture(null));
+        given(mockedHttpSession.getAttribute(OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY))
+            .willReturn(System.currentTimeMillis() + 30000);
+
+        CompletionStage<Void> stage = filterToTest.doFilterAsync(mockedRequest, mockedResponse,
+            mockedAsyncFilterChain);
+
+        assertThat(stage.toCompletableFuture()).isCompleted();
+        then(mockedAsyncFilterChain).should().doFilter(mockedRequest, mockedResponse);
+        assertThat(stubServer.getRequestCount(StubSessionManagementServer.VALIDATE_SESSION_CONTEXT_PATH)).isZero();
+    }
+
+    @Test
+    void doFilterAsync_ShouldReturnFailedStage_WhenRequestIsNull() {
+        filterToTest.init(mockedFilterConfig);
+        AsyncFilterChain mockedAsyncFilterChain = mock(AsyncFilterChain.class);
+
+        CompletionStage<Void> stage = filterToTest.doFilterAsync(null, mockedResponse, mockedAsyncFilterChain);
+
+        assertThat(stage.toCompletableFuture()).isCompletedExceptionally();
+        then(mockedAsyncFilterChain).shouldHaveNoInteractions();
+    }
+}
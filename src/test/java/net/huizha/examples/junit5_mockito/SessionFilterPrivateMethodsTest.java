@@ -2,11 +2,15 @@ package net.huizha.examples.junit5_mockito;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
 import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
 
 import java.lang.reflect.Method;
+import java.time.Clock;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 
 import javax.servlet.http.HttpSession;
 
@@ -14,7 +18,6 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.MockedStatic;
 
 /**
  * Examples of unit testing private methods.
@@ -24,8 +27,10 @@ import org.mockito.MockedStatic;
  */
 class SessionFilterPrivateMethodsTest {
     private static final String OIDC_LAST_REFRESHED_DATETIME_KEY = "oidc-last-refreshed-datetime";
+    private static final String OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY = "oidc-next-refresh-epoch-millis";
     private static final int ODIC_REFRESH_SESSION_WAITING_TIME_IN_SECONDS = 30;
     private SessionFilter filterToTest;
+    private Clock clock;
 
     @BeforeAll
     static void setUpBeforeAll() {
@@ -33,7 +38,9 @@ class SessionFilterPrivateMethodsTest {
 
     @BeforeEach
     void setUpBeforeEach() {
+        clock = Clock.fixed(Instant.ofEpochMilli(System.currentTimeMillis()), ZoneId.systemDefault());
         filterToTest = new SessionFilter();
+        filterToTest.setClock(clock);
     }
 
     @AfterEach
@@ -58,6 +65,31 @@ class SessionFilterPrivateMethodsTest {
         given(mockedHttpSession.getAttribute(OIDC_LAST_REFRESHED_DATETIME_KEY)).willReturn(null);
 
         assertThat((Boolean) method.invoke(filterToTest, mockedHttpSession)).isFalse();
+        then(mockedHttpSession).should().setAttribute(OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY,
+            clock.millis() + ODIC_REFRESH_SESSION_WAITING_TIME_IN_SECONDS * 1000L);
+    }
+
+    @Test
+    void isTimeToRefreshOidcSession_ShouldReturnFalse_WhenNextRefreshDeadlineHasNotPassed() throws Exception {
+        Method method = SessionFilter.class.getDeclaredMethod("isTimeToRefreshOidcSession", HttpSession.class);
+        method.setAccessible(true);
+
+        HttpSession mockedHttpSession = mock(HttpSession.class);
+        given(mockedHttpSession.getAttribute(OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY)).willReturn(clock.millis());
+
+        assertThat((Boolean) method.invoke(filterToTest, mockedHttpSession)).isFalse();
+        then(mockedHttpSession).should(never()).getAttribute(OIDC_LAST_REFRESHED_DATETIME_KEY);
+    }
+
+    @Test
+    void isTimeToRefreshOidcSession_ShouldReturnTrue_WhenNextRefreshDeadlineHasPassed() throws Exception {
+        Method method = SessionFilter.class.getDeclaredMethod("isTimeToRefreshOidcSession", HttpSession.class);
+        method.setAccessible(true);
+
+        HttpSession mockedHttpSession = mock(HttpSession.class);
+        given(mockedHttpSession.getAttribute(OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY)).willReturn(clock.millis() - 1);
+
+        assertThat((Boolean) method.invoke(filterToTest, mockedHttpSession)).isTrue();
     }
 
     @Test
@@ -82,16 +114,15 @@ class SessionFilterPrivateMethodsTest {
         Method method = SessionFilter.class.getDeclaredMethod("isTimeToRefreshOidcSession", HttpSession.class);
         method.setAccessible(true);
 
-        LocalDateTime currentDateTime = LocalDateTime.now();
+        // Sessions refreshed before the deadline was introduced only hold the legacy last refreshed date time
+        LocalDateTime currentDateTime = LocalDateTime.now(clock);
         LocalDateTime lastRefreshedDateTime = currentDateTime.minusSeconds(refreshWaitingTime);
 
-        try (MockedStatic<LocalDateTime> mockedLocalDateTime = mockStatic(LocalDateTime.class)) {
-            mockedLocalDateTime.when(() -> {
-                LocalDateTime.now();
-            }).thenReturn(currentDateTime);
-            HttpSession mockedHttpSession = mock(HttpSession.class);
-            given(mockedHttpSession.getAttribute(OIDC_LAST_REFRESHED_DATETIME_KEY)).willReturn(lastRefreshedDateTime);
-            assertThat((Boolean) method.invoke(filterToTest, mockedHttpSession)).isEqualTo(shouldRefresh);
-        }
+        HttpSession mockedHttpSession = mock(HttpSession.class);
+        given(mockedHttpSession.getAttribute(OIDC_LAST_REFRESHED_DATETIME_KEY)).willReturn(lastRefreshedDateTime);
+        assertThat((Boolean) method.invoke(filterToTest, mockedHttpSession)).isEqualTo(shouldRefresh);
+        then(mockedHttpSession).should().setAttribute(OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY,
+            clock.millis() + (ODIC_REFRESH_SESSION_WAITING_TIME_IN_SECONDS - refreshWaitingTime) * 1000L);
+        then(mockedHttpSession).should().removeAttribute(OIDC_LAST_REFRESHED_DATETIME_KEY);
     }
 }
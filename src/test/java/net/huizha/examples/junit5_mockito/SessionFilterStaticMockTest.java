@@ -2,18 +2,21 @@ package net.huizha.examples.junit5_mockito;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
-import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
-import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.then;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.mockStatic;
-import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.times;
-import static org.mockito.Mockito.verify;
 
-import java.time.LocalDateTime;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import javax.naming.InitialContext;
@@ -21,11 +24,16 @@ import javax.naming.NamingException;
 import javax.naming.NoInitialContextException;
 import javax.servlet.http.HttpSession;
 
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.apache.logging.log4j.core.appender.AbstractAppender;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.apache.logging.log4j.core.config.LoggerConfig;
+import org.apache.logging.log4j.core.config.Property;
+import org.apache.logging.log4j.message.ParameterizedMessage;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
-import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -47,18 +55,18 @@ import net.huizha.examples.requestresponse.Response;
 class SessionFilterStaticMockTest {
     private static final String OIDC_ACCESS_TOKEN_KEY = "oidc-access-token";
     private static final String JNDI_OIDC_SESSION_MANAGEMENT_CONFIG = "java:comp/env/config/OidcSessionManagementConfig";
-    private static final String OIDC_LAST_REFRESHED_DATETIME_KEY = "oidc-last-refreshed-datetime";
+    private static final String OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY = "oidc-next-refresh-epoch-millis";
     private static final String FAKED_BASE_URL = "https://faked-url";
-    private static final String FAKED_VALIDATE_SESSION_CONTEXTPATH = "faked-validate-session-context-path";
-    private static final String FAKED_REFRESH_SESSION_CONTEXTPATH = "faked-refresh-session-context-path";
+    private static final String FAKED_VALIDATE_SESSION_CONTEXTPATH = "/faked-validate-session-context-path";
+    private static final String FAKED_REFRESH_SESSION_CONTEXTPATH = "/faked-refresh-session-context-path";
     private static final String FAKED_OIDC_CLIENT_ID = "faked-oidc-client-id";
     private static final String FAKED_OIDC_ACCESS_TOKEN_STRING = "faked-access-token-string";
     private static final String NOT_AVAILABLE = "N/A";
-    private static final String ERROR_MSG_VALIDATE_REFRESH_SESSION = "Error occurred when validating and refreshing OIDC session: %s";
+    private static final String ERROR_MSG_VALIDATE_REFRESH_SESSION = "Error occurred when validating and refreshing OIDC session: {}";
     // Class under test
     private SessionFilter filterToTest;
 
-    private static Logger mockedLogger;
+    private LogEventCaptor logEventCaptor;
     private FilterConfig mockedFilterConfig;
     private InitialContext mockedContext;
     private OidcSessionManagementConfig mockedOidcSessionManagementConfig;
@@ -69,13 +77,17 @@ class SessionFilterStaticMockTest {
     private String sub;
     private String oidcSessionRef;
 
-    @BeforeAll
-    static void setUpBeforeAll() {
-        mockedLogger = mock(Logger.class);
-    }
-
     @BeforeEach
     void setUpBeforeEach() {
+        // SessionFilter holds a static logger, so its events are captured through a logger configuration that is
+        // added for each test instead of mocking the logger
+        logEventCaptor = new LogEventCaptor();
+        logEventCaptor.start();
+        LoggerConfig loggerConfig = new LoggerConfig(SessionFilter.class.getName(), Level.ALL, false);
+        loggerConfig.addAppender(logEventCaptor, null, null);
+        LoggerContext loggerContext = LoggerContext.getContext(false);
+        loggerContext.getConfiguration().addLogger(SessionFilter.class.getName(), loggerConfig);
+        loggerContext.updateLoggers();
         mockedFilterConfig = mock(FilterConfig.class);
         mockedContext = mock(InitialContext.class);
         mockedOidcSessionManagementConfig = mock(OidcSessionManagementConfig.class);
@@ -89,7 +101,10 @@ class SessionFilterStaticMockTest {
 
     @AfterEach
     void cleanUpAfterEach() {
-        reset(mockedLogger);
+        LoggerContext loggerContext = LoggerContext.getContext(false);
+        loggerContext.getConfiguration().removeLogger(SessionFilter.class.getName());
+        loggerContext.updateLoggers();
+        logEventCaptor.stop();
     }
 
     /**
@@ -97,17 +112,11 @@ class SessionFilterStaticMockTest {
      */
     @Test
     void destroy_ShouldCallLog_Regular() {
-        try (MockedStatic<LogManager> mockedLogManager = mockStatic(LogManager.class)) {
-            mockedLogManager.when(() -> {
-                LogManager.getLogger(SessionFilter.class);
-            }).thenReturn(mockedLogger);
-
-            filterToTest = new SessionFilter();
-            filterToTest.destroy();
+        filterToTest = new SessionFilter();
+        filterToTest.destroy();
 
-            // regular style of verification
-            verify(mockedLogger, times(1)).info("Successfully destroyed filter");
-        }
+        // regular style of verification
+        Assertions.assertEquals(List.of("Successfully destroyed filter"), logEventCaptor.getMessages(Level.INFO));
     }
 
     /**
@@ -115,17 +124,11 @@ class SessionFilterStaticMockTest {
      */
     @Test
     void destroy_ShouldCallLog_Bdd() {
-        try (MockedStatic<LogManager> mockedLogManager = mockStatic(LogManager.class)) {
-            mockedLogManager.when(() -> {
-                LogManager.getLogger(SessionFilter.class);
-            }).thenReturn(mockedLogger);
-
-            filterToTest = new SessionFilter();
-            filterToTest.destroy();
+        filterToTest = new SessionFilter();
+        filterToTest.destroy();
 
-            // BDD style of verification
-            then(mockedLogger).should(times(1)).info("Successfully destroyed filter");
-        }
+        // BDD style of verification
+        assertThat(logEventCaptor.getMessages(Level.INFO)).containsExactly("Successfully destroyed filter");
     }
 
     /**
@@ -133,21 +136,15 @@ class SessionFilterStaticMockTest {
      */
     @Test
     void init_ShouldThrowException_WhenContextLookUpFailed_UsingJupiterAssertionToAssertException() {
-        try (MockedStatic<LogManager> mockedLogManager = mockStatic(LogManager.class)) {
-            mockedLogManager.when(() -> {
-                LogManager.getLogger(SessionFilter.class);
-            }).thenReturn(mockedLogger);
-
-            filterToTest = new SessionFilter();
-            // Make sure "new InitialContext()" will be invoked
-            filterToTest.setInitialContext(null);
+        filterToTest = new SessionFilter();
+        // Make sure "new InitialContext()" will be invoked
+        filterToTest.setInitialContext(null);
 
-            Exception exception = Assertions.assertThrows(FilterException.class, () -> {
-                filterToTest.init(mockedFilterConfig);
-            });
-            assertThat(exception.getCause()).isInstanceOf(NamingException.class);
-            assertThat(exception.getMessage()).contains("javax.naming.NoInitialContextException");
-        }
+        Exception exception = Assertions.assertThrows(FilterException.class, () -> {
+            filterToTest.init(mockedFilterConfig);
+        });
+        assertThat(exception.getCause()).isInstanceOf(NamingException.class);
+        assertThat(exception.getMessage()).contains("javax.naming.NoInitialContextException");
     }
 
     /**
@@ -155,212 +152,158 @@ class SessionFilterStaticMockTest {
      */
     @Test
     void init_ShouldThrowException_WhenContextLookUpFailed_UsingAssertJToAssertException() {
-        try (MockedStatic<LogManager> mockedLogManager = mockStatic(LogManager.class)) {
-            mockedLogManager.when(() -> {
-                LogManager.getLogger(SessionFilter.class);
-            }).thenReturn(mockedLogger);
+        filterToTest = new SessionFilter();
+        // Make sure "new InitialContext()" will be invoked
+        filterToTest.setInitialContext(null);
 
-            filterToTest = new SessionFilter();
-            // Make sure "new InitialContext()" will be invoked
-            filterToTest.setInitialContext(null);
-
-            assertThatThrownBy(() -> {
-                filterToTest.init(mockedFilterConfig);
-            }).isInstanceOf(FilterException.class).hasCauseInstanceOf(NamingException.class)
-                .hasCauseInstanceOf(NoInitialContextException.class)
-                .hasMessageContaining("javax.naming.NoInitialContextException");
-            then(mockedLogger).should(times(1)).error(eq(String
-                .format("Error occurred when looking up the named object: %s", JNDI_OIDC_SESSION_MANAGEMENT_CONFIG)),
-                any(NamingException.class));
-        }
+        assertThatThrownBy(() -> {
+            filterToTest.init(mockedFilterConfig);
+        }).isInstanceOf(FilterException.class).hasCauseInstanceOf(NamingException.class)
+            .hasCauseInstanceOf(NoInitialContextException.class)
+            .hasMessageContaining("javax.naming.NoInitialContextException");
+        assertLoggedOnce(Level.ERROR, NamingException.class,
+            String.format("Error occurred when looking up the named object: %s", JNDI_OIDC_SESSION_MANAGEMENT_CONFIG));
     }
 
     @Test
     void init_ShouldThrowException_WhenContextLookUpReturnsNull() throws NamingException {
-        try (MockedStatic<LogManager> mockedLogManager = mockStatic(LogManager.class)) {
-            mockedLogManager.when(() -> {
-                LogManager.getLogger(SessionFilter.class);
-            }).thenReturn(mockedLogger);
-
-            filterToTest = new SessionFilter();
-            // Mock context so that lookup() can be mocked
-            filterToTest.setInitialContext(mockedContext);
+        filterToTest = new SessionFilter();
+        // Mock context so that lookup() can be mocked
+        filterToTest.setInitialContext(mockedContext);
 
-            given(mockedContext.lookup(JNDI_OIDC_SESSION_MANAGEMENT_CONFIG)).willReturn(null);
+        given(mockedContext.lookup(JNDI_OIDC_SESSION_MANAGEMENT_CONFIG)).willReturn(null);
 
-            String erroMsg = String.format("Could not find the named object: %s", JNDI_OIDC_SESSION_MANAGEMENT_CONFIG);
-            assertThatThrownBy(() -> {
-                filterToTest.init(mockedFilterConfig);
-            }).isInstanceOf(FilterException.class).hasMessageMatching(erroMsg);
-            then(mockedLogger).should(times(1)).error(erroMsg);
-        }
+        String erroMsg = String.format("Could not find the named object: %s", JNDI_OIDC_SESSION_MANAGEMENT_CONFIG);
+        assertThatThrownBy(() -> {
+            filterToTest.init(mockedFilterConfig);
+        }).isInstanceOf(FilterException.class).hasMessageMatching(erroMsg);
+        assertLoggedOnce(Level.ERROR, erroMsg);
     }
 
     @Test
     void init_ShouldThrowException_WhenBaseUrlIsNull() throws NamingException {
-        try (MockedStatic<LogManager> mockedLogManager = mockStatic(LogManager.class)) {
-            mockedLogManager.when(() -> {
-                LogManager.getLogger(SessionFilter.class);
-            }).thenReturn(mockedLogger);
+        filterToTest = new SessionFilter();
+        // Mock context so that lookup() can be mocked
+        filterToTest.setInitialContext(mockedContext);
 
-            filterToTest = new SessionFilter();
-            // Mock context so that lookup() can be mocked
-            filterToTest.setInitialContext(mockedContext);
+        given(mockedContext.lookup(JNDI_OIDC_SESSION_MANAGEMENT_CONFIG))
+            .willReturn(mockedOidcSessionManagementConfig);
+        given(mockedOidcSessionManagementConfig.getBaseUrl()).willReturn(null);
 
-            given(mockedContext.lookup(JNDI_OIDC_SESSION_MANAGEMENT_CONFIG))
-                .willReturn(mockedOidcSessionManagementConfig);
-            given(mockedOidcSessionManagementConfig.getBaseUrl()).willReturn(null);
-
-            assertThatThrownBy(() -> {
-                filterToTest.init(mockedFilterConfig);
-            }).isInstanceOf(FilterException.class).hasMessageMatching("baseUrl is null or empty");
-        }
+        assertThatThrownBy(() -> {
+            filterToTest.init(mockedFilterConfig);
+        }).isInstanceOf(FilterException.class).hasMessageMatching("baseUrl is null or empty");
     }
 
     @Test
     void init_ShouldThrowException_WhenValidateSessionContextPathIsNull() throws NamingException {
-        try (MockedStatic<LogManager> mockedLogManager = mockStatic(LogManager.class)) {
-            mockedLogManager.when(() -> {
-                LogManager.getLogger(SessionFilter.class);
-            }).thenReturn(mockedLogger);
+        filterToTest = new SessionFilter();
+        // Mock context so that lookup() can be mocked
+        filterToTest.setInitialContext(mockedContext);
 
-            filterToTest = new SessionFilter();
-            // Mock context so that lookup() can be mocked
-            filterToTest.setInitialContext(mockedContext);
-
-            given(mockedContext.lookup(JNDI_OIDC_SESSION_MANAGEMENT_CONFIG))
-                .willReturn(mockedOidcSessionManagementConfig);
-            given(mockedOidcSessionManagementConfig.getBaseUrl()).willReturn(FAKED_BASE_URL);
-            given(mockedOidcSessionManagementConfig.getValidateSessionContextPath()).willReturn(null);
+        given(mockedContext.lookup(JNDI_OIDC_SESSION_MANAGEMENT_CONFIG))
+            .willReturn(mockedOidcSessionManagementConfig);
+        given(mockedOidcSessionManagementConfig.getBaseUrl()).willReturn(FAKED_BASE_URL);
+        given(mockedOidcSessionManagementConfig.getValidateSessionContextPath()).willReturn(null);
 
-            assertThatThrownBy(() -> {
-                filterToTest.init(mockedFilterConfig);
-            }).isInstanceOf(FilterException.class).hasMessageMatching("validateSessionContextPath is null or empty");
-        }
+        assertThatThrownBy(() -> {
+            filterToTest.init(mockedFilterConfig);
+        }).isInstanceOf(FilterException.class).hasMessageMatching("validateSessionContextPath is null or empty");
     }
 
     @Test
     void init_ShouldThrowException_WhenRefreshSessionContextPathIsNull() throws NamingException {
-        try (MockedStatic<LogManager> mockedLogManager = mockStatic(LogManager.class)) {
-            mockedLogManager.when(() -> {
-                LogManager.getLogger(SessionFilter.class);
-            }).thenReturn(mockedLogger);
-
-            filterToTest = new SessionFilter();
-            // Mock context so that lookup() can be mocked
-            filterToTest.setInitialContext(mockedContext);
-
-            given(mockedContext.lookup(JNDI_OIDC_SESSION_MANAGEMENT_CONFIG))
-                .willReturn(mockedOidcSessionManagementConfig);
-            given(mockedOidcSessionManagementConfig.getBaseUrl()).willReturn(FAKED_BASE_URL);
-            given(mockedOidcSessionManagementConfig.getValidateSessionContextPath())
-                .willReturn(FAKED_VALIDATE_SESSION_CONTEXTPATH);
-            given(mockedOidcSessionManagementConfig.getRefreshSessionContextPath()).willReturn(null);
-
-            assertThatThrownBy(() -> {
-                filterToTest.init(mockedFilterConfig);
-            }).isInstanceOf(FilterException.class).hasMessageMatching("refreshSessionContextPath is null or empty");
-        }
+        filterToTest = new SessionFilter();
+        // Mock context so that lookup() can be mocked
+        filterToTest.setInitialContext(mockedContext);
+
+        given(mockedContext.lookup(JNDI_OIDC_SESSION_MANAGEMENT_CONFIG))
+            .willReturn(mockedOidcSessionManagementConfig);
+        given(mockedOidcSessionManagementConfig.getBaseUrl()).willReturn(FAKED_BASE_URL);
+        given(mockedOidcSessionManagementConfig.getValidateSessionContextPath())
+            .willReturn(FAKED_VALIDATE_SESSION_CONTEXTPATH);
+        given(mockedOidcSessionManagementConfig.getRefreshSessionContextPath()).willReturn(null);
+
+        assertThatThrownBy(() -> {
+            filterToTest.init(mockedFilterConfig);
+        }).isInstanceOf(FilterException.class).hasMessageMatching("refreshSessionContextPath is null or empty");
     }
 
     @Test
     void init_ShouldThrowException_WhenOidcClientIdIsNull() throws NamingException {
-        try (MockedStatic<LogManager> mockedLogManager = mockStatic(LogManager.class)) {
-            mockedLogManager.when(() -> {
-                LogManager.getLogger(SessionFilter.class);
-            }).thenReturn(mockedLogger);
-
-            filterToTest = new SessionFilter();
-            // Mock context so that lookup() can be mocked
-            filterToTest.setInitialContext(mockedContext);
-
-            given(mockedContext.lookup(JNDI_OIDC_SESSION_MANAGEMENT_CONFIG))
-                .willReturn(mockedOidcSessionManagementConfig);
-            given(mockedOidcSessionManagementConfig.getBaseUrl()).willReturn(FAKED_BASE_URL);
-            given(mockedOidcSessionManagementConfig.getValidateSessionContextPath())
-                .willReturn(FAKED_VALIDATE_SESSION_CONTEXTPATH);
-            given(mockedOidcSessionManagementConfig.getRefreshSessionContextPath())
-                .willReturn(FAKED_REFRESH_SESSION_CONTEXTPATH);
-            given(mockedOidcSessionManagementConfig.getOidcClientId()).willReturn(null);
-
-            assertThatThrownBy(() -> {
-                filterToTest.init(mockedFilterConfig);
-            }).isInstanceOf(FilterException.class).hasMessageMatching("oidcClientId is null or empty");
-        }
+        filterToTest = new SessionFilter();
+        // Mock context so that lookup() can be mocked
+        filterToTest.setInitialContext(mockedContext);
+
+        given(mockedContext.lookup(JNDI_OIDC_SESSION_MANAGEMENT_CONFIG))
+            .willReturn(mockedOidcSessionManagementConfig);
+        given(mockedOidcSessionManagementConfig.getBaseUrl()).willReturn(FAKED_BASE_URL);
+        given(mockedOidcSessionManagementConfig.getValidateSessionContextPath())
+            .willReturn(FAKED_VALIDATE_SESSION_CONTEXTPATH);
+        given(mockedOidcSessionManagementConfig.getRefreshSessionContextPath())
+            .willReturn(FAKED_REFRESH_SESSION_CONTEXTPATH);
+        given(mockedOidcSessionManagementConfig.getOidcClientId()).willReturn(null);
+
+        assertThatThrownBy(() -> {
+            filterToTest.init(mockedFilterConfig);
+        }).isInstanceOf(FilterException.class).hasMessageMatching("oidcClientId is null or empty");
     }
 
     @Test
     void init_ShouldWork_WhenContextLookUpSucceeded() throws NamingException {
-        try (MockedStatic<LogManager> mockedLogManager = mockStatic(LogManager.class)) {
-            mockedLogManager.when(() -> {
-                LogManager.getLogger(SessionFilter.class);
-            }).thenReturn(mockedLogger);
-
-            filterToTest = new SessionFilter();
-            // Mock context so that lookup() can be mocked
-            filterToTest.setInitialContext(mockedContext);
-
-            given(mockedContext.lookup(JNDI_OIDC_SESSION_MANAGEMENT_CONFIG))
-                .willReturn(mockedOidcSessionManagementConfig);
-            given(mockedOidcSessionManagementConfig.getBaseUrl()).willReturn(FAKED_BASE_URL);
-            given(mockedOidcSessionManagementConfig.getValidateSessionContextPath())
-                .willReturn(FAKED_VALIDATE_SESSION_CONTEXTPATH);
-            given(mockedOidcSessionManagementConfig.getRefreshSessionContextPath())
-                .willReturn(FAKED_REFRESH_SESSION_CONTEXTPATH);
-            given(mockedOidcSessionManagementConfig.getOidcClientId()).willReturn(FAKED_OIDC_CLIENT_ID);
-
-            filterToTest.init(mockedFilterConfig);
-
-            then(mockedLogger).should(times(1)).info(
-                "OIDC session management configuration parameters: baserUrl={}, validateSessionContextPath={}, refreshSessionContextPath={}",
-                FAKED_BASE_URL, FAKED_VALIDATE_SESSION_CONTEXTPATH, FAKED_REFRESH_SESSION_CONTEXTPATH);
-            then(mockedLogger).should(times(1)).info("Successfully initialized filter");
-            then(mockedLogger).should(times(1)).traceExit();
-            assertThat(filterToTest.getBaseUrl()).isNotBlank().isEqualTo(FAKED_BASE_URL);
-            assertThat(filterToTest.getValidateSessionContextPath()).isNotBlank()
-                .isEqualTo(FAKED_VALIDATE_SESSION_CONTEXTPATH);
-            assertThat(filterToTest.getRefreshSessionContextPath()).isNotBlank()
-                .isEqualTo(FAKED_REFRESH_SESSION_CONTEXTPATH);
-        }
+        filterToTest = new SessionFilter();
+        // Mock context so that lookup() can be mocked
+        filterToTest.setInitialContext(mockedContext);
+
+        given(mockedContext.lookup(JNDI_OIDC_SESSION_MANAGEMENT_CONFIG))
+            .willReturn(mockedOidcSessionManagementConfig);
+        given(mockedOidcSessionManagementConfig.getBaseUrl()).willReturn(FAKED_BASE_URL);
+        given(mockedOidcSessionManagementConfig.getValidateSessionContextPath())
+            .willReturn(FAKED_VALIDATE_SESSION_CONTEXTPATH);
+        given(mockedOidcSessionManagementConfig.getRefreshSessionContextPath())
+            .willReturn(FAKED_REFRESH_SESSION_CONTEXTPATH);
+        given(mockedOidcSessionManagementConfig.getOidcClientId()).willReturn(FAKED_OIDC_CLIENT_ID);
+        given(mockedOidcSessionManagementConfig.getRefreshIntervalInSeconds()).willReturn(30L);
+
+        filterToTest.init(mockedFilterConfig);
+
+        assertLoggedOnce(Level.INFO,
+            "OIDC session management configuration parameters: baserUrl={}, validateSessionContextPath={}, refreshSessionContextPath={}",
+            FAKED_BASE_URL, FAKED_VALIDATE_SESSION_CONTEXTPATH, FAKED_REFRESH_SESSION_CONTEXTPATH);
+        assertLoggedOnce(Level.INFO, "Successfully initialized filter");
+        assertLoggedOnce(Level.TRACE, "Exit");
+        assertThat(filterToTest.getBaseUrl()).isNotBlank().isEqualTo(FAKED_BASE_URL);
+        assertThat(filterToTest.getValidateSessionContextPath()).isNotBlank()
+            .isEqualTo(FAKED_VALIDATE_SESSION_CONTEXTPATH);
+        assertThat(filterToTest.getRefreshSessionContextPath()).isNotBlank()
+            .isEqualTo(FAKED_REFRESH_SESSION_CONTEXTPATH);
     }
 
     @Test
     void doFilter_ShouldNotRefreshSession_WhenContainerHttpSessionIsNull() throws NamingException {
-        try (MockedStatic<LogManager> mockedLogManager = mockStatic(LogManager.class)) {
-            mockedLogManager.when(() -> {
-                LogManager.getLogger(SessionFilter.class);
-            }).thenReturn(mockedLogger);
+        filterToTest = new SessionFilter();
 
-            filterToTest = new SessionFilter();
+        given(mockedRequest.getSession()).willReturn(null);
 
-            given(mockedRequest.getSession()).willReturn(null);
+        filterToTest.doFilter(mockedRequest, mockedResponse, mockedFilterChain);
 
-            filterToTest.doFilter(mockedRequest, mockedResponse, mockedFilterChain);
-
-            then(mockedLogger).should(times(1)).error(eq(String.format(ERROR_MSG_VALIDATE_REFRESH_SESSION,
-                "Container HTTP session is null. Session may be expired")), any(NullPointerException.class));
-            then(mockedFilterChain).should(times(1)).doFilter(mockedRequest, mockedResponse);
-        }
+        assertLoggedOnce(Level.ERROR, NullPointerException.class, ERROR_MSG_VALIDATE_REFRESH_SESSION,
+            "Container HTTP session is null. Session may be expired");
+        then(mockedFilterChain).should(times(1)).doFilter(mockedRequest, mockedResponse);
     }
 
     @Test
     void doFilter_ShouldNotRefreshSession_WhenOidcSessionIsNotValid() {
-        try (MockedStatic<LogManager> mockedLogManager = mockStatic(LogManager.class)) {
-            mockedLogManager.when(() -> {
-                LogManager.getLogger(SessionFilter.class);
-            }).thenReturn(mockedLogger);
+        filterToTest = new SessionFilter();
 
-            filterToTest = new SessionFilter();
-
-            given(mockedRequest.getSession()).willReturn(mockedHttpSession);
-            given(mockedHttpSession.getAttribute(OIDC_ACCESS_TOKEN_KEY)).willReturn(null);
+        given(mockedRequest.getSession()).willReturn(mockedHttpSession);
+        given(mockedHttpSession.getAttribute(OIDC_ACCESS_TOKEN_KEY)).willReturn(null);
 
-            filterToTest.doFilter(mockedRequest, mockedResponse, mockedFilterChain);
+        filterToTest.doFilter(mockedRequest, mockedResponse, mockedFilterChain);
 
-            then(mockedLogger).should(times(1)).warn(String.format(
-                "Could not retrieve access token. Container HTTP session may be expired. No OIDC session refreshing"));
-            then(mockedFilterChain).should(times(1)).doFilter(mockedRequest, mockedResponse);
-        }
+        assertLoggedOnce(Level.WARN,
+            "Could not retrieve access token. Container HTTP session may be expired. No OIDC session refreshing");
+        then(mockedFilterChain).should(times(1)).doFilter(mockedRequest, mockedResponse);
     }
 
     static Stream<Integer> lessThanOrEqualTo30Provider() {
@@ -372,7 +315,7 @@ class SessionFilterStaticMockTest {
     void doFilter_ShouldNotRefreshSession_WhenContainerHttpSessionHasAccessTokenAndHasLastRefreshedDateTimeLessThanOrEqualTo30Seconds(
         Integer interval) {
         String logMessage = "OIDC session has been refreshed recently (Last refreshed: {}). No need to refresh at this time. sub={}, OidcSessionRef={}";
-        lastRefreshedTimeTestHelper(interval, logMessage);
+        lastRefreshedTimeTestHelper(interval, logMessage, false);
     }
 
     static Stream<Integer> moreThan30Provider() {
@@ -384,46 +327,55 @@ class SessionFilterStaticMockTest {
     void doFilter_ShouldNotRefreshSession_WhenContainerHttpSessionHasAccessTokenAndHasLastRefreshedDateTimeMoreThan30Seconds(
         Integer interval) {
         String logMessage = "It's time to try refreshing OIDC session (Last refreshed: {}). sub={}, OidcSessionRef={}";
-        lastRefreshedTimeTestHelper(interval, logMessage);
+        lastRefreshedTimeTestHelper(interval, logMessage, true);
     }
 
-    private void lastRefreshedTimeTestHelper(Integer interval, String logMessage) {
+    private void lastRefreshedTimeTestHelper(Integer interval, String logMessage, boolean isDue) {
         sub = "stub-sub";
         oidcSessionRef = "stub-oidc-session-ref";
-        LocalDateTime currentDateTime = LocalDateTime.now();
-        LocalDateTime lastRefreshedDateTime = interval == null ? null : currentDateTime.minusSeconds(interval);
-        try (MockedStatic<LogManager> mockedLogManager = mockStatic(LogManager.class);
-            MockedStatic<LocalDateTime> mockedLocalDateTime = mockStatic(LocalDateTime.class)) {
-            mockedLogManager.when(() -> {
-                LogManager.getLogger(SessionFilter.class);
-            }).thenReturn(mockedLogger);
-
-            mockedLocalDateTime.when(() -> {
-                LocalDateTime.now();
-            }).thenReturn(currentDateTime);
+        Instant now = Instant.ofEpochMilli(System.currentTimeMillis());
+        Instant lastRefreshed = interval == null ? null : now.minusSeconds(interval);
+        filterToTest = new SessionFilter();
+        filterToTest.setClock(Clock.fixed(now, ZoneOffset.UTC));
+
+        given(mockedRequest.getSession()).willReturn(mockedHttpSession);
+        given(mockedHttpSession.getAttribute(OIDC_ACCESS_TOKEN_KEY)).willReturn(FAKED_OIDC_ACCESS_TOKEN_STRING);
+        given(mockedHttpSession.getAttribute(OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY))
+            .willReturn(lastRefreshed == null ? null : lastRefreshed.plusSeconds(30).toEpochMilli());
+
+        filterToTest.doFilter(mockedRequest, mockedResponse, mockedFilterChain);
+
+        if (isDue) {
+            assertLoggedOnce(Level.INFO, logMessage, lastRefreshed, sub, oidcSessionRef);
+        } else {
+            assertLoggedOnce(Level.DEBUG, logMessage, lastRefreshed, sub, oidcSessionRef);
+        }
+        then(mockedFilterChain).should(times(1)).doFilter(mockedRequest, mockedResponse);
+        assertLoggedOnce(Level.DEBUG, "Successfully performed filter function");
+    }
 
+    @Test
+    void doFilter_ShouldNotDecodeClaims_WhenSessionIsNotDueForRefresh() {
+        // Claims are decoded for debug logging
+        Configurator.setLevel(SessionFilter.class.getName(), Level.INFO);
+        try (MockedStatic<OidcClientHelper> mockedOidcClientHelper = mockStatic(OidcClientHelper.class)) {
             filterToTest = new SessionFilter();
 
             given(mockedRequest.getSession()).willReturn(mockedHttpSession);
             given(mockedHttpSession.getAttribute(OIDC_ACCESS_TOKEN_KEY)).willReturn(FAKED_OIDC_ACCESS_TOKEN_STRING);
-            given(mockedHttpSession.getAttribute(OIDC_LAST_REFRESHED_DATETIME_KEY)).willReturn(lastRefreshedDateTime);
+            given(mockedHttpSession.getAttribute(OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY))
+                .willReturn(System.currentTimeMillis() + 30000);
 
             filterToTest.doFilter(mockedRequest, mockedResponse, mockedFilterChain);
 
-            then(mockedLogger).should(times(1)).info(logMessage, lastRefreshedDateTime, sub, oidcSessionRef);
+            mockedOidcClientHelper.verifyNoInteractions();
             then(mockedFilterChain).should(times(1)).doFilter(mockedRequest, mockedResponse);
-            then(mockedLogger).should(times(1)).info("Successfully performed filter function");
         }
     }
 
     @Test
     void doFilter_ShouldNotRefreshSession_WhenAccessTokenHasNoIdToken() {
-        try (MockedStatic<LogManager> mockedLogManager = mockStatic(LogManager.class);
-            MockedStatic<OidcClientHelper> mockedOidcClientHelper = mockStatic(OidcClientHelper.class);) {
-            mockedLogManager.when(() -> {
-                LogManager.getLogger(SessionFilter.class);
-            }).thenReturn(mockedLogger);
-
+        try (MockedStatic<OidcClientHelper> mockedOidcClientHelper = mockStatic(OidcClientHelper.class)) {
             mockedOidcClientHelper.when(() -> {
                 OidcClientHelper.getIdTokenFromAccessToken(anyString());
             }).thenReturn(null);
@@ -436,14 +388,108 @@ class SessionFilterStaticMockTest {
 
             given(mockedRequest.getSession()).willReturn(mockedHttpSession);
             given(mockedHttpSession.getAttribute(OIDC_ACCESS_TOKEN_KEY)).willReturn(FAKED_OIDC_ACCESS_TOKEN_STRING);
+            // Claims are only decoded when the session is due for refresh
+            given(mockedHttpSession.getAttribute(OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY))
+                .willReturn(System.currentTimeMillis() - 30000);
 
             filterToTest.doFilter(mockedRequest, mockedResponse, mockedFilterChain);
 
-            then(mockedLogger).should(times(1)).error(
-                eq(String.format(ERROR_MSG_VALIDATE_REFRESH_SESSION,
-                    "Could not get JWT claims from ID token: ID token is null or empty")),
-                any(IllegalArgumentException.class));
+            assertLoggedOnce(Level.ERROR, IllegalArgumentException.class, ERROR_MSG_VALIDATE_REFRESH_SESSION,
+                "Could not get JWT claims from ID token: ID token is null or empty");
             then(mockedFilterChain).should(times(1)).doFilter(mockedRequest, mockedResponse);
         }
     }
+
+    @Test
+    void doFilter_ShouldDecodeClaimsOnce_WhenSameAccessTokenIsSeenAgain() {
+        try (MockedStatic<OidcClientHelper> mockedOidcClientHelper = mockStatic(OidcClientHelper.class)) {
+            mockedOidcClientHelper.when(() -> {
+                OidcClientHelper.getIdTokenFromAccessToken(FAKED_OIDC_ACCESS_TOKEN_STRING);
+            }).thenReturn("stub-id-token");
+            mockedOidcClientHelper.when(() -> {
+                OidcClientHelper.getJwtClaimsFromIdTokenAsMap("stub-id-token");
+            }).thenReturn(new HashMap<>(Map.of("sub", "stub-sub", "oidc-session-ref", "stub-oidc-session-ref")));
+
+            filterToTest = new SessionFilter();
+
+            given(mockedRequest.getSession()).willReturn(mockedHttpSession);
+            given(mockedHttpSession.getAttribute(OIDC_ACCESS_TOKEN_KEY)).willReturn(FAKED_OIDC_ACCESS_TOKEN_STRING);
+            given(mockedHttpSession.getAttribute(OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY))
+                .willReturn(System.currentTimeMillis() - 30000);
+
+            filterToTest.doFilter(mockedRequest, mockedResponse, mockedFilterChain);
+            filterToTest.doFilter(mockedRequest, mockedResponse, mockedFilterChain);
+
+            mockedOidcClientHelper.verify(times(1), () -> {
+                OidcClientHelper.getJwtClaimsFromIdTokenAsMap("stub-id-token");
+            });
+            then(mockedFilterChain).should(times(2)).doFilter(mockedRequest, mockedResponse);
+        }
+    }
+
+    @Test
+    void doFilter_ShouldDecodeClaimsAgain_WhenIdTokenHasExpired() {
+        try (MockedStatic<OidcClientHelper> mockedOidcClientHelper = mockStatic(OidcClientHelper.class)) {
+            String expiredAt = String.valueOf(System.currentTimeMillis() / 1000 - 1);
+            mockedOidcClientHelper.when(() -> {
+                OidcClientHelper.getIdTokenFromAccessToken(FAKED_OIDC_ACCESS_TOKEN_STRING);
+            }).thenReturn("stub-id-token");
+            mockedOidcClientHelper.when(() -> {
+                OidcClientHelper.getJwtClaimsFromIdTokenAsMap("stub-id-token");
+            }).thenReturn(new HashMap<>(Map.of("sub", "stub-sub", "oidc-session-ref", "stub-oidc-session-ref",
+                "exp", expiredAt)));
+
+            filterToTest = new SessionFilter();
+
+            given(mockedRequest.getSession()).willReturn(mockedHttpSession);
+            given(mockedHttpSession.getAttribute(OIDC_ACCESS_TOKEN_KEY)).willReturn(FAKED_OIDC_ACCESS_TOKEN_STRING);
+            given(mockedHttpSession.getAttribute(OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY))
+                .willReturn(System.currentTimeMillis() - 30000);
+
+            filterToTest.doFilter(mockedRequest, mockedResponse, mockedFilterChain);
+            filterToTest.doFilter(mockedRequest, mockedResponse, mockedFilterChain);
+
+            mockedOidcClientHelper.verify(times(2), () -> {
+                OidcClientHelper.getJwtClaimsFromIdTokenAsMap("stub-id-token");
+            });
+        }
+    }
+
+    private void assertLoggedOnce(Level level, String format, Object... parameters) {
+        assertThat(logEventCaptor.getMessages(level)).containsOnlyOnce(ParameterizedMessage.format(format, parameters));
+    }
+
+    private void assertLoggedOnce(Level level, Class<? extends Throwable> thrownType, String format,
+        Object... parameters) {
+        assertThat(logEventCaptor.getEvents())
+            .filteredOn(event -> event.getLevel() == level && thrownType.isInstance(event.getThrown()))
+            .extracting(event -> event.getMessage().getFormattedMessage())
+            .containsOnlyOnce(ParameterizedMessage.format(format, parameters));
+    }
+
+    /**
+     * Appender keeping the events logged during a test.
+     */
+    private static final class LogEventCaptor extends AbstractAppender {
+        private final List<LogEvent> events = new CopyOnWriteArrayList<>();
+
+        private LogEventCaptor() {
+            super("LogEventCaptor", null, null, true, Property.EMPTY_ARRAY);
+        }
+
+        @Override
+        public void append(LogEvent event) {
+            // Events may be reused by the logger once appended
+            events.add(event.toImmutable());
+        }
+
+        private List<LogEvent> getEvents() {
+            return events;
+        }
+
+        private List<String> getMessages(Level level) {
+            return events.stream().filter(event -> event.getLevel() == level)
+                .map(event -> event.getMessage().getFormattedMessage()).collect(Collectors.toList());
+        }
+    }
 }
@@ -0,0 +1,672 @@
+package net.huizha.examples.junit5_mockito;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.naming.InitialContext;
+import javax.servlet.http.HttpSession;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+
+import net.huizha.examples.filters.AsyncFilterChain;
+import net.huizha.examples.filters.FilterChain;
+import net.huizha.examples.filters.FilterConfig;
+import net.huizha.examples.filters.FilterException;
+import net.huizha.examples.metrics.Counter;
+import net.huizha.examples.metrics.Gauge;
+import net.huizha.examples.metrics.MetricRegistry;
+import net.huizha.examples.requestresponse.Request;
+import net.huizha.examples.requestresponse.Response;
+
+/**
+ * Tests of {@link SessionFilter} calling an in-process stub session management service.
+ *
+ * @author Zhahui
+ *
+ */
+class SessionFilterStubServerTest {
+    private static final String OIDC_ACCESS_TOKEN_KEY = "oidc-access-token";
+    private static final String JNDI_OIDC_SESSION_MANAGEMENT_CONFIG = "java:comp/env/config/OidcSessionManagementConfig";
+    private static final String OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY = "oidc-next-refresh-epoch-millis";
+    private static final String FAKED_OIDC_CLIENT_ID = "faked-oidc-client-id";
+    private static final String FAKED_OIDC_ACCESS_TOKEN_STRING = "faked-access-token-string";
+    private static final String BATCH_REFRESH_MAX_SIZE_PARAM = "oidc-batch-refresh-max-size";
+    private static final String BATCH_REFRESH_INTERVAL_PARAM = "oidc-batch-refresh-interval-in-milliseconds";
+    private static final String CIRCUIT_BREAKER_ENABLED_PARAM = "oidc-circuit-breaker-enabled";
+    private static final String CIRCUIT_BREAKER_FAILURE_RATE_THRESHOLD_PARAM = "oidc-circuit-breaker-failure-rate-threshold";
+    private static final String CIRCUIT_BREAKER_SLIDING_WINDOW_SIZE_PARAM = "oidc-circuit-breaker-sliding-window-size";
+    private static final String CIRCUIT_BREAKER_MINIMUM_NUMBER_OF_CALLS_PARAM = "oidc-circuit-breaker-minimum-number-of-calls";
+    private static final String INVALID_SESSION_CACHE_TTL_PARAM = "oidc-invalid-session-cache-ttl-in-seconds";
+    private static final String METRICS_JMX_ENABLED_PARAM = "oidc-metrics-jmx-enabled";
+    private static final String METRICS_REPORTER_CLASS_PARAM = "oidc-metrics-reporter-class";
+    private static final String JWKS_URI_PARAM = "oidc-jwks-uri";
+    private static final String CONFIG_RELOAD_INTERVAL_PARAM = "oidc-config-reload-interval-in-seconds";
+    private static final String ENDPOINT_EJECTION_CONSECUTIVE_FAILURES_PARAM = "oidc-endpoint-ejection-consecutive-failures";
+    private static final String HEDGING_ENABLED_PARAM = "oidc-hedging-enabled";
+    private static final String HEDGING_MIN_DELAY_PARAM = "oidc-hedging-min-delay-in-milliseconds";
+    private static final String HEDGING_MAX_PERCENT_PARAM = "oidc-hedging-max-percent";
+    private static final String UNKNOWN_CONTEXT_PATH = "/session/unknown";
+    private static final String JWKS_PATH = "/jwks";
+    private static final long VERIFY_TIMEOUT_IN_MILLISECONDS = 5000;
+
+    private StubSessionManagementServer stubServer;
+    private OidcSessionManagementConfig oidcSessionManagementConfig;
+    private SessionFilter filterToTest;
+    private FilterConfig mockedFilterConfig;
+    private Request mockedRequest;
+    private Response mockedResponse;
+    private FilterChain mockedFilterChain;
+    private HttpSession mockedHttpSession;
+
+    @BeforeEach
+    void setUpBeforeEach() throws Exception {
+        stubServer = new StubSessionManagementServer();
+
+        oidcSessionManagementConfig = new OidcSessionManagementConfig();
+        oidcSessionManagementConfig.setBaseUrl(stubServer.getBaseUrl());
+        oidcSessionManagementConfig
+            .setValidateSessionContextPath(StubSessionManagementServer.VALIDATE_SESSION_CONTEXT_PATH);
+        oidcSessionManagementConfig
+            .setRefreshSessionContextPath(StubSessionManagementServer.REFRESH_SESSION_CONTEXT_PATH);
+        oidcSessionManagementConfig.setOidcClientId(FAKED_OIDC_CLIENT_ID);
+        InitialContext mockedContext = mock(InitialContext.class);
+        given(mockedContext.lookup(JNDI_OIDC_SESSION_MANAGEMENT_CONFIG)).willReturn(oidcSessionManagementConfig);
+
+        mockedFilterConfig = mock(FilterConfig.class);
+        mockedRequest = mock(Request.class);
+        mockedResponse = mock(Response.class);
+        mockedFilterChain = mock(FilterChain.class);
+        mockedHttpSession = mock(HttpSession.class);
+        given(mockedRequest.getSession()).willReturn(mockedHttpSession);
+        given(mockedHttpSession.getAttribute(OIDC_ACCESS_TOKEN_KEY)).willReturn(FAKED_OIDC_ACCESS_TOKEN_STRING);
+        given(mockedHttpSession.getAttribute(OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY))
+            .willReturn(System.currentTimeMillis() - 30000);
+
+        filterToTest = new SessionFilter();
+        filterToTest.setInitialContext(mockedContext);
+    }
+
+    @AfterEach
+    void cleanUpAfterEach() {
+        filterToTest.destroy();
+        stubServer.close();
+    }
+
+    @Test
+    void doFilter_ShouldValidateAndRefreshSessionInOneCall_WhenCombinedContextPathIsConfigured() {
+        oidcSessionManagementConfig.setValidateAndRefreshSessionContextPath(
+            StubSessionManagementServer.VALIDATE_AND_REFRESH_SESSION_CONTEXT_PATH);
+        filterToTest.init(mockedFilterConfig);
+
+        filterToTest.doFilter(mockedRequest, mockedResponse, mockedFilterChain);
+
+        assertThat(filterToTest.getValidateAndRefreshSessionContextPath())
+            .isEqualTo(StubSessionManagementServer.VALIDATE_AND_REFRESH_SESSION_CONTEXT_PATH);
+        assertThat(
+            stubServer.getRequestCount(StubSessionManagementServer.VALIDATE_AND_REFRESH_SESSION_CONTEXT_PATH))
+                .isEqualTo(1);
+        assertThat(stubServer.getRequestCount(StubSessionManagementServer.VALIDATE_SESSION_CONTEXT_PATH)).isZero();
+        assertThat(stubServer.getRequestCount(StubSessionManagementServer.REFRESH_SESSION_CONTEXT_PATH)).isZero();
+        then(mockedHttpSession).should().setAttribute(eq(OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY),
+            anyLong());
+        then(mockedFilterChain).should().doFilter(mockedRequest, mockedResponse);
+    }
+
+    @Test
+    void doFilter_ShouldValidateAndRefreshSessionInTwoCalls_WhenCombinedContextPathIsBlank() {
+        oidcSessionManagementConfig.setValidateAndRefreshSessionContextPath(" ");
+        filterToTest.init(mockedFilterConfig);
+
+        filterToTest.doFilter(mockedRequest, mockedResponse, mockedFilterChain);
+
+        assertThat(filterToTest.getValidateAndRefreshSessionContextPath()).isNull();
+        assertThat(stubServer.getRequestCount(StubSessionManagementServer.VALIDATE_SESSION_CONTEXT_PATH))
+            .isEqualTo(1);
+        assertThat(stubServer.getRequestCount(StubSessionManagementServer.REFRESH_SESSION_CONTEXT_PATH))
+            .isEqualTo(1);
+    }
+
+    @Test
+    void doFilter_ShouldNotRefreshSession_WhenCombinedCallReportsSessionIsNotValid() {
+        oidcSessionManagementConfig.setValidateAndRefreshSessionContextPath(
+            StubSessionManagementServer.VALIDATE_AND_REFRESH_SESSION_CONTEXT_PATH);
+        stubServer.respondWith(StubSessionManagementServer.VALIDATE_AND_REFRESH_SESSION_CONTEXT_PATH,
+            "{\"valid\": false}");
+        filterToTest.init(mockedFilterConfig);
+
+        filterToTest.doFilter(mockedRequest, mockedResponse, mockedFilterChain);
+
+        assertThat(
+            stubServer.getRequestCount(StubSessionManagementServer.VALIDATE_AND_REFRESH_SESSION_CONTEXT_PATH))
+                .isEqualTo(1);
+        assertThat(stubServer.getLastRequestHeader(
+            StubSessionManagementServer.VALIDATE_AND_REFRESH_SESSION_CONTEXT_PATH, "client-id"))
+                .isEqualTo(FAKED_OIDC_CLIENT_ID);
+        then(mockedFilterChain).should().doFilter(mockedRequest, mockedResponse);
+    }
+
+    @Test
+    void doFilter_ShouldRefreshSessionsInOneBatchCallAndWriteOutcomeBackToEachSession_WhenBatchContextPathIsConfigured() {
+        oidcSessionManagementConfig
+            .setBatchRefreshSessionContextPath(StubSessionManagementServer.BATCH_REFRESH_SESSION_CONTEXT_PATH);
+        given(mockedFilterConfig.getInitParameter(BATCH_REFRESH_MAX_SIZE_PARAM)).willReturn("3");
+        given(mockedFilterConfig.getInitParameter(BATCH_REFRESH_INTERVAL_PARAM)).willReturn("60000");
+        stubServer.invalidate("ref-2");
+        filterToTest.init(mockedFilterConfig);
+
+        HttpSession[] httpSessions = new HttpSession[3];
+        try (MockedStatic<OidcClientHelper> mockedOidcClientHelper = mockStatic(OidcClientHelper.class)) {
+            mockedOidcClientHelper.when(() -> {
+                OidcClientHelper.getIdTokenFromAccessToken(anyString());
+            }).thenAnswer(invocation -> invocation.getArgument(0));
+            mockedOidcClientHelper.when(() -> {
+                OidcClientHelper.getJwtClaimsFromIdTokenAsMap(anyString());
+            }).thenAnswer(invocation -> Map.of("sub", "sub", "oidc-session-ref", invocation.getArgument(0)));
+
+            for (int i = 0; i < httpSessions.length; i++) {
+                httpSessions[i] = mock(HttpSession.class);
+                given(httpSessions[i].getAttribute(OIDC_ACCESS_TOKEN_KEY)).willReturn("ref-" + i);
+                given(httpSessions[i].getAttribute(OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY))
+                    .willReturn(System.currentTimeMillis() - 30000);
+                Request request = mock(Request.class);
+                given(request.getSession()).willReturn(httpSessions[i]);
+                filterToTest.doFilter(request, mockedResponse, mockedFilterChain);
+                then(mockedFilterChain).should().doFilter(request, mockedResponse);
+            }
+        }
+
+        for (HttpSession httpSession : httpSessions) {
+            then(httpSession).should(timeout(VERIFY_TIMEOUT_IN_MILLISECONDS))
+                .setAttribute(eq(OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY), anyLong());
+        }
+        assertThat(stubServer.getBatchRequestBodies())
+            .containsExactly("{\"oidc-session-refs\":[\"ref-0\",\"ref-1\",\"ref-2\"]}");
+        assertThat(stubServer.getRequestCount(StubSessionManagementServer.VALIDATE_SESSION_CONTEXT_PATH)).isZero();
+        assertThat(stubServer.getRequestCount(StubSessionManagementServer.REFRESH_SESSION_CONTEXT_PATH)).isZero();
+    }
+
+    @Test
+    void doFilterAsync_ShouldNotContinueChainOnBatchingThread_WhenBatchContextPathIsConfigured() throws Exception {
+        oidcSessionManagementConfig
+            .setBatchRefreshSessionContextPath(StubSessionManagementServer.BATCH_REFRESH_SESSION_CONTEXT_PATH);
+        given(mockedFilterConfig.getInitParameter(BATCH_REFRESH_MAX_SIZE_PARAM)).willReturn("1");
+        filterToTest.init(mockedFilterConfig);
+        AtomicReference<Thread> chainThread = new AtomicReference<>();
+        AsyncFilterChain asyncFilterChain = (request, response) -> {
+            chainThread.set(Thread.currentThread());
+            return CompletableFuture.completedFuture(null);
+        };
+        stubServer.holdResponses();
+
+        CompletionStage<Void> stage = filterToTest.doFilterAsync(mockedRequest, mockedResponse, asyncFilterChain);
+        stubServer.releaseResponses();
+        stage.toCompletableFuture().get(VERIFY_TIMEOUT_IN_MILLISECONDS, TimeUnit.MILLISECONDS);
+
+        assertThat(stubServer.getBatchRequestBodies()).hasSize(1);
+        assertThat(chainThread.get().getName()).doesNotStartWith("oidc-session-refresh")
+            .startsWith(RefreshExecutors.CONTINUATION_THREAD_NAME_PREFIX);
+    }
+
+    @Test
+    void doFilter_ShouldNotWriteOutcomeBackToSession_WhenBatchCallFails() throws InterruptedException {
+        oidcSessionManagementConfig.setBatchRefreshSessionContextPath("/unknown");
+        given(mockedFilterConfig.getInitParameter(BATCH_REFRESH_MAX_SIZE_PARAM)).willReturn("1");
+        filterToTest.init(mockedFilterConfig);
+
+        filterToTest.doFilter(mockedRequest, mockedResponse, mockedFilterChain);
+
+        long deadline = System.currentTimeMillis() + VERIFY_TIMEOUT_IN_MILLISECONDS;
+        while (stubServer.getRequestCount("/unknown") == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(stubServer.getRequestCount("/unknown")).isEqualTo(1);
+        then(mockedFilterChain).should().doFilter(mockedRequest, mockedResponse);
+        then(mockedHttpSession).should(never()).setAttribute(eq(OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY),
+            anyLong());
+    }
+
+    @Test
+    void doFilter_ShouldSkipRefreshAndPassRequestAlongChain_WhenCircuitBreakerIsOpen() {
+        oidcSessionManagementConfig.setValidateSessionContextPath(UNKNOWN_CONTEXT_PATH);
+        given(mockedFilterConfig.getInitParameter(CIRCUIT_BREAKER_ENABLED_PARAM)).willReturn("true");
+        given(mockedFilterConfig.getInitParameter(CIRCUIT_BREAKER_SLIDING_WINDOW_SIZE_PARAM)).willReturn("4");
+        given(mockedFilterConfig.getInitParameter(CIRCUIT_BREAKER_MINIMUM_NUMBER_OF_CALLS_PARAM)).willReturn("2");
+        filterToTest.init(mockedFilterConfig);
+
+        for (int i = 0; i < 3; i++) {
+            filterToTest.doFilter(mockedRequest, mockedResponse, mockedFilterChain);
+        }
+
+        assertThat(filterToTest.getCircuitBreakerState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(stubServer.getRequestCount(UNKNOWN_CONTEXT_PATH)).isEqualTo(2);
+        then(mockedFilterChain).should(times(3)).doFilter(mockedRequest, mockedResponse);
+    }
+
+    @Test
+    void init_ShouldThrowException_WhenCircuitBreakerThresholdIsAbove100Percent() {
+        given(mockedFilterConfig.getInitParameter(CIRCUIT_BREAKER_ENABLED_PARAM)).willReturn("true");
+        given(mockedFilterConfig.getInitParameter(CIRCUIT_BREAKER_FAILURE_RATE_THRESHOLD_PARAM)).willReturn("150");
+
+        assertThatThrownBy(() -> {
+            filterToTest.init(mockedFilterConfig);
+        }).isInstanceOf(FilterException.class).hasMessageContaining("failureRateThreshold");
+    }
+
+    @Test
+    void doFilter_ShouldStretchRefreshInterval_WhenRefreshingResponseReportsSessionLifetime() {
+        Clock fixedClock = Clock.fixed(Instant.now(), ZoneOffset.UTC);
+        filterToTest.setClock(fixedClock);
+        oidcSessionManagementConfig.setMaxRefreshIntervalInSeconds(3600);
+        stubServer.respondWith(StubSessionManagementServer.REFRESH_SESSION_CONTEXT_PATH,
+            "{\"valid\": true, \"expires_in\": 600}");
+        given(mockedHttpSession.getAttribute(OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY))
+            .willReturn(fixedClock.millis() - 1);
+        filterToTest.init(mockedFilterConfig);
+
+        filterToTest.doFilter(mockedRequest, mockedResponse, mockedFilterChain);
+
+        then(mockedHttpSession).should().setAttribute(OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY,
+            fixedClock.millis() + 300000);
+    }
+
+    @Test
+    void init_ShouldThrowException_WhenRefreshJitterIsNotBelow100Percent() {
+        oidcSessionManagementConfig.setRefreshJitterPercent(100);
+
+        assertThatThrownBy(() -> {
+            filterToTest.init(mockedFilterConfig);
+        }).isInstanceOf(FilterException.class).hasMessageContaining("jitter");
+    }
+
+    @Test
+    void doFilter_ShouldNotCallServiceAgain_WhenSessionIsKnownToBeInvalid() {
+        stubServer.respondWith(StubSessionManagementServer.VALIDATE_SESSION_CONTEXT_PATH, "{\"valid\": false}");
+        filterToTest.init(mockedFilterConfig);
+
+        filterToTest.doFilter(mockedRequest, mockedResponse, mockedFilterChain);
+        filterToTest.doFilter(mockedRequest, mockedResponse, mockedFilterChain);
+
+        assertThat(stubServer.getRequestCount(StubSessionManagementServer.VALIDATE_SESSION_CONTEXT_PATH))
+            .isEqualTo(1);
+        assertThat(stubServer.getRequestCount(StubSessionManagementServer.REFRESH_SESSION_CONTEXT_PATH)).isZero();
+        assertThat(filterToTest.getInvalidSessionCacheHitCount()).isEqualTo(1);
+        then(mockedFilterChain).should(times(2)).doFilter(mockedRequest, mockedResponse);
+    }
+
+    @Test
+    void doFilter_ShouldValidateSessionAgain_WhenInvalidSessionCacheEntryHasExpired() {
+        BoundedTtlCacheTest.MutableClock clock = new BoundedTtlCacheTest.MutableClock(System.currentTimeMillis());
+        filterToTest.setClock(clock);
+        stubServer.respondWith(StubSessionManagementServer.VALIDATE_SESSION_CONTEXT_PATH, "{\"valid\": false}");
+        given(mockedFilterConfig.getInitParameter(INVALID_SESSION_CACHE_TTL_PARAM)).willReturn("10");
+        filterToTest.init(mockedFilterConfig);
+        filterToTest.doFilter(mockedRequest, mockedResponse, mockedFilterChain);
+
+        clock.advance(10000);
+        filterToTest.doFilter(mockedRequest, mockedResponse, mockedFilterChain);
+
+        assertThat(stubServer.getRequestCount(StubSessionManagementServer.VALIDATE_SESSION_CONTEXT_PATH))
+            .isEqualTo(2);
+        assertThat(filterToTest.getInvalidSessionCacheHitCount()).isZero();
+        assertThat(filterToTest.getInvalidSessionCacheEvictionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void doFilter_ShouldRecordRequestValidationRefreshAndUpstreamMetrics() {
+        filterToTest.init(mockedFilterConfig);
+
+        filterToTest.doFilter(mockedRequest, mockedResponse, mockedFilterChain);
+
+        MetricRegistry metrics = filterToTest.getMetricRegistry();
+        assertThat(metrics.counter("requests").getCount()).isEqualTo(1);
+        assertThat(metrics.counter("validation.valid").getCount()).isEqualTo(1);
+        assertThat(metrics.counter("refresh.attempted").getCount()).isEqualTo(1);
+        assertThat(metrics.counter("refresh.succeeded").getCount()).isEqualTo(1);
+        assertThat(metrics.counter("refresh.failed").getCount()).isZero();
+        assertThat(metrics.timer("upstream.latency").getCount()).isEqualTo(2);
+        assertThat(metrics.counter("upstream.errors").getCount()).isZero();
+    }
+
+    @Test
+    void doFilter_ShouldCountFailedValidation_WhenServiceRespondsWithErrorStatus() {
+        oidcSessionManagementConfig.setValidateSessionContextPath(UNKNOWN_CONTEXT_PATH);
+        filterToTest.init(mockedFilterConfig);
+
+        filterToTest.doFilter(mockedRequest, mockedResponse, mockedFilterChain);
+
+        MetricRegistry metrics = filterToTest.getMetricRegistry();
+        assertThat(metrics.counter("validation.failed").getCount()).isEqualTo(1);
+        assertThat(metrics.counter("upstream.errors").getCount()).isEqualTo(1);
+        assertThat(metrics.counter("refresh.attempted").getCount()).isZero();
+    }
+
+    @Test
+    void getMetricRegistry_ShouldReportNoEjectedEndpoint_WhenFilterIsNotInitialized() {
+        MetricRegistry metrics = filterToTest.getMetricRegistry();
+
+        assertThat(((Gauge) metrics.getMetric("endpoints.ejected")).getValue()).isZero();
+    }
+
+    @Test
+    void getMetricRegistry_ShouldReportZeroForClosedComponents_WhenFilterIsDestroyed() {
+        given(mockedFilterConfig.getInitParameter(CIRCUIT_BREAKER_ENABLED_PARAM)).willReturn("true");
+        given(mockedFilterConfig.getInitParameter(HEDGING_ENABLED_PARAM)).willReturn("true");
+        filterToTest.init(mockedFilterConfig);
+        filterToTest.doFilter(mockedRequest, mockedResponse, mockedFilterChain);
+        MetricRegistry metrics = filterToTest.getMetricRegistry();
+
+        filterToTest.destroy();
+
+        for (String name : List.of("circuit-breaker.state", "hedging.hedges", "hedging.wins", "endpoints.ejected")) {
+            assertThat(((Gauge) metrics.getMetric(name)).getValue()).as(name).isZero();
+        }
+    }
+
+    @Test
+    void init_ShouldExposeMetricsThroughJmx_WhenJmxIsEnabled() throws JMException {
+        given(mockedFilterConfig.getFilterName()).willReturn("stub-server-test");
+        given(mockedFilterConfig.getInitParameter(METRICS_JMX_ENABLED_PARAM)).willReturn("true");
+        ObjectName objectName = new ObjectName("net.huizha.examples:type=SessionFilter,name=\"stub-server-test\"");
+        filterToTest.init(mockedFilterConfig);
+
+        filterToTest.doFilter(mockedRequest, mockedResponse, mockedFilterChain);
+
+        assertThat(ManagementFactory.getPlatformMBeanServer().getAttribute(objectName, "requests.count"))
+            .isEqualTo(1L);
+        filterToTest.destroy();
+        assertThat(ManagementFactory.getPlatformMBeanServer().isRegistered(objectName)).isFalse();
+    }
+
+    @Test
+    void init_ShouldThrowException_WhenMetricsReporterClassIsNotReporter() {
+        given(mockedFilterConfig.getInitParameter(METRICS_REPORTER_CLASS_PARAM))
+            .willReturn(Counter.class.getName());
+
+        assertThatThrownBy(() -> {
+            filterToTest.init(mockedFilterConfig);
+        }).isInstanceOf(FilterException.class).hasMessageContaining("metrics reporter");
+    }
+
+    @Test
+    void init_ShouldThrowException_WhenContextPathIsNotAbsolute() {
+        oidcSessionManagementConfig.setRefreshSessionContextPath("session/refresh");
+
+        assertThatThrownBy(() -> {
+            filterToTest.init(mockedFilterConfig);
+        }).isInstanceOf(FilterException.class)
+            .hasMessage("refreshSessionContextPath must start with '/': session/refresh");
+    }
+
+    @Test
+    void init_ShouldThrowException_WhenBaseUrlIsNotAbsoluteHttpUrl() {
+        oidcSessionManagementConfig.setBaseUrl("localhost:8080");
+
+        assertThatThrownBy(() -> {
+            filterToTest.init(mockedFilterConfig);
+        }).isInstanceOf(FilterException.class).hasMessageContaining("baseUrl must be an absolute http or https URL");
+    }
+
+    @Test
+    void init_ShouldThrowException_WhenContextPathIsNotValidUrlPath() {
+        oidcSessionManagementConfig.setValidateAndRefreshSessionContextPath("/session/validate and refresh");
+
+        assertThatThrownBy(() -> {
+            filterToTest.init(mockedFilterConfig);
+        }).isInstanceOf(FilterException.class).hasMessageContaining("validateAndRefreshSessionContextPath");
+    }
+
+    @Test
+    void doFilter_ShouldCallService_WhenBaseUrlEndsWithSlash() {
+        oidcSessionManagementConfig.setBaseUrl(stubServer.getBaseUrl() + "/");
+        filterToTest.init(mockedFilterConfig);
+
+        filterToTest.doFilter(mockedRequest, mockedResponse, mockedFilterChain);
+
+        assertThat(stubServer.getRequestCount(StubSessionManagementServer.VALIDATE_SESSION_CONTEXT_PATH))
+            .isEqualTo(1);
+    }
+
+    @Test
+    void doFilter_ShouldNotCallService_WhenIdTokenIsRejectedByLocalVerification() throws GeneralSecurityException {
+        KeyPair keyPair = KeyPairGenerator.getInstance("RSA").generateKeyPair();
+        long nowSeconds = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+        String expiredIdToken = JwtVerifierTest.createToken("RS256", "rsa-1", keyPair.getPrivate(),
+            JwtVerifierTest.claims(nowSeconds - 3600, 0));
+        stubServer.respondWith(JWKS_PATH, JwtVerifierTest.toJwks(JwtVerifierTest.toJwk("rsa-1", keyPair)));
+        given(mockedFilterConfig.getInitParameter(JWKS_URI_PARAM)).willReturn(stubServer.getBaseUrl() + JWKS_PATH);
+        filterToTest.init(mockedFilterConfig);
+
+        try (MockedStatic<OidcClientHelper> mockedOidcClientHelper = mockStatic(OidcClientHelper.class)) {
+            mockedOidcClientHelper.when(() -> {
+                OidcClientHelper.getIdTokenFromAccessToken(anyString());
+            }).thenReturn(expiredIdToken);
+            mockedOidcClientHelper.when(() -> {
+                OidcClientHelper.getJwtClaimsFromIdTokenAsMap(anyString());
+            }).thenReturn(Map.of("sub", "sub", "oidc-session-ref", "ref"));
+
+            filterToTest.doFilter(mockedRequest, mockedResponse, mockedFilterChain);
+        }
+
+        assertThat(filterToTest.isLocalIdTokenVerificationEnabled()).isTrue();
+        assertThat(stubServer.getRequestCount(StubSessionManagementServer.VALIDATE_SESSION_CONTEXT_PATH)).isZero();
+        assertThat(filterToTest.getMetricRegistry().counter("id-token.rejected").getCount()).isEqualTo(1);
+        then(mockedFilterChain).should().doFilter(mockedRequest, mockedResponse);
+    }
+
+    @Test
+    void doFilter_ShouldStillValidateSession_WhenIdTokenPassesLocalVerification() throws GeneralSecurityException {
+        KeyPair keyPair = KeyPairGenerator.getInstance("RSA").generateKeyPair();
+        long nowSeconds = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+        String idToken = JwtVerifierTest.createToken("RS256", "rsa-1", keyPair.getPrivate(),
+            JwtVerifierTest.claims(nowSeconds + 3600, 0));
+        stubServer.respondWith(JWKS_PATH, JwtVerifierTest.toJwks(JwtVerifierTest.toJwk("rsa-1", keyPair)));
+        given(mockedFilterConfig.getInitParameter(JWKS_URI_PARAM)).willReturn(stubServer.getBaseUrl() + JWKS_PATH);
+        filterToTest.init(mockedFilterConfig);
+
+        try (MockedStatic<OidcClientHelper> mockedOidcClientHelper = mockStatic(OidcClientHelper.class)) {
+            mockedOidcClientHelper.when(() -> {
+                OidcClientHelper.getIdTokenFromAccessToken(anyString());
+            }).thenReturn(idToken);
+            mockedOidcClientHelper.when(() -> {
+                OidcClientHelper.getJwtClaimsFromIdTokenAsMap(anyString());
+            }).thenReturn(Map.of("sub", "sub", "oidc-session-ref", "ref"));
+
+            filterToTest.doFilter(mockedRequest, mockedResponse, mockedFilterChain);
+        }
+
+        assertThat(stubServer.getRequestCount(StubSessionManagementServer.VALIDATE_SESSION_CONTEXT_PATH))
+            .isEqualTo(1);
+        assertThat(filterToTest.getMetricRegistry().counter("id-token.rejected").getCount()).isZero();
+    }
+
+    @Test
+    void doFilter_ShouldExtractClaimsWithoutDecodingClaimsMap_WhenIdTokenIsJwt() throws GeneralSecurityException {
+        KeyPair keyPair = KeyPairGenerator.getInstance("RSA").generateKeyPair();
+        String idToken = JwtVerifierTest.createToken("RS256", "rsa-1", keyPair.getPrivate(),
+            JwtVerifierTest.claims(TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) + 3600, 0));
+        stubServer.respondWith(StubSessionManagementServer.VALIDATE_SESSION_CONTEXT_PATH, "{\"valid\": false}");
+        filterToTest.init(mockedFilterConfig);
+
+        try (MockedStatic<OidcClientHelper> mockedOidcClientHelper = mockStatic(OidcClientHelper.class)) {
+            mockedOidcClientHelper.when(() -> {
+                OidcClientHelper.getIdTokenFromAccessToken(anyString());
+            }).thenReturn(idToken);
+
+            filterToTest.doFilter(mockedRequest, mockedResponse, mockedFilterChain);
+
+            mockedOidcClientHelper.verify(never(), () -> {
+                OidcClientHelper.getJwtClaimsFromIdTokenAsMap(anyString());
+            });
+        }
+
+        // The OIDC session reference of the token is remembered as invalid
+        filterToTest.doFilter(mockedRequest, mockedResponse, mockedFilterChain);
+        assertThat(stubServer.getRequestCount(StubSessionManagementServer.VALIDATE_SESSION_CONTEXT_PATH))
+            .isEqualTo(1);
+        assertThat(filterToTest.getInvalidSessionCacheHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void doFilter_ShouldCallNewServiceWithNewClientId_WhenConfigHasBeenReloaded() throws IOException {
+        given(mockedFilterConfig.getInitParameter(CONFIG_RELOAD_INTERVAL_PARAM)).willReturn("3600");
+        filterToTest.init(mockedFilterConfig);
+        filterToTest.doFilter(mockedRequest, mockedResponse, mockedFilterChain);
+
+        try (StubSessionManagementServer otherStubServer = new StubSessionManagementServer()) {
+            oidcSessionManagementConfig.setBaseUrl(otherStubServer.getBaseUrl());
+            oidcSessionManagementConfig.setOidcClientId("other-oidc-client-id");
+
+            assertThat(filterToTest.reloadSessionManagementConfig()).isTrue();
+            assertThat(filterToTest.reloadSessionManagementConfig()).isFalse();
+            filterToTest.doFilter(mockedRequest, mockedResponse, mockedFilterChain);
+
+            assertThat(filterToTest.getBaseUrl()).isEqualTo(otherStubServer.getBaseUrl());
+            assertThat(stubServer.getRequestCount(StubSessionManagementServer.VALIDATE_SESSION_CONTEXT_PATH))
+                .isEqualTo(1);
+            assertThat(otherStubServer.getRequestCount(StubSessionManagementServer.VALIDATE_SESSION_CONTEXT_PATH))
+                .isEqualTo(1);
+            assertThat(otherStubServer.getLastRequestHeader(StubSessionManagementServer.REFRESH_SESSION_CONTEXT_PATH,
+                "client-id")).isEqualTo("other-oidc-client-id");
+        }
+    }
+
+    @Test
+    void reloadSessionManagementConfig_ShouldKeepCurrentConfig_WhenReloadedConfigIsInvalid() {
+        given(mockedFilterConfig.getInitParameter(CONFIG_RELOAD_INTERVAL_PARAM)).willReturn("3600");
+        filterToTest.init(mockedFilterConfig);
+
+        oidcSessionManagementConfig.setBaseUrl("localhost:8080");
+        assertThat(filterToTest.reloadSessionManagementConfig()).isFalse();
+        oidcSessionManagementConfig.setBaseUrl(stubServer.getBaseUrl());
+        oidcSessionManagementConfig
+            .setBatchRefreshSessionContextPath(StubSessionManagementServer.BATCH_REFRESH_SESSION_CONTEXT_PATH);
+        assertThat(filterToTest.reloadSessionManagementConfig()).isFalse();
+        filterToTest.doFilter(mockedRequest, mockedResponse, mockedFilterChain);
+
+        assertThat(filterToTest.getBatchRefreshSessionContextPath()).isNull();
+        assertThat(stubServer.getRequestCount(StubSessionManagementServer.VALIDATE_SESSION_CONTEXT_PATH))
+            .isEqualTo(1);
+    }
+
+    @Test
+    void reloadSessionManagementConfig_ShouldReturnFalse_WhenReloadingIsNotEnabled() {
+        filterToTest.init(mockedFilterConfig);
+        oidcSessionManagementConfig.setValidateSessionContextPath(UNKNOWN_CONTEXT_PATH);
+
+        assertThat(filterToTest.reloadSessionManagementConfig()).isFalse();
+        assertThat(filterToTest.getValidateSessionContextPath())
+            .isEqualTo(StubSessionManagementServer.VALIDATE_SESSION_CONTEXT_PATH);
+    }
+
+    @Test
+    void doFilter_ShouldSpreadCallsOverAllEndpoints_WhenSeveralBaseUrlsAreConfigured() throws IOException {
+        try (StubSessionManagementServer otherStubServer = new StubSessionManagementServer()) {
+            oidcSessionManagementConfig.setBaseUrl(stubServer.getBaseUrl() + ", " + otherStubServer.getBaseUrl());
+            filterToTest.init(mockedFilterConfig);
+
+            for (int i = 0; i < 20; i++) {
+                filterToTest.doFilter(mockedRequest, mockedResponse, mockedFilterChain);
+            }
+
+            int requestCount = stubServer.getRequestCount(StubSessionManagementServer.VALIDATE_SESSION_CONTEXT_PATH)
+                + stubServer.getRequestCount(StubSessionManagementServer.REFRESH_SESSION_CONTEXT_PATH);
+            int otherRequestCount = otherStubServer
+                .getRequestCount(StubSessionManagementServer.VALIDATE_SESSION_CONTEXT_PATH)
+                + otherStubServer.getRequestCount(StubSessionManagementServer.REFRESH_SESSION_CONTEXT_PATH);
+            assertThat(requestCount).isPositive();
+            assertThat(otherRequestCount).isPositive();
+            assertThat(requestCount + otherRequestCount).isEqualTo(40);
+        }
+    }
+
+    @Test
+    void doFilter_ShouldEjectFailingEndpoint_WhenItFailsInARow() throws IOException {
+        StubSessionManagementServer stoppedStubServer = new StubSessionManagementServer();
+        stoppedStubServer.close();
+        oidcSessionManagementConfig.setBaseUrl(stubServer.getBaseUrl() + "," + stoppedStubServer.getBaseUrl());
+        given(mockedFilterConfig.getInitParameter(ENDPOINT_EJECTION_CONSECUTIVE_FAILURES_PARAM)).willReturn("2");
+        filterToTest.init(mockedFilterConfig);
+
+        for (int i = 0; i < 20; i++) {
+            filterToTest.doFilter(mockedRequest, mockedResponse, mockedFilterChain);
+        }
+
+        MetricRegistry metrics = filterToTest.getMetricRegistry();
+        assertThat(metrics.counter("upstream.errors").getCount()).isEqualTo(2);
+        assertThat(((Gauge) metrics.getMetric("endpoints.ejected")).getValue()).isEqualTo(1);
+        assertThat(stubServer.getRequestCount(StubSessionManagementServer.VALIDATE_SESSION_CONTEXT_PATH))
+            .isGreaterThanOrEqualTo(18);
+    }
+
+    @Test
+    void init_ShouldThrowFilterException_WhenBaseUrlListsTheSameUrlTwice() {
+        oidcSessionManagementConfig.setBaseUrl(stubServer.getBaseUrl() + "," + stubServer.getBaseUrl() + "/");
+
+        assertThatThrownBy(() -> {
+            filterToTest.init(mockedFilterConfig);
+        }).isInstanceOf(FilterException.class).hasMessageContaining("baseUrl lists the same URL more than once");
+    }
+
+    @Test
+    void doFilter_ShouldHedgeValidationOnOtherEndpoint_WhenValidationIsSlow() throws IOException, InterruptedException {
+        try (StubSessionManagementServer otherStubServer = new StubSessionManagementServer()) {
+            oidcSessionManagementConfig.setBaseUrl(stubServer.getBaseUrl() + "," + otherStubServer.getBaseUrl());
+            given(mockedFilterConfig.getInitParameter(HEDGING_ENABLED_PARAM)).willReturn("true");
+            given(mockedFilterConfig.getInitParameter(HEDGING_MIN_DELAY_PARAM)).willReturn("1");
+            given(mockedFilterConfig.getInitParameter(HEDGING_MAX_PERCENT_PARAM)).willReturn("99");
+            filterToTest.init(mockedFilterConfig);
+            // Record enough validation latencies for the hedge delay percentile
+            for (int i = 0; i < 100; i++) {
+                filterToTest.doFilter(mockedRequest, mockedResponse, mockedFilterChain);
+            }
+            MetricRegistry metrics = filterToTest.getMetricRegistry();
+            Gauge hedgeWins = (Gauge) metrics.getMetric("hedging.wins");
+            assertThat(hedgeWins.getValue()).isZero();
+
+            otherStubServer.delayResponses(100);
+            int filteredCount = 100;
+            while (hedgeWins.getValue() == 0 && filteredCount < 140) {
+                filterToTest.doFilter(mockedRequest, mockedResponse, mockedFilterChain);
+                filteredCount++;
+                // Let the slow endpoint be selected again
+                Thread.sleep(150);
+            }
+
+            assertThat(hedgeWins.getValue()).isEqualTo(1);
+            assertThat(((Gauge) metrics.getMetric("hedging.hedges")).getValue()).isPositive();
+            assertThat(metrics.counter("validation.valid").getCount()).isEqualTo(filteredCount);
+            // The call aborted for the winning hedge is not a failure of its endpoint
+            assertThat(metrics.counter("upstream.errors").getCount()).isZero();
+        }
+    }
+}
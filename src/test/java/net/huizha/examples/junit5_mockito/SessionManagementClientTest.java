@@ -0,0 +1,104 @@
+package net.huizha.examples.junit5_mockito;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+
+import org.apache.http.Header;
+import org.apache.http.client.HttpResponseException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link SessionManagementClient} against an in-process stub session management service.
+ *
+ * @author Zhahui
+ *
+ */
+class SessionManagementClientTest {
+    private static final String FAKED_OIDC_CLIENT_ID = "faked-oidc-client-id";
+    private static final String FAKED_OIDC_SESSION_REF = "faked-oidc-session-ref";
+    private static final Header OIDC_CLIENT_ID_HEADER = SessionManagementClient
+        .createOidcClientIdHeader(FAKED_OIDC_CLIENT_ID);
+
+    private StubSessionManagementServer stubServer;
+    private SessionManagementClientConfig clientConfig;
+    private SessionManagementClient clientToTest;
+
+    @BeforeEach
+    void setUpBeforeEach() throws IOException {
+        stubServer = new StubSessionManagementServer();
+        clientConfig = new SessionManagementClientConfig();
+        clientConfig.setSocketTimeoutInMilliseconds(500);
+        clientToTest = new SessionManagementClient(clientConfig);
+    }
+
+    @AfterEach
+    void cleanUpAfterEach() throws IOException {
+        clientToTest.close();
+        stubServer.close();
+    }
+
+    @Test
+    void postForSessionStatus_ShouldSendSessionHeaders() throws IOException {
+        clientToTest.postForSessionStatus(
+            URI.create(stubServer.getBaseUrl() + StubSessionManagementServer.VALIDATE_SESSION_CONTEXT_PATH),
+            OIDC_CLIENT_ID_HEADER, FAKED_OIDC_SESSION_REF);
+
+        assertThat(stubServer.getLastRequestHeader(StubSessionManagementServer.VALIDATE_SESSION_CONTEXT_PATH,
+            "oidc-session-ref")).isEqualTo(FAKED_OIDC_SESSION_REF);
+        assertThat(stubServer.getLastRequestHeader(StubSessionManagementServer.VALIDATE_SESSION_CONTEXT_PATH,
+            "client-id")).isEqualTo(FAKED_OIDC_CLIENT_ID);
+    }
+
+    @Test
+    void postForSessionStatus_ShouldThrowException_WhenServiceDoesNotRespondWithinSocketTimeout() {
+        stubServer.holdResponses();
+
+        assertThatThrownBy(() -> {
+            clientToTest.postForSessionStatus(
+                URI.create(stubServer.getBaseUrl() + StubSessionManagementServer.VALIDATE_SESSION_CONTEXT_PATH),
+                OIDC_CLIENT_ID_HEADER, FAKED_OIDC_SESSION_REF);
+        }).isInstanceOf(SocketTimeoutException.class);
+    }
+
+    @Test
+    void postForSessionStatus_ShouldReadStatusAndReuseConnection_WhenStatusIsFoundBeforeEndOfBody()
+            throws IOException {
+        URI uri = URI.create(stubServer.getBaseUrl() + StubSessionManagementServer.REFRESH_SESSION_CONTEXT_PATH);
+        stubServer.respondWith(StubSessionManagementServer.REFRESH_SESSION_CONTEXT_PATH,
+            "{\"valid\": false, \"expires_in\": 0, \"claims\": {\"sub\": \"faked-sub\"}}");
+
+        for (int i = 0; i < 3; i++) {
+            SessionStatus status = clientToTest.postForSessionStatus(uri, OIDC_CLIENT_ID_HEADER,
+                FAKED_OIDC_SESSION_REF);
+
+            assertThat(status.isInvalid()).isTrue();
+            assertThat(status.getExpiresInMillis()).isZero();
+        }
+        assertThat(stubServer.getConnectionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void postJson_ShouldReuseConnection_WhenServiceRespondsWithErrorStatus() throws IOException {
+        URI uri = URI.create(stubServer.getBaseUrl() + "/unknown");
+
+        for (int i = 0; i < 3; i++) {
+            assertThatThrownBy(() -> clientToTest.postJson(uri, OIDC_CLIENT_ID_HEADER, "{}"))
+                .isInstanceOf(HttpResponseException.class);
+        }
+        assertThat(stubServer.getConnectionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void postForSessionStatus_ShouldThrowException_WhenServiceRespondsWithErrorStatus() {
+        assertThatThrownBy(() -> {
+            clientToTest.postForSessionStatus(URI.create(stubServer.getBaseUrl() + "/unknown"),
+                OIDC_CLIENT_ID_HEADER, FAKED_OIDC_SESSION_REF);
+        }).isInstanceOf(HttpResponseException.class);
+    }
+}
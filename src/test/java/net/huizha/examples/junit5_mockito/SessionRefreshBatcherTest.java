@@ -0,0 +1,176 @@
+package net.huizha.examples.junit5_mockito;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.HttpResponseException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import net.huizha.examples.metrics.Counter;
+import net.huizha.examples.metrics.MetricRegistry;
+import net.huizha.examples.metrics.Timer;
+
+/**
+ * Tests of {@link SessionRefreshBatcher} against an in-process stub session management service.
+ *
+ * @author Zhahui
+ *
+ */
+class SessionRefreshBatcherTest {
+    private static final String FAKED_OIDC_CLIENT_ID = "faked-oidc-client-id";
+    private static final long LONG_FLUSH_INTERVAL_IN_MILLISECONDS = 60000;
+
+    private StubSessionManagementServer stubServer;
+    private SessionManagementClient sessionManagementClient;
+    private SessionRefreshBatcher batcherToTest;
+    private CircuitBreaker circuitBreaker;
+    private Timer upstreamLatencyTimer;
+    private Counter upstreamErrorCounter;
+
+    @BeforeEach
+    void setUpBeforeEach() throws IOException {
+        stubServer = new StubSessionManagementServer();
+        sessionManagementClient = new SessionManagementClient(new SessionManagementClientConfig());
+        MetricRegistry metricRegistry = new MetricRegistry();
+        upstreamLatencyTimer = metricRegistry.timer("upstream.latency");
+        upstreamErrorCounter = metricRegistry.counter("upstream.errors");
+    }
+
+    @AfterEach
+    void cleanUpAfterEach() throws IOException {
+        if (batcherToTest != null) {
+            batcherToTest.close();
+        }
+        sessionManagementClient.close();
+        stubServer.close();
+    }
+
+    @Test
+    void refresh_ShouldSendOneBulkCall_WhenFullBatchIsPending() throws Exception {
+        batcherToTest = createBatcher(StubSessionManagementServer.BATCH_REFRESH_SESSION_CONTEXT_PATH, 5,
+            LONG_FLUSH_INTERVAL_IN_MILLISECONDS);
+        stubServer.invalidate("ref-3");
+
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(batcherToTest.refresh("ref-" + i));
+        }
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+        assertThat(stubServer.getBatchRequestBodies())
+            .containsExactly("{\"oidc-session-refs\":[\"ref-0\",\"ref-1\",\"ref-2\",\"ref-3\",\"ref-4\"]}");
+        assertThat(futures).extracting(CompletableFuture::join).containsExactly(true, true, true, false, true);
+        assertThat(stubServer.getLastRequestHeader(StubSessionManagementServer.BATCH_REFRESH_SESSION_CONTEXT_PATH,
+            "client-id")).isEqualTo(FAKED_OIDC_CLIENT_ID);
+        assertThat(batcherToTest.getPendingCount()).isZero();
+        assertThat(upstreamLatencyTimer.getCount()).isEqualTo(1);
+        assertThat(upstreamErrorCounter.getCount()).isZero();
+    }
+
+    @Test
+    void refresh_ShouldSendPartialBatch_WhenFlushIntervalElapses() throws Exception {
+        batcherToTest = createBatcher(StubSessionManagementServer.BATCH_REFRESH_SESSION_CONTEXT_PATH, 100, 20);
+
+        CompletableFuture<Boolean> first = batcherToTest.refresh("ref-a");
+        CompletableFuture<Boolean> second = batcherToTest.refresh("ref-b");
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(second.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(stubServer.getBatchRequestBodies()).hasSize(1).first().asString().contains("ref-a", "ref-b");
+    }
+
+    @Test
+    void refresh_ShouldSplitPendingRefreshesIntoBatchesOfMaxSize() throws Exception {
+        batcherToTest = createBatcher(StubSessionManagementServer.BATCH_REFRESH_SESSION_CONTEXT_PATH, 2,
+            LONG_FLUSH_INTERVAL_IN_MILLISECONDS);
+
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(batcherToTest.refresh("ref-" + i));
+        }
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+        assertThat(stubServer.getBatchRequestBodies()).hasSize(2);
+    }
+
+    @Test
+    void refresh_ShouldMatchResults_WhenOidcSessionRefsContainJsonEscapes() throws Exception {
+        batcherToTest = createBatcher(StubSessionManagementServer.BATCH_REFRESH_SESSION_CONTEXT_PATH, 2,
+            LONG_FLUSH_INTERVAL_IN_MILLISECONDS);
+
+        CompletableFuture<Boolean> quoted = batcherToTest.refresh("ref-\"quoted\"");
+        CompletableFuture<Boolean> backslashed = batcherToTest.refresh("ref-\\backslashed");
+
+        assertThat(quoted.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(backslashed.get(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void refresh_ShouldFailAllRefreshesOfBatch_WhenBulkCallFails() {
+        batcherToTest = createBatcher("/unknown", 2, LONG_FLUSH_INTERVAL_IN_MILLISECONDS);
+
+        CompletableFuture<Boolean> first = batcherToTest.refresh("ref-a");
+        CompletableFuture<Boolean> second = batcherToTest.refresh("ref-b");
+
+        assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class)
+            .hasCauseInstanceOf(HttpResponseException.class);
+        assertThatThrownBy(() -> second.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class)
+            .hasCauseInstanceOf(HttpResponseException.class);
+        assertThat(upstreamErrorCounter.getCount()).isEqualTo(1);
+    }
+
+    @Test
+    void refresh_ShouldFailAllRefreshesOfBatchWithoutCall_WhenCircuitBreakerDoesNotPermitCall() {
+        CircuitBreakerConfig circuitBreakerConfig = new CircuitBreakerConfig();
+        circuitBreakerConfig.setMaxConcurrentCalls(1);
+        circuitBreaker = new CircuitBreaker(circuitBreakerConfig, Clock.systemUTC());
+        assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+        batcherToTest = createBatcher(StubSessionManagementServer.BATCH_REFRESH_SESSION_CONTEXT_PATH, 2,
+            LONG_FLUSH_INTERVAL_IN_MILLISECONDS);
+
+        CompletableFuture<Boolean> first = batcherToTest.refresh("ref-a");
+        CompletableFuture<Boolean> second = batcherToTest.refresh("ref-b");
+
+        assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class)
+            .hasCauseInstanceOf(CircuitBreaker.CallNotPermittedException.class);
+        assertThatThrownBy(() -> second.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class)
+            .hasCauseInstanceOf(CircuitBreaker.CallNotPermittedException.class);
+        assertThat(stubServer.getBatchRequestBodies()).isEmpty();
+    }
+
+    @Test
+    void refresh_ShouldFail_WhenBatcherIsClosed() {
+        batcherToTest = createBatcher(StubSessionManagementServer.BATCH_REFRESH_SESSION_CONTEXT_PATH, 100,
+            LONG_FLUSH_INTERVAL_IN_MILLISECONDS);
+        CompletableFuture<Boolean> pending = batcherToTest.refresh("ref-a");
+
+        batcherToTest.close();
+
+        assertThat(pending).isCompletedExceptionally();
+        assertThat(batcherToTest.refresh("ref-b")).isCompletedExceptionally();
+    }
+
+    private SessionRefreshBatcher createBatcher(String contextPath, int maxBatchSize,
+            long flushIntervalInMilliseconds) {
+        OidcSessionManagementConfig config = new OidcSessionManagementConfig();
+        config.setBaseUrl(stubServer.getBaseUrl());
+        config.setValidateSessionContextPath(StubSessionManagementServer.VALIDATE_SESSION_CONTEXT_PATH);
+        config.setRefreshSessionContextPath(StubSessionManagementServer.REFRESH_SESSION_CONTEXT_PATH);
+        config.setBatchRefreshSessionContextPath(contextPath);
+        config.setOidcClientId(FAKED_OIDC_CLIENT_ID);
+        SessionManagementSnapshot snapshot = SessionManagementSnapshot.of(config);
+        EndpointSelector endpointSelector = new EndpointSelector(Clock.systemUTC(), 5, 2000, 30000, 300000);
+        return new SessionRefreshBatcher(sessionManagementClient, () -> snapshot, endpointSelector, circuitBreaker,
+            upstreamLatencyTimer, upstreamErrorCounter, maxBatchSize, flushIntervalInMilliseconds);
+    }
+}
@@ -0,0 +1,140 @@
+package net.huizha.examples.junit5_mockito;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+import javax.servlet.http.HttpSession;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import net.huizha.examples.junit5_mockito.BoundedTtlCacheTest.MutableClock;
+
+/**
+ * Tests of {@link SessionRefreshTimestamps}.
+ *
+ * @author Zhahui
+ *
+ */
+class SessionRefreshTimestampsTest {
+    private static final String OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY = "oidc-next-refresh-epoch-millis";
+    private static final String OIDC_LAST_REFRESHED_DATETIME_KEY = "oidc-last-refreshed-datetime";
+    private static final long REFRESH_INTERVAL_IN_MILLIS = 30000;
+    private static final long MAX_REFRESH_INTERVAL_IN_MILLIS = 600000;
+
+    private MutableClock clock;
+    private HttpSession mockedHttpSession;
+    private SessionRefreshTimestamps timestampsToTest;
+
+    @BeforeEach
+    void setUpBeforeEach() {
+        clock = new MutableClock(1_000_000L);
+        mockedHttpSession = mock(HttpSession.class);
+        timestampsToTest = new SessionRefreshTimestamps(clock, REFRESH_INTERVAL_IN_MILLIS);
+    }
+
+    @Test
+    void isDue_ShouldCompareDeadlineWithClock_WhenSessionHasDeadline() {
+        given(mockedHttpSession.getAttribute(OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY)).willReturn(clock.millis());
+
+        assertThat(timestampsToTest.isDue(mockedHttpSession)).isFalse();
+        clock.advance(1);
+        assertThat(timestampsToTest.isDue(mockedHttpSession)).isTrue();
+    }
+
+    @Test
+    void isDue_ShouldSetDeadlineOneIntervalFromNow_WhenSessionIsNew() {
+        assertThat(timestampsToTest.isDue(mockedHttpSession)).isFalse();
+
+        then(mockedHttpSession).should().setAttribute(OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY,
+            clock.millis() + REFRESH_INTERVAL_IN_MILLIS);
+    }
+
+    @Test
+    void isDue_ShouldMigrateLegacyDateTime_WhenSessionHasNoDeadline() {
+        Instant lastRefreshed = clock.instant().minusSeconds(31);
+        given(mockedHttpSession.getAttribute(OIDC_LAST_REFRESHED_DATETIME_KEY))
+            .willReturn(LocalDateTime.ofInstant(lastRefreshed, ZoneId.systemDefault()));
+
+        assertThat(timestampsToTest.isDue(mockedHttpSession)).isTrue();
+
+        then(mockedHttpSession).should().setAttribute(OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY,
+            lastRefreshed.toEpochMilli() + REFRESH_INTERVAL_IN_MILLIS);
+        then(mockedHttpSession).should().removeAttribute(OIDC_LAST_REFRESHED_DATETIME_KEY);
+    }
+
+    @Test
+    void markRefreshed_ShouldSetDeadlineOneIntervalFromNow() {
+        timestampsToTest.markRefreshed(mockedHttpSession);
+
+        then(mockedHttpSession).should().setAttribute(OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY,
+            clock.millis() + REFRESH_INTERVAL_IN_MILLIS);
+    }
+
+    @Test
+    void getLastRefreshed_ShouldReadDeadlineOrLegacyDateTime() {
+        assertThat(timestampsToTest.getLastRefreshed(mockedHttpSession)).isNull();
+
+        Instant lastRefreshed = clock.instant().minusSeconds(10);
+        given(mockedHttpSession.getAttribute(OIDC_LAST_REFRESHED_DATETIME_KEY))
+            .willReturn(LocalDateTime.ofInstant(lastRefreshed, ZoneId.systemDefault()));
+        assertThat(timestampsToTest.getLastRefreshed(mockedHttpSession)).isEqualTo(lastRefreshed);
+
+        given(mockedHttpSession.getAttribute(OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY))
+            .willReturn(clock.millis() + REFRESH_INTERVAL_IN_MILLIS);
+        assertThat(timestampsToTest.getLastRefreshed(mockedHttpSession)).isEqualTo(clock.instant());
+    }
+
+    @Test
+    void markRefreshed_ShouldSpreadDeadlineByJitter() {
+        SessionRefreshTimestamps jitteredTimestamps = new SessionRefreshTimestamps(clock, REFRESH_INTERVAL_IN_MILLIS,
+            REFRESH_INTERVAL_IN_MILLIS, 10, () -> 0.0);
+        jitteredTimestamps.markRefreshed(mockedHttpSession);
+
+        then(mockedHttpSession).should().setAttribute(OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY,
+            clock.millis() + REFRESH_INTERVAL_IN_MILLIS - REFRESH_INTERVAL_IN_MILLIS / 10);
+    }
+
+    @Test
+    void isDue_ShouldSpreadDeadlineByJitter_WhenSessionIsNew() {
+        SessionRefreshTimestamps jitteredTimestamps = new SessionRefreshTimestamps(clock, REFRESH_INTERVAL_IN_MILLIS,
+            REFRESH_INTERVAL_IN_MILLIS, 10, () -> 0.75);
+
+        assertThat(jitteredTimestamps.isDue(mockedHttpSession)).isFalse();
+
+        then(mockedHttpSession).should().setAttribute(OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY,
+            clock.millis() + REFRESH_INTERVAL_IN_MILLIS + REFRESH_INTERVAL_IN_MILLIS / 20);
+    }
+
+    @Test
+    void markRefreshed_ShouldStretchIntervalToHalfOfSessionLifetime_WhenAdaptationIsEnabled() {
+        SessionRefreshTimestamps adaptiveTimestamps = new SessionRefreshTimestamps(clock, REFRESH_INTERVAL_IN_MILLIS,
+            MAX_REFRESH_INTERVAL_IN_MILLIS, 0);
+
+        adaptiveTimestamps.markRefreshed(mockedHttpSession, 300000);
+        then(mockedHttpSession).should().setAttribute(OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY, clock.millis() + 150000);
+
+        adaptiveTimestamps.markRefreshed(mockedHttpSession, 3600000);
+        then(mockedHttpSession).should().setAttribute(OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY,
+            clock.millis() + MAX_REFRESH_INTERVAL_IN_MILLIS);
+
+        adaptiveTimestamps.markRefreshed(mockedHttpSession, 10000);
+        adaptiveTimestamps.markRefreshed(mockedHttpSession, -1);
+        then(mockedHttpSession).should(times(2)).setAttribute(OIDC_NEXT_REFRESH_EPOCH_MILLIS_KEY,
+            clock.millis() + REFRESH_INTERVAL_IN_MILLIS);
+    }
+
+    @Test
+    void constructor_ShouldThrowException_WhenJitterIsNotBelow100Percent() {
+        assertThatThrownBy(() -> new SessionRefreshTimestamps(clock, REFRESH_INTERVAL_IN_MILLIS,
+            REFRESH_INTERVAL_IN_MILLIS, 100)).isInstanceOf(IllegalArgumentException.class).hasMessageContaining("jitter");
+    }
+}
@@ -0,0 +1,97 @@
+package net.huizha.examples.junit5_mockito;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link SessionStatusReader}.
+ *
+ * @author Zhahui
+ *
+ */
+class SessionStatusReaderTest {
+
+    @Test
+    void read_ShouldReturnValidityAndLifetime_WhenResponseReportsBoth() throws IOException {
+        SessionStatus status = read("{\"valid\": true, \"expires_in\": 600}");
+
+        assertThat(status.isValid()).isTrue();
+        assertThat(status.isInvalid()).isFalse();
+        assertThat(status.getExpiresInMillis()).isEqualTo(600000);
+    }
+
+    @Test
+    void read_ShouldReportInvalidSession_WhenValidIsFalseWithoutWhitespace() throws IOException {
+        SessionStatus status = read("{\"valid\":false}");
+
+        assertThat(status.isValid()).isFalse();
+        assertThat(status.isInvalid()).isTrue();
+        assertThat(status.getExpiresInMillis()).isEqualTo(-1);
+    }
+
+    @Test
+    void read_ShouldSkipOtherFieldsAndNestedValues() throws IOException {
+        SessionStatus status = read("{\"sub\": \"a \\\"valid\\\": false\", \"claims\": {\"valid\": false, \"list\": "
+            + "[1, -2.5e3, null, {\"expires_in\": 1}]}, \"validated\": true, \"expires_in\": 1.5, \"valid\": true}");
+
+        assertThat(status.isValid()).isTrue();
+        assertThat(status.getExpiresInMillis()).isEqualTo(-1);
+    }
+
+    @Test
+    void read_ShouldReadFields_WhenKeysAreEscaped() throws IOException {
+        SessionStatus status = read("{\"v\\u0061lid\": false, \"expires\\u005fin\": 30}");
+
+        assertThat(status.isInvalid()).isTrue();
+        assertThat(status.getExpiresInMillis()).isEqualTo(30000);
+    }
+
+    @Test
+    void read_ShouldStopReading_WhenBothFieldsHaveBeenFound() throws IOException {
+        InputStream in = new ByteArrayInputStream(
+            "{\"valid\": true, \"expires_in\": 60, not json".getBytes(StandardCharsets.UTF_8));
+
+        SessionStatus status = SessionStatusReader.read(in);
+
+        assertThat(status.isValid()).isTrue();
+        assertThat(status.getExpiresInMillis()).isEqualTo(60000);
+    }
+
+    @Test
+    void read_ShouldReadFieldsAcrossBufferBoundaries_WhenResponseIsLarge() throws IOException {
+        StringBuilder json = new StringBuilder("{\"padding\": \"");
+        for (int i = 0; i < 2000; i++) {
+            json.append('x');
+        }
+        json.append("\", \"expires_in\": 1200, \"valid\": false}");
+
+        SessionStatus status = read(json.toString());
+
+        assertThat(status.isInvalid()).isTrue();
+        assertThat(status.getExpiresInMillis()).isEqualTo(1200000);
+    }
+
+    @Test
+    void read_ShouldReturnUnknownStatus_WhenBodyIsEmpty() throws IOException {
+        assertThat(read("")).isSameAs(SessionStatus.UNKNOWN);
+        assertThat(read("{}")).isSameAs(SessionStatus.UNKNOWN);
+    }
+
+    @Test
+    void read_ShouldThrowException_WhenBodyIsNotJsonObject() {
+        assertThatThrownBy(() -> read("true")).isInstanceOf(IOException.class).hasMessageContaining("object");
+        assertThatThrownBy(() -> read("{\"valid\": tru}")).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> read("{\"valid\": true")).isInstanceOf(IOException.class);
+    }
+
+    private static SessionStatus read(String json) throws IOException {
+        return SessionStatusReader.read(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+}
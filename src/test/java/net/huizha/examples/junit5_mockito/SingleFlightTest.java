@@ -0,0 +1,102 @@
+package net.huizha.examples.junit5_mockito;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link SingleFlight}.
+ *
+ * @author Zhahui
+ *
+ */
+class SingleFlightTest {
+    private SingleFlight<String, Integer> singleFlightToTest;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUpBeforeEach() {
+        singleFlightToTest = new SingleFlight<>();
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void cleanUpAfterEach() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void executeIfAbsent_ShouldSkipCall_WhenCallForSameKeyIsInFlight() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicInteger callCount = new AtomicInteger();
+
+        CompletableFuture<Integer> leader = singleFlightToTest.executeIfAbsent("key", () -> {
+            latch.await();
+            return callCount.incrementAndGet();
+        }, executor);
+        CompletableFuture<Integer> follower = singleFlightToTest.executeIfAbsent("key",
+            callCount::incrementAndGet, executor);
+
+        assertThat(follower).isNull();
+        latch.countDown();
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+        assertThat(callCount).hasValue(1);
+    }
+
+    @Test
+    void executeIfAbsent_ShouldRunCallsForDifferentKeysIndependently() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+
+        CompletableFuture<Integer> first = singleFlightToTest.executeIfAbsent("first", () -> {
+            latch.await();
+            return 1;
+        }, executor);
+        CompletableFuture<Integer> second = singleFlightToTest.executeIfAbsent("second", () -> 2, executor);
+
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo(2);
+        latch.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+    }
+
+    @Test
+    void executeIfAbsent_ShouldAllowNewCall_WhenPreviousCallCompleted() throws Exception {
+        singleFlightToTest.executeIfAbsent("key", () -> 1, Runnable::run);
+
+        CompletableFuture<Integer> future = singleFlightToTest.executeIfAbsent("key", () -> 2, Runnable::run);
+
+        assertThat(future.get()).isEqualTo(2);
+    }
+
+    @Test
+    void executeIfAbsent_ShouldCompleteExceptionally_WhenCallThrowsException() {
+        CompletableFuture<Integer> future = singleFlightToTest.executeIfAbsent("key", () -> {
+            throw new IllegalStateException("call failed");
+        }, Runnable::run);
+
+        assertThatThrownBy(future::get).isInstanceOf(ExecutionException.class)
+            .hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(singleFlightToTest.executeIfAbsent("key", () -> 1, Runnable::run)).isNotNull();
+    }
+
+    @Test
+    void executeIfAbsent_ShouldReleaseKey_WhenExecutorRejectsCall() {
+        assertThatThrownBy(() -> {
+            singleFlightToTest.executeIfAbsent("key", () -> 1, runnable -> {
+                throw new RejectedExecutionException();
+            });
+        }).isInstanceOf(RejectedExecutionException.class);
+        assertThat(singleFlightToTest.executeIfAbsent("key", () -> 1, Runnable::run)).isNotNull();
+    }
+}
@@ -0,0 +1,189 @@
+package net.huizha.examples.junit5_mockito;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * In-process stub of the OIDC session management service.
+ *
+ * @author Zhahui
+ *
+ */
+class StubSessionManagementServer implements AutoCloseable {
+    static final String VALIDATE_SESSION_CONTEXT_PATH = "/session/validate";
+    static final String REFRESH_SESSION_CONTEXT_PATH = "/session/refresh";
+    static final String VALIDATE_AND_REFRESH_SESSION_CONTEXT_PATH = "/session/validate-and-refresh";
+    static final String BATCH_REFRESH_SESSION_CONTEXT_PATH = "/session/batch-refresh";
+    private static final Pattern OIDC_SESSION_REF_PATTERN = Pattern.compile("\"((?:[^\"\\\\]|\\\\.)+)\"");
+
+    private final HttpServer server;
+    private final Map<String, String> responseBodies = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> requestCounts = new ConcurrentHashMap<>();
+    private final Map<String, Headers> lastRequestHeaders = new ConcurrentHashMap<>();
+    private final List<String> batchRequestBodies = new CopyOnWriteArrayList<>();
+    private final Set<String> invalidOidcSessionRefs = ConcurrentHashMap.newKeySet();
+    private final Set<InetSocketAddress> clientAddresses = ConcurrentHashMap.newKeySet();
+    private volatile CountDownLatch responseGate = new CountDownLatch(0);
+    private volatile long responseDelayInMillis;
+
+    StubSessionManagementServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        respondWith(VALIDATE_SESSION_CONTEXT_PATH, "{\"valid\": true}");
+        respondWith(REFRESH_SESSION_CONTEXT_PATH, "{\"valid\": true}");
+        respondWith(VALIDATE_AND_REFRESH_SESSION_CONTEXT_PATH, "{\"valid\": true}");
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    /**
+     * @return the base URL of the stub server, without a trailing slash
+     */
+    String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Set the response body returned for the given path.
+     *
+     * @param path the request path
+     * @param body the response body
+     */
+    void respondWith(String path, String body) {
+        responseBodies.put(path, body);
+    }
+
+    /**
+     * Report the given OIDC session as not valid in batch refreshing responses.
+     *
+     * @param oidcSessionRef the OIDC session reference
+     */
+    void invalidate(String oidcSessionRef) {
+        invalidOidcSessionRefs.add(oidcSessionRef);
+    }
+
+    /**
+     * @return the request bodies of all batch refreshing calls received, in order
+     */
+    List<String> getBatchRequestBodies() {
+        return batchRequestBodies;
+    }
+
+    /**
+     * Hold all responses until {@link #releaseResponses()} is called.
+     */
+    void holdResponses() {
+        responseGate = new CountDownLatch(1);
+    }
+
+    /**
+     * Release responses held by {@link #holdResponses()}.
+     */
+    void releaseResponses() {
+        responseGate.countDown();
+    }
+
+    /**
+     * Delay every response by the given time, as a slow session management service would.
+     *
+     * @param delayInMillis the response delay in milliseconds
+     */
+    void delayResponses(long delayInMillis) {
+        responseDelayInMillis = delayInMillis;
+    }
+
+    /**
+     * @param path the request path
+     * @return the number of requests received on the given path
+     */
+    int getRequestCount(String path) {
+        AtomicInteger count = requestCounts.get(path);
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * @param path the request path
+     * @param name the header name
+     * @return the value of the header of the last request received on the given path, or null
+     */
+    String getLastRequestHeader(String path, String name) {
+        Headers headers = lastRequestHeaders.get(path);
+        return headers == null ? null : headers.getFirst(name);
+    }
+
+    /**
+     * @return the number of client connections requests were received on
+     */
+    int getConnectionCount() {
+        return clientAddresses.size();
+    }
+
+    @Override
+    public void close() {
+        releaseResponses();
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        lastRequestHeaders.put(path, exchange.getRequestHeaders());
+        clientAddresses.add(exchange.getRemoteAddress());
+        requestCounts.computeIfAbsent(path, key -> new AtomicInteger()).incrementAndGet();
+        try {
+            responseGate.await(10, TimeUnit.SECONDS);
+            if (responseDelayInMillis > 0) {
+                Thread.sleep(responseDelayInMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        String body = BATCH_REFRESH_SESSION_CONTEXT_PATH.equals(path) ? handleBatch(exchange)
+            : responseBodies.get(path);
+        if (body == null) {
+            // Drain the request so that the connection can be kept alive
+            exchange.getRequestBody().readAllBytes();
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+            return;
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(bytes);
+        }
+    }
+
+    private String handleBatch(HttpExchange exchange) throws IOException {
+        String requestBody = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        batchRequestBodies.add(requestBody);
+        StringBuilder responseBody = new StringBuilder("{");
+        Matcher matcher = OIDC_SESSION_REF_PATTERN.matcher(requestBody.substring(requestBody.indexOf('[')));
+        while (matcher.find()) {
+            if (responseBody.length() > 1) {
+                responseBody.append(", ");
+            }
+            String oidcSessionRef = matcher.group(1);
+            responseBody.append('"').append(oidcSessionRef).append("\": ")
+                .append(!invalidOidcSessionRefs.contains(oidcSessionRef));
+        }
+        return responseBody.append('}').toString();
+    }
+}
@@ -0,0 +1,88 @@
+package net.huizha.examples.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link Histogram} and {@link Timer}.
+ *
+ * @author Zhahui
+ *
+ */
+class HistogramTest {
+
+    @Test
+    void getBucketIndex_ShouldMapValueToBucketCoveringIt_WithinRelativeErrorBound() {
+        long[] values = { 0, 1, 63, 64, 65, 127, 128, 1000, 123_456_789L, Long.MAX_VALUE / 3, Long.MAX_VALUE };
+
+        for (long value : values) {
+            int index = Histogram.getBucketIndex(value);
+
+            assertThat(Histogram.getHighestEquivalentValue(index)).isGreaterThanOrEqualTo(value);
+            assertThat(index == 0 ? 0 : Histogram.getHighestEquivalentValue(index - 1)).isLessThan(Math.max(1, value));
+            assertThat((double) Histogram.getHighestEquivalentValue(index) - value).isLessThanOrEqualTo(value / 32.0);
+        }
+    }
+
+    @Test
+    void getValueAtPercentile_ShouldReturnRecordedDistribution() {
+        Histogram histogramToTest = new Histogram();
+
+        for (long value = 1; value <= 1000; value++) {
+            histogramToTest.record(value);
+        }
+
+        assertThat(histogramToTest.getCount()).isEqualTo(1000);
+        assertThat(histogramToTest.getMean()).isCloseTo(500.5, within(0.001));
+        assertThat(histogramToTest.getMax()).isEqualTo(1000);
+        assertThat(histogramToTest.getValueAtPercentile(50)).isBetween(500L, 516L);
+        assertThat(histogramToTest.getValueAtPercentile(99)).isBetween(990L, 1000L);
+        assertThat(histogramToTest.getValueAtPercentile(100)).isEqualTo(1000);
+    }
+
+    @Test
+    void getValueAtPercentile_ShouldReturnZero_WhenNothingIsRecorded() {
+        Histogram histogramToTest = new Histogram();
+
+        assertThat(histogramToTest.getValueAtPercentile(99)).isZero();
+        assertThat(histogramToTest.getMean()).isZero();
+    }
+
+    @Test
+    void record_ShouldCountEveryValue_WhenCalledConcurrently() throws InterruptedException {
+        Histogram histogramToTest = new Histogram();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        CountDownLatch done = new CountDownLatch(4);
+
+        for (int t = 0; t < 4; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    histogramToTest.record(i);
+                }
+                done.countDown();
+            });
+        }
+        done.await(10, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertThat(histogramToTest.getCount()).isEqualTo(40000);
+        assertThat(histogramToTest.getMax()).isEqualTo(9999);
+    }
+
+    @Test
+    void record_ShouldRecordDurationInMicroseconds_WhenHistogramIsTimer() {
+        Timer timerToTest = new Timer();
+
+        timerToTest.record(5, TimeUnit.MILLISECONDS);
+
+        assertThat(timerToTest.getMax()).isEqualTo(5000);
+        assertThat(timerToTest.getValues()).containsKeys("count", "mean", "max", "p50", "p99");
+    }
+}
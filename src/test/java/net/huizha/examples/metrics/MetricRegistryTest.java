@@ -0,0 +1,99 @@
+package net.huizha.examples.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link MetricRegistry}, {@link JmxMetricsExporter} and {@link ScheduledMetricsReporting}.
+ *
+ * @author Zhahui
+ *
+ */
+class MetricRegistryTest {
+
+    @Test
+    void counter_ShouldReturnSameCounter_WhenNameIsRegistered() {
+        MetricRegistry registryToTest = new MetricRegistry();
+
+        registryToTest.counter("requests").increment();
+        registryToTest.counter("requests").add(2);
+
+        assertThat(registryToTest.counter("requests").getCount()).isEqualTo(3);
+    }
+
+    @Test
+    void timer_ShouldThrowException_WhenNameIsRegisteredWithAnotherType() {
+        MetricRegistry registryToTest = new MetricRegistry();
+        registryToTest.counter("requests");
+
+        assertThatThrownBy(() -> registryToTest.timer("requests")).isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("timer");
+        assertThatThrownBy(() -> registryToTest.gauge("requests", () -> 1))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThat(registryToTest.getMetric("requests")).isInstanceOf(Counter.class);
+    }
+
+    @Test
+    void getMetrics_ShouldReturnMetricsSortedByName() {
+        MetricRegistry registryToTest = new MetricRegistry();
+        registryToTest.timer("upstream.latency");
+        registryToTest.gauge("cache.hits", () -> 42);
+        registryToTest.counter("requests");
+
+        SortedMap<String, Metric> metrics = registryToTest.getMetrics();
+
+        assertThat(metrics.keySet()).containsExactly("cache.hits", "requests", "upstream.latency");
+        assertThat(metrics.get("cache.hits").getValues()).containsEntry("value", 42L);
+    }
+
+    @Test
+    void getAttribute_ShouldReadMetricValueThroughPlatformMBeanServer_WhenExporterIsRegistered()
+            throws JMException {
+        MetricRegistry registry = new MetricRegistry();
+        registry.counter("requests").add(7);
+        ObjectName objectName = new ObjectName("net.huizha.examples:type=MetricRegistryTest");
+        JmxMetricsExporter exporterToTest = new JmxMetricsExporter(registry, objectName);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        exporterToTest.register();
+        try {
+            assertThat(server.getAttribute(objectName, "requests.count")).isEqualTo(7L);
+            assertThat(server.getMBeanInfo(objectName).getAttributes()).hasSize(1);
+        } finally {
+            exporterToTest.unregister();
+        }
+        assertThat(server.isRegistered(objectName)).isFalse();
+    }
+
+    @Test
+    void report_ShouldPassMetricsToReporterAndSurviveReporterErrors() {
+        MetricRegistry registry = new MetricRegistry();
+        registry.counter("requests").increment();
+        List<SortedMap<String, Metric>> reports = new ArrayList<>();
+        MetricsReporter failingReporter = metrics -> {
+            reports.add(metrics);
+            throw new IllegalStateException("faked reporter failure");
+        };
+
+        try (ScheduledMetricsReporting reportingToTest = new ScheduledMetricsReporting(registry, failingReporter, 1,
+            TimeUnit.HOURS)) {
+            reportingToTest.report();
+            reportingToTest.report();
+        }
+
+        assertThat(reports).hasSize(2);
+        assertThat(reports.get(0)).containsOnlyKeys("requests");
+    }
+}